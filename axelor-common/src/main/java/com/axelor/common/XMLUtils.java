@@ -35,6 +35,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
@@ -154,6 +155,33 @@ public class XMLUtils {
     return parser;
   }
 
+  // StAX block
+
+  /**
+   * Returns properly configured namespace aware {@link XMLInputFactory} with no DTD and external
+   * entities support.
+   *
+   * @return configured {@link XMLInputFactory}
+   */
+  public static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+
+    try {
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    } catch (IllegalArgumentException ignore) {
+      LOG.trace(PROPERTY_UNSUPPORTED, XMLInputFactory.SUPPORT_DTD);
+    }
+
+    try {
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    } catch (IllegalArgumentException ignore) {
+      LOG.trace(PROPERTY_UNSUPPORTED, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES);
+    }
+
+    return factory;
+  }
+
   // XPath block
 
   /**
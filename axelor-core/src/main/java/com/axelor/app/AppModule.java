@@ -18,15 +18,22 @@
  */
 package com.axelor.app;
 
+import com.axelor.auth.AuditQueue;
 import com.axelor.event.EventModule;
+import com.axelor.i18n.I18nObserver;
 import com.axelor.inject.Beans;
 import com.axelor.inject.logger.LoggerModule;
+import com.axelor.mail.service.MailOutboxQueue;
 import com.axelor.meta.MetaScanner;
+import com.axelor.meta.MetaStoreObserver;
 import com.axelor.meta.db.repo.MetaJsonReferenceUpdater;
 import com.axelor.meta.loader.ModuleManager;
 import com.axelor.meta.loader.ViewObserver;
 import com.axelor.meta.loader.ViewWatcherObserver;
+import com.axelor.meta.service.SearchExecutor;
 import com.axelor.meta.service.ViewProcessor;
+import com.axelor.meta.service.menu.MenuCache;
+import com.axelor.meta.service.tags.TagsCache;
 import com.axelor.report.ReportEngineProvider;
 import com.axelor.ui.QuickMenuCreator;
 import com.google.inject.AbstractModule;
@@ -60,6 +67,27 @@ public class AppModule extends AbstractModule {
     // Observe updates to fix m2o names in json values
     bind(MetaJsonReferenceUpdater.class);
 
+    // Observe changes for cached selections and custom fields
+    bind(MetaStoreObserver.class);
+
+    // Observe changes for cached translations
+    bind(I18nObserver.class);
+
+    // Observe changes for cached menu tag counts
+    bind(TagsCache.class);
+
+    // Observe changes for cached menu trees
+    bind(MenuCache.class);
+
+    // Process queued audit changes
+    bind(AuditQueue.class);
+
+    // Send queued mails
+    bind(MailOutboxQueue.class);
+
+    // Run search view selects concurrently
+    bind(SearchExecutor.class);
+
     // Logger injection support
     install(new LoggerModule());
 
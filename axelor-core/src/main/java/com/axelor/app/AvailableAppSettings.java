@@ -49,6 +49,20 @@ public interface AvailableAppSettings {
 
   String APPLICATION_SCRIPT_CACHE_SIZE = "application.script.cache.size";
   String APPLICATION_SCRIPT_CACHE_EXPIRE_TIME = "application.script.cache.expire-time";
+  String APPLICATION_SCRIPT_JS_POOL_SIZE = "application.script.js.pool-size";
+  String APPLICATION_SCRIPT_JS_CACHE_SIZE = "application.script.js.cache-size";
+  String APPLICATION_SCRIPT_JS_CACHE_STATS = "application.script.js.cache-stats";
+
+  String APPLICATION_AUDIT_ASYNC = "application.audit.async";
+  String APPLICATION_AUDIT_BATCH_SIZE = "application.audit.batch-size";
+  String APPLICATION_AUDIT_MAX_PENDING = "application.audit.max-pending";
+  String APPLICATION_AUDIT_MAX_ATTEMPTS = "application.audit.max-attempts";
+
+  String APPLICATION_VIEW_CACHE_SIZE = "application.view.cache.size";
+  String APPLICATION_META_CACHE_SIZE = "application.meta.cache.size";
+
+  String APPLICATION_TAGS_CACHE_SIZE = "application.tags.cache.size";
+  String APPLICATION_TAGS_CACHE_EXPIRE_TIME = "application.tags.cache.expire-time";
 
   String APPLICATION_DOMAIN_BLOCKLIST_PATTERN = "application.domain-blocklist-pattern";
 
@@ -107,6 +121,12 @@ public interface AvailableAppSettings {
   String DATA_EXPORT_COLLECTIONS_SEPARATOR = "data.export.collections.separator";
 
   String DATA_IMPORT_DEMO_DATA = "data.import.demo-data";
+  String DATA_IMPORT_CACHE_SIZE = "data.import.cache-size";
+
+  String DATA_SEARCH_COUNT_LIMIT = "data.search.count-limit";
+  String DATA_SEARCH_GLOBAL_WORKERS = "data.search.global.workers";
+  String DATA_SEARCH_GLOBAL_TIMEOUT = "data.search.global.timeout";
+  String DATA_SEARCH_TRIGRAM_INDEX = "data.search.trigram-index";
 
   String CORS_ALLOW_ORIGIN = "cors.allow-origin";
   String CORS_ALLOW_CREDENTIALS = "cors.allow-credentials";
@@ -150,6 +170,11 @@ public interface AvailableAppSettings {
   String MAIL_SMTP_CONNECTION_TIMEOUT = "mail.smtp.connection-timeout";
   String MAIL_SMTP_FROM = "mail.smtp.from";
 
+  String MAIL_OUTBOX_THREADS = "mail.outbox.threads";
+  String MAIL_OUTBOX_BATCH_SIZE = "mail.outbox.batch-size";
+  String MAIL_OUTBOX_MAX_ATTEMPTS = "mail.outbox.max-attempts";
+  String MAIL_OUTBOX_RETRY_DELAY = "mail.outbox.retry-delay";
+
   String MAIL_IMAP_HOST = "mail.imap.host";
   String MAIL_IMAP_PORT = "mail.imap.port";
   String MAIL_IMAP_USER = "mail.imap.user";
@@ -0,0 +1,437 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.auth;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.auth.db.AuditLog;
+import com.axelor.auth.db.User;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantModule;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.axelor.events.StartupEvent;
+import com.axelor.inject.Beans;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Singleton;
+import javax.persistence.LockModeType;
+import org.hibernate.LockOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The durable queue of tracked changes.
+ *
+ * <p>When enabled with <code>application.audit.async</code>, the changes of tracked records are
+ * queued as {@link AuditLog} records within the transaction making them, instead of creating the
+ * audit messages in that transaction. The messages, conditions and display values are still
+ * evaluated in that transaction, with the state and the user making the changes, so only the
+ * message records are saved later. A background worker saves them in batches once the transaction
+ * is committed and removes the processed records in the same transaction, so no change is lost if
+ * the application stops.
+ *
+ * <p>If too many changes are waiting to be processed, the changes are processed synchronously
+ * again until the worker catches up.
+ */
+@Singleton
+public class AuditQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditQueue.class);
+
+  private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+  private static final Duration MAX_RETRY_DELAY = Duration.ofDays(1);
+
+  private static final String CLAIM_QUERY =
+      "SELECT self FROM AuditLog self WHERE self.nextAttempt <= :now ORDER BY self.id";
+
+  private static final TypeReference<Map<String, Object>> MAP_TYPE =
+      new TypeReference<Map<String, Object>>() {};
+
+  private final boolean enabled;
+  private final int batchSize;
+  private final int maxPending;
+  private final int maxAttempts;
+
+  private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+
+  private final AtomicLong processedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private ScheduledExecutorService executor;
+
+  private ObjectMapper objectMapper;
+
+  private static final class TenantState {
+
+    private final String id;
+    private final String host;
+
+    // approximate number of changes waiting to be processed
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    private TenantState(String id, String host) {
+      this.id = id;
+      this.host = host;
+    }
+  }
+
+  public AuditQueue() {
+    final AppSettings settings = AppSettings.get();
+    this.enabled = settings.getBoolean(AvailableAppSettings.APPLICATION_AUDIT_ASYNC, false);
+    this.batchSize =
+        Math.max(1, settings.getInt(AvailableAppSettings.APPLICATION_AUDIT_BATCH_SIZE, 100));
+    this.maxPending =
+        Math.max(0, settings.getInt(AvailableAppSettings.APPLICATION_AUDIT_MAX_PENDING, 10000));
+    this.maxAttempts =
+        Math.max(1, settings.getInt(AvailableAppSettings.APPLICATION_AUDIT_MAX_ATTEMPTS, 5));
+  }
+
+  void onAppStartup(@Observes StartupEvent event) {
+    if (TenantModule.isEnabled()) {
+      TenantResolver.getTenants(false).keySet().forEach(id -> state(id, null));
+    } else {
+      state(null, null);
+    }
+    getExecutor();
+    tenants.values().forEach(this::schedule);
+  }
+
+  void onAppShutdown(@Observes ShutdownEvent event) {
+    stop();
+  }
+
+  /**
+   * Whether the tracked changes are processed asynchronously.
+   *
+   * @return true if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Check whether the given number of changes can be queued for the current tenant.
+   *
+   * @param count number of changes
+   * @return true if the changes should be queued, false to process them synchronously
+   */
+  boolean accept(int count) {
+    return enabled && currentState().pending.get() + count <= maxPending;
+  }
+
+  /**
+   * Queue the changes of a tracked record in the current transaction.
+   *
+   * @param entity the tracked object
+   * @param message the message values evaluated from the changes
+   * @param user the user who made the changes
+   */
+  void enqueue(Model entity, Map<String, Object> message, User user) {
+    final Class<?> entityClass = EntityHelper.getEntityClass(entity);
+    final AuditLog item = new AuditLog();
+    item.setRelatedModel(entityClass.getName());
+    item.setRelatedId(entity.getId());
+    item.setUser(user);
+    item.setMessage(toJSON(message));
+    item.setAttempts(0);
+    item.setNextAttempt(LocalDateTime.now());
+
+    JPA.em().persist(item);
+  }
+
+  /**
+   * Process the changes queued in the current transaction once it is committed.
+   *
+   * @param count number of queued changes
+   */
+  void scheduleAfterCompletion(int count) {
+    final TenantState state = currentState();
+    JPA.runAfterCompletion(
+        () -> {
+          state.pending.addAndGet(count);
+          schedule(state);
+        },
+        () -> {});
+  }
+
+  /**
+   * Process the queued changes of the current tenant.
+   *
+   * @return number of processed changes, whether successful or failed
+   */
+  public int drain() {
+    int total = 0;
+    int count;
+    while ((count = process()) > 0) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Get the number of changes waiting to be processed for the current tenant.
+   *
+   * @return queue size
+   */
+  public long getQueueSize() {
+    return JPA.all(AuditLog.class).filter("self.nextAttempt IS NOT NULL").count();
+  }
+
+  /**
+   * Get the number of changes of the current tenant which can't be processed anymore.
+   *
+   * @return number of abandoned changes
+   */
+  public long getAbandonedCount() {
+    return JPA.all(AuditLog.class).filter("self.nextAttempt IS NULL").count();
+  }
+
+  /**
+   * Get the number of changes processed since startup.
+   *
+   * @return number of processed changes
+   */
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * Get the number of failed attempts since startup.
+   *
+   * @return number of failures
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /** Stop the worker. */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  private synchronized ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor =
+          new ScheduledThreadPoolExecutor(
+              1,
+              new ThreadFactoryBuilder().setNameFormat("audit-queue-%d").setDaemon(true).build());
+      final long delay = RETRY_DELAY.getSeconds();
+      executor.scheduleWithFixedDelay(
+          () -> tenants.values().forEach(this::schedule), delay, delay, TimeUnit.SECONDS);
+    }
+    return executor;
+  }
+
+  private TenantState currentState() {
+    return state(TenantResolver.currentTenantIdentifier(), TenantResolver.currentTenantHost());
+  }
+
+  private TenantState state(String id, String host) {
+    return tenants.computeIfAbsent(Objects.toString(id, ""), k -> new TenantState(id, host));
+  }
+
+  private void schedule(TenantState state) {
+    state.requested.set(true);
+    if (!state.running.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      getExecutor().execute(() -> work(state));
+    } catch (Exception e) {
+      state.running.set(false);
+      log.error("Unable to schedule audit queue processing", e);
+    }
+  }
+
+  private void work(TenantState state) {
+    final UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    TenantResolver.setCurrentTenant(state.id, state.host);
+    unitOfWork.begin();
+    try {
+      do {
+        state.requested.set(false);
+        drain();
+      } while (state.requested.get());
+    } catch (Exception e) {
+      log.error("Unable to process audit queue", e);
+    } finally {
+      unitOfWork.end();
+      TenantResolver.setCurrentTenant(null, null);
+      state.running.set(false);
+    }
+    // requested while exiting
+    if (state.requested.get()) {
+      schedule(state);
+    }
+  }
+
+  private List<AuditLog> claim(int size) {
+    return JPA.em()
+        .createQuery(CLAIM_QUERY, AuditLog.class)
+        .setParameter("now", LocalDateTime.now())
+        .setMaxResults(size)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+        .getResultList();
+  }
+
+  // process a batch of queued changes in a single transaction, returns number of claimed changes
+  private int process() {
+    final List<Long> ids = new ArrayList<>();
+    try {
+      JPA.runInTransaction(
+          () -> {
+            for (AuditLog item : claim(batchSize)) {
+              ids.add(item.getId());
+              apply(item);
+            }
+          });
+      processedCount.addAndGet(ids.size());
+      return ids.size();
+    } catch (Exception e) {
+      if (ids.isEmpty()) {
+        throw e;
+      }
+      log.debug("Unable to process audit batch, processing changes one by one", e);
+    } finally {
+      processed(ids.size());
+    }
+
+    // the batch is rolled back, find the failing changes
+    JPA.em().clear();
+    for (Long id : ids) {
+      try {
+        JPA.runInTransaction(() -> processOne(id));
+        processedCount.incrementAndGet();
+      } catch (Exception e) {
+        JPA.em().clear();
+        failedCount.incrementAndGet();
+        JPA.runInTransaction(() -> fail(id, e));
+      }
+    }
+    return ids.size();
+  }
+
+  // claimed changes are either processed or rescheduled, so no longer pending
+  private void processed(int count) {
+    if (count > 0) {
+      currentState().pending.updateAndGet(value -> Math.max(0, value - count));
+    }
+  }
+
+  private void processOne(Long id) {
+    final Map<String, Object> hints =
+        Collections.singletonMap("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED);
+    final AuditLog item = JPA.em().find(AuditLog.class, id, LockModeType.PESSIMISTIC_WRITE, hints);
+    if (item != null) {
+      apply(item);
+    }
+  }
+
+  private void apply(AuditLog item) {
+    // the message is saved from the snapshot, even if the record is deleted since
+    new AuditTracker()
+        .save(
+            item.getRelatedModel(),
+            item.getRelatedId(),
+            fromJSON(item.getMessage()),
+            item.getUser(),
+            item.getCreatedOn());
+    JPA.em().remove(item);
+  }
+
+  private void fail(Long id, Exception error) {
+    final AuditLog item = JPA.em().find(AuditLog.class, id);
+    if (item == null) {
+      return;
+    }
+    final int attempts = (item.getAttempts() == null ? 0 : item.getAttempts()) + 1;
+    item.setAttempts(attempts);
+    item.setLastError(error.toString());
+    if (attempts >= maxAttempts) {
+      item.setNextAttempt(null);
+      log.error(
+          "Unable to process tracked changes after {} attempts: {}#{}",
+          attempts,
+          item.getRelatedModel(),
+          item.getRelatedId(),
+          error);
+    } else {
+      item.setNextAttempt(LocalDateTime.now().plus(backoff(attempts)));
+    }
+  }
+
+  private Duration backoff(int attempts) {
+    final Duration delay = RETRY_DELAY.multipliedBy(1L << Math.min(attempts - 1, 20));
+    return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+  }
+
+  private ObjectMapper getObjectMapper() {
+    if (objectMapper == null) {
+      objectMapper = Beans.get(ObjectMapper.class);
+    }
+    return objectMapper;
+  }
+
+  private String toJSON(Map<String, Object> values) {
+    try {
+      return getObjectMapper().writeValueAsString(values);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Map<String, Object> fromJSON(String json) {
+    if (json == null) {
+      return Collections.emptyMap();
+    }
+    try {
+      return getObjectMapper().readValue(json, MAP_TYPE);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -304,12 +304,43 @@ final class AuditTracker {
   }
 
   private void process(EntityState state, User user) {
+    final Map<String, Object> message = prepare(state);
+    if (message != null) {
+      save(state.entity.getClass().getName(), state.entity.getId(), message, user, null);
+    }
+  }
+
+  /**
+   * Evaluate the message of the changes of a tracked record.
+   *
+   * @param entity the tracked object
+   * @param values the changed values
+   * @param oldValues the old values, empty for new objects
+   * @return the message values or null if there is nothing to record
+   */
+  Map<String, Object> prepare(
+      Model entity, Map<String, Object> values, Map<String, Object> oldValues) {
+    final EntityState state = new EntityState();
+    state.entity = entity;
+    state.values = values;
+    state.oldValues = oldValues;
+    return prepare(state);
+  }
+
+  /**
+   * Evaluate the messages, conditions and display values of the tracked changes.
+   *
+   * @return the message values or null if there is nothing to record
+   */
+  private Map<String, Object> prepare(EntityState state) {
 
     final Model entity = state.entity;
     final Mapper mapper = Mapper.of(entity.getClass());
-    final MailMessage message = new MailMessage();
 
     final ModelTracking track = getTrack(entity);
+    if (track == null) {
+      return null;
+    }
 
     final Map<String, Object> values = state.values;
     final Map<String, Object> oldValues = state.oldValues;
@@ -404,7 +435,7 @@ final class AuditTracker {
 
     // don't generate empty tracking info
     if (msg == null && content == null && tracks.isEmpty()) {
-      return;
+      return null;
     }
 
     if (msg == null) {
@@ -420,24 +451,57 @@ final class AuditTracker {
       json.put("content", content);
     }
 
-    message.setSubject(msg);
-    message.setBody(toJSON(json));
+    String relatedName = null;
+    try {
+      relatedName = mapper.getNameField().get(entity).toString();
+    } catch (Exception e) {
+    }
+
+    final Map<String, Object> result = new HashMap<>();
+    result.put("subject", msg);
+    result.put("body", toJSON(json));
+    result.put("relatedName", relatedName);
+    result.put("subscribe", previousState == null && track.isSubscribe());
+    return result;
+  }
+
+  /**
+   * Save the notification message prepared from tracked changes.
+   *
+   * @param relatedModel the tracked model
+   * @param relatedId the tracked record id
+   * @param values the message values, see {@link #prepare(EntityState)}
+   * @param user the user who made the changes
+   * @param time the time of the changes, if saved later
+   */
+  void save(
+      String relatedModel,
+      Long relatedId,
+      Map<String, Object> values,
+      User user,
+      LocalDateTime time) {
+    final MailMessage message = new MailMessage();
+
+    message.setSubject((String) values.get("subject"));
+    message.setBody((String) values.get("body"));
     message.setAuthor(user);
-    message.setRelatedId(entity.getId());
-    message.setRelatedModel(entity.getClass().getName());
+    message.setRelatedId(relatedId);
+    message.setRelatedModel(relatedModel);
     message.setType(MailConstants.MESSAGE_TYPE_NOTIFICATION);
 
+    if (time != null) {
+      message.setCreatedOn(time);
+      message.setCreatedBy(user);
+    }
+
     Beans.get(MailMessageRepository.class).save(message);
 
-    try {
-      message.setRelatedName(mapper.getNameField().get(entity).toString());
-    } catch (Exception e) {
-    }
+    message.setRelatedName((String) values.get("relatedName"));
 
-    if (previousState == null && track.isSubscribe()) {
+    if (Boolean.TRUE.equals(values.get("subscribe"))) {
       final MailFollower follower = new MailFollower();
-      follower.setRelatedId(entity.getId());
-      follower.setRelatedModel(entity.getClass().getName());
+      follower.setRelatedId(relatedId);
+      follower.setRelatedModel(relatedModel);
       follower.setUser(user);
       follower.setArchived(false);
       Beans.get(MailFollowerRepository.class).save(follower);
@@ -488,6 +552,20 @@ final class AuditTracker {
     }
     // prevent concurrent update
     STORE.remove();
+    final AuditQueue queue = Beans.get(AuditQueue.class);
+    if (queue.accept(store.size())) {
+      // messages are evaluated now, with the current state and user, and saved later
+      int count = 0;
+      for (EntityState state : store.values()) {
+        final Map<String, Object> message = prepare(state);
+        if (message != null) {
+          queue.enqueue(state.entity, message, user);
+          count++;
+        }
+      }
+      queue.scheduleAfterCompletion(count);
+      return;
+    }
     for (EntityState state : store.values()) {
       process(state, user);
     }
@@ -46,6 +46,9 @@ public class AuthModule extends AbstractModule {
     // bind security service
     bind(JpaSecurity.class).toProvider(AuthSecurity.class);
 
+    // observe changes for compiled permissions
+    bind(AuthObserver.class);
+
     // non-web environment (cli or unit tests)
     if (context == null) {
       install(new MyShiroModule());
@@ -0,0 +1,60 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.auth;
+
+import com.axelor.auth.db.Group;
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.event.Observes;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Singleton;
+
+/** Observes changes to users, groups, roles and permissions to invalidate compiled permissions. */
+@Singleton
+public class AuthObserver {
+
+  void onBeforeTransactionComplete(@Observes BeforeTransactionComplete event) {
+    final Set<Long> users = new HashSet<>();
+    boolean all = false;
+
+    for (Set<? extends Model> entities : List.of(event.getUpdated(), event.getDeleted())) {
+      for (Model entity : entities) {
+        if (entity instanceof User) {
+          users.add(entity.getId());
+        } else if (entity instanceof Group
+            || entity instanceof Role
+            || entity instanceof Permission) {
+          all = true;
+        }
+      }
+    }
+
+    if (all) {
+      JPA.runAfterCompletion(AuthPermissionIndex::invalidateAll);
+    } else if (!users.isEmpty()) {
+      JPA.runAfterCompletion(() -> users.forEach(AuthPermissionIndex::invalidate));
+    }
+  }
+}
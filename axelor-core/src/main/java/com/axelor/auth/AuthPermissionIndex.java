@@ -0,0 +1,322 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.auth;
+
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.User;
+import com.axelor.common.StringUtils;
+import com.axelor.db.JpaSecurity.AccessType;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.rpc.filter.Filter;
+import com.axelor.rpc.filter.JPQLFilter;
+import com.axelor.script.GroovyScriptHelper;
+import com.axelor.script.ScriptBindings;
+import com.axelor.script.ScriptHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled permissions of a user.
+ *
+ * <p>The permissions assigned to the user, user's roles, user's group and group's roles are
+ * flattened once and indexed by object name, and the resolved permissions are memoized per object
+ * and access type. Condition params are evaluated once per user when they don't depend on
+ * persistent state.
+ *
+ * <p>The indexes are invalidated by {@link AuthObserver} when users, groups, roles or permissions
+ * are changed.
+ */
+final class AuthPermissionIndex {
+
+  private static final Cache<List<Object>, AuthPermissionIndex> INDEXES =
+      CacheBuilder.newBuilder().maximumSize(1000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  private final Map<String, List<Entry>> entries;
+
+  private final Map<String, List<CompiledPermission>> resolved = new ConcurrentHashMap<>();
+
+  /** Permission compiled for fast access checks. */
+  static final class CompiledPermission {
+
+    // params depending on the current time, like `__date__` or `LocalDate.now()`
+    private static final Pattern TIME_PARAM =
+        Pattern.compile("__(date|time|datetime)__|\\bnow\\b");
+
+    private final String object;
+    private final Set<AccessType> accessTypes;
+    private final String condition;
+    private final List<String> params;
+    private final boolean timeDependent;
+
+    private volatile List<Object> args;
+
+    private CompiledPermission(Permission permission) {
+      this.object = permission.getObject();
+      this.accessTypes = EnumSet.noneOf(AccessType.class);
+      this.condition = permission.getCondition();
+      this.params =
+          StringUtils.isBlank(permission.getConditionParams())
+              ? Collections.emptyList()
+              : Arrays.stream(permission.getConditionParams().split(","))
+                  .map(String::trim)
+                  .collect(Collectors.toUnmodifiableList());
+      this.timeDependent = params.stream().anyMatch(p -> TIME_PARAM.matcher(p).find());
+
+      if (Boolean.TRUE.equals(permission.getCanRead())) accessTypes.add(AccessType.READ);
+      if (Boolean.TRUE.equals(permission.getCanWrite())) accessTypes.add(AccessType.WRITE);
+      if (Boolean.TRUE.equals(permission.getCanCreate())) accessTypes.add(AccessType.CREATE);
+      if (Boolean.TRUE.equals(permission.getCanRemove())) accessTypes.add(AccessType.REMOVE);
+      if (Boolean.TRUE.equals(permission.getCanExport())) accessTypes.add(AccessType.EXPORT);
+    }
+
+    /**
+     * Check whether the permission confirms the requested access type.
+     *
+     * @param accessType the required access type, if null, returns true always
+     * @return true if can confirm or given accessType is null otherwise false
+     */
+    public boolean hasAccess(AccessType accessType) {
+      return accessType == null || accessTypes.contains(accessType);
+    }
+
+    /**
+     * Whether the permission has a condition.
+     *
+     * @return true if condition is set (even if empty)
+     */
+    public boolean isConditional() {
+      return condition != null;
+    }
+
+    /**
+     * Create the condition filter for the given user.
+     *
+     * @param user the user for which to evaluate condition params
+     * @return the condition filter or null if no condition
+     */
+    public Filter getFilter(User user) {
+      if (condition == null || "".equals(condition.trim())) {
+        return null;
+      }
+
+      List<Object> values = args;
+      if (values == null) {
+        values = evalParams(user);
+        // time dependent params are evaluated on each call
+        if (!timeDependent && isStatic(values)) {
+          args = values;
+        }
+      }
+
+      return new JPQLFilter(condition, values.toArray());
+    }
+
+    private List<Object> evalParams(User user) {
+      final List<Object> values = new ArrayList<>(params.size());
+      ScriptHelper helper = null;
+      for (String param : params) {
+        if ("__user__".equals(param)) {
+          values.add(user);
+          continue;
+        }
+        if (helper == null) {
+          helper =
+              new GroovyScriptHelper(
+                  new ScriptBindings(Collections.singletonMap("__user__", user)));
+        }
+        values.add(helper.eval(param));
+      }
+      return values;
+    }
+
+    // values which can be safely reused across sessions
+    private static boolean isStatic(List<Object> values) {
+      return values.stream()
+          .allMatch(
+              value ->
+                  value == null
+                      || value instanceof String
+                      || value instanceof Number
+                      || value instanceof Boolean
+                      || value instanceof Enum);
+    }
+
+    @Override
+    public String toString() {
+      return condition == null ? object : object + " [" + condition + "]";
+    }
+  }
+
+  // permission with the position of its source (user, user roles, group, group roles)
+  private static final class Entry {
+
+    private final int source;
+    private final CompiledPermission permission;
+
+    private Entry(int source, CompiledPermission permission) {
+      this.source = source;
+      this.permission = permission;
+    }
+  }
+
+  private AuthPermissionIndex(User user) {
+    final List<Collection<Permission>> sources = new ArrayList<>();
+
+    sources.add(user.getPermissions());
+    if (user.getRoles() != null) {
+      for (Role role : user.getRoles()) {
+        sources.add(role.getPermissions());
+      }
+    }
+    if (user.getGroup() != null) {
+      sources.add(user.getGroup().getPermissions());
+      if (user.getGroup().getRoles() != null) {
+        for (Role role : user.getGroup().getRoles()) {
+          sources.add(role.getPermissions());
+        }
+      }
+    }
+
+    final Map<Object, CompiledPermission> compiled = new HashMap<>();
+    final Map<String, List<Entry>> entries = new HashMap<>();
+
+    for (int i = 0; i < sources.size(); i++) {
+      final Collection<Permission> permissions = sources.get(i);
+      if (permissions == null) {
+        continue;
+      }
+      for (Permission permission : permissions) {
+        final Object id = permission.getId() == null ? permission : permission.getId();
+        final CompiledPermission item =
+            compiled.computeIfAbsent(id, k -> new CompiledPermission(permission));
+        entries.computeIfAbsent(item.object, k -> new ArrayList<>()).add(new Entry(i, item));
+      }
+    }
+
+    this.entries = entries;
+  }
+
+  /**
+   * Get the compiled permissions of the given user.
+   *
+   * @param user the user
+   * @return the permission index of the user
+   */
+  static AuthPermissionIndex of(User user) {
+    final List<Object> key = Arrays.asList(TenantResolver.currentTenantIdentifier(), user.getId());
+    final AuthPermissionIndex cached = user.getId() == null ? null : INDEXES.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final long version = VERSION.get();
+    final AuthPermissionIndex index = new AuthPermissionIndex(user);
+
+    if (user.getId() != null) {
+      synchronized (VERSION) {
+        if (version == VERSION.get()) {
+          INDEXES.put(key, index);
+        }
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Invalidate the permission index of the given user.
+   *
+   * @param userId the user id
+   */
+  static void invalidate(Long userId) {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      INDEXES.asMap().keySet().removeIf(key -> Objects.equals(key.get(1), userId));
+    }
+  }
+
+  /** Invalidate all the permission indexes. */
+  static void invalidateAll() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      INDEXES.invalidateAll();
+    }
+  }
+
+  /**
+   * Get the permissions for the given type on the object.
+   *
+   * <p>Permissions are ordered by their source (user, user's roles, group and group's roles), exact
+   * object permissions first then wild card permissions (by package name).
+   *
+   * @param object the object name
+   * @param type access type to check
+   * @return list of matching permissions
+   */
+  List<CompiledPermission> resolve(String object, AccessType type) {
+    return resolved.computeIfAbsent(object + ":" + type, k -> doResolve(object, type));
+  }
+
+  private List<CompiledPermission> doResolve(String object, AccessType type) {
+    final String pkg = object.substring(0, object.lastIndexOf('.')) + ".*";
+    final List<Entry> exact = entries.getOrDefault(object, Collections.emptyList());
+    final List<Entry> wild = entries.getOrDefault(pkg, Collections.emptyList());
+    final Set<CompiledPermission> all = new LinkedHashSet<>();
+
+    int i = 0;
+    int j = 0;
+    while (i < exact.size() || j < wild.size()) {
+      final int source =
+          Math.min(
+              i < exact.size() ? exact.get(i).source : Integer.MAX_VALUE,
+              j < wild.size() ? wild.get(j).source : Integer.MAX_VALUE);
+      for (; i < exact.size() && exact.get(i).source == source; i++) {
+        if (exact.get(i).permission.hasAccess(type)) {
+          all.add(exact.get(i).permission);
+        }
+      }
+      for (; j < wild.size() && wild.get(j).source == source; j++) {
+        if (wild.get(j).permission.hasAccess(type)) {
+          all.add(wild.get(j).permission);
+        }
+      }
+    }
+
+    return Collections.unmodifiableList(new ArrayList<>(all));
+  }
+}
@@ -18,13 +18,11 @@
  */
 package com.axelor.auth;
 
+import com.axelor.auth.AuthPermissionIndex.CompiledPermission;
 import com.axelor.auth.db.Permission;
-import com.axelor.auth.db.Role;
 import com.axelor.auth.db.User;
 import com.axelor.db.JpaSecurity.AccessType;
-import com.google.common.base.Objects;
-import com.google.common.collect.Sets;
-import java.util.Set;
+import java.util.List;
 
 /** This class is responsible to resolve permissions. */
 final class AuthResolver {
@@ -57,44 +55,7 @@ final class AuthResolver {
   }
 
   /**
-   * Filter the given set of permissions for the given object with the required access type. <br>
-   *
-   * <p>It first tries to find exact match for the given object else it tries to find wild card (by
-   * package name). The permissions on objects without condition gets preference over wild card
-   * permissions.
-   *
-   * @param permissions set of permissions to filter
-   * @param object object name for which to check the permission
-   * @param type the requested access type
-   * @return filtered set of {@link Permission}
-   */
-  private Set<Permission> filterPermissions(
-      final Set<Permission> permissions, final String object, final AccessType type) {
-    final Set<Permission> all = Sets.newLinkedHashSet();
-    if (permissions == null || permissions.isEmpty()) {
-      return all;
-    }
-
-    // add object permissions
-    for (final Permission permission : permissions) {
-      if (Objects.equal(object, permission.getObject()) && hasAccess(permission, type)) {
-        all.add(permission);
-      }
-    }
-
-    // add wild card permissions
-    final String pkg = object.substring(0, object.lastIndexOf('.')) + ".*";
-    for (final Permission permission : permissions) {
-      if (Objects.equal(pkg, permission.getObject()) && hasAccess(permission, type)) {
-        all.add(permission);
-      }
-    }
-
-    return all;
-  }
-
-  /**
-   * Get the set of {@link Permission} for the given type on the object. <br>
+   * Get the list of permissions for the given type on the object. <br>
    * <br>
    * The permission resolution is done in following way: <br>
    * <br>
@@ -102,35 +63,19 @@ final class AuthResolver {
    * user's roles, else check the permissions assigned directly to the user group, else check the
    * permissions assigned to the group's roles.
    *
+   * <p>It first tries to find exact match for the given object else it tries to find wild card (by
+   * package name). The permissions on objects without condition gets preference over wild card
+   * permissions.
+   *
+   * <p>The permissions are resolved from the compiled {@link AuthPermissionIndex} of the user.
+   *
    * @param user the user to authorize
    * @param object the object name (class or package name)
    * @param type access type to check
-   * @return {@link Set} of {@link Permission}
+   * @return {@link List} of {@link CompiledPermission}
    */
-  public Set<Permission> resolve(final User user, final String object, final AccessType type) {
-
-    // user permissions
-    Set<Permission> all = filterPermissions(user.getPermissions(), object, type);
-
-    // user's role permissions
-    if (user.getRoles() != null) {
-      for (final Role role : user.getRoles()) {
-        all.addAll(filterPermissions(role.getPermissions(), object, type));
-      }
-    }
-
-    // group permissions
-    if (user.getGroup() != null) {
-      all.addAll(filterPermissions(user.getGroup().getPermissions(), object, type));
-    }
-
-    // group's role permissions
-    if (user.getGroup() != null && user.getGroup().getRoles() != null) {
-      for (final Role role : user.getGroup().getRoles()) {
-        all.addAll(filterPermissions(role.getPermissions(), object, type));
-      }
-    }
-
-    return all;
+  public List<CompiledPermission> resolve(
+      final User user, final String object, final AccessType type) {
+    return AuthPermissionIndex.of(user).resolve(object, type);
   }
 }
@@ -18,18 +18,13 @@
  */
 package com.axelor.auth;
 
-import com.axelor.auth.db.Permission;
+import com.axelor.auth.AuthPermissionIndex.CompiledPermission;
 import com.axelor.auth.db.User;
-import com.axelor.common.StringUtils;
 import com.axelor.db.JpaSecurity;
 import com.axelor.db.Model;
 import com.axelor.rpc.filter.Filter;
-import com.axelor.rpc.filter.JPQLFilter;
-import com.axelor.script.GroovyScriptHelper;
-import com.axelor.script.ScriptBindings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import javax.inject.Provider;
@@ -39,48 +34,6 @@ import org.apache.shiro.authz.UnauthorizedException;
 @Singleton
 class AuthSecurity implements JpaSecurity, Provider<JpaSecurity> {
 
-  private static final class Condition {
-
-    private Filter filter;
-
-    public Condition(User user, String condition, String params) {
-
-      final List<Object> args = Lists.newArrayList();
-
-      if (StringUtils.notBlank(params)) {
-        for (String param : params.split(",")) {
-          param = param.trim();
-          if ("__user__".equals(param)) {
-            args.add(user);
-          } else {
-            final Object value = eval(user, "__user__", param);
-            args.add(value);
-          }
-        }
-      }
-
-      this.filter = new JPQLFilter(condition, args.toArray());
-    }
-
-    private Object eval(Object bean, String prefix, String expr) {
-      if (bean == null) {
-        return null;
-      }
-
-      return new GroovyScriptHelper(new ScriptBindings(Collections.singletonMap(prefix, bean)))
-          .eval(expr);
-    }
-
-    public Filter getFilter() {
-      return filter;
-    }
-
-    @Override
-    public String toString() {
-      return filter.getQuery();
-    }
-  }
-
   private AuthResolver authResolver = new AuthResolver();
 
   private User getUser() {
@@ -91,15 +44,6 @@ class AuthSecurity implements JpaSecurity, Provider<JpaSecurity> {
     return user;
   }
 
-  private Condition getCondition(User user, Permission permission, AccessType accessType) {
-    final String condition = permission.getCondition();
-    final String params = permission.getConditionParams();
-    if (condition == null || "".equals(condition.trim())) {
-      return null;
-    }
-    return new Condition(user, condition, params);
-  }
-
   @Override
   public boolean hasRole(String name) {
     final User user = getUser();
@@ -133,15 +77,16 @@ class AuthSecurity implements JpaSecurity, Provider<JpaSecurity> {
     }
 
     final List<Filter> filters = Lists.newArrayList();
-    final Set<Permission> permissions = authResolver.resolve(user, model.getName(), type);
+    final List<CompiledPermission> permissions =
+        authResolver.resolve(user, model.getName(), type);
     if (permissions.isEmpty()) {
       return null;
     }
 
-    for (Permission permission : permissions) {
-      Condition condition = this.getCondition(user, permission, type);
-      if (condition != null) {
-        filters.add(condition.getFilter());
+    for (CompiledPermission permission : permissions) {
+      Filter filter = permission.getFilter(user);
+      if (filter != null) {
+        filters.add(filter);
       }
     }
 
@@ -169,14 +114,15 @@ class AuthSecurity implements JpaSecurity, Provider<JpaSecurity> {
       return true;
     }
 
-    final Set<Permission> permissions = authResolver.resolve(user, model.getName(), type);
+    final List<CompiledPermission> permissions =
+        authResolver.resolve(user, model.getName(), type);
     if (permissions.isEmpty()) {
       return false;
     }
 
     // check whether non-conditional permissions are granted
-    for (Permission permission : permissions) {
-      if (permission.getCondition() == null && authResolver.hasAccess(permission, type)) {
+    for (CompiledPermission permission : permissions) {
+      if (!permission.isConditional() && permission.hasAccess(type)) {
         return true;
       }
     }
@@ -0,0 +1,414 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.data;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.db.mapper.PropertyType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Import scoped cache of the search results of the data binders.
+ *
+ * <p>The cache avoids running the same search query for every imported record, for example when
+ * many records reference the same country by its code. The results are cached by target class,
+ * search query and bound parameter values.
+ *
+ * <p>The shared part of the cache only contains ids of committed records. The records found or
+ * created in the current transaction are kept pending until {@link #commit()} publishes them or
+ * {@link #rollback()} discards them. The records created when a search found nothing are only
+ * cached once {@link #persisted()} confirms they are saved. Concurrent transactions should use
+ * their own {@link #local()} view of the cache.
+ *
+ * <p>The results of natural key searches, like <code>self.code = :code</code>, are checked against
+ * the current value of the searched field. Otherwise, the cache assumes the searched fields of the
+ * records are not changed during the import.
+ */
+public class ImportCache {
+
+  private static final Pattern PARAM = Pattern.compile(":([\\w$]+)");
+
+  private static final Pattern NATURAL_KEY =
+      Pattern.compile("^\\s*self\\.(\\w+)\\s*=\\s*:(\\w+)\\s*$");
+
+  private static final int MAX_IN_SIZE = 1000;
+
+  private final Cache<List<Object>, Object> shared;
+
+  private final Map<List<Object>, Object> pending = new HashMap<>();
+
+  private final Map<List<Object>, Model> created = new HashMap<>();
+
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder prefetched;
+
+  /**
+   * Create a new cache.
+   *
+   * @param maximumSize the maximum number of cached searches
+   */
+  public ImportCache(int maximumSize) {
+    this.shared = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.prefetched = new LongAdder();
+  }
+
+  private ImportCache(ImportCache parent) {
+    this.shared = parent.shared;
+    this.hits = parent.hits;
+    this.misses = parent.misses;
+    this.prefetched = parent.prefetched;
+  }
+
+  /**
+   * Create a new cache sized with the <code>data.import.cache-size</code> setting.
+   *
+   * @return the cache or null if disabled
+   */
+  public static ImportCache create() {
+    final int size = AppSettings.get().getInt(AvailableAppSettings.DATA_IMPORT_CACHE_SIZE, 0);
+    return size > 0 ? new ImportCache(size) : null;
+  }
+
+  /**
+   * Get a new view of this cache to be used by another transaction.
+   *
+   * <p>The view shares the committed results and the statistics of this cache, but keeps its own
+   * pending results.
+   *
+   * @return a new view of this cache
+   */
+  public ImportCache local() {
+    return new ImportCache(this);
+  }
+
+  /**
+   * Find the first record matching the given search.
+   *
+   * @param <T> the type of the record
+   * @param type the record class
+   * @param filter the search query
+   * @param params the query parameters
+   * @param loader runs the search if not cached
+   * @return the record or null if not found
+   */
+  public <T extends Model> T find(
+      Class<T> type, String filter, Map<String, Object> params, Supplier<T> loader) {
+    final List<Object> key = key(type, filter, params, false);
+    if (key == null) {
+      return loader.get();
+    }
+    final Object value = lookup(key);
+    if (value != null) {
+      final T bean = resolve(type, value);
+      if (bean != null && matches(filter, params, bean)) {
+        hits.increment();
+        return bean;
+      }
+      evict(key);
+    }
+    misses.increment();
+    final T bean = loader.get();
+    if (bean != null) {
+      pending.put(key, bean);
+    }
+    return bean;
+  }
+
+  /**
+   * Find all the records matching the given search.
+   *
+   * @param <T> the type of the records
+   * @param type the record class
+   * @param filter the search query
+   * @param params the query parameters
+   * @param loader runs the search if not cached
+   * @return the list of records
+   */
+  public <T extends Model> List<T> findAll(
+      Class<T> type, String filter, Map<String, Object> params, Supplier<List<T>> loader) {
+    final List<Object> key = key(type, filter, params, true);
+    if (key == null) {
+      return loader.get();
+    }
+    final Object value = lookup(key);
+    if (value != null) {
+      final List<T> beans = new ArrayList<>();
+      for (Object item : (List<?>) value) {
+        final T bean = resolve(type, item);
+        if (bean == null) {
+          break;
+        }
+        beans.add(bean);
+      }
+      if (beans.size() == ((List<?>) value).size()) {
+        hits.increment();
+        return beans;
+      }
+      evict(key);
+    }
+    misses.increment();
+    final List<T> beans = loader.get();
+    if (beans != null) {
+      pending.put(key, new ArrayList<>(beans));
+    }
+    return beans;
+  }
+
+  /**
+   * Record the new record created when the given search found nothing.
+   *
+   * <p>Once {@link #persisted()} confirms the record is saved, next searches with the same
+   * parameters return this record instead of running the query, which wouldn't find it until it's
+   * flushed.
+   *
+   * @param type the record class
+   * @param filter the search query
+   * @param params the query parameters
+   * @param bean the new record
+   */
+  public void put(Class<?> type, String filter, Map<String, Object> params, Model bean) {
+    final List<Object> key = key(type, filter, params, false);
+    if (key != null && bean != null) {
+      created.put(key, bean);
+    }
+  }
+
+  /**
+   * Cache the records recorded with {@link #put(Class, String, Map, Model)} once the imported
+   * record is saved.
+   *
+   * <p>The records not saved, for example because the imported record is skipped, are discarded.
+   */
+  public void persisted() {
+    created.forEach(
+        (key, bean) -> {
+          if (bean.getId() != null) {
+            pending.put(key, bean);
+          }
+        });
+    created.clear();
+  }
+
+  /**
+   * Prefetch the records of a natural key search for the given parameters.
+   *
+   * <p>Only searches on a single string field like <code>self.code = :code</code> are prefetched.
+   * The distinct values not yet cached are resolved with <code>IN</code> queries instead of running
+   * the search for every record.
+   *
+   * @param <T> the type of the records
+   * @param type the record class
+   * @param filter the search query
+   * @param params the query parameters of the records
+   */
+  public <T extends Model> void prefetch(
+      Class<T> type, String filter, Collection<Map<String, Object>> params) {
+    final Matcher matcher = filter == null ? null : NATURAL_KEY.matcher(filter);
+    if (matcher == null || !matcher.matches()) {
+      return;
+    }
+
+    final Property property = Mapper.of(type).getProperty(matcher.group(1));
+    if (property == null || property.getType() != PropertyType.STRING) {
+      return;
+    }
+
+    final String name = matcher.group(2);
+    final Set<String> values = new LinkedHashSet<>();
+    for (Map<String, Object> map : params) {
+      final Object value = map.get(name);
+      if (value instanceof String && lookup(key(type, filter, map, false)) == null) {
+        values.add((String) value);
+      }
+    }
+
+    final String in = String.format("self.%s IN (:values)", property.getName());
+    for (List<String> part : Iterables.partition(values, MAX_IN_SIZE)) {
+      final List<T> beans = JPA.all(type).filter(in).bind("values", part).autoFlush(false).fetch();
+      for (T bean : beans) {
+        final Map<String, Object> map = Collections.singletonMap(name, property.get(bean));
+        if (pending.putIfAbsent(key(type, filter, map, false), bean) == null) {
+          prefetched.increment();
+        }
+      }
+    }
+  }
+
+  /** Publish the results of the committed transaction. */
+  public void commit() {
+    pending.forEach(
+        (key, value) -> {
+          final Object ids = toIds(value);
+          if (ids != null) {
+            shared.put(key, ids);
+          }
+        });
+    pending.clear();
+    created.clear();
+  }
+
+  /** Discard the results of the rolled back transaction. */
+  public void rollback() {
+    pending.clear();
+    created.clear();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getPrefetched() {
+    return prefetched.sum();
+  }
+
+  /**
+   * Get the ratio of the searches answered by the cache.
+   *
+   * @return the hit ratio between 0 and 1
+   */
+  public double getHitRatio() {
+    final long found = getHits();
+    final long total = found + getMisses();
+    return total == 0 ? 0 : (double) found / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d hits, %d misses, %d prefetched (%.1f%% hit ratio)",
+        getHits(), getMisses(), getPrefetched(), getHitRatio() * 100);
+  }
+
+  private List<Object> key(
+      Class<?> type, String filter, Map<String, Object> params, boolean many) {
+    if (filter == null || filter.indexOf('?') >= 0) {
+      return null;
+    }
+    final List<Object> key = new ArrayList<>(Arrays.asList(type, filter, many));
+    final Matcher matcher = PARAM.matcher(filter);
+    while (matcher.find()) {
+      final String name = matcher.group(1);
+      // special variables and dotted names are resolved by the query
+      if (name.startsWith("__") || name.indexOf('$') >= 0) {
+        return null;
+      }
+      Object value = params == null ? null : params.get(name);
+      if (value instanceof Model) {
+        final Long id = ((Model) value).getId();
+        if (id == null) {
+          return null;
+        }
+        value = Arrays.asList(EntityHelper.getEntityClass(value), id);
+      } else if (value instanceof CharSequence) {
+        value = value.toString();
+      } else if (value != null
+          && !(value instanceof Number
+              || value instanceof Boolean
+              || value instanceof Enum
+              || value instanceof Temporal)) {
+        return null;
+      }
+      key.add(value);
+    }
+    return key;
+  }
+
+  private Object lookup(List<Object> key) {
+    if (key == null) {
+      return null;
+    }
+    final Object value = pending.get(key);
+    return value == null ? shared.getIfPresent(key) : value;
+  }
+
+  // check the searched field of a natural key search wasn't changed since cached
+  private boolean matches(String filter, Map<String, Object> params, Model bean) {
+    final Matcher matcher = NATURAL_KEY.matcher(filter);
+    if (!matcher.matches()) {
+      return true;
+    }
+    final Mapper mapper = Mapper.of(EntityHelper.getEntityClass(bean));
+    final Property property = mapper.getProperty(matcher.group(1));
+    if (property == null || property.getType() != PropertyType.STRING) {
+      return true;
+    }
+    final Object value = params == null ? null : params.get(matcher.group(2));
+    return Objects.equals(value == null ? null : value.toString(), property.get(bean));
+  }
+
+  private void evict(List<Object> key) {
+    pending.remove(key);
+    shared.invalidate(key);
+  }
+
+  private <T extends Model> T resolve(Class<T> type, Object value) {
+    if (value instanceof Long) {
+      return JPA.em().find(type, value);
+    }
+    final T bean = type.cast(value);
+    if (bean.getId() == null || JPA.em().contains(bean)) {
+      return bean;
+    }
+    return JPA.em().find(type, bean.getId());
+  }
+
+  private Object toIds(Object value) {
+    if (value instanceof Model) {
+      return ((Model) value).getId();
+    }
+    final List<Long> ids = new ArrayList<>();
+    for (Object item : (List<?>) value) {
+      final Long id = ((Model) item).getId();
+      if (id == null) {
+        return null;
+      }
+      ids.add(id);
+    }
+    return ids;
+  }
+}
@@ -20,6 +20,7 @@ package com.axelor.data.csv;
 
 import com.axelor.common.StringUtils;
 import com.axelor.data.AuditHelper;
+import com.axelor.data.ImportCache;
 import com.axelor.data.adapter.DataAdapter;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
@@ -34,12 +35,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import javax.validation.ValidationException;
@@ -68,6 +71,8 @@ public class CSVBinder {
 
   private Map<String, DataAdapter> adapters = Maps.newHashMap();
 
+  private ImportCache cache;
+
   public void registerAdapter(DataAdapter adapter) {
     adapters.put(adapter.getName(), adapter);
   }
@@ -80,6 +85,15 @@ public class CSVBinder {
     return fields;
   }
 
+  /**
+   * Set the cache used for the searches of this binder and its nested binders.
+   *
+   * @param cache the import cache, or null to disable caching
+   */
+  public void setCache(ImportCache cache) {
+    this.cache = cache;
+  }
+
   public CSVBinder(Class<?> beanClass, String[] fields, CSVInput csvInput) {
     this(
         beanClass,
@@ -195,13 +209,10 @@ public class CSVBinder {
       }
     } else if (this.query != null) {
       LOG.trace("search: " + this.query);
-      Object bean =
-          JPA.all((Class<Model>) beanClass)
-              .filter(query)
-              .bind(params)
-              .cacheable()
-              .autoFlush(false)
-              .fetchOne();
+      final Class<Model> type = (Class<Model>) beanClass;
+      final Supplier<Model> loader =
+          () -> JPA.all(type).filter(query).bind(params).cacheable().autoFlush(false).fetchOne();
+      Object bean = cache == null ? loader.get() : cache.find(type, query, params, loader);
       LOG.trace("search found: " + bean);
       if (update || bean != null) {
         newBean = false;
@@ -209,12 +220,19 @@ public class CSVBinder {
       }
     }
 
+    Object bean;
     try {
       newBean = true;
-      return beanClass.getDeclaredConstructor().newInstance();
+      bean = beanClass.getDeclaredConstructor().newInstance();
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
+
+    // next searches with the same parameters should find this bean once saved
+    if (cache != null && searchCall == null && bean instanceof Model) {
+      cache.put(beanClass, query, params, (Model) bean);
+    }
+    return bean;
   }
 
   private Object callSearchObject;
@@ -247,12 +265,10 @@ public class CSVBinder {
 
   @SuppressWarnings("unchecked")
   private Object findAll(Class<?> beanClass, String query, Map<String, Object> params) {
-    return JPA.all((Class<Model>) beanClass)
-        .filter(query)
-        .bind(params)
-        .cacheable()
-        .autoFlush(false)
-        .fetch();
+    final Class<Model> type = (Class<Model>) beanClass;
+    final Supplier<List<Model>> loader =
+        () -> JPA.all(type).filter(query).bind(params).cacheable().autoFlush(false).fetch();
+    return cache == null ? loader.get() : cache.findAll(type, query, params, loader);
   }
 
   private boolean isBound(CSVBind cb, Map<String, Object> values) {
@@ -283,6 +299,7 @@ public class CSVBinder {
     } else {
       CSVBinder binder = new CSVBinder(type, fields, cb);
       binder.registerAdapters(adapters);
+      binder.setCache(cache);
       value = binder.bind(values);
     }
     values.put(field, value);
@@ -364,6 +381,7 @@ public class CSVBinder {
       else if (p.getTarget() != null) {
         CSVBinder b = new CSVBinder(p.getTarget(), fields, cb);
         b.registerAdapters(adapters);
+        b.setCache(cache);
         value = b.bind(values);
       }
 
@@ -415,6 +433,22 @@ public class CSVBinder {
    * @return a bean instance of the class on which binding is performed
    */
   public Object bind(String[] values, Map<String, Object> localContext) {
+    prepare(values, localContext);
+    return bind(localContext);
+  }
+
+  /**
+   * Cache the records created by the searches of the last bound row, once the row is saved.
+   *
+   * @see ImportCache#persisted()
+   */
+  public void persisted() {
+    if (cache != null) {
+      cache.persisted();
+    }
+  }
+
+  private void prepare(String[] values, Map<String, Object> localContext) {
 
     Preconditions.checkNotNull(values);
     Preconditions.checkNotNull(localContext);
@@ -433,8 +467,53 @@ public class CSVBinder {
       if (field.contains("."))
         localContext.put(field.replace(".", "_") + "_", localContext.get(field));
     }
+  }
 
-    return bind(localContext);
+  /**
+   * Prefetch the records of the natural key searches of the given rows in the cache.
+   *
+   * <p>The searches on a single string field, like <code>self.code = :code</code>, are resolved for
+   * all the rows with <code>IN</code> queries instead of one query per row.
+   *
+   * @param rows values from csv rows
+   * @param context the global context
+   */
+  @SuppressWarnings("unchecked")
+  public void prefetch(List<String[]> rows, Map<String, Object> context) {
+    if (cache == null || rows.isEmpty()) {
+      return;
+    }
+
+    final List<Map<String, Object>> params = new ArrayList<>(rows.size());
+    for (String[] values : rows) {
+      final Map<String, Object> localContext = Maps.newHashMap(context);
+      prepare(values, localContext);
+      params.add(localContext);
+    }
+
+    if (searchCall == null && query != null) {
+      cache.prefetch((Class<Model>) beanClass, query, params);
+    }
+    prefetch(beanClass, bindings, params);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void prefetch(Class<?> type, List<CSVBind> binds, List<Map<String, Object>> params) {
+    final Mapper mapper = Mapper.of(type);
+    for (CSVBind cb : binds) {
+      final Property p = cb.getField() == null ? null : mapper.getProperty(cb.getField());
+      if (p == null || p.getTarget() == null) {
+        continue;
+      }
+      // m2m searches with a column are resolved with findAll
+      if (cb.getSearch() != null
+          && !(p.getType() == PropertyType.MANY_TO_MANY && cb.getColumn() != null)) {
+        cache.prefetch((Class<Model>) p.getTarget(), cb.getSearch(), params);
+      }
+      if (cb.getBindings() != null) {
+        prefetch(p.getTarget(), cb.getBindings(), params);
+      }
+    }
   }
 
   private List<CSVBind> flatten(List<CSVBind> bindings) {
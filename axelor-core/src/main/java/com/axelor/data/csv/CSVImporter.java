@@ -20,6 +20,7 @@ package com.axelor.data.csv;
 
 import com.axelor.common.StringUtils;
 import com.axelor.common.csv.CSVFile;
+import com.axelor.data.ImportCache;
 import com.axelor.data.ImportException;
 import com.axelor.data.ImportTask;
 import com.axelor.data.Importer;
@@ -28,10 +29,15 @@ import com.axelor.data.adapter.DataAdapter;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.internal.DBHelper;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.inject.Beans;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -39,13 +45,23 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.EntityTransaction;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.input.BOMInputStream;
@@ -68,6 +84,55 @@ public class CSVImporter implements Importer {
 
   private CSVLogger loggerManager;
 
+  private ImportCache cache;
+
+  private int maxWorkers = 1;
+
+  private ExecutorService executor;
+
+  private Semaphore permits;
+
+  private Integer priority;
+
+  private final List<Future<?>> chunks = new ArrayList<>();
+
+  private final List<ParallelInput> inputs = new ArrayList<>();
+
+  /** The state of an input imported in parallel chunks. */
+  private class ParallelInput {
+
+    private final CSVInput csvInput;
+    private final Class<?> beanClass;
+    private final String[] fields;
+    private final Map<String, Object> context;
+
+    private final String tenantId = TenantResolver.currentTenantIdentifier();
+    private final String tenantHost = TenantResolver.currentTenantHost();
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final List<String[]> failed = Collections.synchronizedList(new ArrayList<>());
+
+    private ParallelInput(
+        CSVInput csvInput, Class<?> beanClass, String[] fields, Map<String, Object> context) {
+      this.csvInput = csvInput;
+      this.beanClass = beanClass;
+      this.fields = fields;
+      this.context = context;
+    }
+
+    private void complete() {
+      if (loggerManager != null && !failed.isEmpty()) {
+        loggerManager.prepareInput(csvInput, fields);
+        failed.forEach(loggerManager::log);
+      }
+      for (Listener listener : listeners) {
+        listener.imported(total.get(), count.get());
+      }
+    }
+  }
+
   public void addListener(Listener listener) {
     this.listeners.add(listener);
   }
@@ -145,6 +210,82 @@ public class CSVImporter implements Importer {
     return loggerManager;
   }
 
+  /**
+   * Set the number of workers used to import the files.
+   *
+   * <p>With more than one worker, the rows of inputs with <code>parallel="true"</code> are
+   * imported in parallel chunks of {@link DBHelper#getJdbcBatchSize()} rows, each chunk in its own
+   * transaction. A failed chunk is split and imported again to find the failing rows, without
+   * replaying the other rows. Other inputs are imported row by row as usual.
+   *
+   * <p>Inputs are imported in their declaration order, except consecutive inputs with the same
+   * <code>priority</code> which are imported concurrently.
+   *
+   * @param maxWorkers number of workers, 1 by default
+   */
+  public void setMaxWorkers(int maxWorkers) {
+    this.maxWorkers = maxWorkers;
+  }
+
+  private void startImport() {
+    cache = ImportCache.create();
+    if (maxWorkers > 1) {
+      executor =
+          Executors.newFixedThreadPool(
+              maxWorkers, new ThreadFactoryBuilder().setNameFormat("csv-import-%d").build());
+      // limit the number of chunks waiting in memory
+      permits = new Semaphore(maxWorkers * 2);
+    }
+  }
+
+  private void finishImport() {
+    try {
+      if (executor != null) {
+        try {
+          awaitChunks();
+        } finally {
+          executor.shutdown();
+          executor = null;
+          priority = null;
+        }
+      }
+    } finally {
+      if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+        LOG.info("Search cache: {}", cache);
+      }
+      cache = null;
+    }
+  }
+
+  private void beginInput(CSVInput input) {
+    if (executor == null) {
+      return;
+    }
+    if (input.getPriority() == null || !Objects.equals(input.getPriority(), priority)) {
+      awaitChunks();
+    }
+    priority = input.getPriority();
+  }
+
+  private void awaitChunks() {
+    try {
+      for (Future<?> chunk : chunks) {
+        try {
+          chunk.get();
+        } catch (ExecutionException e) {
+          LOG.error("Unable to import data.", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      chunks.clear();
+    }
+    inputs.forEach(ParallelInput::complete);
+    inputs.clear();
+  }
+
   /**
    * Run the task from the configured readers
    *
@@ -153,7 +294,9 @@ public class CSVImporter implements Importer {
   public void run(ImportTask task) {
     try {
       task.init();
+      startImport();
       for (CSVInput input : config.getInputs()) {
+        beginInput(input);
         for (Reader reader : task.getReader(input.getFileName())) {
           try {
             this.process(input, reader);
@@ -182,15 +325,30 @@ public class CSVImporter implements Importer {
     } catch (IOException e) {
       throw new IllegalArgumentException(e);
     } finally {
-      task.close();
+      try {
+        finishImport();
+      } finally {
+        task.close();
+      }
     }
   }
 
   @Override
   public void run() {
+    startImport();
+    try {
+      runInputs();
+    } finally {
+      finishImport();
+    }
+  }
+
+  private void runInputs() {
 
     for (CSVInput input : config.getInputs()) {
 
+      beginInput(input);
+
       String fileName = input.getFileName();
       List<File> files = this.getFiles(fileName);
 
@@ -246,6 +404,11 @@ public class CSVImporter implements Importer {
   private void process(CSVInput csvInput, Reader reader)
       throws IOException, ClassNotFoundException {
 
+    if (executor != null && csvInput.isParallel()) {
+      this.processParallel(csvInput, reader);
+      return;
+    }
+
     String beanName = csvInput.getTypeName();
 
     LOG.info("Importing {} from {}", beanName, csvInput.getFileName());
@@ -254,12 +417,7 @@ public class CSVImporter implements Importer {
     int total = 0;
     int batchSize = DBHelper.getJdbcBatchSize();
 
-    CSVFile csv = CSVFile.DEFAULT.withDelimiter(csvInput.getSeparator());
-    if (StringUtils.isBlank(csvInput.getHeader())) {
-      csv = csv.withFirstRecordAsHeader();
-    } else {
-      csv = csv.withHeader(csvInput.getHeader().trim().split("\\s*,\\s*"));
-    }
+    CSVFile csv = this.csvFile(csvInput);
 
     try (CSVParser csvParser = csv.parse(reader)) {
 
@@ -272,87 +430,75 @@ public class CSVImporter implements Importer {
 
       LOG.debug("Header {}", Arrays.asList(fields));
 
-      CSVBinder binder = new CSVBinder(beanClass, fields, csvInput);
+      CSVBinder binder = this.createBinder(beanClass, fields, csvInput);
 
       JPA.em().getTransaction().begin();
 
-      final Map<String, Object> context = new HashMap<>();
+      final Map<String, Object> context = this.createContext(csvInput);
 
-      // Put global context
-      if (this.context != null) {
-        context.putAll(this.context);
-      }
-
-      csvInput.callPrepareContext(context);
-
-      // Put data path in context
-      if (dataDir != null) {
-        context.put("__path__", dataDir.toPath());
-      }
+      final Iterable<String[]> records =
+          Iterables.transform(
+              Iterables.filter(csvParser, record -> !CSVFile.isEmpty(record)), CSVFile::values);
 
-      // register type adapters
-      for (DataAdapter adapter : defaultAdapters) {
-        binder.registerAdapter(adapter);
-      }
-      for (DataAdapter adapter : this.config.getAdapters()) {
-        binder.registerAdapter(adapter);
-      }
-      for (DataAdapter adapter : csvInput.getAdapters()) {
-        binder.registerAdapter(adapter);
-      }
+      // Process for each batch of records
+      for (List<String[]> rows : Iterables.partition(records, batchSize)) {
 
-      // Process for each record
-      for (CSVRecord record : csvParser) {
-
-        if (CSVFile.isEmpty(record)) {
-          continue;
+        if (csvInput.isPrefetch()) {
+          binder.prefetch(rows, context);
         }
 
-        String[] values = CSVFile.values(record);
-
-        LOG.trace("Record {}", Arrays.asList(values));
-
-        Object bean = null;
-        try {
-          bean = this.importRow(values, binder, csvInput, context, false);
-          count++;
-        } catch (Exception e) {
-          int line = count + 1;
-          LOG.error("Error while importing {}.", csvInput.getFileName());
-          LOG.error(
-              "Unable to import record #{}: {}",
-              line,
-              Arrays.asList(values),
-              ImportException.from(e));
-
-          // Recover the transaction
-          if (JPA.em().getTransaction().isActive()) {
-            JPA.em().getTransaction().rollback();
-          }
+        for (String[] values : rows) {
 
-          if (!JPA.em().getTransaction().isActive()) {
-            JPA.em().getTransaction().begin();
-          }
+          LOG.trace("Record {}", Arrays.asList(values));
 
-          for (Listener listener : listeners) {
-            listener.handle((Model) bean, e);
-          }
+          Object bean = null;
+          try {
+            bean = this.importRow(values, binder, csvInput, context, false);
+            count++;
+          } catch (Exception e) {
+            int line = count + 1;
+            LOG.error("Error while importing {}.", csvInput.getFileName());
+            LOG.error(
+                "Unable to import record #{}: {}",
+                line,
+                Arrays.asList(values),
+                ImportException.from(e));
+
+            // Recover the transaction
+            if (JPA.em().getTransaction().isActive()) {
+              JPA.em().getTransaction().rollback();
+            }
+            if (cache != null) {
+              cache.rollback();
+            }
 
-          // Re-parse previous records
-          this.onRollback(values, binder, csvInput, context);
-        }
+            if (!JPA.em().getTransaction().isActive()) {
+              JPA.em().getTransaction().begin();
+            }
 
-        ++total;
-        if (valuesStack.size() % batchSize == 0) {
-          LOG.trace("Commit {} records", valuesStack.size());
+            for (Listener listener : listeners) {
+              listener.handle((Model) bean, e);
+            }
 
-          if (JPA.em().getTransaction().isActive()) {
-            JPA.em().getTransaction().commit();
-            JPA.em().clear();
-            valuesStack.clear();
+            // Re-parse previous records
+            this.onRollback(values, binder, csvInput, context);
           }
-          if (!JPA.em().getTransaction().isActive()) {
-            JPA.em().getTransaction().begin();
+
+          ++total;
+          if (valuesStack.size() % batchSize == 0) {
+            LOG.trace("Commit {} records", valuesStack.size());
+
+            if (JPA.em().getTransaction().isActive()) {
+              JPA.em().getTransaction().commit();
+              if (cache != null) {
+                cache.commit();
+              }
+              JPA.em().clear();
+              valuesStack.clear();
+            }
+            if (!JPA.em().getTransaction().isActive()) {
+              JPA.em().getTransaction().begin();
+            }
           }
         }
       }
@@ -361,12 +507,18 @@ public class CSVImporter implements Importer {
         LOG.trace("Commit {} records", valuesStack.size());
 
         JPA.em().getTransaction().commit();
+        if (cache != null) {
+          cache.commit();
+        }
         JPA.em().clear();
       }
     } catch (Exception e) {
       if (JPA.em().getTransaction().isActive()) {
         JPA.em().getTransaction().rollback();
       }
+      if (cache != null) {
+        cache.rollback();
+      }
 
       LOG.error("Error while importing {}.", csvInput.getFileName());
       LOG.error("Unable to import data.");
@@ -380,6 +532,209 @@ public class CSVImporter implements Importer {
     }
   }
 
+  private CSVFile csvFile(CSVInput csvInput) {
+    CSVFile csv = CSVFile.DEFAULT.withDelimiter(csvInput.getSeparator());
+    if (StringUtils.isBlank(csvInput.getHeader())) {
+      csv = csv.withFirstRecordAsHeader();
+    } else {
+      csv = csv.withHeader(csvInput.getHeader().trim().split("\\s*,\\s*"));
+    }
+    return csv;
+  }
+
+  private CSVBinder createBinder(Class<?> beanClass, String[] fields, CSVInput csvInput) {
+    CSVBinder binder = new CSVBinder(beanClass, fields, csvInput);
+
+    // register type adapters
+    for (DataAdapter adapter : defaultAdapters) {
+      binder.registerAdapter(adapter);
+    }
+    for (DataAdapter adapter : this.config.getAdapters()) {
+      binder.registerAdapter(adapter);
+    }
+    for (DataAdapter adapter : csvInput.getAdapters()) {
+      binder.registerAdapter(adapter);
+    }
+
+    binder.setCache(cache);
+    return binder;
+  }
+
+  private Map<String, Object> createContext(CSVInput csvInput) throws Exception {
+    final Map<String, Object> context = new HashMap<>();
+
+    // Put global context
+    if (this.context != null) {
+      context.putAll(this.context);
+    }
+
+    csvInput.callPrepareContext(context);
+
+    // Put data path in context
+    if (dataDir != null) {
+      context.put("__path__", dataDir.toPath());
+    }
+    return context;
+  }
+
+  /**
+   * Launches the parallel import for the input and reader.
+   *
+   * <p>The rows are read in the current thread and imported in chunks by the workers.
+   *
+   * @param csvInput
+   * @param reader
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  private void processParallel(CSVInput csvInput, Reader reader)
+      throws IOException, ClassNotFoundException {
+
+    String beanName = csvInput.getTypeName();
+
+    LOG.info("Importing {} from {} in parallel", beanName, csvInput.getFileName());
+
+    int batchSize = DBHelper.getJdbcBatchSize();
+
+    try (CSVParser csvParser = this.csvFile(csvInput).parse(reader)) {
+
+      String[] fields = CSVFile.header(csvParser);
+      Class<?> beanClass = Class.forName(beanName);
+
+      LOG.debug("Header {}", Arrays.asList(fields));
+
+      final ParallelInput input;
+      try {
+        input = new ParallelInput(csvInput, beanClass, fields, this.createContext(csvInput));
+      } catch (Exception e) {
+        LOG.error("Error while importing {}.", csvInput.getFileName());
+        LOG.error("Unable to import data.");
+        LOG.error("With following exception:", e);
+        return;
+      }
+
+      inputs.add(input);
+
+      List<String[]> rows = new ArrayList<>(batchSize);
+      for (CSVRecord record : csvParser) {
+        if (CSVFile.isEmpty(record)) {
+          continue;
+        }
+        rows.add(CSVFile.values(record));
+        input.total.incrementAndGet();
+        if (rows.size() >= batchSize) {
+          this.submit(input, rows);
+          rows = new ArrayList<>(batchSize);
+        }
+      }
+      if (!rows.isEmpty()) {
+        this.submit(input, rows);
+      }
+    }
+  }
+
+  private void submit(ParallelInput input, List<String[]> rows) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    try {
+      chunks.add(executor.submit(() -> importChunk(input, rows)));
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private void importChunk(ParallelInput input, List<String[]> rows) {
+    final UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    TenantResolver.setCurrentTenant(input.tenantId, input.tenantHost);
+    unitOfWork.begin();
+    try {
+      final CSVBinder binder = this.createBinder(input.beanClass, input.fields, input.csvInput);
+      final ImportCache local = cache == null ? null : cache.local();
+      binder.setCache(local);
+      this.importRows(input, binder, local, rows, unitOfWork);
+    } finally {
+      unitOfWork.end();
+      TenantResolver.setCurrentTenant(null, null);
+      permits.release();
+    }
+  }
+
+  /**
+   * Import the rows in a single transaction.
+   *
+   * <p>If the transaction fails, the rows are split in two halves imported separately, until the
+   * failing rows are found.
+   */
+  private void importRows(
+      ParallelInput input,
+      CSVBinder binder,
+      ImportCache local,
+      List<String[]> rows,
+      UnitOfWork unitOfWork) {
+    final List<Object> beans = new ArrayList<>(rows.size());
+    final EntityTransaction transaction = JPA.em().getTransaction();
+    try {
+      transaction.begin();
+      if (input.csvInput.isPrefetch()) {
+        binder.prefetch(rows, input.context);
+      }
+      for (String[] values : rows) {
+        beans.add(this.bindRow(values, binder, input.csvInput, input.context));
+      }
+      transaction.commit();
+      if (local != null) {
+        local.commit();
+      }
+    } catch (Exception e) {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+      if (local != null) {
+        local.rollback();
+      }
+
+      // use a new session after failure
+      unitOfWork.end();
+      unitOfWork.begin();
+
+      if (rows.size() > 1) {
+        int half = rows.size() / 2;
+        this.importRows(input, binder, local, rows.subList(0, half), unitOfWork);
+        this.importRows(input, binder, local, rows.subList(half, rows.size()), unitOfWork);
+        return;
+      }
+
+      String[] values = rows.get(0);
+      LOG.error("Error while importing {}.", input.csvInput.getFileName());
+      LOG.error("Unable to import record: {}", Arrays.asList(values), ImportException.from(e));
+
+      input.failed.add(values);
+      synchronized (listeners) {
+        for (Listener listener : listeners) {
+          listener.handle(null, e);
+        }
+      }
+      return;
+    }
+
+    LOG.trace("Commit {} records", rows.size());
+    JPA.em().clear();
+
+    input.count.addAndGet(rows.size());
+    synchronized (listeners) {
+      for (Object bean : beans) {
+        for (Listener listener : listeners) {
+          listener.imported((Model) bean);
+        }
+      }
+    }
+  }
+
   /**
    * Import the specific row.
    *
@@ -398,6 +753,22 @@ public class CSVImporter implements Importer {
       Map<String, Object> context,
       Boolean onRollback)
       throws Exception {
+    Object bean = this.bindRow(values, binder, csvInput, context);
+
+    if (!onRollback) {
+      valuesStack.add(values);
+
+      for (Listener listener : listeners) {
+        listener.imported((Model) bean);
+      }
+    }
+
+    return bean;
+  }
+
+  private Object bindRow(
+      String[] values, CSVBinder binder, CSVInput csvInput, Map<String, Object> context)
+      throws Exception {
     Object bean = null;
     Map<String, Object> ctx = Maps.newHashMap(context);
 
@@ -412,13 +783,7 @@ public class CSVImporter implements Importer {
       LOG.trace("bean saved: {}", bean);
     }
 
-    if (!onRollback) {
-      valuesStack.add(values);
-
-      for (Listener listener : listeners) {
-        listener.imported((Model) bean);
-      }
-    }
+    binder.persisted();
 
     return bean;
   }
@@ -445,11 +810,17 @@ public class CSVImporter implements Importer {
 
         if (JPA.em().getTransaction().isActive()) {
           JPA.em().getTransaction().commit();
+          if (cache != null) {
+            cache.commit();
+          }
         }
       } catch (Exception e) {
         if (JPA.em().getTransaction().isActive()) {
           JPA.em().getTransaction().rollback();
         }
+        if (cache != null) {
+          cache.rollback();
+        }
       } finally {
         if (!JPA.em().getTransaction().isActive()) {
           JPA.em().getTransaction().begin();
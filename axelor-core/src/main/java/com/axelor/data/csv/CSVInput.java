@@ -64,6 +64,12 @@ public class CSVInput {
   @XStreamAsAttribute
   private String searchCall;
 
+  @XStreamAsAttribute private Integer priority;
+
+  @XStreamAsAttribute private Boolean parallel;
+
+  @XStreamAsAttribute private Boolean prefetch;
+
   @XStreamImplicit(itemFieldName = "bind")
   private List<CSVBind> bindings = Lists.newArrayList();
 
@@ -149,6 +155,30 @@ public class CSVInput {
     return searchCall;
   }
 
+  public Integer getPriority() {
+    return priority;
+  }
+
+  public void setPriority(Integer priority) {
+    this.priority = priority;
+  }
+
+  public boolean isParallel() {
+    return parallel != null && parallel;
+  }
+
+  public void setParallel(Boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  public boolean isPrefetch() {
+    return Boolean.TRUE.equals(prefetch);
+  }
+
+  public void setPrefetch(Boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
   public List<CSVBind> getBindings() {
     if (!bindingsLinked) {
       linkBindings();
@@ -20,6 +20,7 @@ package com.axelor.data.xml;
 
 import com.axelor.common.XMLUtils;
 import com.axelor.data.AuditHelper;
+import com.axelor.data.ImportCache;
 import com.axelor.data.adapter.DataAdapter;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
@@ -33,6 +34,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -57,6 +59,8 @@ public abstract class XMLBinder {
 
   private Map<String, DataAdapter> adapters = new HashMap<>();
 
+  private ImportCache cache;
+
   protected XMLBinder(XMLInput input, Map<String, Object> context) {
     this.input = input;
     this.context = context;
@@ -66,6 +70,15 @@ public abstract class XMLBinder {
     adapters.put(adapter.getName(), adapter);
   }
 
+  /**
+   * Set the cache used for the searches of this binder.
+   *
+   * @param cache the import cache, or null to disable caching
+   */
+  public void setCache(ImportCache cache) {
+    this.cache = cache;
+  }
+
   protected abstract void handle(Object bean, XMLBind bind, Map<String, Object> context);
 
   protected abstract void finish();
@@ -105,7 +118,10 @@ public abstract class XMLBinder {
 
     if (binding.getSearch() != null) {
       LOG.trace("search: " + binding.getSearch());
-      bean = JPA.all((Class<Model>) type).filter(binding.getSearch()).bind(ctx).fetchOne();
+      final Class<Model> model = (Class<Model>) type;
+      final Supplier<Model> loader =
+          () -> JPA.all(model).filter(binding.getSearch()).bind(ctx).fetchOne();
+      bean = cache == null ? loader.get() : cache.find(model, binding.getSearch(), ctx, loader);
       LOG.trace("search found: " + bean);
       if (bean != null && !Boolean.TRUE.equals(binding.getUpdate())) {
         LOG.trace("search no update");
@@ -127,6 +143,10 @@ public abstract class XMLBinder {
 
     if (isNull) {
       bean = newInstance(type);
+      // next searches with the same parameters should find this bean once saved
+      if (cache != null && bean instanceof Model) {
+        cache.put(type, binding.getSearch(), ctx, (Model) bean);
+      }
     }
 
     LOG.trace("populate: " + type);
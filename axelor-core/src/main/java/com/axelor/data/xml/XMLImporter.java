@@ -18,6 +18,7 @@
  */
 package com.axelor.data.xml;
 
+import com.axelor.data.ImportCache;
 import com.axelor.data.ImportException;
 import com.axelor.data.ImportTask;
 import com.axelor.data.Importer;
@@ -90,6 +91,8 @@ public class XMLImporter implements Importer {
 
   private boolean canClear = true;
 
+  private ImportCache cache;
+
   @Inject
   public XMLImporter(
       @Named("axelor.data.config") String configFile, @Named("axelor.data.dir") String dataDir) {
@@ -138,22 +141,28 @@ public class XMLImporter implements Importer {
   @Override
   public void run() {
 
-    for (XMLInput input : config.getInputs()) {
+    cache = ImportCache.create();
+    try {
+      for (XMLInput input : config.getInputs()) {
 
-      String fileName = input.getFileName();
-      List<File> files = this.getFiles(fileName);
+        String fileName = input.getFileName();
+        List<File> files = this.getFiles(fileName);
 
-      for (File file : files) {
-        try {
-          this.process(input, file);
-        } catch (Exception e) {
-          log.error("Error while importing {}.", file, e);
+        for (File file : files) {
+          try {
+            this.process(input, file);
+          } catch (Exception e) {
+            log.error("Error while importing {}.", file, e);
+          }
         }
       }
+    } finally {
+      finishImport();
     }
   }
 
   public void run(ImportTask task) {
+    cache = ImportCache.create();
     try {
       task.init();
       for (XMLInput input : config.getInputs()) {
@@ -170,10 +179,21 @@ public class XMLImporter implements Importer {
     } catch (IOException e) {
       throw new IllegalArgumentException(e);
     } finally {
-      task.close();
+      try {
+        task.close();
+      } finally {
+        finishImport();
+      }
     }
   }
 
+  private void finishImport() {
+    if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+      log.info("Search cache: {}", cache);
+    }
+    cache = null;
+  }
+
   /**
    * Process the data file with the given input binding.
    *
@@ -260,6 +280,9 @@ public class XMLImporter implements Importer {
                   listener.imported((Model) bean);
                 }
               }
+              if (cache != null) {
+                cache.persisted();
+              }
             } catch (Exception e) {
               log.error("Unable to import object {}.", bean);
               log.error("With binding {}.", binding);
@@ -268,6 +291,9 @@ public class XMLImporter implements Importer {
               // Recover the transaction
               if (JPA.em().getTransaction().getRollbackOnly()) {
                 JPA.em().getTransaction().rollback();
+                if (cache != null) {
+                  cache.rollback();
+                }
               }
               if (!JPA.em().getTransaction().isActive()) {
                 JPA.em().getTransaction().begin();
@@ -302,6 +328,8 @@ public class XMLImporter implements Importer {
       binder.registerAdapter(adapter);
     }
 
+    binder.setCache(cache);
+
     XStreamUtils.setupSecurity(stream);
     stream.setMode(XStream.NO_REFERENCES);
     stream.registerConverter(new ElementConverter(binder));
@@ -322,6 +350,9 @@ public class XMLImporter implements Importer {
       binder.finish();
       if (txn.isActive() && started) {
         txn.commit();
+        if (cache != null) {
+          cache.commit();
+        }
         if (canClear) {
           em.clear();
         }
@@ -329,6 +360,9 @@ public class XMLImporter implements Importer {
     } catch (Exception e) {
       if (txn.isActive() && started) {
         txn.rollback();
+        if (cache != null) {
+          cache.rollback();
+        }
       }
       throw new ImportException(e);
     }
@@ -49,6 +49,8 @@ import javax.persistence.EntityTransaction;
 import javax.persistence.OneToMany;
 import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import org.hibernate.CacheMode;
 import org.hibernate.HibernateException;
 import org.hibernate.MultiIdentifierLoadAccess;
@@ -661,6 +663,53 @@ public final class JPA {
     return holder.result;
   }
 
+  /**
+   * Run the given <code>task</code> once the current transaction is completed, whether it is
+   * committed or rolled back.
+   *
+   * <p>If there is no active transaction, the task is run immediately.
+   *
+   * @param task the task to run
+   */
+  public static void runAfterCompletion(Runnable task) {
+    runAfterCompletion(task, task);
+  }
+
+  /**
+   * Run the given <code>committed</code> task once the current transaction is committed, or the
+   * given <code>rolledBack</code> task if it is rolled back.
+   *
+   * <p>If there is no active transaction, the <code>committed</code> task is run immediately.
+   *
+   * @param committed the task to run on commit
+   * @param rolledBack the task to run on rollback
+   */
+  public static void runAfterCompletion(Runnable committed, Runnable rolledBack) {
+    Preconditions.checkNotNull(committed);
+    Preconditions.checkNotNull(rolledBack);
+    final Session session = em().unwrap(Session.class);
+    if (!session.getTransaction().isActive()) {
+      committed.run();
+      return;
+    }
+    session
+        .getTransaction()
+        .registerSynchronization(
+            new Synchronization() {
+              @Override
+              public void beforeCompletion() {}
+
+              @Override
+              public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                  committed.run();
+                } else {
+                  rolledBack.run();
+                }
+              }
+            });
+  }
+
   /**
    * Perform JDBC related work using the {@link Connection} managed by the current {@link
    * EntityManager}.
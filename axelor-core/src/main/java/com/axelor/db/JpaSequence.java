@@ -19,16 +19,101 @@
 package com.axelor.db;
 
 import com.axelor.common.StringUtils;
+import com.axelor.db.tenants.TenantResolver;
 import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaSequence;
 import com.axelor.meta.db.repo.MetaSequenceRepository;
 import com.google.common.base.Strings;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 
-/** This class provides some helper static methods to deal with custom sequences. */
+/**
+ * This class provides some helper static methods to deal with custom sequences.
+ *
+ * <p>By default, sequence values are allocated one by one by updating the sequence within the
+ * running transaction, so that sequences are gap-free. Concurrent transactions using the same
+ * sequence are serialized on the sequence record until they are committed.
+ *
+ * <p>Sequences with a {@link MetaSequence#getCacheSize() cache size} greater than one reserve
+ * blocks of values in short independent transactions and serve them from memory. They don't block
+ * concurrent transactions, but reserved values which are not used, because of a rollback, a
+ * restart or a change of the sequence, are lost.
+ */
 public final class JpaSequence {
 
+  private static final String RESERVE_QUERY =
+      "UPDATE VERSIONED MetaSequence self SET self.next = self.next + self.increment * :size "
+          + "WHERE self.name = :name";
+
+  private static final String SELECT_QUERY =
+      "SELECT self.next, self.increment, self.prefix, self.suffix, self.padding "
+          + "FROM MetaSequence self WHERE self.name = :name";
+
+  private static final Map<List<Object>, Allocator> ALLOCATORS = new ConcurrentHashMap<>();
+
   private JpaSequence() {}
 
+  // a block of reserved values
+  private static final class Block {
+
+    private final long first;
+    private final long increment;
+    private final int size;
+    private final String prefix;
+    private final String suffix;
+    private final int padding;
+
+    private final AtomicInteger index = new AtomicInteger();
+
+    private Block(long first, long increment, int size, String prefix, String suffix, int padding) {
+      this.first = first;
+      this.increment = increment;
+      this.size = size;
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.padding = padding;
+    }
+
+    private String next() {
+      final int i = index.getAndIncrement();
+      return i < size ? format(first + i * increment, prefix, suffix, padding) : null;
+    }
+  }
+
+  // serves values from the reserved blocks of a sequence
+  private static final class Allocator {
+
+    private final String name;
+
+    private volatile Block block;
+
+    private Allocator(String name) {
+      this.name = name;
+    }
+
+    private String next(int size) {
+      final Block current = block;
+      final String value = current == null ? null : current.next();
+      if (value != null) {
+        return value;
+      }
+      synchronized (this) {
+        String next = block == null ? null : block.next();
+        while (next == null) {
+          block = reserve(name, size);
+          next = block.next();
+        }
+        return next;
+      }
+    }
+  }
+
   private static MetaSequence find(String name) {
     final MetaSequenceRepository repo = Beans.get(MetaSequenceRepository.class);
     final MetaSequence sequence = repo.findByName(name);
@@ -38,33 +123,97 @@ public final class JpaSequence {
     return sequence;
   }
 
+  private static List<Object> key(String name) {
+    return Arrays.asList(TenantResolver.currentTenantIdentifier(), name);
+  }
+
+  private static String format(long next, String prefix, String suffix, Integer padding) {
+    String value = "" + next;
+    if (padding != null && padding > 0) {
+      value = Strings.padStart(value, padding, '0');
+    }
+    if (!StringUtils.isBlank(prefix)) {
+      value = prefix + value;
+    }
+    if (!StringUtils.isBlank(suffix)) {
+      value = value + suffix;
+    }
+    return value;
+  }
+
+  // reserve a block of values in an independent transaction
+  private static Block reserve(String name, int size) {
+    final SessionFactory factory = JPA.em().getEntityManagerFactory().unwrap(SessionFactory.class);
+    try (Session session = factory.withOptions().noInterceptor().openSession()) {
+      final Transaction transaction = session.beginTransaction();
+      try {
+        final int count =
+            session
+                .createQuery(RESERVE_QUERY)
+                .setParameter("size", size)
+                .setParameter("name", name)
+                .executeUpdate();
+        if (count == 0) {
+          throw new IllegalArgumentException("No such sequence: " + name);
+        }
+        final Object[] row =
+            session
+                .createQuery(SELECT_QUERY, Object[].class)
+                .setParameter("name", name)
+                .getSingleResult();
+        transaction.commit();
+
+        final long next = (Long) row[0];
+        final long increment = (Integer) row[1];
+        return new Block(
+            next - increment * size,
+            increment,
+            size,
+            (String) row[2],
+            (String) row[3],
+            row[4] == null ? 0 : (Integer) row[4]);
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+    }
+  }
+
   /**
    * Get the next sequence value of the given sequence.<br>
    * <br>
    * This method must be called inside a running transaction as it updates the sequence details in
    * database.
    *
+   * <p>If the sequence has a cache size greater than one, the value is served from a block of
+   * reserved values, see {@link JpaSequence}.
+   *
    * @param name the name of the sequence
    * @return next sequence value
    */
   public static String nextValue(String name) {
+    final List<Object> key = key(name);
+    final Allocator allocator = ALLOCATORS.get(key);
+    final Block block = allocator == null ? null : allocator.block;
+    final String cached = block == null ? null : block.next();
+    if (cached != null) {
+      return cached;
+    }
+
     final MetaSequence sequence = find(name);
-    final Long next = sequence.getNext();
-    final String prefix = sequence.getPrefix();
-    final String suffix = sequence.getSuffix();
-    final Integer padding = sequence.getPadding();
+    final Integer cacheSize = sequence.getCacheSize();
 
-    String value = "" + next;
-    if (padding > 0) {
-      value = Strings.padStart(value, padding, '0');
-    }
-    if (!StringUtils.isBlank(prefix)) {
-      value = prefix + value;
-    }
-    if (!StringUtils.isBlank(suffix)) {
-      value = value + suffix;
+    if (cacheSize != null && cacheSize > 1) {
+      return ALLOCATORS.computeIfAbsent(key, k -> new Allocator(name)).next(cacheSize);
     }
 
+    ALLOCATORS.remove(key);
+
+    final Long next = sequence.getNext();
+    final String value =
+        format(next, sequence.getPrefix(), sequence.getSuffix(), sequence.getPadding());
+
     sequence.setNext(next + sequence.getIncrement());
 
     JPA.em().persist(sequence);
@@ -79,14 +228,30 @@ public final class JpaSequence {
    * the database. <br>
    * <br>
    * This method is generally used to reset the sequence. It may cause duplicates if given next
-   * number is less then the last next value of the sequence.
+   * number is less then the last next value of the sequence. Values reserved by other nodes are not
+   * discarded.
    *
    * @param name the name of the sequence
    * @param next the next sequence number
    */
   public static void nextValue(final String name, final long next) {
     final MetaSequence sequence = find(name);
+    final List<Object> key = key(name);
     sequence.setNext(next);
     JPA.em().persist(sequence);
+    ALLOCATORS.remove(key);
+    JPA.runAfterCompletion(() -> ALLOCATORS.remove(key));
+  }
+
+  /**
+   * Discard the values reserved by this node for the given sequence.
+   *
+   * <p>This method is called once changes to the sequence are committed, so that the next values
+   * use the updated cache size, prefix, suffix or padding.
+   *
+   * @param name the name of the sequence
+   */
+  public static void invalidate(String name) {
+    ALLOCATORS.remove(key(name));
   }
 }
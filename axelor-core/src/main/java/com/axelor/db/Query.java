@@ -31,8 +31,10 @@ import com.axelor.i18n.I18n;
 import com.axelor.rpc.Resource;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Streams;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,7 +57,9 @@ import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import javax.persistence.FlushModeType;
 import javax.persistence.TypedQuery;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
 /**
  * The {@code Query} class allows filtering and fetching records quickly.
@@ -77,6 +81,8 @@ public class Query<T extends Model> {
 
   private List<String> orderNames;
 
+  private List<Boolean> orderDescending;
+
   private JoinHelper joinHelper;
 
   private boolean cacheable;
@@ -92,6 +98,11 @@ public class Query<T extends Model> {
   private static final Pattern PLACEHOLDER_PLAIN = Pattern.compile("(?<!\\?)\\?(?!(\\d+|\\?))");
   private static final Pattern PLACEHOLDER_INDEXED = Pattern.compile("\\?\\d+");
 
+  private static final int COLLECTION_BATCH_SIZE = 500;
+
+  private static final String ESTIMATE_COUNT_QUERY =
+      "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = to_regclass(?1)";
+
   /**
    * Create a new instance of {@code Query} with given bean class.
    *
@@ -101,6 +112,7 @@ public class Query<T extends Model> {
     this.beanClass = beanClass;
     this.orderBy = "";
     this.orderNames = new ArrayList<>();
+    this.orderDescending = new ArrayList<>();
     this.joinHelper = new JoinHelper(beanClass);
   }
 
@@ -253,10 +265,67 @@ public class Query<T extends Model> {
     }
 
     orderNames.add(name);
+    orderDescending.add(spec.trim().charAt(0) == '-');
 
     return this;
   }
 
+  /**
+   * Restrict the query to the records following the given sort key values (keyset pagination).
+   *
+   * <p>The values should be the values of the order fields, in the same order as given with {@link
+   * #order(String)}, of the last record of the previous page. For example:
+   *
+   * <pre>
+   * Query&lt;Person&gt; query = Query.of(Person).order(&quot;name&quot;).order(&quot;-id&quot;);
+   * query = query.after(&quot;John&quot;, 20);
+   * </pre>
+   *
+   * <p>This is equivalent to:
+   *
+   * <pre>
+   * SELECT p from Person p WHERE (p.name &gt; 'John') OR (p.name = 'John' AND p.id &lt; 20) ORDER BY p.name, p.id DESC
+   * </pre>
+   *
+   * <p>Unlike offset pagination, the database doesn't need to scan the skipped records. The values
+   * must not be null as null values are not comparable, and the order fields should end with a
+   * unique field (like {@code id}).
+   *
+   * @param values the sort key values of the last record
+   * @return the same query instance
+   */
+  public Query<T> after(Object... values) {
+    if (orderNames.isEmpty()) {
+      throw new IllegalStateException("Query is not ordered.");
+    }
+    if (values == null || values.length != orderNames.size()) {
+      throw new IllegalArgumentException(
+          "Sort key values don't match the order fields: " + orderNames);
+    }
+    if (Arrays.stream(values).anyMatch(java.util.Objects::isNull)) {
+      throw new IllegalArgumentException("Sort key values can't be null.");
+    }
+
+    final List<String> items = new ArrayList<>();
+    final Map<String, Object> keys = new HashMap<>();
+
+    for (int i = 0; i < orderNames.size(); i++) {
+      final List<String> parts = new ArrayList<>();
+      for (int j = 0; j <= i; j++) {
+        final String param = "__key" + j;
+        final String op = j < i ? "=" : orderDescending.get(j) ? "<" : ">";
+        parts.add(String.format("%s %s :%s", orderNames.get(j), op, param));
+        keys.put(param, values[j]);
+      }
+      items.add("(" + String.join(" AND ", parts) + ")");
+    }
+
+    final String keyset = String.join(" OR ", items);
+
+    this.filter = StringUtils.isBlank(filter) ? keyset : "(" + filter + ") AND (" + keyset + ")";
+    return this.bind(keys);
+  }
+
   /**
    * Set the query result cacheable.
    *
@@ -345,6 +414,9 @@ public class Query<T extends Model> {
    * <p>Also configure <code>hibernate.jdbc.fetch_size</code> (default is 20) to fine tune the fetch
    * size.
    *
+   * <p>The records are managed by the current session, so the memory usage grows with the number
+   * of consumed records unless they are detached, or the session is cleared, once processed.
+   *
    * @param limit the limit
    * @param offset the offset
    * @return stream of matched records within the range
@@ -437,6 +509,59 @@ public class Query<T extends Model> {
     return query.getSingleResult();
   }
 
+  /**
+   * Returns the number of records matched, counting at most <code>max + 1</code> records.
+   *
+   * <p>This is cheaper than {@link #count()} on large tables as the database can stop as soon as
+   * enough records are found. A result greater than <code>max</code> means there are more than
+   * <code>max</code> records.
+   *
+   * @param max the maximum number of records to count
+   * @return total number, up to <code>max + 1</code>
+   */
+  public long count(int max) {
+    final String ids = countQuery().replaceFirst("COUNT\\(self\\.id\\)", "self.id");
+    final TypedQuery<Long> query = em().createQuery(ids, Long.class);
+    query.setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false);
+    query.setMaxResults(max + 1);
+    this.bind(query).setCacheable(cacheable).setFlushMode(flushMode).setReadOnly();
+    return query.getResultList().size();
+  }
+
+  /**
+   * Returns the estimated number of records matched.
+   *
+   * <p>On PostgreSQL, the number of rows of an unfiltered query is estimated from the planner
+   * statistics of the table. In other cases, the records are counted with {@link #count(int)}.
+   *
+   * @param max the maximum number of records to count if can't be estimated
+   * @return estimated total number
+   */
+  public long estimateCount(int max) {
+    if (StringUtils.isBlank(filter) && DBHelper.isPostgreSQL()) {
+      final Object persister =
+          em().getEntityManagerFactory()
+              .unwrap(SessionFactoryImplementor.class)
+              .getMetamodel()
+              .entityPersister(beanClass);
+      if (persister instanceof AbstractEntityPersister) {
+        final String table = ((AbstractEntityPersister) persister).getTableName();
+        final Object rows =
+            em().createNativeQuery(ESTIMATE_COUNT_QUERY)
+                .setParameter(1, table)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .orElse(null);
+        // reltuples is -1 (or 0 on older versions) if the table was never analyzed
+        if (rows instanceof Number && ((Number) rows).longValue() > 0) {
+          return ((Number) rows).longValue();
+        }
+      }
+    }
+    return count(max);
+  }
+
   /**
    * Return a selector to select records with specific fields only.
    *
@@ -750,8 +875,12 @@ public class Query<T extends Model> {
 
     private List<String> names = Lists.newArrayList("id", "version");
     private List<String> collections = Lists.newArrayList();
+    private List<String> selects;
     private String query;
     private Mapper mapper = Mapper.of(beanClass);
+    private boolean batchCollections;
+    private boolean distinct;
+    private int fetchSize;
 
     private Selector(String... names) {
       List<String> selects = Lists.newArrayList();
@@ -789,20 +918,58 @@ public class Query<T extends Model> {
         }
       }
 
-      if (joinHelper.hasCollection) {
-        orderNames.stream().filter(n -> !selects.contains(n)).forEach(selects::add);
+      this.selects = selects;
+      this.query = selectQuery();
+    }
+
+    private String selectQuery() {
+      final List<String> items = new ArrayList<>(selects);
+
+      // ordering fields should be selected with distinct rows
+      if (joinHelper.hasCollection || distinct) {
+        orderNames.stream().filter(n -> !items.contains(n)).forEach(items::add);
       }
 
       StringBuilder sb =
           new StringBuilder("SELECT")
-              .append(" new List(" + Joiner.on(", ").join(selects) + ")")
+              .append(distinct && !joinHelper.hasCollection ? " DISTINCT" : "")
+              .append(" new List(" + Joiner.on(", ").join(items) + ")")
               .append(" FROM ")
               .append(beanClass.getSimpleName())
               .append(" self")
               .append(joinHelper.toString(false));
       if (filter != null && filter.trim().length() > 0) sb.append(" WHERE ").append(filter);
       sb.append(orderBy);
-      query = joinHelper.fixSelect(sb.toString());
+      return joinHelper.fixSelect(sb.toString());
+    }
+
+    /**
+     * Select distinct rows only.
+     *
+     * <p>Duplicate rows are removed by the database, before the limit is applied. Rows are always
+     * distinct when the filter or the selected fields join a collection.
+     *
+     * @return the same selector instance
+     */
+    public Selector distinct() {
+      if (!distinct) {
+        this.distinct = true;
+        this.query = selectQuery();
+      }
+      return this;
+    }
+
+    /**
+     * Fetch the selected collection fields in batch.
+     *
+     * <p>Instead of loading every record to initialize its collections, the collections of all the
+     * fetched rows are loaded with one query per collection field.
+     *
+     * @return the same selector instance
+     */
+    public Selector batchCollections() {
+      this.batchCollections = true;
+      return this;
     }
 
     private boolean hasTransientParent(String fieldName) {
@@ -837,6 +1004,10 @@ public class Query<T extends Model> {
 
     @SuppressWarnings("all")
     public List<List> values(int limit, int offset) {
+      return valuesQuery(limit, offset).getResultList();
+    }
+
+    private javax.persistence.Query valuesQuery(int limit, int offset) {
       javax.persistence.Query q = em().createQuery(query);
       if (limit > 0) {
         q.setMaxResults(limit);
@@ -850,7 +1021,7 @@ public class Query<T extends Model> {
         binder.setReadOnly();
       }
 
-      return q.getResultList();
+      return q;
     }
 
     @SuppressWarnings("all")
@@ -860,29 +1031,100 @@ public class Query<T extends Model> {
       List<Map> result = Lists.newArrayList();
 
       for (List items : data) {
-        Map<String, Object> map = Maps.newHashMap();
-        for (int i = 0; i < names.size(); i++) {
-          Object value = items.get(i);
-          String name = names.get(i);
-          Property property = getProperty(name);
-          // in case of m2o, get the id,version,name tuple
-          if (property != null && property.isReference() && property.getTargetName() != null) {
-            value = getReferenceValue(items, i);
-            i += 3;
-          } else if (value instanceof Model) {
-            value = Resource.toMapCompact(value);
-          }
-          map.put(name, value);
-        }
-        if (collections.size() > 0) {
+        Map<String, Object> map = toMap(items);
+        if (collections.size() > 0 && !batchCollections) {
           map.putAll(this.fetchCollections(items.get(0)));
         }
         result.add(map);
       }
 
+      if (collections.size() > 0 && batchCollections) {
+        this.fetchCollections(result, false);
+      }
+
       return result;
     }
 
+    /**
+     * Fetch the matched rows as {@link Stream} within the given range.
+     *
+     * <p>The rows are read with a forward only cursor, so the memory usage doesn't depend on the
+     * number of rows. Selected collections are always fetched in batch, see {@link
+     * #batchCollections()}, and the entities loaded for a chunk are detached once converted.
+     *
+     * <p>Recommended only when dealing with large data, for example, data export. Use {@link
+     * #fetchSize(int)} to fine tune the cursor fetch size.
+     *
+     * @param limit the limit
+     * @param offset the offset
+     * @return stream of matched rows within the range
+     */
+    @SuppressWarnings("all")
+    public Stream<Map> fetchStream(int limit, int offset) {
+      final org.hibernate.query.Query<List> q =
+          (org.hibernate.query.Query<List>) valuesQuery(limit, offset);
+      q.setFetchSize(fetchSize > 0 ? fetchSize : DBHelper.getJdbcFetchSize());
+
+      final Stream<List> rows = q.stream();
+      final Stream<Map> result = rows.map(this::toDetachedMap);
+      if (collections.isEmpty()) {
+        return result;
+      }
+
+      final int size = fetchSize > 0 ? fetchSize : COLLECTION_BATCH_SIZE;
+      final Iterator<List<Map>> chunks = Iterators.partition(result.iterator(), size);
+      return Streams.stream(chunks)
+          .map(
+              chunk -> {
+                fetchCollections(chunk, true);
+                return chunk;
+              })
+          .flatMap(List::stream)
+          .onClose(rows::close);
+    }
+
+    /**
+     * Set the number of rows to read at once when streaming.
+     *
+     * @param fetchSize the fetch size
+     * @return the same selector instance
+     * @see #fetchStream(int, int)
+     */
+    public Selector fetchSize(int fetchSize) {
+      this.fetchSize = fetchSize;
+      return this;
+    }
+
+    @SuppressWarnings("all")
+    private Map<String, Object> toDetachedMap(List items) {
+      final Map<String, Object> map = toMap(items);
+      for (Object item : items) {
+        if (item instanceof Model) {
+          em().detach(item);
+        }
+      }
+      return map;
+    }
+
+    @SuppressWarnings("all")
+    private Map<String, Object> toMap(List items) {
+      Map<String, Object> map = Maps.newHashMap();
+      for (int i = 0; i < names.size(); i++) {
+        Object value = items.get(i);
+        String name = names.get(i);
+        Property property = getProperty(name);
+        // in case of m2o, get the id,version,name tuple
+        if (property != null && property.isReference() && property.getTargetName() != null) {
+          value = getReferenceValue(items, i);
+          i += 3;
+        } else if (value instanceof Model) {
+          value = Resource.toMapCompact(value);
+        }
+        map.put(name, value);
+      }
+      return map;
+    }
+
     private Object getReferenceValue(List<?> items, int at) {
       if (items.get(at) == null && items.get(at + 1) == null) {
         return null;
@@ -915,6 +1157,56 @@ public class Query<T extends Model> {
       return result;
     }
 
+    @SuppressWarnings("all")
+    private void fetchCollections(List<Map> rows, boolean detach) {
+      // rows of the same record are repeated when a collection is joined
+      final Map<Object, List<Map>> byId = new HashMap<>();
+      for (Map row : rows) {
+        byId.computeIfAbsent(row.get("id"), key -> new ArrayList<>()).add(row);
+      }
+      if (byId.isEmpty()) {
+        return;
+      }
+
+      final List<Object> ids = new ArrayList<>(byId.keySet());
+      for (String name : collections) {
+        final String jpql =
+            String.format(
+                "SELECT DISTINCT self FROM %s self LEFT JOIN FETCH self.%s WHERE self.id IN (:ids)",
+                beanClass.getSimpleName(), name);
+        for (List<Object> chunk : Lists.partition(ids, COLLECTION_BATCH_SIZE)) {
+          final TypedQuery<T> q = em().createQuery(jpql, beanClass);
+          q.setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false);
+          q.setParameter("ids", chunk);
+
+          final QueryBinder binder = QueryBinder.of(q).opts(false, flushMode);
+          if (readOnly) {
+            binder.setReadOnly();
+          }
+
+          for (T self : q.getResultList()) {
+            Collection<Model> items = (Collection<Model>) mapper.get(self, name);
+            if (items != null) {
+              List<Object> all = Lists.newArrayList();
+              for (Model obj : items) {
+                all.add(Resource.toMapCompact(obj));
+              }
+              for (Map row : byId.get(self.getId())) {
+                row.put(name, new ArrayList<>(all));
+              }
+            }
+            // don't keep the loaded entities in the session while streaming
+            if (detach) {
+              if (items != null) {
+                items.forEach(em()::detach);
+              }
+              em().detach(self);
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public String toString() {
       return query;
@@ -0,0 +1,207 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.db.internal;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.db.JPA;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.db.mapper.PropertyType;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class manages the trigram indexes of the name columns (for internal use only).
+ *
+ * <p>On PostgreSQL, when enabled, the name columns of the entities are indexed with <code>pg_trgm
+ * </code> GIN indexes on the same expression as the one searched with <code>LIKE</code> by the
+ * search filters, so that <code>LIKE '%text%'</code> searches don't need to scan the tables. As
+ * <code>unaccent</code> can't be used in index expressions, an immutable wrapper function is used
+ * instead when unaccent is enabled.
+ *
+ * <p>The indexes and the wrapper function are only created by {@link #createAll()}, when modules
+ * are installed or updated. Searches use the wrapper function once it exists.
+ */
+public final class TrigramIndexes {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TrigramIndexes.class);
+
+  private static final String UNACCENT = "unaccent";
+
+  private static final String UNACCENT_FUNCTION = "axelor_unaccent";
+
+  private static final String UNACCENT_FUNCTION_CHECK =
+      "SELECT to_regprocedure('" + UNACCENT_FUNCTION + "(text)') IS NOT NULL";
+
+  private static final String TRGM_CREATE = "CREATE EXTENSION IF NOT EXISTS pg_trgm";
+
+  private static final String UNACCENT_FUNCTION_CREATE =
+      "CREATE OR REPLACE FUNCTION "
+          + UNACCENT_FUNCTION
+          + "(text) RETURNS text LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT "
+          + "AS $$ SELECT unaccent('unaccent'::regdictionary, $1) $$";
+
+  private static final String INDEX_CREATE =
+      "CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON %s USING gin (%s gin_trgm_ops)";
+
+  private static final String INDEX_DROP = "DROP INDEX CONCURRENTLY IF EXISTS %s";
+
+  private static volatile Boolean unaccentFunction = null;
+
+  private TrigramIndexes() {}
+
+  /**
+   * Check whether the name columns are indexed with trigram indexes.
+   *
+   * @return true if enabled and the database is PostgreSQL
+   */
+  public static boolean isEnabled() {
+    return AppSettings.get().getBoolean(AvailableAppSettings.DATA_SEARCH_TRIGRAM_INDEX, false)
+        && DBHelper.isPostgreSQL();
+  }
+
+  private static boolean hasUnaccentFunction() {
+    try (Connection connection = DBHelper.getConnection();
+        Statement stmt = connection.createStatement();
+        ResultSet rs = stmt.executeQuery(UNACCENT_FUNCTION_CHECK)) {
+      return rs.next() && rs.getBoolean(1);
+    } catch (Exception e) {
+      LOG.warn("Unable to check {} function: {}", UNACCENT_FUNCTION, e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Get the function used to remove the accents from the searched text.
+   *
+   * <p>The function is immutable if trigram indexes are enabled and the function has been created,
+   * so that it can be used by the indexes.
+   *
+   * @return the function name
+   */
+  public static String getUnaccentFunction() {
+    Boolean exists = unaccentFunction;
+    if (exists == null) {
+      exists = isEnabled() && hasUnaccentFunction();
+      unaccentFunction = exists;
+    }
+    return exists ? UNACCENT_FUNCTION : UNACCENT;
+  }
+
+  /**
+   * Get the indexed expression of the given column.
+   *
+   * @param column the column or the query operand
+   * @param unaccent the function removing the accents, or null if unaccent is not enabled
+   * @return the expression searched with <code>LIKE</code>
+   */
+  public static String getExpression(String column, String unaccent) {
+    final String upper = String.format("UPPER(%s)", column);
+    return unaccent == null ? upper : String.format("%s(%s)", unaccent, upper);
+  }
+
+  /**
+   * Create the missing trigram indexes of the name columns, if enabled.
+   *
+   * <p>Indexes are created concurrently, so that the tables are not locked against writes. As
+   * <code>CREATE INDEX CONCURRENTLY</code> can't run in a transaction, each statement is run on its
+   * own, in auto-commit mode.
+   */
+  public static void createAll() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final boolean unaccent = DBHelper.isUnaccentEnabled();
+    final SessionFactoryImplementor factory =
+        JPA.em().getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    final Map<String, String> statements = new LinkedHashMap<>();
+
+    for (Class<?> model : JPA.models()) {
+      final Property property = Mapper.of(model).getNameField();
+      if (property == null
+          || property.getType() != PropertyType.STRING
+          || property.isTransient()
+          || property.isVirtual()
+          || property.isEncrypted()
+          || property.isPassword()) {
+        continue;
+      }
+
+      final EntityPersister persister = factory.getMetamodel().entityPersister(model);
+      if (!(persister instanceof AbstractEntityPersister)) {
+        continue;
+      }
+
+      final AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+      final String[] columns = entityPersister.getPropertyColumnNames(property.getName());
+      if (columns == null || columns.length != 1) {
+        continue;
+      }
+
+      final String table = entityPersister.getPropertyTableName(property.getName());
+      final String name =
+          String.format("%s_%s_trgm_idx", table.replace('.', '_'), columns[0]).toLowerCase();
+      final String expression = getExpression(columns[0], unaccent ? UNACCENT_FUNCTION : null);
+      statements.put(name, String.format(INDEX_CREATE, name, table, expression));
+    }
+
+    try (Connection connection = DBHelper.getConnection();
+        Statement stmt = connection.createStatement()) {
+      connection.setAutoCommit(true);
+      stmt.executeUpdate(TRGM_CREATE);
+      if (unaccent) {
+        stmt.executeUpdate(UNACCENT_FUNCTION_CREATE);
+      }
+      for (Map.Entry<String, String> entry : statements.entrySet()) {
+        // an index failing should not prevent to create the others
+        try {
+          stmt.executeUpdate(entry.getValue());
+        } catch (SQLException e) {
+          LOG.error("Unable to create trigram index: {}", entry.getValue(), e);
+          dropInvalid(stmt, entry.getKey());
+        }
+      }
+    } catch (Exception e) {
+      LOG.warn("pg_trgm extension is not supported by the database: {}", e.getMessage());
+    } finally {
+      // check the function again on next search
+      unaccentFunction = null;
+    }
+  }
+
+  // a failed concurrent build leaves an invalid index, which would be skipped by IF NOT EXISTS
+  private static void dropInvalid(Statement stmt, String name) {
+    try {
+      stmt.executeUpdate(String.format(INDEX_DROP, name));
+    } catch (SQLException e) {
+      LOG.error("Unable to drop invalid trigram index: {}", name, e);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.db.mapper;
+
+import com.google.common.primitives.Primitives;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates property accessors from getter and setter methods.
+ *
+ * <p>The accessors are generated with {@link LambdaMetafactory} so that they are invoked like
+ * plain method calls instead of reflective {@link Method#invoke(Object, Object...)} calls. If an
+ * accessor can't be generated (for example, the bean class is not accessible from this class
+ * loader), a reflective accessor is used instead.
+ */
+final class Accessors {
+
+  private static final Logger log = LoggerFactory.getLogger(Accessors.class);
+
+  private Accessors() {}
+
+  /**
+   * Create a getter function for the given getter method.
+   *
+   * @param method the getter method
+   * @return the getter function
+   */
+  @SuppressWarnings("unchecked")
+  static Function<Object, Object> getter(Method method) {
+    try {
+      final MethodHandles.Lookup lookup = lookup(method);
+      final MethodHandle handle = lookup.unreflect(method);
+      final CallSite site =
+          LambdaMetafactory.metafactory(
+              lookup,
+              "apply",
+              MethodType.methodType(Function.class),
+              MethodType.methodType(Object.class, Object.class),
+              handle,
+              MethodType.methodType(
+                  Primitives.wrap(method.getReturnType()), method.getDeclaringClass()));
+      return (Function<Object, Object>) site.getTarget().invoke();
+    } catch (Throwable e) {
+      log.trace("Unable to generate getter for: {}", method, e);
+    }
+    return bean -> invoke(method, bean);
+  }
+
+  /**
+   * Create a setter function for the given setter method.
+   *
+   * @param method the setter method
+   * @return the setter function
+   */
+  @SuppressWarnings("unchecked")
+  static BiConsumer<Object, Object> setter(Method method) {
+    try {
+      final MethodHandles.Lookup lookup = lookup(method);
+      final MethodHandle handle = lookup.unreflect(method);
+      final CallSite site =
+          LambdaMetafactory.metafactory(
+              lookup,
+              "accept",
+              MethodType.methodType(BiConsumer.class),
+              MethodType.methodType(void.class, Object.class, Object.class),
+              handle,
+              MethodType.methodType(
+                  void.class,
+                  method.getDeclaringClass(),
+                  Primitives.wrap(method.getParameterTypes()[0])));
+      return (BiConsumer<Object, Object>) site.getTarget().invoke();
+    } catch (Throwable e) {
+      log.trace("Unable to generate setter for: {}", method, e);
+    }
+    return (bean, value) -> invoke(method, bean, value);
+  }
+
+  private static MethodHandles.Lookup lookup(Method method) throws IllegalAccessException {
+    return MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+  }
+
+  private static Object invoke(Method method, Object bean, Object... args) {
+    try {
+      return method.invoke(bean, args);
+    } catch (InvocationTargetException e) {
+      throw new IllegalArgumentException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
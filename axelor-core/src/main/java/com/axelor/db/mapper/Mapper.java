@@ -47,6 +47,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
@@ -66,8 +69,6 @@ public class Mapper {
   private static final Cache<Method, Annotation[]> ANNOTATION_CACHE =
       CacheBuilder.newBuilder().maximumSize(1000).weakKeys().build();
 
-  private static final Object[] NULL_ARGUMENTS = {};
-
   private static final String PREFIX_COMPUTE = "compute";
   private static final String PREFIX_SET = "set";
 
@@ -78,6 +79,15 @@ public class Mapper {
   private Map<String, Class<?>> types = new HashMap<>();
   private Map<String, Property> fields = new HashMap<>();
 
+  private Map<String, Integer> indexes = new HashMap<>(); // field -> index
+  private String[] names;
+  private Method[] getterMethods;
+  private Method[] setterMethods;
+
+  // generated accessors, created on first use
+  private AtomicReferenceArray<Function<Object, Object>> readers;
+  private AtomicReferenceArray<BiConsumer<Object, Object>> writers;
+
   private Map<String, Set<String>> computeDependencies;
 
   private Set<Property> sequenceFields = new HashSet<>();
@@ -97,6 +107,8 @@ public class Mapper {
         Method setter = descriptor.getWriteMethod();
         Class<?> type = descriptor.getPropertyType();
 
+        indexes.put(name, indexes.size());
+
         if (getter != null) {
           getters.put(name, getter);
           methods.put(getter.getName(), name);
@@ -141,6 +153,19 @@ public class Mapper {
       }
     } catch (IntrospectionException e) {
     }
+
+    names = new String[indexes.size()];
+    getterMethods = new Method[indexes.size()];
+    setterMethods = new Method[indexes.size()];
+    indexes.forEach(
+        (name, index) -> {
+          names[index] = name;
+          getterMethods[index] = getters.get(name);
+          setterMethods[index] = setters.get(name);
+        });
+
+    readers = new AtomicReferenceArray<>(indexes.size());
+    writers = new AtomicReferenceArray<>(indexes.size());
   }
 
   private Annotation[] getAnnotations(String name, Method method) {
@@ -372,8 +397,47 @@ public class Mapper {
     Preconditions.checkNotNull(name);
     Preconditions.checkArgument(beanClass.isInstance(bean));
     Preconditions.checkArgument(!name.trim().equals(""));
+    final Integer index = indexes.get(name);
+    return index == null ? null : read(bean, index);
+  }
+
+  /**
+   * Get the index of the given property.
+   *
+   * <p>The index can be used with {@link #get(Object, int)} and {@link #set(Object, int, Object)}
+   * to avoid looking up the property by name when accessing the same properties of many beans.
+   *
+   * @param name name of the property
+   * @return the property index or -1 if property doesn't exist
+   */
+  public int getIndex(String name) {
+    return indexes.getOrDefault(name, -1);
+  }
+
+  /**
+   * Get the value of the property at the given index from the given bean.
+   *
+   * @param bean the bean
+   * @param index the property index
+   * @return property value
+   * @see #getIndex(String)
+   */
+  public Object get(Object bean, int index) {
+    Preconditions.checkNotNull(bean);
+    Preconditions.checkArgument(beanClass.isInstance(bean));
+    Preconditions.checkElementIndex(index, getterMethods.length);
+    return read(bean, index);
+  }
+
+  private Object read(Object bean, int index) {
+    Function<Object, Object> reader = readers.get(index);
+    if (reader == null) {
+      final Method method = getterMethods[index];
+      reader = method == null ? b -> null : Accessors.getter(method);
+      readers.set(index, reader);
+    }
     try {
-      return getters.get((String) name).invoke(bean, NULL_ARGUMENTS);
+      return reader.apply(bean);
     } catch (Exception e) {
       return null;
     }
@@ -393,18 +457,52 @@ public class Mapper {
     Preconditions.checkArgument(beanClass.isInstance(bean));
     Preconditions.checkArgument(!name.trim().equals(""));
 
-    final Method method = setters.get(name);
-    if (method == null) {
+    final Integer index = indexes.get(name);
+    if (index == null || setterMethods[index] == null) {
       throw new IllegalArgumentException(
           "The bean of type: " + beanClass.getName() + " has no property called: " + name);
     }
 
-    final Object oldValue = get(bean, name);
+    return write(bean, index, value);
+  }
+
+  /**
+   * Set the property at the given index of the given bean with the provided value.
+   *
+   * @param bean the bean
+   * @param index the property index
+   * @param value value for the property
+   * @return old value of the property
+   * @see #getIndex(String)
+   */
+  public Object set(Object bean, int index, Object value) {
+    Preconditions.checkNotNull(bean);
+    Preconditions.checkArgument(beanClass.isInstance(bean));
+    Preconditions.checkElementIndex(index, setterMethods.length);
+
+    if (setterMethods[index] == null) {
+      throw new IllegalArgumentException(
+          "The bean of type: " + beanClass.getName() + " has no property at: " + index);
+    }
+
+    return write(bean, index, value);
+  }
+
+  private Object write(Object bean, int index, Object value) {
+    final Method method = setterMethods[index];
+
+    BiConsumer<Object, Object> writer = writers.get(index);
+    if (writer == null) {
+      writer = Accessors.setter(method);
+      writers.set(index, writer);
+    }
+
+    final Object oldValue = read(bean, index);
     final Class<?> actualType = method.getParameterTypes()[0];
     final Type genericType = method.getGenericParameterTypes()[0];
-    final Annotation[] annotations = getAnnotations(name, method);
+    final Annotation[] annotations = getAnnotations(names[index], method);
     try {
-      method.invoke(bean, Adapter.adapt(value, actualType, genericType, annotations));
+      writer.accept(bean, Adapter.adapt(value, actualType, genericType, annotations));
     } catch (Exception e) {
       throw new IllegalArgumentException(e);
     }
@@ -450,7 +548,7 @@ public class Mapper {
     final Map<String, Object> map = new HashMap<>();
     final Mapper mapper = Mapper.of(bean.getClass());
     for (Property p : mapper.getProperties()) {
-      map.put(p.getName(), p.get(bean));
+      map.put(p.getName(), mapper.get(bean, p.getName()));
     }
     return map;
   }
@@ -19,28 +19,28 @@
 package com.axelor.i18n;
 
 import com.axelor.common.StringUtils;
-import com.axelor.db.JPA;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import javax.persistence.FlushModeType;
-import javax.persistence.TypedQuery;
 
-/** The database backed {@link ResourceBundle} that loads translations from the axelor database. */
+/**
+ * The database backed {@link ResourceBundle} that loads translations from the axelor database.
+ *
+ * <p>Translations of the bundle's language take precedence over the translations of its base
+ * language. The translations are shared with other bundles of the same languages, see {@link
+ * I18nMessages}.
+ */
 public class I18nBundle extends ResourceBundle {
 
-  private final Locale locale;
-  private final Map<String, String> messages = new ConcurrentHashMap<>();
-
-  private boolean loaded;
+  private final String lang;
+  private final String baseLang;
 
   public I18nBundle(Locale locale) {
-    this.locale = locale;
+    this.lang = locale.toLanguageTag();
+    this.baseLang = locale.getLanguage();
   }
 
   @Override
@@ -48,7 +48,7 @@ public class I18nBundle extends ResourceBundle {
     if (StringUtils.isBlank(key)) {
       return key;
     }
-    final String result = load().get(key);
+    final String result = lookup(key);
     if (StringUtils.isBlank(result)) {
       return key;
     }
@@ -57,66 +57,72 @@ public class I18nBundle extends ResourceBundle {
 
   @Override
   protected Set<String> handleKeySet() {
-    return load().keySet();
+    final Set<String> keys = new HashSet<>(I18nMessages.of(lang).keySet());
+    if (!lang.equals(baseLang)) {
+      keys.addAll(I18nMessages.of(baseLang).keySet());
+    }
+    return keys;
   }
 
   @Override
   public Enumeration<String> getKeys() {
-    return Collections.enumeration(load().keySet());
+    return Collections.enumeration(handleKeySet());
   }
 
   @Override
   public boolean containsKey(String key) {
-    return handleKeySet().contains(key);
+    return key != null && lookup(key) != null;
   }
 
-  private Map<String, String> load() {
-    return loaded ? messages : doLoad();
+  private String lookup(String key) {
+    final String result = I18nMessages.of(lang).get(key);
+    if (StringUtils.notBlank(result) || lang.equals(baseLang)) {
+      return result;
+    }
+    final String base = I18nMessages.of(baseLang).get(key);
+    return base == null ? result : base;
   }
 
-  private synchronized Map<String, String> doLoad() {
-
-    try {
-      JPA.em();
-    } catch (Throwable e) {
-      return messages;
+  /**
+   * Update the cached translations with the given saved translation.
+   *
+   * @param language the language of the translation
+   * @param key the translation key
+   * @param message the translated message or null if translation is removed
+   */
+  public static void update(String language, String key, String message) {
+    if (StringUtils.notBlank(language) && key != null) {
+      I18nMessages.update(language, key, message);
     }
+  }
 
-    final String lang = locale.toLanguageTag();
-    final String baseLang = locale.getLanguage();
-    final int limit = 100;
-    final TypedQuery<Object[]> query =
-        JPA.em()
-            .createQuery(
-                "SELECT self.key, MAX(CASE WHEN self.language = :lang THEN self.message ELSE base.message END) "
-                    + "FROM MetaTranslation self "
-                    + "LEFT JOIN MetaTranslation base ON base.key = self.key AND base.language = :baseLang "
-                    + "WHERE self.message IS NOT NULL AND self.language IN (:lang, :baseLang) "
-                    + "GROUP BY self.key "
-                    + "ORDER BY self.key",
-                Object[].class)
-            .setParameter("lang", lang)
-            .setParameter("baseLang", baseLang)
-            .setFlushMode(FlushModeType.COMMIT)
-            .setMaxResults(limit);
-
-    int offset = 0;
-    List<Object[]> results;
-
-    do {
-      query.setFirstResult(offset);
-      results = query.getResultList();
-      for (final Object[] result : results) {
-        messages.put((String) result[0], (String) result[1]);
-      }
-      offset += limit;
-    } while (results.size() >= limit);
+  /**
+   * Invalidate the cached translations of the given language.
+   *
+   * <p>Used when changes to the translations of the language are not known, for example, if the
+   * transaction saving them is rolled back.
+   *
+   * @param language the language of the translations
+   */
+  public static void invalidate(String language) {
+    if (StringUtils.notBlank(language)) {
+      I18nMessages.invalidate(language);
+    }
+  }
 
-    this.loaded = true;
-    return messages;
+  /**
+   * Get the version of the cached translations.
+   *
+   * <p>The version changes whenever a translation is updated or {@link #invalidate()} is called,
+   * so it can be used to check whether some data computed from the translations is outdated.
+   *
+   * @return the translations version
+   */
+  public static long getVersion() {
+    return I18nMessages.version();
   }
 
   public static void invalidate() {
-    ResourceBundle.clearCache();
+    I18nMessages.invalidateAll();
   }
 }
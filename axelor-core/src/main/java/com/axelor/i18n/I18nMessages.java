@@ -0,0 +1,256 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.i18n;
+
+import com.axelor.db.JPA;
+import com.axelor.db.internal.DBHelper;
+import com.axelor.db.tenants.TenantResolver;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.persistence.FlushModeType;
+
+/**
+ * Translations of a single language.
+ *
+ * <p>The translations are loaded in a single streamed pass and kept in sorted arrays looked up
+ * with binary search. The snapshots are shared by all the bundles using the same language, for
+ * example, the <code>fr</code> snapshot is used by <code>fr</code>, <code>fr-FR</code> and <code>
+ * fr-CA</code> bundles, and keys are interned across languages.
+ *
+ * <p>Saved translations are applied to the loaded snapshots key by key with {@link #update(String,
+ * String, String)} instead of reloading them.
+ */
+final class I18nMessages {
+
+  private static final String QUERY =
+      "SELECT self.key, self.message FROM MetaTranslation self "
+          + "WHERE self.language = :lang AND self.message IS NOT NULL";
+
+  // reload the snapshot instead of tracking too many changes
+  private static final int MAX_CHANGES = 1000;
+
+  private static final I18nMessages EMPTY = new I18nMessages(new String[0], new String[0], 0);
+
+  private static final Cache<List<Object>, I18nMessages> CACHE = CacheBuilder.newBuilder().build();
+
+  private static final Interner<String> KEYS = Interners.newWeakInterner();
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  private final String[] keys;
+  private final String[] values;
+
+  private final Map<String, Optional<String>> changes = new ConcurrentHashMap<>();
+
+  private volatile long version;
+
+  private I18nMessages(String[] keys, String[] values, long version) {
+    this.keys = keys;
+    this.values = values;
+    this.version = version;
+  }
+
+  /**
+   * Get the translations of the given language.
+   *
+   * @param language the language tag
+   * @return the translations
+   */
+  static I18nMessages of(String language) {
+    try {
+      JPA.em();
+    } catch (Throwable e) {
+      return EMPTY;
+    }
+
+    final List<Object> key = Arrays.asList(TenantResolver.currentTenantIdentifier(), language);
+    try {
+      I18nMessages messages = CACHE.get(key, () -> load(language));
+      if (messages.version < VERSION.get()) {
+        CACHE.asMap().remove(key, messages);
+        messages = CACHE.get(key, () -> load(language));
+      }
+      return messages;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static I18nMessages load(String language) {
+    final long version = VERSION.get();
+    final List<Object[]> rows = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    final org.hibernate.query.Query<Object[]> query =
+        JPA.em()
+            .createQuery(QUERY, Object[].class)
+            .setParameter("lang", language)
+            .setFlushMode(FlushModeType.COMMIT)
+            .unwrap(org.hibernate.query.Query.class);
+
+    query.setReadOnly(true);
+    query.setFetchSize(DBHelper.getJdbcFetchSize());
+
+    try (Stream<Object[]> stream = query.stream()) {
+      stream.forEach(rows::add);
+    }
+
+    rows.sort(Comparator.comparing(row -> (String) row[0]));
+
+    final String[] keys = new String[rows.size()];
+    final String[] values = new String[rows.size()];
+
+    int size = 0;
+    for (Object[] row : rows) {
+      final String key = (String) row[0];
+      if (size > 0 && key.equals(keys[size - 1])) {
+        continue;
+      }
+      keys[size] = KEYS.intern(key);
+      values[size] = (String) row[1];
+      size++;
+    }
+
+    return new I18nMessages(
+        size == keys.length ? keys : Arrays.copyOf(keys, size),
+        size == values.length ? values : Arrays.copyOf(values, size),
+        version);
+  }
+
+  /**
+   * Apply a saved or removed translation to the loaded snapshots of the current tenant.
+   *
+   * @param language the language tag of the translation
+   * @param key the translation key
+   * @param message the message or null if translation is removed
+   */
+  static void update(String language, String key, String message) {
+    final Object tenant = TenantResolver.currentTenantIdentifier();
+    synchronized (VERSION) {
+      final long next = VERSION.get() + 1;
+      CACHE
+          .asMap()
+          .forEach(
+              (k, messages) -> {
+                if (Objects.equals(k.get(0), tenant) && Objects.equals(k.get(1), language)) {
+                  if (messages.changes.size() >= MAX_CHANGES) {
+                    CACHE.asMap().remove(k, messages);
+                    return;
+                  }
+                  messages.changes.put(KEYS.intern(key), Optional.ofNullable(message));
+                }
+                messages.version = next;
+              });
+      // snapshots still being loaded may miss the change so they are reloaded
+      VERSION.set(next);
+    }
+  }
+
+  /**
+   * Drop the loaded snapshots of the given language of the current tenant, so that they are
+   * reloaded from the database.
+   *
+   * @param language the language tag
+   */
+  static void invalidate(String language) {
+    final Object tenant = TenantResolver.currentTenantIdentifier();
+    synchronized (VERSION) {
+      final long next = VERSION.get() + 1;
+      CACHE
+          .asMap()
+          .forEach(
+              (k, messages) -> {
+                if (Objects.equals(k.get(0), tenant) && Objects.equals(k.get(1), language)) {
+                  CACHE.asMap().remove(k, messages);
+                  return;
+                }
+                messages.version = next;
+              });
+      // snapshots still being loaded are reloaded
+      VERSION.set(next);
+    }
+  }
+
+  /**
+   * Get the current version of the translations, changed whenever a translation is updated or all
+   * the translations are invalidated.
+   *
+   * @return the version
+   */
+  static long version() {
+    return VERSION.get();
+  }
+
+  /** Invalidate all the translations. */
+  static void invalidateAll() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      CACHE.invalidateAll();
+    }
+  }
+
+  /**
+   * Get the message of the given key.
+   *
+   * @param key the translation key
+   * @return the message or null if not found
+   */
+  String get(String key) {
+    final Optional<String> changed = changes.get(key);
+    if (changed != null) {
+      return changed.orElse(null);
+    }
+    final int index = Arrays.binarySearch(keys, key);
+    return index < 0 ? null : values[index];
+  }
+
+  /**
+   * Get the translation keys.
+   *
+   * @return set of keys
+   */
+  Set<String> keySet() {
+    final Set<String> all = new HashSet<>(Arrays.asList(keys));
+    changes.forEach(
+        (key, message) -> {
+          if (message.isPresent()) {
+            all.add(key);
+          } else {
+            all.remove(key);
+          }
+        });
+    return all;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.i18n;
+
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.event.Observes;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import com.axelor.meta.db.MetaTranslation;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Singleton;
+
+/**
+ * Observes changes to translations to update the cached translations.
+ *
+ * <p>The changes are applied once the transaction is committed, key by key, so that saving a
+ * translation doesn't reload all the translations. If the transaction is rolled back, the
+ * translations of the affected languages are reloaded instead, as they may have been loaded with
+ * the uncommitted changes.
+ */
+@Singleton
+public class I18nObserver {
+
+  void onBeforeTransactionComplete(@Observes BeforeTransactionComplete event) {
+    final List<Runnable> tasks = new ArrayList<>();
+    final Set<String> languages = new HashSet<>();
+
+    for (Model entity : event.getUpdated()) {
+      if (entity instanceof MetaTranslation) {
+        final MetaTranslation translation = (MetaTranslation) entity;
+        final String language = translation.getLanguage();
+        final String key = translation.getKey();
+        final String message = translation.getMessage();
+        tasks.add(() -> I18nBundle.update(language, key, message));
+        languages.add(language);
+      }
+    }
+
+    for (Model entity : event.getDeleted()) {
+      if (entity instanceof MetaTranslation) {
+        final MetaTranslation translation = (MetaTranslation) entity;
+        final String language = translation.getLanguage();
+        final String key = translation.getKey();
+        tasks.add(() -> I18nBundle.update(language, key, null));
+        languages.add(language);
+      }
+    }
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    JPA.runAfterCompletion(
+        () -> tasks.forEach(Runnable::run), () -> languages.forEach(I18nBundle::invalidate));
+  }
+}
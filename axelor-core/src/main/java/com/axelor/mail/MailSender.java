@@ -19,6 +19,9 @@
 package com.axelor.mail;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Session;
@@ -29,6 +32,8 @@ public final class MailSender {
 
   private Session session;
 
+  private Transport transport;
+
   /**
    * Create a new {@link MailSender} with the given account.
    *
@@ -58,6 +63,71 @@ public final class MailSender {
     Transport.send(message);
   }
 
+  /**
+   * Send the given messages using a single connection.
+   *
+   * <p>The connection is kept open and reused by the next calls until {@link #close()} is called
+   * or the server closes it. If the connection is lost while sending, a new connection is opened
+   * for the remaining messages.
+   *
+   * @param messages the messages to send
+   * @return the messages which could not be sent with their errors
+   */
+  public synchronized Map<Message, MessagingException> send(
+      Collection<? extends Message> messages) {
+    final Map<Message, MessagingException> failures = new LinkedHashMap<>();
+    MessagingException error = null;
+    for (Message message : messages) {
+      if (error != null) {
+        failures.put(message, error);
+        continue;
+      }
+      final Transport connection;
+      try {
+        connection = connect();
+      } catch (MessagingException e) {
+        // unable to connect, fail remaining messages
+        failures.put(message, error = e);
+        continue;
+      }
+      try {
+        message.saveChanges();
+        connection.sendMessage(message, message.getAllRecipients());
+      } catch (MessagingException e) {
+        failures.put(message, e);
+        if (!connection.isConnected()) {
+          close();
+        }
+      }
+    }
+    return failures;
+  }
+
+  private Transport connect() throws MessagingException {
+    if (transport != null && transport.isConnected()) {
+      return transport;
+    }
+    close();
+    final Transport connection = session.getTransport("smtp");
+    connection.connect();
+    transport = connection;
+    return connection;
+  }
+
+  /** Close the connection opened to send messages, if any. */
+  public synchronized void close() {
+    if (transport == null) {
+      return;
+    }
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      // ignore
+    } finally {
+      transport = null;
+    }
+  }
+
   /**
    * Send a simple text message to the given recipients.<br>
    * <br>
@@ -0,0 +1,519 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.mail.service;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.auth.AuditableRunner;
+import com.axelor.db.JPA;
+import com.axelor.db.tenants.TenantModule;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.axelor.events.StartupEvent;
+import com.axelor.inject.Beans;
+import com.axelor.mail.MailException;
+import com.axelor.mail.MailSender;
+import com.axelor.mail.db.MailMessage;
+import com.axelor.mail.db.MailOutbox;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.inject.Singleton;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.persistence.LockModeType;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.hibernate.LockOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The durable queue of outgoing emails.
+ *
+ * <p>Emails are stored as {@link MailOutbox} records within the transaction sending them, and are
+ * sent by a bounded pool of worker threads once the transaction is committed. Queued emails are
+ * grouped by {@link MailSender} so that many emails are sent over a single connection. Failed
+ * emails are retried with an exponential backoff until the maximum number of attempts is reached.
+ *
+ * <p>Due emails are also polled periodically, so that emails queued before a restart, by another
+ * node or whose sending node died are not lost.
+ */
+@Singleton
+public class MailOutboxQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(MailOutboxQueue.class);
+
+  // time after which claimed emails which are not processed are claimed again
+  private static final Duration LEASE = Duration.ofMinutes(10);
+
+  private static final Duration MAX_RETRY_DELAY = Duration.ofDays(1);
+
+  private static final String CLAIM_QUERY =
+      "SELECT self FROM MailOutbox self WHERE self.nextAttempt <= :now ORDER BY self.nextAttempt";
+
+  private static final Session SESSION = Session.getInstance(new Properties());
+
+  private final int threads;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration retryDelay;
+
+  private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+
+  // subjects which queued the emails, to resolve their senders with the same user
+  private final Map<String, Subject> subjects;
+
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong sendTime = new AtomicLong();
+
+  private ScheduledExecutorService executor;
+
+  private static final class TenantState {
+
+    private final String id;
+    private final String host;
+
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    private TenantState(String id, String host) {
+      this.id = id;
+      this.host = host;
+    }
+  }
+
+  // keeps the message id of the queued email when changes are saved
+  private static final class QueuedMessage extends MimeMessage {
+
+    private QueuedMessage(InputStream in) throws MessagingException {
+      super(SESSION, in);
+    }
+
+    @Override
+    protected void updateMessageID() throws MessagingException {
+      if (getMessageID() == null) {
+        super.updateMessageID();
+      }
+    }
+  }
+
+  public MailOutboxQueue() {
+    final AppSettings settings = AppSettings.get();
+    this.threads = Math.max(1, settings.getInt(AvailableAppSettings.MAIL_OUTBOX_THREADS, 2));
+    this.batchSize = Math.max(1, settings.getInt(AvailableAppSettings.MAIL_OUTBOX_BATCH_SIZE, 50));
+    this.maxAttempts =
+        Math.max(1, settings.getInt(AvailableAppSettings.MAIL_OUTBOX_MAX_ATTEMPTS, 5));
+    this.retryDelay =
+        Duration.ofSeconds(
+            Math.max(1, settings.getInt(AvailableAppSettings.MAIL_OUTBOX_RETRY_DELAY, 60)));
+
+    // emails claimed and sent by other nodes are never removed here, so the subjects are kept
+    // only as long as this node could still attempt to send their emails
+    Duration horizon = LEASE.multipliedBy(maxAttempts);
+    for (int attempts = 1; attempts < maxAttempts; attempts++) {
+      horizon = horizon.plus(backoff(attempts));
+    }
+    final Cache<String, Subject> cache =
+        CacheBuilder.newBuilder().expireAfterWrite(horizon.getSeconds(), TimeUnit.SECONDS).build();
+    this.subjects = cache.asMap();
+  }
+
+  void onAppStartup(@Observes StartupEvent event) {
+    if (TenantModule.isEnabled()) {
+      TenantResolver.getTenants(false).keySet().forEach(id -> state(id, null));
+    } else {
+      state(null, null);
+    }
+    getExecutor();
+    tenants.values().forEach(this::schedule);
+  }
+
+  void onAppShutdown(@Observes ShutdownEvent event) {
+    stop();
+  }
+
+  /**
+   * Queue the given email.
+   *
+   * <p>The email is saved within the current transaction, if any, and is sent once the transaction
+   * is committed.
+   *
+   * @param messageId the message id of the related {@link MailMessage}
+   * @param email the email to send
+   * @throws MailException if unable to queue the email
+   */
+  public void enqueue(String messageId, MimeMessage email) throws MailException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      if (email.getSentDate() == null) {
+        email.setSentDate(new Date());
+      }
+      email.saveChanges();
+      email.writeTo(out);
+    } catch (IOException | MessagingException e) {
+      throw new MailException(e);
+    }
+
+    final MailOutbox item = new MailOutbox();
+    item.setMessageId(messageId);
+    item.setContent(out.toByteArray());
+    item.setAttempts(0);
+    item.setNextAttempt(LocalDateTime.now());
+
+    final Subject subject = ThreadContext.getSubject();
+    if (subject != null) {
+      subjects.put(messageId, subject);
+    }
+
+    JPA.runInTransaction(() -> JPA.em().persist(item));
+
+    final TenantState state =
+        state(TenantResolver.currentTenantIdentifier(), TenantResolver.currentTenantHost());
+    JPA.runAfterCompletion(() -> schedule(state), () -> subjects.remove(messageId));
+  }
+
+  /**
+   * Send the due emails of the current tenant.
+   *
+   * @return number of processed emails, whether sent or failed
+   */
+  public int drain() {
+    final Set<MailSender> senders = Collections.newSetFromMap(new IdentityHashMap<>());
+    int total = 0;
+    int count;
+    try {
+      while ((count = process(senders)) > 0) {
+        total += count;
+      }
+    } finally {
+      // connections are kept open while there are due emails only
+      senders.forEach(MailSender::close);
+    }
+    return total;
+  }
+
+  /**
+   * Get the number of emails waiting to be sent for the current tenant.
+   *
+   * @return queue size
+   */
+  public long getQueueSize() {
+    return JPA.all(MailOutbox.class).filter("self.nextAttempt IS NOT NULL").count();
+  }
+
+  /**
+   * Get the number of emails of the current tenant which can't be sent anymore.
+   *
+   * @return number of abandoned emails
+   */
+  public long getAbandonedCount() {
+    return JPA.all(MailOutbox.class).filter("self.nextAttempt IS NULL").count();
+  }
+
+  /**
+   * Get the number of emails sent since startup.
+   *
+   * @return number of sent emails
+   */
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  /**
+   * Get the number of failed attempts since startup.
+   *
+   * @return number of failures
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * Get the average time taken to send an email since startup.
+   *
+   * @return average send time in milliseconds
+   */
+  public long getAverageSendTime() {
+    final long count = sentCount.get() + failedCount.get();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sendTime.get() / count);
+  }
+
+  /** Stop the workers, the open connections are closed once they are done. */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  private synchronized ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor =
+          new ScheduledThreadPoolExecutor(
+              threads,
+              new ThreadFactoryBuilder().setNameFormat("mail-outbox-%d").setDaemon(true).build());
+      final long delay = retryDelay.getSeconds();
+      executor.scheduleWithFixedDelay(
+          () -> tenants.values().forEach(this::schedule), delay, delay, TimeUnit.SECONDS);
+    }
+    return executor;
+  }
+
+  private TenantState state(String id, String host) {
+    return tenants.computeIfAbsent(Objects.toString(id, ""), k -> new TenantState(id, host));
+  }
+
+  private void schedule(TenantState state) {
+    state.requested.set(true);
+    if (state.workers.incrementAndGet() > threads) {
+      state.workers.decrementAndGet();
+      return;
+    }
+    try {
+      getExecutor().execute(() -> work(state));
+    } catch (Exception e) {
+      state.workers.decrementAndGet();
+      log.error("Unable to schedule mail outbox processing", e);
+    }
+  }
+
+  private void work(TenantState state) {
+    final UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    TenantResolver.setCurrentTenant(state.id, state.host);
+    unitOfWork.begin();
+    try {
+      do {
+        state.requested.set(false);
+        drain();
+      } while (state.requested.get());
+    } catch (Exception e) {
+      log.error("Unable to process mail outbox", e);
+    } finally {
+      unitOfWork.end();
+      TenantResolver.setCurrentTenant(null, null);
+      state.workers.decrementAndGet();
+    }
+    // requested while exiting
+    if (state.requested.get()) {
+      schedule(state);
+    }
+  }
+
+  private List<MailOutbox> claim() {
+    final LocalDateTime now = LocalDateTime.now();
+    final List<MailOutbox> items =
+        JPA.em()
+            .createQuery(CLAIM_QUERY, MailOutbox.class)
+            .setParameter("now", now)
+            .setMaxResults(batchSize)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+            .getResultList();
+    items.forEach(item -> item.setNextAttempt(now.plus(LEASE)));
+    return items;
+  }
+
+  // claim and send a batch of due emails, returns number of claimed emails
+  private int process(Set<MailSender> senders) {
+    final List<MailOutbox> items = JPA.withTransaction(this::claim);
+    if (items.isEmpty()) {
+      return 0;
+    }
+
+    final MailServiceImpl service = getService();
+    final Map<String, MailMessage> messages =
+        JPA.all(MailMessage.class)
+            .filter("self.messageId IN (:ids)")
+            .bind("ids", items.stream().map(MailOutbox::getMessageId).collect(Collectors.toList()))
+            .fetch()
+            .stream()
+            .collect(Collectors.toMap(MailMessage::getMessageId, Function.identity(), (a, b) -> a));
+
+    final Map<MailOutbox, MimeMessage> sent = new LinkedHashMap<>();
+    final Map<MailOutbox, String> failed = new LinkedHashMap<>();
+    final List<MailOutbox> dropped = new ArrayList<>();
+    final Map<MailSender, Map<Message, MailOutbox>> batches = new IdentityHashMap<>();
+
+    for (MailOutbox item : items) {
+      final MailMessage message = messages.get(item.getMessageId());
+      if (message == null) {
+        log.warn("Message not found, queued email dropped: {}", item.getMessageId());
+        dropped.add(item);
+        continue;
+      }
+      final MailSender sender;
+      try {
+        sender = service == null ? null : getSender(service, message);
+      } catch (Exception e) {
+        log.error("Unable to get mail sender: {}", item.getMessageId(), e);
+        failed.put(item, e.getMessage());
+        continue;
+      }
+      if (sender == null) {
+        failed.put(item, "Mail sender is not configured.");
+        continue;
+      }
+      try {
+        final MimeMessage email = new QueuedMessage(new ByteArrayInputStream(item.getContent()));
+        batches.computeIfAbsent(sender, k -> new LinkedHashMap<>()).put(email, item);
+      } catch (MessagingException e) {
+        failed.put(item, e.getMessage());
+      }
+    }
+
+    batches.forEach(
+        (sender, emails) -> {
+          senders.add(sender);
+          final long start = System.nanoTime();
+          final Map<Message, MessagingException> errors = sender.send(emails.keySet());
+          sendTime.addAndGet(System.nanoTime() - start);
+          emails.forEach(
+              (email, item) -> {
+                final MessagingException error = errors.get(email);
+                if (error == null) {
+                  sent.put(item, (MimeMessage) email);
+                } else {
+                  log.debug("Unable to send email: {}", item.getMessageId(), error);
+                  failed.put(item, error.getMessage());
+                }
+              });
+        });
+
+    sentCount.addAndGet(sent.size());
+    failedCount.addAndGet(failed.size());
+
+    JPA.runInTransaction(() -> complete(service, sent, failed, dropped));
+
+    if (!failed.isEmpty()) {
+      log.warn("Unable to send {} of {} queued emails", failed.size(), items.size());
+    }
+    log.debug("Sent {} queued emails", sent.size());
+
+    return items.size();
+  }
+
+  private void complete(
+      MailServiceImpl service,
+      Map<MailOutbox, MimeMessage> sent,
+      Map<MailOutbox, String> failed,
+      List<MailOutbox> dropped) {
+    final LocalDateTime now = LocalDateTime.now();
+    final AuditableRunner runner = Beans.get(AuditableRunner.class);
+
+    for (MailOutbox item : dropped) {
+      remove(item);
+      subjects.remove(item.getMessageId());
+    }
+
+    sent.forEach(
+        (item, email) -> {
+          remove(item);
+          final Subject subject = subjects.remove(item.getMessageId());
+          final Runnable task = () -> runner.run(() -> service.outboxSent(email));
+          try {
+            if (subject == null) {
+              task.run();
+            } else {
+              subject.execute(task);
+            }
+          } catch (Exception e) {
+            log.error("Error after sending email: {}", item.getMessageId(), e);
+          }
+        });
+
+    failed.forEach(
+        (item, error) -> {
+          final MailOutbox entity = JPA.em().find(MailOutbox.class, item.getId());
+          if (entity == null) {
+            subjects.remove(item.getMessageId());
+            return;
+          }
+          final int attempts = (entity.getAttempts() == null ? 0 : entity.getAttempts()) + 1;
+          entity.setAttempts(attempts);
+          entity.setLastError(error);
+          entity.setNextAttempt(attempts >= maxAttempts ? null : now.plus(backoff(attempts)));
+          if (attempts >= maxAttempts) {
+            subjects.remove(item.getMessageId());
+            log.error("Unable to send email after {} attempts: {}", attempts, item.getMessageId());
+          }
+        });
+  }
+
+  // resolve the sender with the user which queued the email, if known by this node
+  private MailSender getSender(MailServiceImpl service, MailMessage message) throws Exception {
+    final Subject subject = subjects.get(message.getMessageId());
+    if (subject == null) {
+      return service.getOutboxSender(message);
+    }
+    try {
+      return subject.execute(() -> service.getOutboxSender(message));
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  private void remove(MailOutbox item) {
+    final MailOutbox entity = JPA.em().find(MailOutbox.class, item.getId());
+    if (entity != null) {
+      JPA.em().remove(entity);
+    }
+  }
+
+  private Duration backoff(int attempts) {
+    final Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 20));
+    return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+  }
+
+  private MailServiceImpl getService() {
+    final MailService service = Beans.get(MailService.class);
+    return service instanceof MailServiceImpl ? (MailServiceImpl) service : null;
+  }
+}
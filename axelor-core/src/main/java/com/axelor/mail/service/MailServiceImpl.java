@@ -73,8 +73,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.activation.DataSource;
 import javax.inject.Singleton;
 import javax.mail.FetchProfile;
@@ -104,8 +102,6 @@ public class MailServiceImpl implements MailService, MailConstants {
   private boolean senderConfigured;
   private boolean readerConfigured;
 
-  private ExecutorService executor = Executors.newCachedThreadPool();
-
   private Logger log = LoggerFactory.getLogger(MailService.class);
 
   private static final Object FETCH_LOCK = new Object();
@@ -384,17 +380,43 @@ public class MailServiceImpl implements MailService, MailConstants {
       throw new MailException(e);
     }
 
-    // send email using a separate process to void thread blocking
-    executor.submit(
-        new Callable<Boolean>() {
-          @Override
-          public Boolean call() throws Exception {
-            send(sender, email);
-            return true;
-          }
-        });
+    // queue the email, it's sent by the outbox workers once committed
+    Beans.get(MailOutboxQueue.class).enqueue(message.getMessageId(), email);
+  }
+
+  /**
+   * Get the {@link MailSender} to send the queued email of the given message.
+   *
+   * <p>Called by the outbox workers with the user which queued the email. Emails queued by another
+   * node or before a restart are sent without user.
+   *
+   * @param message the message of the queued email
+   * @return a {@link MailSender}, null if not configured
+   */
+  MailSender getOutboxSender(MailMessage message) {
+    return getMailSender(message, findEntity(message));
   }
 
+  /**
+   * Called by {@link MailOutboxQueue} when a queued email is sent.
+   *
+   * @param email the email message sent
+   */
+  void outboxSent(MimeMessage email) {
+    messageSent(email);
+  }
+
+  /**
+   * Send the given email immediately.
+   *
+   * @param sender the mail sender
+   * @param email the email to send
+   * @throws Exception if unable to send the email
+   * @deprecated emails are queued by {@link #send(MailMessage)} and sent by {@link
+   *     MailOutboxQueue}, this method is not called anymore. Override {@link
+   *     #getMailSender(MailMessage, Model)} or {@link #messageSent(MimeMessage)} instead.
+   */
+  @Deprecated
   @Transactional(rollbackOn = Exception.class)
   protected void send(final MailSender sender, final MimeMessage email) throws Exception {
     final AuditableRunner runner = Beans.get(AuditableRunner.class);
@@ -413,8 +435,8 @@ public class MailServiceImpl implements MailService, MailConstants {
   /**
    * This method is called when email is sent successfully.
    *
-   * <p>This method is called by {@link #send(MailSender, MimeMessage)} which is running under a
-   * transaction with super user access.
+   * <p>This method is called by {@link MailOutboxQueue} once the queued email is sent, running
+   * under a transaction with the user which queued the email, if known, or super user access.
    *
    * @param email the email message sent
    */
@@ -38,6 +38,7 @@ import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.ActionResponse;
 import com.axelor.rpc.Context;
 import com.axelor.rpc.ContextEntity;
+import com.axelor.rpc.ContextHandler;
 import com.axelor.rpc.Resource;
 import com.axelor.script.CompositeScriptHelper;
 import com.axelor.script.ScriptHelper;
@@ -513,15 +514,22 @@ public class ActionHandler {
       action.addAction(item);
     }
 
-    Object data = action.wrap(this);
+    final long loaded = ContextHandler.getLoadedCount();
+    try {
+      Object data = action.wrap(this);
 
-    if (data instanceof ActionResponse) {
-      return (ActionResponse) data;
-    }
+      if (data instanceof ActionResponse) {
+        return (ActionResponse) data;
+      }
 
-    response.setData(process(data));
-    response.setStatus(ActionResponse.STATUS_SUCCESS);
+      response.setData(process(data));
+      response.setStatus(ActionResponse.STATUS_SUCCESS);
 
-    return response;
+      return response;
+    } finally {
+      if (log.isDebugEnabled()) {
+        log.debug("{}: {} context entities loaded", name, ContextHandler.getLoadedCount() - loaded);
+      }
+    }
   }
 }
@@ -25,16 +25,35 @@ import com.axelor.db.JpaSecurity;
 import com.axelor.db.Model;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.db.mapper.Property;
+import com.axelor.db.tenants.TenantResolver;
 import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaPermission;
 import com.axelor.meta.db.MetaPermissionRule;
 import com.axelor.meta.schema.views.PanelField;
 import com.axelor.meta.schema.views.SimpleWidget;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Singleton;
 
+/**
+ * Field permissions of the users.
+ *
+ * <p>The field rules of the permissions assigned to a user, the user's group and their roles are
+ * flattened once into a matrix of rules by object and field name. The matrices are shared by the
+ * users having the same group, roles and own permissions, and are invalidated by {@link
+ * MetaStoreObserver} when groups, roles or permissions are changed.
+ */
 @Singleton
 public class MetaPermissions {
 
@@ -42,65 +61,136 @@ public class MetaPermissions {
   private static final String CAN_WRITE = "write";
   private static final String CAN_EXPORT = "export";
 
-  private MetaPermission find(Set<MetaPermission> permissions, String object, String field) {
-    if (permissions == null) {
-      return null;
+  private static final Cache<List<Object>, Map<String, Map<String, MetaPermissionRule>>> RULES =
+      CacheBuilder.newBuilder().maximumSize(1000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  private static Map<String, Map<String, MetaPermissionRule>> rules(User user) {
+    final Long group = user.getGroup() == null ? null : user.getGroup().getId();
+    final List<Long> roles = ids(user.getRoles());
+    final List<Long> permissions = ids(user.getMetaPermissions());
+
+    // unsaved records can't be identified
+    if ((group == null && user.getGroup() != null) || roles == null || permissions == null) {
+      return compile(user);
     }
-    for (MetaPermission perm : permissions) {
-      if (!object.equals(perm.getObject())) {
-        continue;
-      }
-      if (!Boolean.TRUE.equals(perm.getActive()) || perm.getRules() == null) {
-        continue;
-      }
-      for (MetaPermissionRule rule : perm.getRules()) {
-        if (field.equals(rule.getField())) {
-          return perm;
-        }
+
+    final List<Object> key =
+        Arrays.asList(TenantResolver.currentTenantIdentifier(), group, roles, permissions);
+
+    final Map<String, Map<String, MetaPermissionRule>> cached = RULES.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final long version = VERSION.get();
+    final Map<String, Map<String, MetaPermissionRule>> rules = compile(user);
+
+    synchronized (VERSION) {
+      if (version == VERSION.get()) {
+        RULES.put(key, rules);
       }
     }
-    return null;
+
+    return rules;
   }
 
-  private MetaPermission find(User user, String object, String field) {
-    if (user == null) {
-      return null;
+  private static List<Long> ids(Set<? extends Model> items) {
+    if (items == null || items.isEmpty()) {
+      return Collections.emptyList();
     }
+    final List<Long> ids = new ArrayList<>(items.size());
+    for (Model item : items) {
+      if (item.getId() == null) {
+        return null;
+      }
+      ids.add(item.getId());
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static Map<String, Map<String, MetaPermissionRule>> compile(User user) {
+    final List<Set<MetaPermission>> sources = new ArrayList<>();
 
-    MetaPermission permission = find(user.getMetaPermissions(), object, field);
-    if (permission == null && user.getGroup() != null) {
-      permission = find(user.getGroup().getMetaPermissions(), object, field);
+    sources.add(user.getMetaPermissions());
+    if (user.getGroup() != null) {
+      sources.add(user.getGroup().getMetaPermissions());
     }
-    if (permission == null && user.getRoles() != null) {
+    if (user.getRoles() != null) {
       for (Role role : user.getRoles()) {
-        permission = find(role.getMetaPermissions(), object, field);
-        if (permission != null) {
-          break;
-        }
+        sources.add(role.getMetaPermissions());
       }
     }
-    if (permission == null && user.getGroup() != null && user.getGroup().getRoles() != null) {
+    if (user.getGroup() != null && user.getGroup().getRoles() != null) {
       for (Role role : user.getGroup().getRoles()) {
-        permission = find(role.getMetaPermissions(), object, field);
-        if (permission != null) {
-          break;
+        sources.add(role.getMetaPermissions());
+      }
+    }
+
+    // first permission having a rule for the field wins
+    final Map<String, Map<String, MetaPermissionRule>> rules = new HashMap<>();
+    for (Set<MetaPermission> permissions : sources) {
+      if (permissions == null) {
+        continue;
+      }
+      for (MetaPermission perm : permissions) {
+        if (perm.getObject() == null
+            || !Boolean.TRUE.equals(perm.getActive())
+            || perm.getRules() == null) {
+          continue;
+        }
+        final Map<String, MetaPermissionRule> fields =
+            rules.computeIfAbsent(perm.getObject(), k -> new HashMap<>());
+        for (MetaPermissionRule rule : perm.getRules()) {
+          final String field = rule.getField();
+          if (field != null && !fields.containsKey(field)) {
+            fields.put(field, copy(rule));
+          }
         }
       }
     }
-    return permission;
+
+    return rules;
   }
 
+  private static MetaPermissionRule copy(MetaPermissionRule rule) {
+    final MetaPermissionRule copy = new MetaPermissionRule();
+    copy.setField(rule.getField());
+    copy.setCanRead(rule.getCanRead());
+    copy.setCanWrite(rule.getCanWrite());
+    copy.setCanExport(rule.getCanExport());
+    copy.setReadonlyIf(rule.getReadonlyIf());
+    copy.setHideIf(rule.getHideIf());
+    return copy;
+  }
+
+  /** Invalidate all the compiled field rules. */
+  public static void invalidateAll() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      RULES.invalidateAll();
+    }
+  }
+
+  /**
+   * Find the rule of the given field.
+   *
+   * <p>The returned rule is a detached copy shared by the users with the same permissions and must
+   * not be modified.
+   *
+   * @param user the user
+   * @param object the object name
+   * @param field the field name
+   * @return the rule or null if the field has no rule
+   */
   public MetaPermissionRule findRule(User user, String object, String field) {
-    final MetaPermission permission = find(user, object, field);
-    if (permission == null) {
+    if (user == null || object == null || field == null) {
       return null;
     }
-    for (MetaPermissionRule rule : permission.getRules()) {
-      if (field.equals(rule.getField())) {
-        return rule;
-      }
-    }
-    return null;
+    final Map<String, MetaPermissionRule> fields = rules(user).get(object);
+    return fields == null ? null : fields.get(field);
   }
 
   @Deprecated
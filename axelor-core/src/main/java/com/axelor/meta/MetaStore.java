@@ -35,21 +35,16 @@ import com.axelor.db.mapper.Mapper;
 import com.axelor.db.mapper.Property;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
-import com.axelor.meta.db.MetaJsonField;
-import com.axelor.meta.db.MetaJsonModel;
-import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.meta.MetaStoreCache.JsonFieldDefinition;
 import com.axelor.meta.db.MetaPermissionRule;
-import com.axelor.meta.db.MetaSelectItem;
-import com.axelor.meta.db.repo.MetaJsonModelRepository;
 import com.axelor.meta.loader.ModuleManager;
+import com.axelor.meta.loader.ViewJsonCache;
 import com.axelor.meta.loader.XMLViews;
 import com.axelor.meta.schema.ObjectViews;
 import com.axelor.meta.schema.actions.Action;
 import com.axelor.meta.schema.views.Selection;
 import com.axelor.script.CompositeScriptHelper;
 import com.axelor.script.ScriptHelper;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Objects;
 import com.google.common.base.Splitter;
 import com.google.common.cache.Cache;
@@ -291,92 +286,95 @@ public final class MetaStore {
     } catch (Exception e) {
       return null;
     }
-    final List<MetaJsonField> fields =
-        Query.of(MetaJsonField.class)
-            .filter("self.model = :model AND self.modelField = :field")
-            .bind("model", modelName)
-            .bind("field", fieldName)
-            .order("sequence")
-            .order("id")
-            .fetch();
-
-    final Map<String, Object> result = updateJsonFields(fields, fieldName);
+    final List<JsonFieldDefinition> fields = MetaStoreCache.getJsonFields(modelName, fieldName);
+    final Map<String, Object> result = updateJsonFields(fields);
     return checkPermissions(result, modelName, fieldName);
   }
 
+  /**
+   * Get the selection of a custom field.
+   *
+   * @param modelName the model name
+   * @param fieldName the json field name
+   * @param name the custom field name
+   * @return the selection name, an empty string if the custom field has no selection or null if
+   *     no such custom field
+   */
+  public static String getJsonFieldSelection(String modelName, String fieldName, String name) {
+    return findJsonFieldSelection(MetaStoreCache.getJsonFields(modelName, fieldName), name);
+  }
+
+  /**
+   * Get the selection of a custom model field.
+   *
+   * @param jsonModel the custom model name
+   * @param name the custom field name
+   * @return the selection name, an empty string if the custom field has no selection or null if
+   *     no such custom field
+   */
+  public static String getJsonFieldSelection(String jsonModel, String name) {
+    return findJsonFieldSelection(MetaStoreCache.getJsonFields(jsonModel), name);
+  }
+
+  private static String findJsonFieldSelection(List<JsonFieldDefinition> fields, String name) {
+    if (fields == null) {
+      return null;
+    }
+    return fields.stream()
+        .filter(field -> Objects.equal(field.getName(), name))
+        .findFirst()
+        .map(field -> StringUtils.isBlank(field.getSelection()) ? "" : field.getSelection())
+        .orElse(null);
+  }
+
   public static Map<String, Object> findJsonFields(String jsonModel) {
-    final MetaJsonModelRepository forms = Beans.get(MetaJsonModelRepository.class);
-    final MetaJsonModel found = forms.findByName(jsonModel);
-    if (found == null) return null;
-    final Map<String, Object> result = updateJsonFields(found.getFields(), "attrs");
+    final List<JsonFieldDefinition> fields = MetaStoreCache.getJsonFields(jsonModel);
+    if (fields == null) return null;
+    final Map<String, Object> result = updateJsonFields(fields);
     return checkPermissions(result, jsonModel, null);
   }
 
-  private static Map<String, Object> updateJsonFields(
-      List<MetaJsonField> records, String fieldName) {
-    final java.lang.reflect.Field[] declaredFields = MetaJsonField.class.getDeclaredFields();
-    final Mapper mapper = Mapper.of(MetaJsonField.class);
+  private static Map<String, Object> updateJsonFields(List<JsonFieldDefinition> definitions) {
     final Map<String, Object> fields = new LinkedHashMap<>();
-    final List<MetaJsonField> jsonFields = new ArrayList<>(records);
     final User user = AuthUtils.getUser();
 
+    Set<Long> roles = null;
     ScriptHelper scriptHelper = null;
 
-    jsonFields.sort(
-        (a, b) -> {
-          int x = a.getSequence() == null ? 0 : a.getSequence();
-          int y = b.getSequence() == null ? 0 : b.getSequence();
-          return Integer.compare(x, y);
-        });
-
-    for (MetaJsonField record : jsonFields) {
-      final Map<String, Object> attrs = new HashMap<>();
-      final String name = record.getName();
+    for (JsonFieldDefinition definition : definitions) {
+      final Map<String, Object> attrs = new HashMap<>(definition.getAttrs());
+      final String name = definition.getName();
       boolean hasAccess = true;
 
       // check permissions
-      if ((user != null && !AuthUtils.isAdmin(user))
-          && record.getRoles() != null
-          && !record.getRoles().isEmpty()) {
-        final Set<Role> roles = new HashSet<>();
-        if (user.getRoles() != null) {
-          roles.addAll(user.getRoles());
-        }
-        if (user.getGroup() != null && user.getGroup().getRoles() != null) {
-          roles.addAll(user.getGroup().getRoles());
+      if ((user != null && !AuthUtils.isAdmin(user)) && !definition.getRoles().isEmpty()) {
+        if (roles == null) {
+          roles = new HashSet<>();
+          if (user.getRoles() != null) {
+            user.getRoles().stream().map(Role::getId).forEach(roles::add);
+          }
+          if (user.getGroup() != null && user.getGroup().getRoles() != null) {
+            user.getGroup().getRoles().stream().map(Role::getId).forEach(roles::add);
+          }
         }
-        if (Collections.disjoint(roles, record.getRoles())) {
+        if (Collections.disjoint(roles, definition.getRoles())) {
           hasAccess = false;
         }
       }
 
       // check server condition
-      if (hasAccess && StringUtils.notBlank(record.getIncludeIf())) {
+      if (hasAccess && StringUtils.notBlank(definition.getIncludeIf())) {
+        // the condition may depend on the user, not only on the permissions
+        ViewJsonCache.skip();
         if (scriptHelper == null) {
           scriptHelper = new CompositeScriptHelper(null);
         }
-        if (!scriptHelper.test(record.getIncludeIf())) {
+        if (!scriptHelper.test(definition.getIncludeIf())) {
           hasAccess = false;
         }
       }
 
-      for (java.lang.reflect.Field field : declaredFields) {
-        final Property prop = mapper.getProperty(field.getName());
-        if (prop == null || prop.isPrimary() || prop.isReference() || prop.isCollection()) {
-          continue;
-        }
-        final Object value = prop.get(record);
-        if (value == null || Boolean.FALSE.equals(value)) continue;
-        if ("regex".equals(prop.getName())) {
-          // XXX: rename regex to pattern to be aligned with pattern attribute used with normal
-          // fields.
-          attrs.put("pattern", value);
-          continue;
-        }
-        attrs.put(prop.getName(), value);
-      }
-
-      String title = record.getTitle();
+      String title = definition.getTitle();
 
       // localized title
       attrs.put("title", I18n.get(title));
@@ -388,71 +386,18 @@ public final class MetaStore {
         attrs.put("autoTitle", title);
       }
 
-      String type = record.getType() == null ? "" : record.getType();
-      int min = record.getMinSize() == null ? 0 : record.getMinSize();
-      int max = record.getMaxSize() == null ? 0 : record.getMaxSize();
-      if (max <= min) {
-        attrs.remove("maxSize");
-      }
-      if ((min == 0 && max == 0) || type.matches("date|time|datetime|boolean")) {
-        attrs.remove("maxSize");
-        attrs.remove("minSize");
-      }
-
-      if ("ref-select".equalsIgnoreCase(record.getType())
-          || "ref-select".equalsIgnoreCase(record.getWidget())
-          || "RefSelect".equalsIgnoreCase(record.getWidget())) {
-        attrs.put("widget", "json-ref-select");
-      }
-
-      if (!StringUtils.isBlank(record.getTargetModel())) {
-        attrs.put("target", record.getTargetModel());
-        attrs.remove("targetModel");
-        try {
-          Property nameField = Mapper.of(Class.forName(record.getTargetModel())).getNameField();
-          if (nameField != null) {
-            attrs.put("targetName", nameField.getName());
-          }
-        } catch (ClassNotFoundException e) {
-        }
-      }
-
-      if (type.startsWith("json-")) {
-        type = type.substring(5);
-        attrs.put("type", type);
-        attrs.put("target", MetaJsonRecord.class.getName());
-        if (record.getTargetJsonModel() != null) {
-          final MetaJsonModel targetModel = record.getTargetJsonModel();
-          String domain = String.format("self.jsonModel = '%s'", targetModel.getName());
-          if (!StringUtils.isBlank(record.getDomain())) {
-            domain = String.format("(%s) AND (%s)", domain, record.getDomain());
-          }
-          attrs.put("domain", domain);
-          attrs.put("gridView", targetModel.getGridView().getName());
-          attrs.put("formView", targetModel.getFormView().getName());
-          attrs.put("targetName", "name");
-          attrs.put("jsonTarget", targetModel.getName());
-        }
-      }
-
-      if (StringUtils.notBlank(record.getSelection())) {
-        attrs.put("selectionList", getSelectionList(record.getSelection()));
+      if (StringUtils.notBlank(definition.getSelection())) {
+        attrs.put("selectionList", getSelectionList(definition.getSelection()));
       }
 
-      if (StringUtils.notBlank(record.getEnumType())) {
+      if (StringUtils.notBlank(definition.getEnumType())) {
         try {
-          attrs.put("selectionList", getSelectionList(Class.forName(record.getEnumType())));
+          attrs.put("selectionList", getSelectionList(Class.forName(definition.getEnumType())));
         } catch (ClassNotFoundException e) {
-          log.error("No such enum type found: {}", record.getEnumType());
+          log.error("No such enum type found: {}", definition.getEnumType());
         }
       }
 
-      attrs.put("jsonField", fieldName);
-      attrs.put("jsonPath", record.getName());
-      if (type.matches("integer|decimal|boolean")) {
-        attrs.put("jsonType", type);
-      }
-
       if (!hasAccess) {
         attrs.put("hidden", true);
         attrs.put("hideIf", "true");
@@ -460,7 +405,7 @@ public final class MetaStore {
         attrs.put("forceHidden", true);
       }
 
-      fields.put(record.getName(), attrs);
+      fields.put(name, attrs);
     }
     return fields;
   }
@@ -537,6 +482,9 @@ public final class MetaStore {
 
   public static List<Selection.Option> getSelectionList(
       Class<? extends Model> model, String orderBy, int limit) {
+    // records can't be cached with the view
+    ViewJsonCache.skip();
+
     Mapper mapper = Mapper.of(model);
     Property nameField = mapper.getNameField();
     String name = nameField == null ? "id" : nameField.getName();
@@ -590,59 +538,33 @@ public final class MetaStore {
       return null;
     }
 
-    final Map<String, Selection.Option> all = buildSelectionMap(selection);
-    if (all == null) {
+    // only copy the requested option
+    final Map<String, Selection.Option> cached = MetaStoreCache.getSelection(selection);
+    if (cached == null) {
       return null;
     }
 
-    return all.get(value);
+    final Selection.Option option = cached.get(value);
+    return option == null ? null : MetaStoreCache.copy(option);
   }
 
   private static Map<String, Selection.Option> buildSelectionMap(String selection) {
-    final List<MetaSelectItem> items =
-        Query.of(MetaSelectItem.class)
-            .filter("self.select.name = ?", selection)
-            .order("select.priority")
-            .order("order")
-            .fetch();
-
-    if (items.isEmpty()) {
+    final Map<String, Selection.Option> cached = MetaStoreCache.getSelection(selection);
+    if (cached == null) {
       return null;
     }
 
     final Map<String, Selection.Option> all = new LinkedHashMap<>();
-
-    for (MetaSelectItem item : items) {
-      if (item.getHidden().equals(Boolean.TRUE)) {
-        all.remove(item.getValue());
-      } else {
-        all.put(item.getValue(), getSelectionItem(item));
-      }
+    for (Map.Entry<String, Selection.Option> entry : cached.entrySet()) {
+      all.put(entry.getKey(), MetaStoreCache.copy(entry.getValue()));
     }
 
     return all;
   }
 
-  private static Selection.Option getSelectionItem(MetaSelectItem item) {
-    final ObjectMapper objectMapper = Beans.get(ObjectMapper.class);
-    final Selection.Option option = new Selection.Option();
-    option.setValue(item.getValue());
-    option.setTitle(item.getTitle());
-    option.setIcon(item.getIcon());
-    option.setColor(item.getColor());
-    option.setOrder(item.getOrder());
-    option.setHidden(item.getHidden());
-    try {
-      option.setData(
-          objectMapper.readValue(item.getData(), new TypeReference<Map<String, Object>>() {}));
-    } catch (Exception e) {
-      // this should never happen, ignore
-    }
-    return option;
-  }
-
   public static void clear() {
     ACTIONS.invalidateAll();
+    MetaStoreCache.invalidateAll();
   }
 
   public static void invalidate(String name) {
@@ -0,0 +1,418 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.auth.db.Role;
+import com.axelor.common.StringUtils;
+import com.axelor.db.Query;
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.inject.Beans;
+import com.axelor.meta.db.MetaJsonField;
+import com.axelor.meta.db.MetaJsonModel;
+import com.axelor.meta.db.MetaJsonRecord;
+import com.axelor.meta.db.MetaSelectItem;
+import com.axelor.meta.db.repo.MetaJsonModelRepository;
+import com.axelor.meta.schema.views.Selection;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of selections and custom field definitions used by {@link MetaStore}.
+ *
+ * <p>The snapshot only contains the user independent part of the metadata. Translations, access
+ * checks and permission rules are applied by {@link MetaStore} on top of the cached definitions.
+ *
+ * <p>Entries are invalidated by {@link MetaStoreObserver} when the corresponding records are
+ * changed. Like the view cache, invalidations are versioned so that a lookup running concurrently
+ * with an invalidation doesn't put a stale entry back into the cache.
+ */
+final class MetaStoreCache {
+
+  private static final String SELECTION = "selection";
+  private static final String MODEL_FIELD = "field";
+  private static final String JSON_MODEL = "model";
+
+  private static final int DEFAULT_CACHE_SIZE = 5000;
+
+  private static final Cache<List<Object>, Optional<Map<String, Selection.Option>>> SELECTIONS;
+
+  private static final Cache<List<Object>, Optional<List<JsonFieldDefinition>>> JSON_FIELDS;
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  static {
+    final int size =
+        AppSettings.get()
+            .getInt(AvailableAppSettings.APPLICATION_META_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    SELECTIONS = CacheBuilder.newBuilder().maximumSize(Math.max(size, 0)).build();
+    JSON_FIELDS = CacheBuilder.newBuilder().maximumSize(Math.max(size, 0)).build();
+  }
+
+  private MetaStoreCache() {}
+
+  /** Custom field definition with all the user independent attributes. */
+  static final class JsonFieldDefinition {
+
+    private final String name;
+    private final String title;
+    private final String selection;
+    private final String enumType;
+    private final String includeIf;
+    private final Set<Long> roles;
+    private final Map<String, Object> attrs;
+
+    private JsonFieldDefinition(MetaJsonField record, Map<String, Object> attrs) {
+      this.name = record.getName();
+      this.title = record.getTitle();
+      this.selection = record.getSelection();
+      this.enumType = record.getEnumType();
+      this.includeIf = record.getIncludeIf();
+      this.roles =
+          record.getRoles() == null
+              ? Collections.emptySet()
+              : record.getRoles().stream().map(Role::getId).collect(Collectors.toUnmodifiableSet());
+      this.attrs = Collections.unmodifiableMap(attrs);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getSelection() {
+      return selection;
+    }
+
+    public String getEnumType() {
+      return enumType;
+    }
+
+    public String getIncludeIf() {
+      return includeIf;
+    }
+
+    public Set<Long> getRoles() {
+      return roles;
+    }
+
+    public Map<String, Object> getAttrs() {
+      return attrs;
+    }
+  }
+
+  private static List<Object> key(String type, String... names) {
+    final List<Object> key = new ArrayList<>(names.length + 2);
+    key.add(TenantResolver.currentTenantIdentifier());
+    key.add(type);
+    key.addAll(Arrays.asList(names));
+    return key;
+  }
+
+  private static <K, V> Optional<V> get(Cache<K, Optional<V>> cache, K key, Callable<V> loader) {
+    final Optional<V> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final long version = VERSION.get();
+    final Optional<V> value;
+    try {
+      value = Optional.ofNullable(loader.call());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+
+    // don't put back a value loaded before a concurrent invalidation
+    synchronized (VERSION) {
+      if (version == VERSION.get()) {
+        cache.put(key, value);
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * Get the cached selection options.
+   *
+   * @param selection the selection name
+   * @return unmodifiable map of the options by value or null if no such selection
+   */
+  static Map<String, Selection.Option> getSelection(String selection) {
+    return get(SELECTIONS, key(SELECTION, selection), () -> buildSelection(selection)).orElse(null);
+  }
+
+  /**
+   * Get the cached custom field definitions of the given model field.
+   *
+   * @param model the model name
+   * @param field the json field name
+   * @return list of the definitions ordered by sequence
+   */
+  static List<JsonFieldDefinition> getJsonFields(String model, String field) {
+    return get(JSON_FIELDS, key(MODEL_FIELD, model, field), () -> buildJsonFields(model, field))
+        .orElse(Collections.emptyList());
+  }
+
+  /**
+   * Get the cached custom field definitions of the given custom model.
+   *
+   * @param jsonModel the custom model name
+   * @return list of the definitions ordered by sequence or null if no such custom model
+   */
+  static List<JsonFieldDefinition> getJsonFields(String jsonModel) {
+    return get(JSON_FIELDS, key(JSON_MODEL, jsonModel), () -> buildJsonFields(jsonModel))
+        .orElse(null);
+  }
+
+  static void invalidateSelection(String selection) {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      SELECTIONS.asMap().keySet().removeIf(key -> Objects.equals(key.get(2), selection));
+    }
+  }
+
+  static void invalidateJsonFields(String model, String field) {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      JSON_FIELDS
+          .asMap()
+          .keySet()
+          .removeIf(
+              key ->
+                  MODEL_FIELD.equals(key.get(1))
+                      && Objects.equals(key.get(2), model)
+                      && Objects.equals(key.get(3), field));
+    }
+  }
+
+  static void invalidateJsonModels() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      JSON_FIELDS.asMap().keySet().removeIf(key -> JSON_MODEL.equals(key.get(1)));
+    }
+  }
+
+  static void invalidateAll() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      SELECTIONS.invalidateAll();
+      JSON_FIELDS.invalidateAll();
+    }
+  }
+
+  private static Map<String, Selection.Option> buildSelection(String selection) {
+    final List<MetaSelectItem> items =
+        Query.of(MetaSelectItem.class)
+            .filter("self.select.name = ?", selection)
+            .order("select.priority")
+            .order("order")
+            .fetch();
+
+    if (items.isEmpty()) {
+      return null;
+    }
+
+    final ObjectMapper objectMapper = Beans.get(ObjectMapper.class);
+    final Map<String, Selection.Option> all = new LinkedHashMap<>();
+
+    for (MetaSelectItem item : items) {
+      if (item.getHidden().equals(Boolean.TRUE)) {
+        all.remove(item.getValue());
+      } else {
+        all.put(item.getValue(), toOption(objectMapper, item));
+      }
+    }
+
+    return Collections.unmodifiableMap(all);
+  }
+
+  private static Selection.Option toOption(ObjectMapper objectMapper, MetaSelectItem item) {
+    final Selection.Option option = new Selection.Option();
+    option.setValue(item.getValue());
+    option.setTitle(item.getTitle());
+    option.setIcon(item.getIcon());
+    option.setColor(item.getColor());
+    option.setOrder(item.getOrder());
+    option.setHidden(item.getHidden());
+    try {
+      option.setData(
+          objectMapper.readValue(item.getData(), new TypeReference<Map<String, Object>>() {}));
+    } catch (Exception e) {
+      // this should never happen, ignore
+    }
+    return option;
+  }
+
+  /**
+   * Create a copy of the given cached option, the cached instances should never be exposed.
+   *
+   * @param option the cached option
+   * @return a new option
+   */
+  static Selection.Option copy(Selection.Option option) {
+    final Selection.Option copy = new Selection.Option();
+    copy.setValue(option.getValue());
+    copy.setTitle(option.getTitle());
+    copy.setIcon(option.getIcon());
+    copy.setColor(option.getColor());
+    copy.setOrder(option.getOrder());
+    copy.setHidden(option.getHidden());
+    if (option.getData() != null) {
+      copy.setData(new HashMap<>(option.getData()));
+    }
+    return copy;
+  }
+
+  private static List<JsonFieldDefinition> buildJsonFields(String model, String field) {
+    final List<MetaJsonField> fields =
+        Query.of(MetaJsonField.class)
+            .filter("self.model = :model AND self.modelField = :field")
+            .bind("model", model)
+            .bind("field", field)
+            .order("sequence")
+            .order("id")
+            .fetch();
+    return buildJsonFields(fields, field);
+  }
+
+  private static List<JsonFieldDefinition> buildJsonFields(String jsonModel) {
+    final MetaJsonModel found = Beans.get(MetaJsonModelRepository.class).findByName(jsonModel);
+    if (found == null) {
+      return null;
+    }
+    return buildJsonFields(found.getFields(), "attrs");
+  }
+
+  private static List<JsonFieldDefinition> buildJsonFields(
+      List<MetaJsonField> records, String fieldName) {
+    final java.lang.reflect.Field[] declaredFields = MetaJsonField.class.getDeclaredFields();
+    final Mapper mapper = Mapper.of(MetaJsonField.class);
+    final List<MetaJsonField> jsonFields = new ArrayList<>(records);
+    final List<JsonFieldDefinition> definitions = new ArrayList<>();
+
+    jsonFields.sort(
+        (a, b) -> {
+          int x = a.getSequence() == null ? 0 : a.getSequence();
+          int y = b.getSequence() == null ? 0 : b.getSequence();
+          return Integer.compare(x, y);
+        });
+
+    for (MetaJsonField record : jsonFields) {
+      final Map<String, Object> attrs = new HashMap<>();
+
+      for (java.lang.reflect.Field field : declaredFields) {
+        final Property prop = mapper.getProperty(field.getName());
+        if (prop == null || prop.isPrimary() || prop.isReference() || prop.isCollection()) {
+          continue;
+        }
+        final Object value = prop.get(record);
+        if (value == null || Boolean.FALSE.equals(value)) continue;
+        if ("regex".equals(prop.getName())) {
+          // XXX: rename regex to pattern to be aligned with pattern attribute used with normal
+          // fields.
+          attrs.put("pattern", value);
+          continue;
+        }
+        attrs.put(prop.getName(), value);
+      }
+
+      String type = record.getType() == null ? "" : record.getType();
+      int min = record.getMinSize() == null ? 0 : record.getMinSize();
+      int max = record.getMaxSize() == null ? 0 : record.getMaxSize();
+      if (max <= min) {
+        attrs.remove("maxSize");
+      }
+      if ((min == 0 && max == 0) || type.matches("date|time|datetime|boolean")) {
+        attrs.remove("maxSize");
+        attrs.remove("minSize");
+      }
+
+      if ("ref-select".equalsIgnoreCase(record.getType())
+          || "ref-select".equalsIgnoreCase(record.getWidget())
+          || "RefSelect".equalsIgnoreCase(record.getWidget())) {
+        attrs.put("widget", "json-ref-select");
+      }
+
+      if (!StringUtils.isBlank(record.getTargetModel())) {
+        attrs.put("target", record.getTargetModel());
+        attrs.remove("targetModel");
+        try {
+          Property nameField = Mapper.of(Class.forName(record.getTargetModel())).getNameField();
+          if (nameField != null) {
+            attrs.put("targetName", nameField.getName());
+          }
+        } catch (ClassNotFoundException e) {
+        }
+      }
+
+      if (type.startsWith("json-")) {
+        type = type.substring(5);
+        attrs.put("type", type);
+        attrs.put("target", MetaJsonRecord.class.getName());
+        if (record.getTargetJsonModel() != null) {
+          final MetaJsonModel targetModel = record.getTargetJsonModel();
+          String domain = String.format("self.jsonModel = '%s'", targetModel.getName());
+          if (!StringUtils.isBlank(record.getDomain())) {
+            domain = String.format("(%s) AND (%s)", domain, record.getDomain());
+          }
+          attrs.put("domain", domain);
+          attrs.put("gridView", targetModel.getGridView().getName());
+          attrs.put("formView", targetModel.getFormView().getName());
+          attrs.put("targetName", "name");
+          attrs.put("jsonTarget", targetModel.getName());
+        }
+      }
+
+      attrs.put("jsonField", fieldName);
+      attrs.put("jsonPath", record.getName());
+      if (type.matches("integer|decimal|boolean")) {
+        attrs.put("jsonType", type);
+      }
+
+      definitions.add(new JsonFieldDefinition(record, attrs));
+    }
+
+    return Collections.unmodifiableList(definitions);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta;
+
+import com.axelor.auth.db.Group;
+import com.axelor.auth.db.Permission;
+import com.axelor.auth.db.Role;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.JpaSequence;
+import com.axelor.db.Model;
+import com.axelor.event.Observes;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import com.axelor.meta.db.MetaField;
+import com.axelor.meta.db.MetaHelp;
+import com.axelor.meta.db.MetaJsonField;
+import com.axelor.meta.db.MetaJsonModel;
+import com.axelor.meta.db.MetaModel;
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.meta.db.MetaSelect;
+import com.axelor.meta.db.MetaSelectItem;
+import com.axelor.meta.db.MetaSequence;
+import com.axelor.meta.db.MetaView;
+import com.axelor.meta.db.MetaViewCustom;
+import com.axelor.meta.loader.ViewJsonCache;
+import com.axelor.meta.loader.XMLViews;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+
+/**
+ * Observes changes to selections, custom fields, views, permissions and sequences to invalidate
+ * cached metadata.
+ *
+ * <p>Invalidation is done once the transaction is completed so that concurrent requests can't put
+ * uncommitted or stale definitions back into the cache.
+ */
+@Singleton
+public class MetaStoreObserver {
+
+  // models changing field permissions
+  private static final Set<Class<?>> PERMISSION_MODELS =
+      Set.of(MetaPermission.class, MetaPermissionRule.class, Group.class, Role.class);
+
+  // models changing serialized views
+  private static final Set<Class<?>> VIEW_MODELS =
+      Set.of(
+          MetaView.class,
+          MetaViewCustom.class,
+          MetaHelp.class,
+          MetaModel.class,
+          MetaField.class,
+          MetaSelect.class,
+          MetaSelectItem.class,
+          MetaJsonField.class,
+          MetaJsonModel.class,
+          MetaPermission.class,
+          MetaPermissionRule.class,
+          Permission.class,
+          Group.class,
+          Role.class);
+
+  private static final Runnable INVALIDATE_PERMISSIONS = MetaPermissions::invalidateAll;
+
+  private static final Runnable INVALIDATE_VIEWS = ViewJsonCache::invalidateAll;
+
+  private static final Runnable INVALIDATE_RESOLVED_VIEWS = XMLViews::invalidateViews;
+
+  void onBeforeTransactionComplete(@Observes BeforeTransactionComplete event) {
+    final Set<Runnable> tasks = new LinkedHashSet<>();
+
+    Stream.of(event.getUpdated(), event.getDeleted())
+        .flatMap(Set::stream)
+        .forEach(entity -> collect(entity, tasks));
+
+    if (tasks.isEmpty()) {
+      return;
+    }
+
+    JPA.runAfterCompletion(() -> tasks.forEach(Runnable::run));
+  }
+
+  private void collect(Model entity, Set<Runnable> tasks) {
+    final Class<?> entityClass = EntityHelper.getEntityClass(entity);
+    if (PERMISSION_MODELS.contains(entityClass)) {
+      tasks.add(INVALIDATE_PERMISSIONS);
+    }
+    if (VIEW_MODELS.contains(entityClass)) {
+      tasks.add(INVALIDATE_VIEWS);
+    }
+
+    if (entity instanceof MetaView) {
+      tasks.add(INVALIDATE_RESOLVED_VIEWS);
+    } else if (entity instanceof MetaViewCustom) {
+      final Long id = entity.getId();
+      tasks.add(() -> XMLViews.invalidateCustomView(id));
+    } else if (entity instanceof MetaSequence) {
+      final String name = ((MetaSequence) entity).getName();
+      tasks.add(() -> JpaSequence.invalidate(name));
+    } else if (entity instanceof MetaSelectItem) {
+      final MetaSelect select = ((MetaSelectItem) entity).getSelect();
+      if (select != null) {
+        final String name = select.getName();
+        tasks.add(() -> MetaStoreCache.invalidateSelection(name));
+      }
+    } else if (entity instanceof MetaSelect) {
+      final String name = ((MetaSelect) entity).getName();
+      tasks.add(() -> MetaStoreCache.invalidateSelection(name));
+    } else if (entity instanceof MetaJsonField) {
+      final MetaJsonField field = (MetaJsonField) entity;
+      final String model = field.getModel();
+      final String modelField = field.getModelField();
+      tasks.add(() -> MetaStoreCache.invalidateJsonFields(model, modelField));
+      if (field.getJsonModel() != null) {
+        tasks.add(MetaStoreCache::invalidateJsonModels);
+      }
+    } else if (entity instanceof MetaJsonModel) {
+      tasks.add(MetaStoreCache::invalidateJsonModels);
+    }
+  }
+}
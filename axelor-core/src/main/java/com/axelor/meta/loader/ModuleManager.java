@@ -28,10 +28,12 @@ import com.axelor.auth.db.repo.UserRepository;
 import com.axelor.common.ObjectUtils;
 import com.axelor.db.JPA;
 import com.axelor.db.ParallelTransactionExecutor;
+import com.axelor.db.internal.TrigramIndexes;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaModule;
 import com.axelor.meta.db.repo.MetaModuleRepository;
+import com.axelor.meta.service.menu.MenuCache;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.persist.Transactional;
 import java.lang.reflect.Field;
@@ -99,6 +101,7 @@ public class ModuleManager {
               .filter(Module::isPending)
               .collect(Collectors.toList());
       loadModules(moduleList, update, withDemo);
+      TrigramIndexes.createAll();
     } finally {
       doCleanUp();
     }
@@ -117,6 +120,7 @@ public class ModuleManager {
             .forEach(moduleList::add);
       }
       loadModules(moduleList, true, withDemo);
+      TrigramIndexes.createAll();
     } finally {
       this.doCleanUp();
     }
@@ -196,6 +200,9 @@ public class ModuleManager {
   private void doCleanUp(long time) {
     AbstractLoader.doCleanUp();
     updateLastRestored(time);
+    // installed modules, menus and views may have changed
+    Beans.get(MenuCache.class).invalidateAll();
+    ViewJsonCache.invalidateAll();
   }
 
   private boolean installOne(String moduleName, boolean update, boolean withDemo) {
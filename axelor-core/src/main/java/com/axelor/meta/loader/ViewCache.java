@@ -0,0 +1,170 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.loader;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.meta.schema.views.AbstractView;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Caches used by {@link XMLViews} to speed up view lookup.
+ *
+ * <p>Two caches are maintained:
+ *
+ * <ul>
+ *   <li>the resolution cache, mapping lookup params (name, type, model, module and user group) to
+ *       the id of the matching view
+ *   <li>the view cache, mapping view id and xml checksum to the unmarshalled view
+ * </ul>
+ *
+ * <p>The resolution cache is versioned, every invalidation bumps the version so that a lookup
+ * running concurrently with an invalidation doesn't put a stale entry back into the cache.
+ */
+final class ViewCache {
+
+  private static final int DEFAULT_CACHE_SIZE = 1000;
+
+  private static final Cache<List<Object>, Optional<Long>> RESOLVED;
+  private static final Cache<ViewKey, AbstractView> PARSED;
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  static {
+    final int size =
+        AppSettings.get()
+            .getInt(AvailableAppSettings.APPLICATION_VIEW_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    final boolean enabled = size > 0;
+    RESOLVED = CacheBuilder.newBuilder().maximumSize(enabled ? size * 4L : 0).build();
+    PARSED = CacheBuilder.newBuilder().maximumSize(enabled ? size : 0).build();
+  }
+
+  private ViewCache() {}
+
+  /**
+   * Find the id of the view matching the given params.
+   *
+   * @param resolver function to resolve the view id if not cached
+   * @return the resolved view id or null if no view matches
+   */
+  static Long resolve(
+      String name, String type, String model, String module, Long group, Supplier<Long> resolver) {
+    final List<Object> key =
+        Arrays.asList(TenantResolver.currentTenantIdentifier(), name, type, model, module, group);
+    final Optional<Long> cached = RESOLVED.getIfPresent(key);
+    if (cached != null) {
+      return cached.orElse(null);
+    }
+
+    final long version = VERSION.get();
+    final Long id = resolver.get();
+
+    synchronized (VERSION) {
+      if (version == VERSION.get()) {
+        RESOLVED.put(key, Optional.ofNullable(id));
+      }
+    }
+
+    return id;
+  }
+
+  /**
+   * Get a copy of the unmarshalled view for the given view record.
+   *
+   * @param id the view record id
+   * @param custom whether the record is a custom view
+   * @param xml the view xml
+   * @return a private copy of the view
+   */
+  static AbstractView parse(Long id, boolean custom, String xml) throws JAXBException {
+    final ViewKey key = new ViewKey(id, custom, checksum(xml));
+    AbstractView view = PARSED.getIfPresent(key);
+    if (view == null) {
+      view = XMLViews.unmarshal(xml).getViews().get(0);
+      PARSED.put(key, view);
+    }
+    return ViewCopier.copy(view);
+  }
+
+  /** Invalidate all the resolved views. */
+  static void invalidateResolved() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      RESOLVED.invalidateAll();
+    }
+  }
+
+  /**
+   * Invalidate parsed views of the given custom view record.
+   *
+   * @param id the custom view record id
+   */
+  static void invalidateCustom(Long id) {
+    PARSED.asMap().keySet().removeIf(key -> key.custom && Objects.equals(key.id, id));
+  }
+
+  /** Invalidate all the caches. */
+  static void invalidateAll() {
+    invalidateResolved();
+    PARSED.invalidateAll();
+  }
+
+  private static String checksum(String xml) {
+    return Hashing.murmur3_128().hashString(xml, StandardCharsets.UTF_8).toString();
+  }
+
+  private static final class ViewKey {
+
+    private final Long id;
+    private final boolean custom;
+    private final String checksum;
+
+    ViewKey(Long id, boolean custom, String checksum) {
+      this.id = id;
+      this.custom = custom;
+      this.checksum = checksum;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof ViewKey)) return false;
+      final ViewKey other = (ViewKey) obj;
+      return custom == other.custom
+          && Objects.equals(id, other.id)
+          && Objects.equals(checksum, other.checksum);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, custom, checksum);
+    }
+  }
+}
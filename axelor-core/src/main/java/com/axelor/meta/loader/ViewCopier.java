@@ -0,0 +1,127 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.loader;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates deep copies of unmarshalled view objects.
+ *
+ * <p>Views returned by {@link XMLViews} are modified by the callers (view processors, view
+ * customization etc.), so the cached instances are never returned directly. Only objects from the
+ * schema package, lists and maps are copied, other values (strings, numbers, enums, dom nodes) are
+ * immutable or never modified and are shared with the copy.
+ */
+final class ViewCopier {
+
+  private static final String SCHEMA_PACKAGE = "com.axelor.meta.schema.";
+
+  private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+  private ViewCopier() {}
+
+  @SuppressWarnings("unchecked")
+  static <T> T copy(T source) {
+    return (T) copy(source, new IdentityHashMap<>());
+  }
+
+  private static Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null || value instanceof Enum) {
+      return value;
+    }
+
+    final Object existing = copies.get(value);
+    if (existing != null) {
+      return existing;
+    }
+
+    if (value instanceof List) {
+      final List<?> source = (List<?>) value;
+      final List<Object> target = new ArrayList<>(source.size());
+      copies.put(value, target);
+      for (Object item : source) {
+        target.add(copy(item, copies));
+      }
+      return target;
+    }
+
+    if (value instanceof Map) {
+      final Map<?, ?> source = (Map<?, ?>) value;
+      final Map<Object, Object> target = new LinkedHashMap<>(source.size());
+      copies.put(value, target);
+      for (Map.Entry<?, ?> entry : source.entrySet()) {
+        target.put(entry.getKey(), copy(entry.getValue(), copies));
+      }
+      return target;
+    }
+
+    final Class<?> klass = value.getClass();
+    if (klass.isSynthetic() || !klass.getName().startsWith(SCHEMA_PACKAGE)) {
+      return value;
+    }
+
+    final Object target;
+    try {
+      final Constructor<?> constructor = klass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      target = constructor.newInstance();
+    } catch (ReflectiveOperationException e) {
+      return value;
+    }
+
+    copies.put(value, target);
+
+    for (Field field : fieldsOf(klass)) {
+      try {
+        field.set(target, copy(field.get(value), copies));
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    return target;
+  }
+
+  private static List<Field> fieldsOf(Class<?> klass) {
+    return FIELDS.computeIfAbsent(
+        klass,
+        k -> {
+          final List<Field> fields = new ArrayList<>();
+          for (Class<?> c = k; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+              if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+              }
+              field.setAccessible(true);
+              fields.add(field);
+            }
+          }
+          return Collections.unmodifiableList(fields);
+        });
+  }
+}
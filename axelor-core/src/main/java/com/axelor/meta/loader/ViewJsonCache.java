@@ -0,0 +1,277 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.loader;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.app.internal.AppFilter;
+import com.axelor.auth.AuthUtils;
+import com.axelor.auth.db.User;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.i18n.I18nBundle;
+import com.axelor.meta.schema.views.AbstractView;
+import com.axelor.rpc.Request;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the serialized views.
+ *
+ * <p>Serialized views depend on the permissions of the user, the language and the conditions to
+ * check of the widgets. They are cached per view record, language and permission set, made of the
+ * user group, roles and own permissions, so the users with the same permissions get the same
+ * payload. The conditions to check evaluated while serializing a view are recorded with their
+ * results, and a cached payload is only reused if these conditions give the same results for the
+ * current request.
+ *
+ * <p>Views showing records, like selections of records, are not cached. The cache is invalidated
+ * when views, selections, custom fields, helps, permissions, groups or roles are changed.
+ */
+public final class ViewJsonCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ViewJsonCache.class);
+
+  private static final int DEFAULT_CACHE_SIZE = 1000;
+
+  // maximum number of payloads per view and permission set
+  private static final int MAX_VARIANTS = 8;
+
+  private static final Cache<List<Object>, List<Variant>> CACHE;
+
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  private static final ThreadLocal<Recorder> RECORDER = new ThreadLocal<>();
+
+  static {
+    final int size =
+        AppSettings.get()
+            .getInt(AvailableAppSettings.APPLICATION_VIEW_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+    CACHE = CacheBuilder.newBuilder().maximumSize(Math.max(size, 0)).build();
+  }
+
+  private static final class Variant {
+
+    private final Map<String, Boolean> conditions;
+    private final String json;
+
+    private Variant(Map<String, Boolean> conditions, String json) {
+      this.conditions = conditions;
+      this.json = json;
+    }
+
+    private boolean matches(Map<String, Boolean> results) {
+      for (Map.Entry<String, Boolean> entry : conditions.entrySet()) {
+        final String condition = entry.getKey();
+        Boolean result = results.get(condition);
+        if (result == null) {
+          try {
+            result = evaluate(condition);
+          } catch (Exception e) {
+            return false;
+          }
+          results.put(condition, result);
+        }
+        if (!result.equals(entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class Recorder {
+
+    private final Map<String, Boolean> conditions = new LinkedHashMap<>();
+    private boolean skipped;
+  }
+
+  private ViewJsonCache() {}
+
+  /**
+   * Test the condition to check of a widget with the script helper of the current request.
+   *
+   * @param condition the condition to check
+   * @return the result of the condition, true if there is no current request
+   */
+  public static boolean test(String condition) {
+    final Recorder recorder = RECORDER.get();
+    if (recorder == null) {
+      return evaluate(condition);
+    }
+    Boolean result = recorder.conditions.get(condition);
+    if (result == null) {
+      result = evaluate(condition);
+      recorder.conditions.put(condition, result);
+    }
+    return result;
+  }
+
+  private static boolean evaluate(String condition) {
+    final Request request = Request.current();
+    return request == null || request.getScriptHelper().test(condition);
+  }
+
+  /**
+   * Mark the view being serialized as not cacheable, for example because it includes records.
+   *
+   * <p>Does nothing if no view is being serialized.
+   */
+  public static void skip() {
+    final Recorder recorder = RECORDER.get();
+    if (recorder != null) {
+      recorder.skipped = true;
+    }
+  }
+
+  /**
+   * Get the serialized view for the current user.
+   *
+   * @param view the view to serialize
+   * @param mapper the object mapper used to serialize the view
+   * @return the serialized view as a raw json value, or the view itself if it can't be cached
+   */
+  public static Object toJson(AbstractView view, ObjectMapper mapper) {
+    final List<Object> key = key(view);
+    if (key == null) {
+      return view;
+    }
+
+    final List<Variant> variants = CACHE.getIfPresent(key);
+    if (variants != null) {
+      final Map<String, Boolean> results = new HashMap<>();
+      for (Variant variant : variants) {
+        if (variant.matches(results)) {
+          return new RawValue(variant.json);
+        }
+      }
+    }
+
+    final long version = VERSION.get();
+    final Recorder last = RECORDER.get();
+    final Recorder recorder = new Recorder();
+    final String json;
+
+    RECORDER.set(recorder);
+    try {
+      json = mapper.writeValueAsString(view);
+    } catch (JsonProcessingException e) {
+      log.debug("Unable to serialize view {}: {}", view.getName(), e.getMessage());
+      return view;
+    } finally {
+      if (last == null) {
+        RECORDER.remove();
+      } else {
+        RECORDER.set(last);
+      }
+    }
+
+    if (!recorder.skipped) {
+      final Variant variant = new Variant(Collections.unmodifiableMap(recorder.conditions), json);
+      synchronized (VERSION) {
+        if (version == VERSION.get()) {
+          final List<Variant> current = CACHE.getIfPresent(key);
+          final List<Variant> updated = new ArrayList<>();
+          if (current != null) {
+            updated.addAll(current);
+          }
+          if (updated.size() < MAX_VARIANTS) {
+            updated.add(variant);
+            CACHE.put(key, Collections.unmodifiableList(updated));
+          }
+        }
+      }
+    }
+
+    return new RawValue(json);
+  }
+
+  private static List<Object> key(AbstractView view) {
+    final User user = AuthUtils.getUser();
+    final boolean custom = view.getCustomViewId() != null;
+    final Long id = custom ? view.getCustomViewId() : view.getViewId();
+    if (user == null || id == null) {
+      return null;
+    }
+
+    final Long group = user.getGroup() == null ? null : user.getGroup().getId();
+    final List<Long> roles = ids(user.getRoles());
+    final List<Long> permissions = ids(user.getPermissions());
+    final List<Long> metaPermissions = ids(user.getMetaPermissions());
+
+    // unsaved records can't be identified
+    if ((group == null && user.getGroup() != null)
+        || roles == null
+        || permissions == null
+        || metaPermissions == null) {
+      return null;
+    }
+
+    return Arrays.asList(
+        TenantResolver.currentTenantIdentifier(),
+        custom,
+        id,
+        Request.current() != null,
+        AppFilter.getLocale().toLanguageTag(),
+        I18nBundle.getVersion(),
+        AuthUtils.isAdmin(user),
+        Boolean.TRUE.equals(user.getNoHelp()),
+        group,
+        roles,
+        permissions,
+        metaPermissions);
+  }
+
+  private static List<Long> ids(Set<? extends Model> items) {
+    if (items == null || items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<Long> ids = new ArrayList<>(items.size());
+    for (Model item : items) {
+      if (item.getId() == null) {
+        return null;
+      }
+      ids.add(item.getId());
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  /** Invalidate all the serialized views. */
+  public static void invalidateAll() {
+    synchronized (VERSION) {
+      VERSION.incrementAndGet();
+      CACHE.invalidateAll();
+    }
+  }
+}
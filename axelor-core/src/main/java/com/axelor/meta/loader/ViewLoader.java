@@ -150,6 +150,7 @@ public class ViewLoader extends AbstractParallelLoader {
   protected void terminate(boolean update) {
     linkMissingGroups();
     generateFinalViews(update);
+    XMLViews.invalidateViews();
 
     final Set<String> duplicates = getDuplicates();
     if (!duplicates.isEmpty()) {
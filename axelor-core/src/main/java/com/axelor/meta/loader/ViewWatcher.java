@@ -274,6 +274,7 @@ public final class ViewWatcher {
                           moduleManager.update(pendingModules, pendingPaths);
                         });
                     MetaStore.clear();
+                    XMLViews.clearCache();
                     I18nBundle.invalidate();
                   } catch (Exception e) {
                     LOG.error(e.getMessage(), e);
@@ -349,13 +349,39 @@ public class XMLViews {
         .fetchOne();
   }
 
+  private static Long resolveView(
+      MetaViewRepository views, String name, String type, String model, String module, Long group) {
+    MetaView view = null;
+
+    // first find by name
+    if (StringUtils.notBlank(name)) {
+      // with group
+      view = findMetaView(views, name, null, model, module, group);
+      view = view == null ? findMetaView(views, name, null, null, module, group) : view;
+
+      // without group
+      view = view == null ? findMetaView(views, name, null, model, module, null) : view;
+      view = view == null ? findMetaView(views, name, null, null, module, null) : view;
+
+      return view == null ? null : view.getId();
+    }
+
+    // next find by type
+    if (type != null && model != null) {
+      view = findMetaView(views, null, type, model, module, group);
+      view = view == null ? findMetaView(views, null, type, model, module, null) : view;
+    }
+
+    return view == null ? null : view.getId();
+  }
+
   public static AbstractView findView(Long id) {
     final MetaView view = Beans.get(MetaViewRepository.class).find(id);
     if (view == null) {
       return null;
     }
     try {
-      return unmarshal(view.getXml()).getViews().get(0);
+      return ViewCache.parse(view.getId(), false, view.getXml());
     } catch (JAXBException e) {
       log.error(e.getMessage(), e);
       return null;
@@ -368,7 +394,7 @@ public class XMLViews {
       return null;
     }
     try {
-      return unmarshal(view.getXml()).getViews().get(0);
+      return ViewCache.parse(view.getId(), true, view.getXml());
     } catch (JAXBException e) {
       log.error(e.getMessage(), e);
       return null;
@@ -420,45 +446,35 @@ public class XMLViews {
       custom = findCustomView(customViews, name, type, model);
     }
 
-    // first find by name
-    if (StringUtils.notBlank(name)) {
-      // with group
-      view = findMetaView(views, name, null, model, module, group);
-      view = view == null ? findMetaView(views, name, null, null, module, group) : view;
-
-      // without group
-      view = view == null ? findMetaView(views, name, null, model, module, null) : view;
-      view = view == null ? findMetaView(views, name, null, null, module, null) : view;
+    final Supplier<Long> resolver = () -> resolveView(views, name, type, model, module, group);
+    final Long viewId = ViewCache.resolve(name, type, model, module, group, resolver);
 
+    if (viewId != null) {
+      view = views.find(viewId);
       if (view == null) {
-        log.error("No such view found: {}", name);
-        return null;
+        // view removed without cache invalidation
+        ViewCache.invalidateResolved();
+        final Long id = resolver.get();
+        view = id == null ? null : views.find(id);
       }
     }
 
-    // next find by type
-    if (type != null && model != null) {
-      view = view == null ? findMetaView(views, null, type, model, module, group) : view;
-      view = view == null ? findMetaView(views, null, type, model, module, null) : view;
+    if (view == null && StringUtils.notBlank(name)) {
+      log.error("No such view found: {}", name);
+      return null;
     }
 
     final AbstractView xmlView;
     final MetaModel metaModel;
     try {
-      final String xml;
-
       if (custom == null) {
         if (view == null) {
           return null;
         }
-
-        xml = view.getXml();
+        xmlView = ViewCache.parse(view.getId(), false, view.getXml());
       } else {
-        xml = custom.getXml();
+        xmlView = ViewCache.parse(custom.getId(), true, custom.getXml());
       }
-
-      final ObjectViews objectViews = unmarshal(xml);
-      xmlView = objectViews.getViews().get(0);
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       return null;
@@ -493,6 +509,28 @@ public class XMLViews {
     return xmlView;
   }
 
+  /** Invalidate cached view lookups, should be called when views are created or updated. */
+  public static void invalidateViews() {
+    ViewCache.invalidateResolved();
+    ViewJsonCache.invalidateAll();
+  }
+
+  /**
+   * Invalidate cached views of the given custom view.
+   *
+   * @param id the {@link MetaViewCustom} id
+   */
+  public static void invalidateCustomView(Long id) {
+    ViewCache.invalidateCustom(id);
+    ViewJsonCache.invalidateAll();
+  }
+
+  /** Clear all the cached views. */
+  public static void clearCache() {
+    ViewCache.invalidateAll();
+    ViewJsonCache.invalidateAll();
+  }
+
   public static Action findAction(String name) {
     final MetaAction metaAction = Beans.get(MetaActionRepository.class).findByName(name);
     final Action action;
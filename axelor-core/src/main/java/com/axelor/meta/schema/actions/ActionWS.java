@@ -26,6 +26,10 @@ import com.axelor.meta.MetaStore;
 import com.axelor.text.GroovyTemplates;
 import com.axelor.text.StringTemplates;
 import com.axelor.text.Templates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -36,19 +40,40 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.ProxySelector;
 import java.net.URI;
+import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -58,6 +83,17 @@ public class ActionWS extends Action {
   private static final int DEFAULT_READ_TIMEOUT = 300;
   private static final int DEFAULT_CONNECT_TIMEOUT = 60;
 
+  // http clients by service origin and connect timeout, reused to keep connections alive
+  private static final Cache<List<Object>, HttpClient> CLIENTS =
+      CacheBuilder.newBuilder().maximumSize(100).expireAfterAccess(30, TimeUnit.MINUTES).build();
+
+  private static final Cache<String, TemplateSource> TEMPLATES =
+      CacheBuilder.newBuilder().maximumSize(500).build();
+
+  private static final XMLInputFactory INPUT_FACTORY = XMLUtils.createXMLInputFactory();
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+  private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
   @XmlAttribute private String service;
 
   @XmlAttribute(name = "connect-timeout")
@@ -66,6 +102,8 @@ public class ActionWS extends Action {
   @XmlAttribute(name = "read-timeout")
   private Integer readTimeout;
 
+  @XmlAttribute private Boolean parallel;
+
   @XmlElement(name = "action")
   private List<WSAction> methods;
 
@@ -87,6 +125,10 @@ public class ActionWS extends Action {
     return readTimeout;
   }
 
+  public Boolean getParallel() {
+    return parallel;
+  }
+
   public List<WSAction> getMethods() {
     return methods;
   }
@@ -102,34 +144,93 @@ public class ActionWS extends Action {
     return (ActionWS) ref;
   }
 
-  private Object send(String location, WSAction act, String template, ActionHandler handler)
-      throws IOException, ParserConfigurationException, SAXException, InterruptedException {
+  /** Template text with the state of its file, if any, to detect changes. */
+  private static final class TemplateSource {
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final String text;
+
+    private TemplateSource(File file, long lastModified, long length, String text) {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.text = text;
+    }
 
-    InputStream templateStream = null;
+    private boolean isModified() {
+      return file != null && (file.lastModified() != lastModified || file.length() != length);
+    }
+  }
+
+  private static String getTemplate(String template) {
+    TemplateSource source = TEMPLATES.getIfPresent(template);
+    if (source == null || source.isModified()) {
+      source = readTemplate(template);
+      TEMPLATES.put(template, source);
+    }
+    return source.text;
+  }
+
+  private static TemplateSource readTemplate(String template) {
     try {
-      File templateFile = new File(template);
-      if (templateFile.isFile()) {
-        templateStream = new FileInputStream(templateFile);
-      } else {
-        templateStream = ResourceUtils.getResourceStream(template.replace("classpath:", ""));
+      File file = new File(template);
+      URL url = null;
+      if (!file.isFile()) {
+        file = null;
+        url = ResourceUtils.getResource(template.replace("classpath:", ""));
+        if (url == null) {
+          throw new IllegalArgumentException();
+        }
+        if ("file".equals(url.getProtocol())) {
+          file = new File(url.toURI());
+        }
       }
 
-      if (templateStream == null) {
-        throw new IllegalArgumentException();
+      // state is read first, so that changes made while reading are detected later
+      final long lastModified = file == null ? 0 : file.lastModified();
+      final long length = file == null ? 0 : file.length();
+
+      try (InputStream stream = file == null ? url.openStream() : new FileInputStream(file);
+          Reader reader = new InputStreamReader(stream)) {
+        return new TemplateSource(file, lastModified, length, CharStreams.toString(reader));
       }
     } catch (Exception e) {
       throw new IllegalArgumentException("No such template: " + template);
     }
+  }
+
+  private HttpClient getHttpClient(String location) {
+    final URI uri = URI.create(location);
+    final List<Object> key =
+        Arrays.asList(uri.getScheme(), uri.getRawAuthority(), getConnectTimeout());
+    try {
+      return CLIENTS.get(
+          key,
+          () ->
+              HttpClient.newBuilder()
+                  .connectTimeout(Duration.ofSeconds(getConnectTimeout()))
+                  .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+                  .proxy(ProxySelector.getDefault())
+                  .build());
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private HttpRequest prepare(
+      String location, WSAction act, String template, ActionHandler handler)
+      throws IOException, ParserConfigurationException, SAXException {
+
+    final String text = getTemplate(template);
 
     Templates engine = new StringTemplates('$', '$');
     if ("groovy".equals(act.engine)) {
       engine = new GroovyTemplates();
     }
 
-    String payload = null;
-    try (Reader reader = new InputStreamReader(templateStream)) {
-      payload = handler.template(engine, reader);
-    }
+    String payload = handler.template(engine, new StringReader(text));
     Document envelope = XMLUtils.parse(new StringReader(payload));
     String namespace = envelope.getDocumentElement().getNamespaceURI();
     String charset = envelope.getXmlEncoding();
@@ -149,47 +250,126 @@ public class ActionWS extends Action {
 
     contentType = contentType + "; charset=" + charset;
 
-    HttpClient httpClient =
-        HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(getConnectTimeout()))
-            .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
-            .proxy(ProxySelector.getDefault())
-            .build();
-
-    HttpRequest httpRequest =
-        HttpRequest.newBuilder()
-            .uri(URI.create(location))
-            .timeout(Duration.ofSeconds(getReadTimeout()))
-            .header("Content-Type", contentType)
-            .header(actionHeader, act.getName())
-            .POST(HttpRequest.BodyPublishers.ofString(payload))
-            .build();
-
-    HttpResponse<InputStream> response =
-        httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
-    envelope = XMLUtils.parse(response.body());
-
-    org.w3c.dom.Element body =
-        XMLUtils.stream(envelope.getDocumentElement(), "Body").findFirst().orElse(null);
+    return HttpRequest.newBuilder()
+        .uri(URI.create(location))
+        .timeout(Duration.ofSeconds(getReadTimeout()))
+        .header("Content-Type", contentType)
+        .header(actionHeader, act.getName())
+        .POST(HttpRequest.BodyPublishers.ofString(payload))
+        .build();
+  }
 
-    if (body == null) {
-      throw new IllegalStateException("No body found in response");
+  private Object send(String location, WSAction act, String template, ActionHandler handler)
+      throws IOException, ParserConfigurationException, SAXException, InterruptedException,
+          XMLStreamException {
+    final HttpRequest request = prepare(location, act, template, handler);
+    final HttpResponse<InputStream> response =
+        getHttpClient(location).send(request, HttpResponse.BodyHandlers.ofInputStream());
+    try (InputStream body = response.body()) {
+      return extract(body);
     }
+  }
 
-    org.w3c.dom.Element result = XMLUtils.stream(body, "*").findFirst().orElse(null);
+  private CompletableFuture<Object> sendAsync(
+      String location, WSAction act, String template, ActionHandler handler)
+      throws IOException, ParserConfigurationException, SAXException {
+    final HttpRequest request = prepare(location, act, template, handler);
+    return getHttpClient(location)
+        .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+        .thenApply(
+            response -> {
+              try (InputStream body = response.body()) {
+                return extract(body);
+              } catch (IOException | XMLStreamException e) {
+                throw new CompletionException(e);
+              }
+            });
+  }
 
-    if (result == null) {
-      throw new IllegalStateException("No result found in response");
+  /**
+   * Extract the first element of the response body.
+   *
+   * <p>The response is streamed up to the result element, which is copied with the namespaces
+   * declared by its parents, without building the whole document.
+   */
+  private static String extract(InputStream response) throws XMLStreamException {
+    final XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(response);
+    try {
+      final Deque<List<Namespace>> namespaces = new ArrayDeque<>();
+      String encoding = null;
+      boolean body = false;
+
+      while (reader.hasNext()) {
+        final XMLEvent event = reader.nextEvent();
+        if (event.isStartDocument() && ((StartDocument) event).encodingSet()) {
+          encoding = ((StartDocument) event).getCharacterEncodingScheme();
+        } else if (event.isStartElement()) {
+          final StartElement element = event.asStartElement();
+          if (body && namespaces.size() == 2) {
+            return copy(reader, element, namespaces, encoding);
+          }
+          if (namespaces.size() == 1 && "Body".equals(element.getName().getLocalPart())) {
+            body = true;
+          }
+          final List<Namespace> declared = new ArrayList<>();
+          element.getNamespaces().forEachRemaining(declared::add);
+          namespaces.push(declared);
+        } else if (event.isEndElement()) {
+          namespaces.pop();
+          if (body && namespaces.size() == 1) {
+            throw new IllegalStateException("No result found in response");
+          }
+        }
+      }
+    } finally {
+      reader.close();
     }
+    throw new IllegalStateException("No body found in response");
+  }
 
-    StringWriter writer = new StringWriter();
-    try {
-      XMLUtils.transform(result, writer, envelope.getXmlEncoding());
-    } catch (TransformerException e) {
-      throw new IllegalStateException(e);
+  private static String copy(
+      XMLEventReader reader,
+      StartElement element,
+      Deque<List<Namespace>> parents,
+      String encoding)
+      throws XMLStreamException {
+
+    // namespaces in scope, declared by the parents or the element itself
+    final Map<String, Namespace> scope = new LinkedHashMap<>();
+    final Iterator<List<Namespace>> iter = parents.descendingIterator();
+    while (iter.hasNext()) {
+      iter.next().forEach(ns -> scope.put(ns.getPrefix(), ns));
+    }
+    element.getNamespaces().forEachRemaining(ns -> scope.put(ns.getPrefix(), ns));
+
+    final QName name = element.getName();
+    final StringWriter out = new StringWriter();
+    final XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(out);
+
+    writer.add(
+        EVENT_FACTORY.createStartDocument(
+            encoding == null ? StandardCharsets.UTF_8.name() : encoding, "1.0"));
+    writer.add(
+        EVENT_FACTORY.createStartElement(
+            name.getPrefix(),
+            name.getNamespaceURI(),
+            name.getLocalPart(),
+            element.getAttributes(),
+            scope.values().iterator()));
+
+    int depth = 1;
+    while (depth > 0 && reader.hasNext()) {
+      final XMLEvent event = reader.nextEvent();
+      if (event.isStartElement()) {
+        depth++;
+      } else if (event.isEndElement()) {
+        depth--;
+      }
+      writer.add(event);
     }
 
-    return writer.toString();
+    writer.close();
+    return out.toString();
   }
 
   private String getService(ActionWS ref, ActionHandler handler) {
@@ -218,6 +398,9 @@ public class ActionWS extends Action {
       ref.evaluate(handler);
     }
 
+    final boolean concurrent = Boolean.TRUE.equals(parallel);
+    final List<CompletableFuture<Object>> futures = new ArrayList<>();
+
     List<Object> result = new ArrayList<>();
     log.info("action-ws (name): " + getName());
     for (WSAction act : methods) {
@@ -228,12 +411,28 @@ public class ActionWS extends Action {
       }
       log.info("action-ws (method, template): " + act.getName() + ", " + template.toString());
       try {
-        Object res = this.send(url, act, template.toString(), handler);
-        result.add(res);
+        if (concurrent) {
+          // payloads are rendered here, only the calls are done concurrently
+          futures.add(this.sendAsync(url, act, template.toString(), handler));
+        } else {
+          Object res = this.send(url, act, template.toString(), handler);
+          result.add(res);
+        }
       } catch (Exception e) {
         log.error("error: " + e);
       }
     }
+
+    for (CompletableFuture<Object> future : futures) {
+      try {
+        result.add(future.join());
+      } catch (CompletionException e) {
+        log.error("error: " + e.getCause());
+      } catch (Exception e) {
+        log.error("error: " + e);
+      }
+    }
+
     return result;
   }
 
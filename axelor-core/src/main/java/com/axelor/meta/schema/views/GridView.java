@@ -21,8 +21,7 @@ package com.axelor.meta.schema.views;
 import static com.axelor.common.StringUtils.isBlank;
 
 import com.axelor.common.StringUtils;
-import com.axelor.rpc.Request;
-import com.axelor.script.ScriptHelper;
+import com.axelor.meta.loader.ViewJsonCache;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import java.util.List;
@@ -336,14 +335,7 @@ public class GridView extends AbstractView implements ContainerView, ExtendableV
       return inlineHelp;
     }
 
-    final String condition = inlineHelp.getConditionToCheck();
-    final Request request = Request.current();
-    if (request == null) {
-      return inlineHelp;
-    }
-
-    final ScriptHelper helper = request.getScriptHelper();
-    return helper.test(condition) ? inlineHelp : null;
+    return ViewJsonCache.test(inlineHelp.getConditionToCheck()) ? inlineHelp : null;
   }
 
   public void setInlineHelp(Help inlineHelp) {
@@ -322,16 +322,19 @@ public class Search extends AbstractView {
       }
       all.add(filter);
 
-      Query<?> query = Filter.and(all).build(klass);
+      Query<?> query = Filter.and(all).build(klass).readOnly();
       if (orderBy != null) {
         Splitter.on(Pattern.compile(",\\s*")).split(orderBy).forEach(query::order);
       }
 
-      return query.select(
-          fields.stream()
-              .map(SearchSelectField::getName)
-              .collect(Collectors.toList())
-              .toArray(new String[] {}));
+      Query<?>.Selector selector =
+          query.select(
+              fields.stream()
+                  .map(SearchSelectField::getName)
+                  .collect(Collectors.toList())
+                  .toArray(new String[] {}));
+
+      return Boolean.TRUE.equals(distinct) ? selector.distinct() : selector;
     }
   }
 
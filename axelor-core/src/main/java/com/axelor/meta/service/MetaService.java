@@ -43,6 +43,7 @@ import com.axelor.meta.db.MetaViewCustom;
 import com.axelor.meta.db.repo.MetaFileRepository;
 import com.axelor.meta.db.repo.MetaViewCustomRepository;
 import com.axelor.meta.db.repo.MetaViewRepository;
+import com.axelor.meta.loader.ViewJsonCache;
 import com.axelor.meta.loader.XMLViews;
 import com.axelor.meta.schema.actions.Action;
 import com.axelor.meta.schema.views.AbstractView;
@@ -63,6 +64,7 @@ import com.axelor.rpc.Response;
 import com.axelor.script.CompositeScriptHelper;
 import com.axelor.script.ScriptBindings;
 import com.axelor.script.ScriptHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -102,6 +104,10 @@ public class MetaService {
 
   @Inject private Set<ViewProcessor> viewProcessors;
 
+  @Inject private ObjectMapper objectMapper;
+
+  @Inject private SearchExecutor searchExecutor;
+
   private boolean test(MenuItem item, ScriptHelper helper) {
     final String module = item.getModuleToCheck();
     final String condition = item.getConditionToCheck();
@@ -204,6 +210,22 @@ public class MetaService {
     return response;
   }
 
+  /**
+   * Get the given view serialized for the current user.
+   *
+   * <p>The serialized views are shared by the users with the same permissions. Views are not
+   * cached if view processors are registered, as processors can change views per user.
+   *
+   * @param view the view found with {@link #findView(String, String, String)}
+   * @return the serialized view, or the view itself if it can't be cached
+   */
+  public Object toJson(AbstractView view) {
+    if (view == null || !viewProcessors.isEmpty()) {
+      return view;
+    }
+    return ViewJsonCache.toJson(view, objectMapper);
+  }
+
   private ViewCustomizationPermission getViewCustomizationPermission(User user) {
     return Optional.ofNullable(user)
         .filter(u -> XMLViews.isCustomizationEnabled())
@@ -323,7 +345,9 @@ public class MetaService {
     Search search = (Search) XMLViews.findView(name, "search");
     ScriptHelper helper = search.scriptHandler(context);
 
-    List<Object> data = Lists.newArrayList();
+    List<Search.SearchSelect> selects = new ArrayList<>();
+    List<Selector> selectors = new ArrayList<>();
+    List<Integer> limits = new ArrayList<>();
 
     for (Search.SearchSelect select : search.getSelects()) {
 
@@ -347,8 +371,28 @@ public class MetaService {
         limit = select.getLimit();
       }
 
-      List<?> items = selector.fetch(limit, request.getOffset());
+      selects.add(select);
+      selectors.add(selector);
+      limits.add(limit);
+    }
+
+    List<List<Map>> results;
+    if (selectors.size() > 1 && searchExecutor.isEnabled()) {
+      results = searchExecutor.fetch(selectors, limits, request.getOffset());
+    } else {
+      results = new ArrayList<>();
+      for (int i = 0; i < selectors.size(); i++) {
+        results.add(selectors.get(i).fetch(limits.get(i), request.getOffset()));
+      }
+    }
+
+    List<Object> data = Lists.newArrayList();
+
+    for (int i = 0; i < selects.size(); i++) {
+      Search.SearchSelect select = selects.get(i);
+      List<?> items = results.get(i);
 
+      // rows may still differ by the fields selected through collections
       if (Objects.equals(Boolean.TRUE, select.getDistinct())) {
         items =
             items.stream()
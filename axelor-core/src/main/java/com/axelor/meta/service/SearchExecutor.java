@@ -0,0 +1,236 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.service;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.db.JPA;
+import com.axelor.db.Query.Selector;
+import com.axelor.db.internal.DBHelper;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.event.Observes;
+import com.axelor.events.ShutdownEvent;
+import com.axelor.inject.Beans;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+import javax.persistence.EntityTransaction;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the selects of the search views concurrently.
+ *
+ * <p>Selects are fetched by a bounded pool of workers, with the tenant and the subject of the
+ * request, in read-only sessions. Rows are collected as they are read, so the selects not completed
+ * before the deadline return the rows read so far instead of failing the whole search.
+ */
+@Singleton
+public class SearchExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(SearchExecutor.class);
+
+  private static final int DEFAULT_WORKERS = 4;
+
+  private static final int DEFAULT_TIMEOUT = 10;
+
+  private final int workers;
+
+  private final long timeout;
+
+  private ExecutorService executor;
+
+  public SearchExecutor() {
+    this(
+        AppSettings.get()
+            .getInt(
+                AvailableAppSettings.DATA_SEARCH_GLOBAL_WORKERS,
+                Math.min(DEFAULT_WORKERS, DBHelper.getMaxWorkers())),
+        AppSettings.get().getInt(AvailableAppSettings.DATA_SEARCH_GLOBAL_TIMEOUT, DEFAULT_TIMEOUT),
+        TimeUnit.SECONDS);
+  }
+
+  SearchExecutor(int workers, long timeout, TimeUnit unit) {
+    this.workers = workers;
+    this.timeout = unit.toNanos(timeout);
+  }
+
+  /**
+   * Whether the selects are run concurrently.
+   *
+   * @return true if more than one worker is configured
+   */
+  public boolean isEnabled() {
+    return workers > 1;
+  }
+
+  /**
+   * Fetch the rows of the given selectors concurrently.
+   *
+   * @param selectors the selectors
+   * @param limits the limit of each selector
+   * @param offset the offset
+   * @return the rows of each selector, in the same order
+   */
+  @SuppressWarnings("rawtypes")
+  public List<List<Map>> fetch(List<Selector> selectors, List<Integer> limits, int offset) {
+    final List<Task> tasks = new ArrayList<>(selectors.size());
+    for (int i = 0; i < selectors.size(); i++) {
+      final Selector selector = selectors.get(i);
+      final int limit = limits.get(i);
+      tasks.add(new Task(selector, () -> selector.fetchStream(limit, offset)));
+    }
+    return fetch(tasks);
+  }
+
+  @SuppressWarnings("rawtypes")
+  List<List<Map>> fetch(List<Task> tasks) {
+    final long deadline = System.nanoTime() + timeout;
+    final List<Future<?>> futures = new ArrayList<>(tasks.size());
+    final Subject subject = ThreadContext.getSubject();
+
+    for (Task task : tasks) {
+      futures.add(getExecutor().submit(subject == null ? task : subject.associateWith(task)));
+    }
+
+    final List<List<Map>> result = new ArrayList<>(tasks.size());
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        result.add(wait(tasks.get(i), futures.get(i), deadline));
+      }
+    } finally {
+      for (int i = 0; i < tasks.size(); i++) {
+        tasks.get(i).stopped = true;
+        futures.get(i).cancel(false);
+      }
+    }
+
+    return result;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private List<Map> wait(Task task, Future<?> future, long deadline) {
+    try {
+      future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+      return task.rows;
+    } catch (TimeoutException e) {
+      task.stopped = true;
+      future.cancel(false);
+      synchronized (task.rows) {
+        log.warn("Search timed out, returning {} rows of : {}", task.rows.size(), task.source);
+        return new ArrayList<>(task.rows);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor =
+          Executors.newFixedThreadPool(
+              workers,
+              new ThreadFactoryBuilder().setNameFormat("search-worker-%d").setDaemon(true).build());
+    }
+    return executor;
+  }
+
+  /** Stop the workers. */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  void onAppShutdown(@Observes ShutdownEvent event) {
+    stop();
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class Task implements Runnable {
+
+    private final Object source;
+    private final Supplier<Stream<Map>> stream;
+    private final String tenantId;
+    private final String tenantHost;
+    private final List<Map> rows = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean stopped;
+
+    Task(Object source, Supplier<Stream<Map>> stream) {
+      this.source = source;
+      this.stream = stream;
+      this.tenantId = TenantResolver.currentTenantIdentifier();
+      this.tenantHost = TenantResolver.currentTenantHost();
+    }
+
+    @Override
+    public void run() {
+      if (stopped) {
+        return;
+      }
+      final UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+      TenantResolver.setCurrentTenant(tenantId, tenantHost);
+      unitOfWork.begin();
+      try {
+        JPA.em().unwrap(Session.class).setDefaultReadOnly(true);
+        final EntityTransaction txn = JPA.em().getTransaction();
+        txn.begin();
+        try (Stream<Map> items = stream.get()) {
+          final Iterator<Map> iterator = items.iterator();
+          while (!stopped && iterator.hasNext()) {
+            rows.add(iterator.next());
+          }
+        } finally {
+          // nothing to commit
+          if (txn.isActive()) {
+            txn.rollback();
+          }
+        }
+      } finally {
+        unitOfWork.end();
+        TenantResolver.setCurrentTenant(null, null);
+      }
+    }
+  }
+}
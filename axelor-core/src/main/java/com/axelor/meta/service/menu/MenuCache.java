@@ -0,0 +1,296 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.service.menu;
+
+import static com.axelor.common.StringUtils.isBlank;
+
+import com.axelor.auth.AuthUtils;
+import com.axelor.auth.db.Group;
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.User;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.event.Observes;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import com.axelor.meta.db.MetaAction;
+import com.axelor.meta.db.MetaMenu;
+import com.axelor.meta.db.MetaModule;
+import com.axelor.script.CompositeScriptHelper;
+import com.axelor.script.ScriptBindings;
+import com.axelor.script.ScriptHelper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the menu trees allowed to the users.
+ *
+ * <p>The menus are loaded once per tenant and the trees filtered by groups, roles, hidden flags and
+ * modules to check are cached per permission set, made of the user group and the sorted names of
+ * the user roles, so they are shared by all the users with the same permissions. Only the user
+ * menus and the conditions to check, which depend on the request, are evaluated each time.
+ *
+ * <p>Trees are invalidated once a transaction changing menus, actions, groups, roles or modules is
+ * completed, and when modules are installed or updated.
+ */
+@Singleton
+public class MenuCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MenuCache.class);
+
+  private static final Set<Class<?>> MODELS =
+      Set.of(MetaMenu.class, MetaAction.class, Group.class, Role.class, MetaModule.class);
+
+  // all menus of a tenant in tree order
+  private final Cache<List<Object>, Map<String, MenuEntry>> menus =
+      CacheBuilder.newBuilder().build();
+
+  // menus allowed to a permission set in tree order
+  private final Cache<List<Object>, Map<String, MenuEntry>> trees =
+      CacheBuilder.newBuilder().maximumSize(1000).build();
+
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Get the menus that can be shown to the given user.
+   *
+   * @param user the user
+   * @return the menus by name in tree order
+   */
+  public Map<String, MenuEntry> get(User user) {
+    final Map<String, MenuEntry> tree = tree(user);
+    final Checker checker = new Checker(user);
+    final Map<String, MenuEntry> result = new LinkedHashMap<>();
+    for (MenuEntry entry : tree.values()) {
+      if (checker.canShow(entry)) {
+        result.put(entry.getName(), entry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the menus with the given names that can be shown to the given user.
+   *
+   * <p>Only the conditions of these menus and of their parents are evaluated.
+   *
+   * @param user the user
+   * @param names the menu names
+   * @return the menus by name in the order of the given names
+   */
+  public Map<String, MenuEntry> get(User user, Collection<String> names) {
+    final Map<String, MenuEntry> tree = tree(user);
+    final Checker checker = new Checker(user);
+    final Map<String, MenuEntry> result = new LinkedHashMap<>();
+    for (String name : names) {
+      final MenuEntry entry = tree.get(name);
+      if (entry != null && checker.canShow(entry)) {
+        result.put(name, entry);
+      }
+    }
+    return result;
+  }
+
+  private Map<String, MenuEntry> tree(User user) {
+    final String tenant = TenantResolver.currentTenantIdentifier();
+    final boolean admin = AuthUtils.isAdmin(user);
+    final String group = user.getGroup() == null ? null : user.getGroup().getCode();
+    final Set<String> roles = new TreeSet<>();
+
+    if (!admin) {
+      Stream.of(user.getRoles(), user.getGroup() == null ? null : user.getGroup().getRoles())
+          .filter(Objects::nonNull)
+          .flatMap(Set::stream)
+          .forEach(role -> roles.add(role.getName()));
+    }
+
+    final List<Object> key =
+        admin
+            ? Arrays.asList(tenant, true)
+            : Arrays.asList(tenant, false, group, List.copyOf(roles));
+
+    return get(
+        trees,
+        key,
+        () -> {
+          final Map<String, MenuEntry> all = get(menus, Arrays.asList(tenant), this::load);
+          final Map<String, MenuEntry> allowed = new LinkedHashMap<>();
+          for (MenuEntry entry : all.values()) {
+            final MenuEntry parent = entry.getParent();
+            if ((parent == null || allowed.containsKey(parent.getName()))
+                && entry.isAllowed(admin, group, roles)
+                && entry.isVisible()) {
+              allowed.put(entry.getName(), entry);
+            }
+          }
+          return Collections.unmodifiableMap(allowed);
+        });
+  }
+
+  private <T> T get(Cache<List<Object>, T> cache, List<Object> key, Callable<T> loader) {
+    final long started = version.get();
+    final boolean[] loaded = {false};
+    final T value;
+    try {
+      value =
+          cache.get(
+              key,
+              () -> {
+                loaded[0] = true;
+                return loader.call();
+              });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+
+    // the value may have been computed before a concurrent change was committed
+    if (loaded[0] && version.get() != started) {
+      cache.asMap().remove(key, value);
+    }
+
+    return value;
+  }
+
+  private Map<String, MenuEntry> load() {
+    final List<MetaMenu> metaMenus = MenuUtils.fetchMetaMenu(null);
+    final Map<Long, Set<String>> menuGroups = new HashMap<>();
+    final Map<Long, Set<String>> menuRoles = new HashMap<>();
+
+    final List<Object[]> rows =
+        JPA.em()
+            .createQuery(
+                "SELECT m.id, g.code, r.name FROM MetaMenu m "
+                    + "LEFT JOIN m.groups g "
+                    + "LEFT JOIN m.roles r "
+                    + "WHERE g.id IS NOT NULL OR r.id IS NOT NULL",
+                Object[].class)
+            .getResultList();
+
+    for (Object[] row : rows) {
+      final Long id = (Long) row[0];
+      if (row[1] != null) {
+        menuGroups.computeIfAbsent(id, k -> new TreeSet<>()).add(row[1].toString());
+      }
+      if (row[2] != null) {
+        menuRoles.computeIfAbsent(id, k -> new TreeSet<>()).add(row[2].toString());
+      }
+    }
+
+    final Map<String, MenuEntry> entries = new LinkedHashMap<>();
+
+    MenuNode.buildTree(metaMenus)
+        .traverse(
+            new SimpleMenuNodeVisitor() {
+
+              @Override
+              public MenuNodeResult visit(MenuNode node) {
+                if (!node.isRoot()) {
+                  final MetaMenu menu = node.getMetaMenu();
+                  final MenuEntry parent =
+                      menu.getParent() == null ? null : entries.get(menu.getParent().getName());
+                  entries.put(
+                      menu.getName(),
+                      new MenuEntry(
+                          menu, parent, menuGroups.get(menu.getId()), menuRoles.get(menu.getId())));
+                }
+                return MenuNodeResult.CONTINUE;
+              }
+            });
+
+    return Collections.unmodifiableMap(entries);
+  }
+
+  /** Invalidate all the cached menus. */
+  public void invalidateAll() {
+    version.incrementAndGet();
+    menus.invalidateAll();
+    trees.invalidateAll();
+  }
+
+  void onBeforeTransactionComplete(@Observes BeforeTransactionComplete event) {
+    final boolean changed =
+        Stream.of(event.getUpdated(), event.getDeleted())
+            .flatMap(Set::stream)
+            .anyMatch(entity -> MODELS.contains(EntityHelper.getEntityClass(entity)));
+
+    if (changed) {
+      JPA.runAfterCompletion(this::invalidateAll);
+    }
+  }
+
+  /** Checks the user menus and the conditions to check of the cached menus for a request. */
+  private static class Checker {
+
+    private final User user;
+    private final Map<MenuEntry, Boolean> checked = new HashMap<>();
+    private ScriptHelper scriptHelper;
+
+    private Checker(User user) {
+      this.user = user;
+    }
+
+    private boolean canShow(MenuEntry entry) {
+      final Boolean done = checked.get(entry);
+      if (done != null) {
+        return done;
+      }
+      final MenuEntry parent = entry.getParent();
+      final boolean result = (parent == null || canShow(parent)) && test(entry);
+      checked.put(entry, result);
+      return result;
+    }
+
+    private boolean test(MenuEntry entry) {
+      if (entry.getUserId() != null && !entry.getUserId().equals(user.getId())) {
+        return false;
+      }
+      final String condition = entry.getConditionToCheck();
+      if (isBlank(condition)) {
+        return true;
+      }
+      try {
+        if (scriptHelper == null) {
+          scriptHelper = new CompositeScriptHelper(new ScriptBindings(new HashMap<>()));
+        }
+        return scriptHelper.test(condition);
+      } catch (Exception e) {
+        LOG.error("Unable to evaluate menu {} : {}", entry.getName(), e.getMessage());
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.service.menu;
+
+import static com.axelor.common.StringUtils.isBlank;
+import static com.axelor.meta.loader.ModuleManager.isInstalled;
+
+import com.axelor.common.StringUtils;
+import com.axelor.meta.db.MetaAction;
+import com.axelor.meta.db.MetaMenu;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable copy of a {@link MetaMenu} kept by the {@link MenuCache}.
+ *
+ * <p>It holds the menu attributes required to build menu items and tags so that cached menus are
+ * detached from any persistence context.
+ */
+public final class MenuEntry {
+
+  private final Long id;
+  private final String name;
+  private final String title;
+  private final Integer order;
+  private final String icon;
+  private final String iconBackground;
+  private final String tag;
+  private final String tagGet;
+  private final boolean tagCount;
+  private final String tagStyle;
+  private final Boolean left;
+  private final Boolean mobile;
+  private final Boolean hidden;
+  private final String moduleToCheck;
+  private final String conditionToCheck;
+  private final String action;
+  private final String actionModel;
+  private final Long userId;
+
+  private final MenuEntry parent;
+
+  private final Set<String> groups;
+  private final Set<String> roles;
+
+  MenuEntry(MetaMenu menu, MenuEntry parent, Set<String> groups, Set<String> roles) {
+    final MetaAction metaAction = menu.getAction();
+    this.id = menu.getId();
+    this.name = menu.getName();
+    this.title = menu.getTitle();
+    this.order = menu.getOrder();
+    this.icon = menu.getIcon();
+    this.iconBackground = menu.getIconBackground();
+    this.tag = menu.getTag();
+    this.tagGet = menu.getTagGet();
+    this.tagCount = Boolean.TRUE.equals(menu.getTagCount());
+    this.tagStyle = menu.getTagStyle();
+    this.left = menu.getLeft();
+    this.mobile = menu.getMobile();
+    this.hidden = menu.getHidden();
+    this.moduleToCheck = menu.getModuleToCheck();
+    this.conditionToCheck = menu.getConditionToCheck();
+    this.action = metaAction == null ? null : metaAction.getName();
+    this.actionModel = metaAction == null ? null : metaAction.getModel();
+    this.userId = menu.getUser() == null ? null : menu.getUser().getId();
+    this.parent = parent;
+    this.groups = groups;
+    this.roles = roles;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public Integer getOrder() {
+    return order;
+  }
+
+  public String getIcon() {
+    return icon;
+  }
+
+  public String getIconBackground() {
+    return iconBackground;
+  }
+
+  public String getTag() {
+    return tag;
+  }
+
+  public String getTagGet() {
+    return tagGet;
+  }
+
+  public boolean getTagCount() {
+    return tagCount;
+  }
+
+  public String getTagStyle() {
+    return tagStyle;
+  }
+
+  public Boolean getLeft() {
+    return left;
+  }
+
+  public Boolean getMobile() {
+    return mobile;
+  }
+
+  public Boolean getHidden() {
+    return hidden;
+  }
+
+  public String getModuleToCheck() {
+    return moduleToCheck;
+  }
+
+  public String getConditionToCheck() {
+    return conditionToCheck;
+  }
+
+  /**
+   * Get the name of the menu action.
+   *
+   * @return action name or null if the menu has no action
+   */
+  public String getAction() {
+    return action;
+  }
+
+  /**
+   * Get the model of the menu action.
+   *
+   * @return the model name or null
+   */
+  public String getActionModel() {
+    return actionModel;
+  }
+
+  /**
+   * Get the id of the user owning the menu.
+   *
+   * @return the user id or null if the menu is not a user menu
+   */
+  public Long getUserId() {
+    return userId;
+  }
+
+  public MenuEntry getParent() {
+    return parent;
+  }
+
+  /**
+   * Check whether the menu shows a tag.
+   *
+   * @return true if the menu has a static tag, a tag method or a tag count
+   */
+  public boolean hasTag() {
+    return StringUtils.notEmpty(tag) || StringUtils.notEmpty(tagGet) || tagCount;
+  }
+
+  /**
+   * Check whether the menu is allowed by its groups and roles.
+   *
+   * @param admin whether the user is an administrator
+   * @param userGroup the user group code
+   * @param userRoles the user roles names
+   * @return true if allowed, false otherwise
+   */
+  boolean isAllowed(boolean admin, String userGroup, Collection<String> userRoles) {
+    return admin
+        || (groups != null && groups.contains(userGroup))
+        || (roles != null && !Collections.disjoint(userRoles, roles))
+        || (roles == null && groups == null && parent != null);
+  }
+
+  /**
+   * Check whether the menu is not hidden and its module to check is installed.
+   *
+   * @return true if visible, false otherwise
+   */
+  boolean isVisible() {
+    return !Boolean.TRUE.equals(hidden) && (isBlank(moduleToCheck) || isInstalled(moduleToCheck));
+  }
+}
@@ -20,10 +20,8 @@ package com.axelor.meta.service.menu;
 
 import com.axelor.app.internal.AppFilter;
 import com.axelor.auth.db.User;
-import com.axelor.common.ObjectUtils;
 import com.axelor.common.StringUtils;
 import com.axelor.db.JPA;
-import com.axelor.meta.db.MetaMenu;
 import com.axelor.meta.schema.views.MenuItem;
 import com.axelor.meta.service.tags.TagsService;
 import java.util.ArrayList;
@@ -36,15 +34,13 @@ import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.persistence.TypedQuery;
 import org.hibernate.jpa.QueryHints;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class MenuService {
 
-  private static final Logger LOG = LoggerFactory.getLogger(MenuService.class);
-
   @Inject private TagsService tagsService;
 
+  @Inject private MenuCache menuCache;
+
   /**
    * Get menus for the given user
    *
@@ -57,54 +53,23 @@ public class MenuService {
       return Collections.emptyList();
     }
 
-    // fetch meta menu
-    final List<MetaMenu> metaMenus = MenuUtils.fetchMetaMenu(null);
-    if (ObjectUtils.isEmpty(metaMenus)) {
+    // fetch allowed menus
+    final Map<String, MenuEntry> menus = menuCache.get(user);
+    if (menus.isEmpty()) {
       return Collections.emptyList();
     }
 
     final Map<String, String> helps = new HashMap<>();
-    List<MenuItem> menuItems = new ArrayList<>();
-    MenuChecker checker = new MenuChecker(metaMenus, user);
+    final List<MenuItem> menuItems = new ArrayList<>(menus.size());
 
     // pre-build menu helps dictionary
     if (!Boolean.TRUE.equals(user.getNoHelp())) {
       helps.putAll(getHelps());
     }
 
-    // build tree
-    MenuNode rootNode = MenuNode.buildTree(metaMenus);
-
-    // traverse tree
-    rootNode.traverse(
-        new SimpleMenuNodeVisitor() {
-
-          /** Check whether the node can be visited */
-          @Override
-          public MenuNodeResult preChildVisit(MenuNode childNode) {
-            try {
-              if (checker.isAllowed(childNode.getMetaMenu())
-                  && checker.canShow(childNode.getMetaMenu())) {
-                return MenuNodeResult.CONTINUE;
-              }
-            } catch (Exception e) {
-              LOG.error(
-                  "Unable to evaluate menu {} : {}",
-                  childNode.getMetaMenu().getName(),
-                  e.getMessage());
-            }
-            return MenuNodeResult.TERMINATE;
-          }
-
-          /** On each node visited */
-          @Override
-          public MenuNodeResult visit(MenuNode node) {
-            if (!node.isRoot()) {
-              menuItems.add(buildMenuItem(node.getMetaMenu(), helps));
-            }
-            return MenuNodeResult.CONTINUE;
-          }
-        });
+    for (MenuEntry menu : menus.values()) {
+      menuItems.add(buildMenuItem(menu, helps));
+    }
 
     menuItems.sort(new MenuItemComparator());
     return menuItems;
@@ -133,13 +98,13 @@ public class MenuService {
   }
 
   /**
-   * Create {@link MenuItem} from {@link MetaMenu}
+   * Create {@link MenuItem} from {@link MenuEntry}
    *
-   * @param menu the {@link MetaMenu}
+   * @param menu the {@link MenuEntry}
    * @param helps helps dictionary
    * @return created {@link MenuItem}
    */
-  private MenuItem buildMenuItem(MetaMenu menu, Map<String, String> helps) {
+  private MenuItem buildMenuItem(MenuEntry menu, Map<String, String> helps) {
 
     MenuItem item = new MenuItem();
     item.setName(menu.getName());
@@ -163,9 +128,7 @@ public class MenuService {
       item.setParent(menu.getParent().getName());
     }
 
-    if (menu.getAction() != null) {
-      item.setAction(menu.getAction().getName());
-    }
+    item.setAction(menu.getAction());
 
     item.setTag(tagsService.getTagValue(menu));
 
@@ -19,6 +19,7 @@
 package com.axelor.meta.service.tags;
 
 import com.google.common.base.MoreObjects;
+import java.util.Objects;
 
 public class TagItem {
 
@@ -56,6 +57,25 @@ public class TagItem {
     this.style = style;
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof TagItem)) {
+      return false;
+    }
+    final TagItem other = (TagItem) obj;
+    return Objects.equals(name, other.name)
+        && Objects.equals(value, other.value)
+        && Objects.equals(style, other.style);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, value, style);
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
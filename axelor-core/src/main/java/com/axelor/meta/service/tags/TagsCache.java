@@ -0,0 +1,300 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.service.tags;
+
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.db.EntityHelper;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.event.Observes;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.inject.Singleton;
+
+/**
+ * Cache of the menu tag values and counts.
+ *
+ * <p>Each cached value depends on a set of models. The values are invalidated once a transaction
+ * changing records of these models is completed, and the listeners are notified of the changed
+ * models so that the new values can be pushed to the clients. Values can also depend on the
+ * current date or on records of other models, so they expire after some time anyway.
+ *
+ * <p>Values can also depend on narrower names given by the resolvers of the changed records, for
+ * example names specific to the users concerned by a change, so that they are not invalidated by
+ * every change of the model.
+ */
+@Singleton
+public class TagsCache {
+
+  private static final ThreadLocal<Set<String>> RECORDED = new ThreadLocal<>();
+
+  private static class Entry {
+
+    private final Object tenant;
+    private final Set<String> models;
+    private final Object value;
+
+    private Entry(Object tenant, Set<String> models, Object value) {
+      this.tenant = tenant;
+      this.models = models;
+      this.value = value;
+    }
+  }
+
+  private final Cache<List<Object>, Entry> cache;
+
+  // keys of the cached values depending on each tenant and model
+  private final Map<List<Object>, Set<List<Object>>> dependents = new ConcurrentHashMap<>();
+
+  // number of changes of each model
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  private final List<BiConsumer<String, Set<String>>> listeners = new CopyOnWriteArrayList<>();
+
+  private final Map<String, List<Function<Collection<Model>, Set<String>>>> resolvers =
+      new ConcurrentHashMap<>();
+
+  public TagsCache() {
+    final AppSettings settings = AppSettings.get();
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(settings.getInt(AvailableAppSettings.APPLICATION_TAGS_CACHE_SIZE, 10000))
+            .expireAfterWrite(
+                settings.getInt(AvailableAppSettings.APPLICATION_TAGS_CACHE_EXPIRE_TIME, 5),
+                TimeUnit.MINUTES)
+            .removalListener(
+                (RemovalNotification<List<Object>, Entry> notification) -> {
+                  if (notification.getCause() != RemovalCause.REPLACED) {
+                    unindex(notification.getKey(), notification.getValue());
+                  }
+                })
+            .build();
+  }
+
+  /**
+   * Get the cached value of the given key, computing it if required.
+   *
+   * @param <T> the type of the value
+   * @param key the cache key, the current tenant is added to it
+   * @param models names of the models the value depends on
+   * @param loader computes the value
+   * @return the value
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(List<Object> key, Set<String> models, Callable<T> loader) {
+    final Set<String> recorded = RECORDED.get();
+    if (recorded != null) {
+      recorded.addAll(models);
+    }
+
+    final String tenant = TenantResolver.currentTenantIdentifier();
+    final List<Object> fullKey = new ArrayList<>(key.size() + 1);
+    fullKey.add(tenant);
+    fullKey.addAll(key);
+
+    final long started = version(models);
+    final boolean[] loaded = {false};
+    final Entry entry;
+    try {
+      entry =
+          cache.get(
+              fullKey,
+              () -> {
+                loaded[0] = true;
+                return new Entry(tenant, models, loader.call());
+              });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+
+    if (loaded[0]) {
+      index(fullKey, entry);
+      // the value may have been computed before a concurrent change was committed
+      if (version(models) != started) {
+        cache.asMap().remove(fullKey, entry);
+      }
+    }
+
+    return (T) entry.value;
+  }
+
+  private void index(List<Object> key, Entry entry) {
+    for (String model : entry.models) {
+      dependents.compute(
+          Arrays.asList(entry.tenant, model),
+          (k, keys) -> {
+            final Set<List<Object>> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            result.add(key);
+            return result;
+          });
+    }
+  }
+
+  private void unindex(List<Object> key, Entry entry) {
+    if (key == null || entry == null) {
+      return;
+    }
+    for (String model : entry.models) {
+      dependents.computeIfPresent(
+          Arrays.asList(entry.tenant, model),
+          (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+          });
+    }
+  }
+
+  private long version(Set<String> models) {
+    long version = 0;
+    for (String model : models) {
+      final AtomicLong count = versions.get(model);
+      if (count != null) {
+        version += count.get();
+      }
+    }
+    return version;
+  }
+
+  /**
+   * Run the given task and get the models the values it gets from this cache depend on.
+   *
+   * @param task the task to run
+   * @return names of the models
+   */
+  public Set<String> record(Runnable task) {
+    final Set<String> last = RECORDED.get();
+    final Set<String> recorded = new HashSet<>();
+    RECORDED.set(recorded);
+    try {
+      task.run();
+    } finally {
+      if (last == null) {
+        RECORDED.remove();
+      } else {
+        last.addAll(recorded);
+        RECORDED.set(last);
+      }
+    }
+    return recorded;
+  }
+
+  /**
+   * Add a listener called with the tenant and the changed models when values are invalidated.
+   *
+   * @param listener the listener
+   */
+  public void addListener(BiConsumer<String, Set<String>> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Add a resolver giving the narrower names the values can depend on from the changed records of
+   * the given model.
+   *
+   * <p>The values depending on the resolved names are invalidated in addition to the values
+   * depending on the model.
+   *
+   * @param model the model of the changed records
+   * @param resolver gets the names from the changed records, called before the transaction
+   *     changing them is completed
+   */
+  public void addResolver(
+      Class<? extends Model> model, Function<Collection<Model>, Set<String>> resolver) {
+    resolvers.computeIfAbsent(model.getName(), k -> new CopyOnWriteArrayList<>()).add(resolver);
+  }
+
+  /**
+   * Invalidate the values depending on the given models.
+   *
+   * @param tenant the tenant of the changed records
+   * @param models names of the changed models
+   */
+  public void invalidate(String tenant, Set<String> models) {
+    boolean removed = false;
+    for (String model : models) {
+      versions.computeIfAbsent(model, k -> new AtomicLong()).incrementAndGet();
+      final Set<List<Object>> keys = dependents.remove(Arrays.asList(tenant, model));
+      if (keys != null) {
+        for (List<Object> key : keys) {
+          removed |= cache.asMap().remove(key) != null;
+        }
+      }
+    }
+
+    if (removed) {
+      listeners.forEach(listener -> listener.accept(tenant, models));
+    }
+  }
+
+  /** Invalidate all the values. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  void onBeforeTransactionComplete(@Observes BeforeTransactionComplete event) {
+    final Map<String, List<Model>> changed = new HashMap<>();
+
+    Stream.of(event.getUpdated(), event.getDeleted())
+        .flatMap(Set::stream)
+        .forEach(
+            entity ->
+                changed
+                    .computeIfAbsent(
+                        EntityHelper.getEntityClass(entity).getName(), k -> new ArrayList<>())
+                    .add(entity));
+
+    if (changed.isEmpty()) {
+      return;
+    }
+
+    final Set<String> models = new HashSet<>(changed.keySet());
+    changed.forEach(
+        (model, entities) ->
+            resolvers
+                .getOrDefault(model, Collections.emptyList())
+                .forEach(resolver -> models.addAll(resolver.apply(entities))));
+
+    final String tenant = TenantResolver.currentTenantIdentifier();
+    JPA.runAfterCompletion(() -> invalidate(tenant, models));
+  }
+}
@@ -30,18 +30,20 @@ import com.axelor.meta.MetaStore;
 import com.axelor.meta.db.MetaAction;
 import com.axelor.meta.db.MetaMenu;
 import com.axelor.meta.schema.actions.ActionView;
-import com.axelor.meta.service.menu.MenuChecker;
-import com.axelor.meta.service.menu.MenuNode;
-import com.axelor.meta.service.menu.MenuUtils;
-import com.axelor.meta.service.menu.SimpleMenuNodeVisitor;
+import com.axelor.meta.service.menu.MenuCache;
+import com.axelor.meta.service.menu.MenuEntry;
 import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.filter.Filter;
 import com.axelor.rpc.filter.JPQLFilter;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +52,14 @@ public class TagsService {
 
   private static final Logger LOG = LoggerFactory.getLogger(TagsService.class);
 
+  private static final Pattern PARAM = Pattern.compile(":([\\w$]+)");
+
   @Inject private ActionExecutor actionExecutor;
 
+  @Inject private TagsCache tagsCache;
+
+  @Inject private MenuCache menuCache;
+
   public List<TagItem> get(List<String> names) {
     return get(names, AuthUtils.getUser());
   }
@@ -62,98 +70,56 @@ public class TagsService {
       return Collections.emptyList();
     }
 
-    // fetch menus
-    final List<MetaMenu> metaMenus = MenuUtils.fetchMetaMenu(names);
-    if (ObjectUtils.isEmpty(metaMenus)) {
-      return Collections.emptyList();
-    }
-
-    // add parent to metaMenu list in order to check perms and conditions
-    final List<MetaMenu> parentMetaMenus = new ArrayList<>();
-    for (MetaMenu metaMenu : metaMenus) {
-      while (metaMenu.getParent() != null) {
-        metaMenu = metaMenu.getParent();
-        if (!parentMetaMenus.contains(metaMenu)) {
-          parentMetaMenus.add(metaMenu);
-        }
+    final List<TagItem> tagItems = new ArrayList<>();
+    for (MenuEntry menu : menuCache.get(user, names).values()) {
+      if (menu.hasTag()) {
+        tagItems.add(new TagItem(menu.getName(), getTagValue(menu), menu.getTagStyle()));
       }
     }
-    metaMenus.addAll(parentMetaMenus);
-
-    List<TagItem> tagItems = new ArrayList<>();
-    MenuChecker checker = new MenuChecker(metaMenus, user);
-
-    // build tree
-    MenuNode rootNode = MenuNode.buildTree(metaMenus);
-
-    // traverse tree
-    rootNode.traverse(
-        new SimpleMenuNodeVisitor() {
-
-          /** Check whether the node can be visited */
-          @Override
-          public MenuNodeResult preChildVisit(MenuNode childNode) {
-            try {
-              if (checker.isAllowed(childNode.getMetaMenu())
-                  && checker.canShow(childNode.getMetaMenu())) {
-                return MenuNodeResult.CONTINUE;
-              }
-            } catch (Exception e) {
-              LOG.error(
-                  "Unable to evaluate menu {} : {}",
-                  childNode.getMetaMenu().getName(),
-                  e.getMessage());
-            }
-            return MenuNodeResult.TERMINATE;
-          }
-
-          /** On each node visited */
-          @Override
-          public MenuNodeResult visit(MenuNode node) {
-            MetaMenu metaMenu = node.getMetaMenu();
-            if (!node.isRoot() && hasTag(metaMenu)) {
-              tagItems.add(buildTagItem(node.getMetaMenu()));
-            }
-            return MenuNodeResult.CONTINUE;
-          }
-        });
 
     return tagItems;
   }
 
   /**
-   * Check whether the {@link MetaMenu} has tag
+   * Get the tag value of the given {@link MetaMenu}
    *
-   * @param metaMenu the meta menu to check
-   * @return true if the meta menu has tag, false otherwise
+   * @param item the meta menu
+   * @return value of the meta menu
    */
-  private boolean hasTag(MetaMenu metaMenu) {
-    return StringUtils.notEmpty(metaMenu.getTag())
-        || StringUtils.notEmpty(metaMenu.getTagGet())
-        || metaMenu.getTagCount();
+  public String getTagValue(MetaMenu item) {
+    final MetaAction action = item.getAction();
+    return getTagValue(
+        item.getName(),
+        item.getTag(),
+        item.getTagGet(),
+        Boolean.TRUE.equals(item.getTagCount()),
+        action == null ? null : action.getName(),
+        action == null ? null : action.getModel());
   }
 
   /**
-   * Build {@link TagItem} from the given {@link MetaMenu}
+   * Get the tag value of the given {@link MenuEntry}
    *
-   * @param metaMenu the meta menu
-   * @return created {@link TagItem}
+   * @param item the cached menu
+   * @return value of the menu
    */
-  private TagItem buildTagItem(MetaMenu metaMenu) {
-    return new TagItem(metaMenu.getName(), getTagValue(metaMenu), metaMenu.getTagStyle());
+  public String getTagValue(MenuEntry item) {
+    return getTagValue(
+        item.getName(),
+        item.getTag(),
+        item.getTagGet(),
+        item.getTagCount(),
+        item.getAction(),
+        item.getActionModel());
   }
 
-  /**
-   * Get the tag value of the given {@link MetaMenu}
-   *
-   * @param item the meta menu
-   * @return value of the meta menu
-   */
-  public String getTagValue(MetaMenu item) {
-
-    final String staticTag = item.getTag();
-    final String tagGetAction = item.getTagGet();
-    final Boolean hasTagCount = item.getTagCount();
+  private String getTagValue(
+      String name,
+      String staticTag,
+      String tagGetAction,
+      boolean hasTagCount,
+      String action,
+      String model) {
 
     if (staticTag != null) {
       return staticTag;
@@ -161,17 +127,17 @@ public class TagsService {
 
     try {
       if (tagGetAction != null) {
-        return callTagGet(item);
+        return callTagGet(tagGetAction);
       }
 
       if (hasTagCount) {
-        if (item.getAction() != null) {
-          return callTagCount(item);
+        if (action != null) {
+          return callTagCount(action, model);
         }
-        LOG.error("No action defined on menu {} to get tag count", item.getName());
+        LOG.error("No action defined on menu {} to get tag count", name);
       }
     } catch (Exception e) {
-      LOG.error("Unable to read tag for menu: {}", item.getName());
+      LOG.error("Unable to read tag for menu: {}", name);
       LOG.trace("Error", e);
     }
 
@@ -179,23 +145,23 @@ public class TagsService {
   }
 
   /**
-   * Call tag-count of the given {@link MetaMenu}
+   * Call tag-count of the given menu action
    *
-   * @param item the meta menu
-   * @return result of the meta menu tag-count
+   * @param action the menu action name
+   * @param model the menu action model
+   * @return result of the menu tag-count
    */
   @SuppressWarnings("all")
-  private String callTagCount(MetaMenu item) {
-    final MetaAction action = item.getAction();
-    final ActionView act = (ActionView) MetaStore.getAction(action.getName());
+  private String callTagCount(String action, String model) {
+    final ActionView act = (ActionView) MetaStore.getAction(action);
 
     if (act == null) {
       return null;
     }
 
     final ActionRequest request = new ActionRequest();
-    request.setAction(action.getName());
-    request.setModel(action.getModel());
+    request.setAction(action);
+    request.setModel(model);
     request.setData(new HashMap<>());
 
     final JpaSecurity security = Beans.get(JpaSecurity.class);
@@ -223,18 +189,64 @@ public class TagsService {
 
     final Filter filter = Filter.and(filters);
     final Map<String, Object> context = (Map) data.get("context");
-    return String.valueOf(filter.build(modelClass).bind(context).count());
+    final Long count =
+        tagsCache.get(
+            countKey(modelClass, filter, context),
+            Set.of(modelClass.getName()),
+            () -> filter.build(modelClass).bind(context).count());
+    return String.valueOf(count);
   }
 
   /**
-   * Call tag-get of the given {@link MetaMenu}
+   * Get the cache key of a tag count.
    *
-   * @param item the meta menu
-   * @return result of the meta menu tag-get
+   * <p>The key is made of the count query with the security filter of the user and the values of
+   * its parameters, so that users with the same permissions share the same count. Counts using
+   * special variables like <code>__user__</code> or <code>__date__</code> are cached per user and
+   * per day.
+   */
+  private List<Object> countKey(
+      Class<? extends Model> modelClass, Filter filter, Map<String, Object> context) {
+    final String query = filter.getQuery();
+    final List<Object> key = new ArrayList<>();
+    key.add(modelClass.getName());
+    key.add(query);
+
+    boolean special = false;
+    for (Object param : filter.getParams()) {
+      special = special || param instanceof String && isSpecial((String) param);
+      key.add(param);
+    }
+
+    final Matcher matcher = PARAM.matcher(query);
+    while (matcher.find()) {
+      final String name = matcher.group(1);
+      special = special || isSpecial(name) || name.indexOf('$') >= 0;
+      key.add(context == null ? null : context.get(name));
+    }
+
+    if (special) {
+      final User user = AuthUtils.getUser();
+      key.add(user == null ? null : user.getId());
+      key.add(LocalDate.now());
+    }
+
+    return key;
+  }
+
+  private boolean isSpecial(String name) {
+    return name.length() > 4 && name.startsWith("__") && name.endsWith("__");
+  }
+
+  /**
+   * Call tag-get of a menu
+   *
+   * @param tagGet the tag-get action
+   * @return result of the menu tag-get
    */
-  private String callTagGet(MetaMenu item) {
+  private String callTagGet(String tagGet) {
     final ActionRequest request = new ActionRequest();
-    request.setAction(item.getTagGet());
+    request.setAction(tagGet);
     return (String) actionExecutor.execute(request).getItem(0);
   }
 }
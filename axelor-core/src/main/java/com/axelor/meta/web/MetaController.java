@@ -223,6 +223,7 @@ public class MetaController {
       }
     }
     MetaStore.clear();
+    XMLViews.clearCache();
   }
 
   public void removeUserCustomViews(ActionRequest request, ActionResponse response) {
@@ -261,6 +262,7 @@ public class MetaController {
       final Instant startInstant = Instant.now();
       moduleManager.restoreMeta();
       MetaStore.clear();
+      XMLViews.clearCache();
       I18nBundle.invalidate();
       final Duration duration = Duration.between(startInstant, Instant.now());
       final String durationTime =
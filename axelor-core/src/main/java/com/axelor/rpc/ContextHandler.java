@@ -30,10 +30,13 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -66,6 +69,9 @@ public class ContextHandler<T> {
 
   private static final Logger log = LoggerFactory.getLogger(ContextHandler.class);
 
+  // number of managed entities loaded by the handlers of the current thread
+  private static final ThreadLocal<long[]> LOADED = ThreadLocal.withInitial(() -> new long[1]);
+
   private final PropertyChangeSupport changeListeners;
 
   private final Map<String, Object> values;
@@ -90,6 +96,22 @@ public class ContextHandler<T> {
     this.changeListeners = new PropertyChangeSupport(this);
   }
 
+  /**
+   * Get the number of managed entities loaded by the context handlers of the current thread.
+   *
+   * <p>The count is never reset, the difference of two calls gives the number of entities loaded
+   * in between, for example, by an action.
+   *
+   * @return the number of loaded entities
+   */
+  public static long getLoadedCount() {
+    return LOADED.get()[0];
+  }
+
+  private static void loaded(int count) {
+    LOADED.get()[0] += count;
+  }
+
   public void addChangeListener(PropertyChangeListener listener) {
     changeListeners.addPropertyChangeListener(listener);
   }
@@ -109,6 +131,7 @@ public class ContextHandler<T> {
     final Long id = findId(values);
     if (id != null) {
       managedEntity = JPA.em().find(beanClass, id);
+      loaded(managedEntity == null ? 0 : 1);
     }
     searched = true;
     return managedEntity;
@@ -147,7 +170,62 @@ public class ContextHandler<T> {
   }
 
   @SuppressWarnings("unchecked")
-  private Object createOrFind(Property property, Object item) {
+  private Long findUnchangedId(Object item) {
+    Long id = null;
+    if (item instanceof Map && !((Map<String, Object>) item).containsKey(FIELD_VERSION)) {
+      id = findId((Map<String, Object>) item);
+    } else if (item instanceof Number) {
+      id = ((Number) item).longValue();
+    }
+    return id == null || id <= 0 ? null : id;
+  }
+
+  /**
+   * Load the managed instances of the unchanged items of a collection with a single query.
+   *
+   * @param property the collection field
+   * @param items the collection items
+   * @return map of the loaded instances by id
+   */
+  @SuppressWarnings("unchecked")
+  private Map<Long, Object> findAll(Property property, Collection<?> items) {
+    final List<Long> ids = new ArrayList<>();
+    for (Object item : items) {
+      final Long id = findUnchangedId(item);
+      if (id != null) {
+        ids.add(id);
+      }
+    }
+
+    // not worth a batch
+    if (ids.size() < 2) {
+      return Collections.emptyMap();
+    }
+
+    // checks the persistence context and the second-level cache first
+    final Map<Long, Object> found = new HashMap<>();
+    for (Model bean : JPA.findByIds((Class<Model>) property.getTarget(), ids)) {
+      if (bean != null) {
+        found.put(bean.getId(), bean);
+      }
+    }
+
+    loaded(found.size());
+    return found;
+  }
+
+  private Object find(Property property, Object id, Map<Long, Object> found) {
+    final Object bean = found.get(id);
+    if (bean != null) {
+      return bean;
+    }
+    final Object managed = JPA.em().find(property.getTarget(), id);
+    loaded(managed == null ? 0 : 1);
+    return managed;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object createOrFind(Property property, Object item, Map<Long, Object> found) {
     if (item == null || item instanceof Model) {
       return item;
     }
@@ -159,7 +237,7 @@ public class ContextHandler<T> {
         return ContextHandlerFactory.newHandler(property.getTarget(), map).getProxy();
       }
       // use managed instance
-      final Object bean = JPA.em().find(property.getTarget(), id);
+      final Object bean = find(property, id, found);
       if (map.containsKey(FIELD_CID)) {
         Mapper.of(property.getTarget()).set(bean, FIELD_CID, map.get(FIELD_CID));
       }
@@ -169,7 +247,8 @@ public class ContextHandler<T> {
       return bean;
     }
     if (item instanceof Number) {
-      return JPA.em().find(property.getTarget(), item);
+      final Long id = findUnchangedId(item);
+      return id == null ? JPA.em().find(property.getTarget(), item) : find(property, id, found);
     }
     throw new IllegalArgumentException("Invalid collection item for field: " + property.getName());
   }
@@ -179,11 +258,14 @@ public class ContextHandler<T> {
       return value;
     }
     if (property.isCollection() && value instanceof Collection) {
+      final Collection<?> items = (Collection<?>) value;
+      final Map<Long, Object> found = findAll(property, items);
       value =
-          ((Collection<?>) value)
-              .stream().map(item -> createOrFind(property, item)).collect(Collectors.toList());
+          items.stream()
+              .map(item -> createOrFind(property, item, found))
+              .collect(Collectors.toList());
     } else if (property.isReference()) {
-      value = createOrFind(property, value);
+      value = createOrFind(property, value, Collections.emptyMap());
     }
     return value;
   }
@@ -27,10 +27,10 @@ import com.axelor.db.Model;
 import com.axelor.inject.Beans;
 import com.axelor.meta.MetaPermissions;
 import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.meta.loader.ViewJsonCache;
 import com.axelor.meta.schema.views.AbstractWidget;
 import com.axelor.meta.schema.views.Help;
 import com.axelor.meta.schema.views.SimpleWidget;
-import com.axelor.script.ScriptHelper;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.BeanDescription;
@@ -153,13 +153,7 @@ public class ObjectMapperProvider implements Provider<ObjectMapper> {
         return true;
       }
 
-      final Request request = Request.current();
-      if (request == null) {
-        return true;
-      }
-
-      final ScriptHelper helper = request.getScriptHelper();
-      return helper.test(condition);
+      return ViewJsonCache.test(condition);
     }
 
     private boolean hasAccess(AbstractWidget widget) {
@@ -24,6 +24,7 @@ import com.axelor.script.CompositeScriptHelper;
 import com.axelor.script.ScriptBindings;
 import com.axelor.script.ScriptHelper;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +59,30 @@ public class Request {
 
   private boolean translate;
 
+  private List<Object> cursor;
+
+  private CountMode countMode;
+
+  /** How to count the total number of records on search. */
+  public enum CountMode {
+
+    /** Count all the matched records. */
+    @JsonProperty("exact")
+    EXACT,
+
+    /** Use the database statistics when possible, else count up to a limit. */
+    @JsonProperty("estimate")
+    ESTIMATE,
+
+    /** Count the matched records up to a limit. */
+    @JsonProperty("capped")
+    CAPPED,
+
+    /** Don't count the records. */
+    @JsonProperty("none")
+    NONE
+  }
+
   public static Request current() {
     return CURRENT.get();
   }
@@ -247,4 +272,28 @@ public class Request {
   public void setTranslate(boolean translate) {
     this.translate = translate;
   }
+
+  /**
+   * Get the sort key values of the last record of the previous page.
+   *
+   * <p>If not null, search uses keyset pagination instead of offset. An empty list requests the
+   * first page.
+   *
+   * @return the sort key values
+   */
+  public List<Object> getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(List<Object> cursor) {
+    this.cursor = cursor;
+  }
+
+  public CountMode getCountMode() {
+    return countMode == null ? CountMode.EXACT : countMode;
+  }
+
+  public void setCountMode(CountMode countMode) {
+    this.countMode = countMode;
+  }
 }
@@ -42,6 +42,7 @@ import com.axelor.db.Repository;
 import com.axelor.db.ValueEnum;
 import com.axelor.db.annotations.Widget;
 import com.axelor.db.hibernate.type.JsonFunction;
+import com.axelor.db.mapper.Adapter;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.db.mapper.Property;
 import com.axelor.db.mapper.PropertyType;
@@ -52,14 +53,12 @@ import com.axelor.events.PreRequest;
 import com.axelor.events.RequestEvent;
 import com.axelor.events.qualifiers.EntityTypes;
 import com.axelor.i18n.I18n;
-import com.axelor.i18n.I18nBundle;
 import com.axelor.i18n.L10n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.MetaPermissions;
 import com.axelor.meta.MetaStore;
 import com.axelor.meta.db.MetaJsonRecord;
-import com.axelor.meta.db.MetaTranslation;
 import com.axelor.meta.schema.views.Selection;
 import com.axelor.rpc.filter.Filter;
 import com.axelor.rpc.filter.JPQLFilter;
@@ -75,6 +74,7 @@ import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import com.google.inject.TypeLiteral;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -95,7 +95,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -328,15 +327,18 @@ public class Resource<T extends Model> {
         sortBy.add(spec);
         continue;
       }
+      boolean sortedBySelf = true;
       if (property.isReference()) {
         // use name field to sort many-to-one column
         Mapper m = Mapper.of(property.getTarget());
         Property p = m.getNameField();
         if (p != null) {
           spec = spec + "." + p.getName();
+          sortedBySelf = false;
         }
       }
-      if (property.isUnique() && property.isRequired()) {
+      // the name field of a unique reference is not unique itself, id is still required
+      if (sortedBySelf && property.isUnique() && property.isRequired()) {
         unique = true;
       }
       sortBy.add(spec);
@@ -471,12 +473,35 @@ public class Resource<T extends Model> {
     String[] dottedFields = null;
     try {
       if (limit > 0) {
-        response.setTotal(query.count());
+        count(query, request, response);
       }
+
+      // keyset pagination
+      final List<String> keys = getKeysetNames(request);
+      if (keys != null) {
+        if (!request.getCursor().isEmpty()) {
+          query.after(getKeysetValues(keys, request.getCursor()));
+        }
+        offset = 0;
+      }
+
       if (request.getFields() != null) {
-        Query<?>.Selector selector = query.select(request.getFields().toArray(new String[] {}));
+        final List<String> names = new ArrayList<>(request.getFields());
+        final List<String> extra = new ArrayList<>();
+        if (keys != null) {
+          keys.stream().filter(key -> !names.contains(key)).forEach(extra::add);
+          names.addAll(extra);
+        }
+        Query<?>.Selector selector =
+            query.select(names.toArray(new String[] {})).batchCollections();
         LOG.debug("JPQL: {}", selector);
         data = selector.fetch(limit, offset);
+        if (keys != null && limit > 0 && data.size() == limit) {
+          response.setCursor(getKeysetCursor(data.get(data.size() - 1), keys));
+        }
+        if (!extra.isEmpty()) {
+          data.forEach(item -> ((Map) item).keySet().removeAll(extra));
+        }
         dottedFields =
             request.getFields().stream()
                 .filter(field -> field.contains("."))
@@ -484,6 +509,9 @@ public class Resource<T extends Model> {
       } else {
         LOG.debug("JPQL: {}", query);
         data = query.fetch(limit, offset);
+        if (keys != null && limit > 0 && data.size() == limit) {
+          response.setCursor(getKeysetCursor(data.get(data.size() - 1), keys));
+        }
       }
       if (limit <= 0) {
         response.setTotal(data.size());
@@ -538,6 +566,108 @@ public class Resource<T extends Model> {
     return response;
   }
 
+  private void count(Query<?> query, Request request, Response response) {
+    switch (request.getCountMode()) {
+      case NONE:
+        break;
+      case ESTIMATE:
+        response.setTotal(query.estimateCount(SEARCH_COUNT_LIMIT));
+        response.setEstimated(true);
+        break;
+      case CAPPED:
+        final long total = query.count(SEARCH_COUNT_LIMIT);
+        response.setTotal(total);
+        if (total > SEARCH_COUNT_LIMIT) {
+          response.setEstimated(true);
+        }
+        break;
+      default:
+        response.setTotal(query.count());
+    }
+  }
+
+  /**
+   * Get the names of the sort key fields if keyset pagination can be used.
+   *
+   * <p>Keyset pagination is not used with translated sorting as the sort keys are not the field
+   * values, or if the cursor has null values as they are not comparable. It is also not used if a
+   * sort key can be null, as the rows with null keys would never match the keyset condition; offset
+   * pagination is used instead.
+   */
+  @Nullable
+  private List<String> getKeysetNames(Request request) {
+    final List<Object> cursor = request.getCursor();
+    if (cursor == null || request.isTranslate() || cursor.contains(null)) {
+      return null;
+    }
+    final List<String> names =
+        getSortBy(request).stream()
+            .map(spec -> spec.startsWith("-") ? spec.substring(1) : spec)
+            .collect(Collectors.toList());
+    return names.stream().allMatch(this::isNotNull) ? names : null;
+  }
+
+  private boolean isNotNull(String path) {
+    Mapper mapper = Mapper.of(model);
+    for (String name : Splitter.on('.').split(path)) {
+      final Property property = mapper == null ? null : mapper.getProperty(name);
+      if (property == null || !(property.isPrimary() || property.isRequired())) {
+        return false;
+      }
+      mapper = property.getTarget() == null ? null : Mapper.of(property.getTarget());
+    }
+    return true;
+  }
+
+  private Object[] getKeysetValues(List<String> names, List<Object> cursor) {
+    final Object[] values = cursor.toArray();
+    for (int i = 0; i < values.length && i < names.size(); i++) {
+      final Property property = findProperty(names.get(i));
+      if (property != null) {
+        values[i] =
+            Adapter.adapt(values[i], property.getJavaType(), property.getJavaType(), null);
+      }
+    }
+    return values;
+  }
+
+  @Nullable
+  @SuppressWarnings("rawtypes")
+  private List<Object> getKeysetCursor(Object item, List<String> names) {
+    final List<Object> values = new ArrayList<>();
+    for (String name : names) {
+      Object value = item;
+      if (item instanceof Map) {
+        value = ((Map) item).get(name);
+      } else {
+        for (String part : Splitter.on('.').split(name)) {
+          if (value == null) break;
+          value = Mapper.of(EntityHelper.getEntityClass(value)).get(value, part);
+        }
+      }
+      // null values can't be used as sort keys
+      if (value == null) {
+        return null;
+      }
+      values.add(value instanceof Model ? ((Model) value).getId() : value);
+    }
+    return values;
+  }
+
+  @Nullable
+  private Property findProperty(String path) {
+    Mapper mapper = Mapper.of(model);
+    Property property = null;
+    for (String name : Splitter.on('.').split(path)) {
+      property = mapper == null ? null : mapper.getProperty(name);
+      if (property == null) {
+        return null;
+      }
+      mapper = property.getTarget() == null ? null : Mapper.of(property.getTarget());
+    }
+    return property;
+  }
+
   @SuppressWarnings("all")
   private void doChildCount(Request request, List<?> result)
       throws NullPointerException, ClassCastException {
@@ -600,6 +730,12 @@ public class Resource<T extends Model> {
     }
   }
 
+  private static final int DEFAULT_SEARCH_COUNT_LIMIT = 10000;
+
+  private static final int SEARCH_COUNT_LIMIT =
+      AppSettings.get()
+          .getInt(AvailableAppSettings.DATA_SEARCH_COUNT_LIMIT, DEFAULT_SEARCH_COUNT_LIMIT);
+
   private static final int DEFAULT_EXPORT_MAX_SIZE = -1;
   private static final int DEFAULT_EXPORT_FETCH_SIZE = 500;
   private static final boolean DEFAULT_EXPORT_COLLECTIONS_ENABLED = false;
@@ -626,15 +762,7 @@ public class Resource<T extends Model> {
   }
 
   public Response export(Request request, Charset charset, Locale locale, char separator) {
-    security.get().check(JpaSecurity.CAN_READ, model);
-    security.get().check(JpaSecurity.CAN_EXPORT, model);
-
-    if (LOG.isTraceEnabled()) {
-      LOG.trace("Exporting '{}' with {}", model.getName(), request.getData());
-    } else {
-      LOG.debug("Exporting '{}'", model.getName());
-    }
-
+    checkExport(request);
     firePreRequestEvent(RequestEvent.EXPORT, request);
 
     final Response response = new Response();
@@ -643,12 +771,7 @@ public class Resource<T extends Model> {
     try {
       final java.nio.file.Path tempFile = MetaFiles.createTempFile(null, ".csv");
       try (final OutputStream os = new FileOutputStream(tempFile.toFile())) {
-        try (final Writer writer = new OutputStreamWriter(os, charset)) {
-          if (StandardCharsets.UTF_8.equals(charset)) {
-            writer.write('\ufeff');
-          }
-          data.put("exportSize", export(request, writer, locale, separator));
-        }
+        data.put("exportSize", export(request, os, charset, locale, separator));
       }
       data.put("fileName", tempFile.toFile().getName());
       response.setData(data);
@@ -661,6 +784,60 @@ public class Resource<T extends Model> {
     return response;
   }
 
+  /**
+   * Export the matched records as CSV directly to the given output stream.
+   *
+   * <p>Unlike {@link #export(Request, Charset, Locale, char)}, no temporary file is created, the
+   * records are read with a forward only cursor and written to the output as they are read.
+   *
+   * @param request the export request
+   * @param output the output stream, not closed by this method
+   * @param charset the charset
+   * @param locale the locale used to format values
+   * @param separator the column separator
+   * @return the response with the number of exported records
+   * @throws IOException if unable to write to the output
+   */
+  public Response exportStream(
+      Request request, OutputStream output, Charset charset, Locale locale, char separator)
+      throws IOException {
+    checkExport(request);
+    firePreRequestEvent(RequestEvent.EXPORT, request);
+
+    final Response response = new Response();
+    final int count = export(request, output, charset, locale, separator);
+
+    response.setData(ImmutableMap.of("exportSize", count));
+    response.setTotal(count);
+
+    firePostRequestEvent(RequestEvent.EXPORT, request, response);
+
+    return response;
+  }
+
+  private void checkExport(Request request) {
+    security.get().check(JpaSecurity.CAN_READ, model);
+    security.get().check(JpaSecurity.CAN_EXPORT, model);
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Exporting '{}' with {}", model.getName(), request.getData());
+    } else {
+      LOG.debug("Exporting '{}'", model.getName());
+    }
+  }
+
+  private int export(
+      Request request, OutputStream output, Charset charset, Locale locale, char separator)
+      throws IOException {
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(output, charset));
+    if (StandardCharsets.UTF_8.equals(charset)) {
+      writer.write('\ufeff');
+    }
+    final int count = export(request, writer, locale, separator);
+    writer.flush();
+    return count;
+  }
+
   private static final Set<String> EXCLUDED_EXPORT_TYPES =
       ImmutableSet.of("panel", "button", "label", "spacer", "separator");
 
@@ -669,10 +846,7 @@ public class Resource<T extends Model> {
       throws IOException {
 
     List<String> fields = request.getFields();
-    List<String> header = new ArrayList<>();
-    List<String> names = new ArrayList<>();
-    Set<String> translatableNames = new HashSet<>();
-    Map<Integer, Map<String, String>> selection = new HashMap<>();
+    List<ExportColumn> columns = new ArrayList<>();
     Map<String, Map<String, Object>> jsonFieldsMap = new HashMap<>();
 
     Mapper mapper = Mapper.of(model);
@@ -806,6 +980,8 @@ public class Resource<T extends Model> {
         title = Inflector.getInstance().humanize(prop.getName());
       }
 
+      final boolean relational = prop.isReference() || prop.isCollection();
+
       if (prop.isReference()) {
         prop = Mapper.of(prop.getTarget()).getNameField();
         if (prop == null) {
@@ -817,143 +993,138 @@ public class Resource<T extends Model> {
         if (prop == null) {
           continue;
         }
-      } else if (options != null && !options.isEmpty()) {
-        Map<String, String> map = new HashMap<>();
+      }
+
+      final ExportColumn column = new ExportColumn(name, getTranslation(bundle, title));
+
+      if (!relational && options != null && !options.isEmpty()) {
+        column.selection = new HashMap<>();
         for (Selection.Option option : options) {
           final String localizedTitle = getTranslation(bundle, option.getTitle());
-          map.put(option.getValue(), localizedTitle);
+          column.selection.put(option.getValue(), localizedTitle);
         }
-        selection.put(header.size(), map);
       }
 
-      title = getTranslation(bundle, title);
+      final Mapper target = getMapper(mapper, name);
+      if (target != null && target.getNameField() != null) {
+        column.nameField = target.getNameField().getName();
+      }
 
-      names.add(name);
-      header.add(escapeCsv(title));
+      column.translatable =
+          prop.isTranslatable()
+              || (prop.isCollection()
+                  && Mapper.of(prop.getTarget()).getNameField().isTranslatable());
 
-      if (prop.isTranslatable()
-          || (prop.isCollection() && Mapper.of(prop.getTarget()).getNameField().isTranslatable())) {
-        translatableNames.add(name);
-      }
+      columns.add(column);
     }
 
-    writer.write(Joiner.on(separator).join(header));
-
-    int limit =
-        EXPORT_MAX_SIZE > 0 ? Math.min(EXPORT_FETCH_SIZE, EXPORT_MAX_SIZE) : EXPORT_FETCH_SIZE;
-    int offset = 0;
-    int count = 0;
+    writer.write(
+        columns.stream()
+            .map(column -> escapeCsv(column.title))
+            .collect(Collectors.joining(String.valueOf(separator))));
 
     request.setTranslate(false);
     Query<?> query = getQuery(request);
-    Query<?>.Selector selector = query.select(names.toArray(new String[0]));
-
-    List<Map> data = selector.fetch(limit, offset);
+    Query<?>.Selector selector =
+        query
+            .select(columns.stream().map(column -> column.name).toArray(String[]::new))
+            .fetchSize(EXPORT_FETCH_SIZE);
 
     final L10n formatter = L10n.getInstance(locale);
+    final int limit = EXPORT_MAX_SIZE > 0 ? EXPORT_MAX_SIZE : 0;
 
-    while (!data.isEmpty()) {
-      for (Map item : data) {
-        Map<String, Object> row = (Map<String, Object>) item;
-        List<String> line = new ArrayList<>();
-        int index = 0;
-        for (String field : names) {
-          Object rowValue = row.get(field);
-          Object objValue = rowValue == null ? "" : rowValue;
-
-          String strValue = null;
-          if (objValue instanceof List) {
-            List<String> parts = new ArrayList<>();
-            String nameField = getMapper(mapper, field).getNameField().getName();
-            for (Map<String, Object> itemVal : (List<Map<String, Object>>) objValue) {
-              parts.add(
-                  format(
-                      itemVal.get(nameField),
-                      translatableNames,
-                      formatter,
-                      names,
-                      index,
-                      bundle,
-                      selection));
-            }
-            strValue = Joiner.on(EXPORT_COLLECTION_SEPARATOR).join(parts);
-          } else {
-            if (objValue instanceof Map) {
-              objValue =
-                  ((Map<String, Object>) objValue)
-                      .get(getMapper(mapper, field).getNameField().getName());
-            }
-            strValue =
-                format(objValue, translatableNames, formatter, names, index, bundle, selection);
-          }
+    int count = 0;
 
-          line.add(escapeCsv(strValue.toString()));
-          ++index;
+    try (Stream<Map> data = selector.fetchStream(limit, 0)) {
+      for (Iterator<Map> iter = data.iterator(); iter.hasNext(); ) {
+        Map<String, Object> row = (Map<String, Object>) iter.next();
+        writer.write('\n');
+        for (int index = 0; index < columns.size(); index++) {
+          final ExportColumn column = columns.get(index);
+          if (index > 0) {
+            writer.write(separator);
+          }
+          writer.write(escapeCsv(column.format(row.get(column.name), formatter, bundle)));
         }
-        writer.write("\n");
-        writer.write(Joiner.on(separator).join(line));
+        count++;
       }
+    }
 
-      count += data.size();
+    return count;
+  }
 
-      int nextLimit = limit;
-      if (EXPORT_MAX_SIZE > -1) {
-        if (count >= EXPORT_MAX_SIZE) {
-          break;
-        }
-        nextLimit = Math.min(limit, EXPORT_MAX_SIZE - count);
-      }
+  /** Export column with the precomputed selection and translation settings. */
+  private final class ExportColumn {
+
+    private final String name;
+    private final String title;
+    private Map<String, String> selection;
+    private boolean translatable;
+    private String nameField;
+    private Map<Enum<?>, String> enumTitles;
 
-      offset += limit;
-      data = selector.fetch(nextLimit, offset);
+    private ExportColumn(String name, String title) {
+      this.name = name;
+      this.title = title;
     }
 
-    Response response = new Response();
-    response.setTotal(count);
+    @SuppressWarnings("unchecked")
+    private String format(Object rowValue, L10n formatter, ResourceBundle bundle) {
+      final Object objValue = rowValue == null ? "" : rowValue;
 
-    return count;
-  }
+      if (objValue instanceof List) {
+        List<String> parts = new ArrayList<>();
+        for (Map<String, Object> itemVal : (List<Map<String, Object>>) objValue) {
+          parts.add(formatValue(itemVal.get(nameField), formatter, bundle));
+        }
+        return Joiner.on(EXPORT_COLLECTION_SEPARATOR).join(parts);
+      }
 
-  private String format(
-      Object objValue,
-      Set<String> translatableNames,
-      L10n formatter,
-      List<String> names,
-      int index,
-      ResourceBundle bundle,
-      Map<Integer, Map<String, String>> selection) {
-    if (selection.containsKey(index)) {
-      final Map sel = selection.get(index);
-      objValue =
-          Arrays.stream(objValue.toString().split("\\s*,\\s*"))
-              .map(
-                  part -> {
-                    Object val = sel.get(part);
-                    return ObjectUtils.isEmpty(val) ? part : val;
-                  })
-              .filter(java.util.Objects::nonNull)
-              .map(String::valueOf)
-              .collect(Collectors.joining(", "));
-    }
-
-    if (objValue instanceof String) {
-      if (translatableNames.contains(names.get(index))) {
-        objValue = getValueTranslation(bundle, (String) objValue);
-      }
-    } else if (objValue instanceof Number) {
-      objValue = formatter.format((Number) objValue, false);
-    } else if (objValue instanceof LocalDate) {
-      objValue = formatter.format((LocalDate) objValue);
-    } else if (objValue instanceof LocalTime) {
-      objValue = formatter.format((LocalTime) objValue);
-    } else if (objValue instanceof LocalDateTime) {
-      objValue = formatter.format((LocalDateTime) objValue);
-    } else if (objValue instanceof ZonedDateTime) {
-      objValue = formatter.format((ZonedDateTime) objValue);
-    } else if (objValue instanceof Enum) {
-      objValue = getTranslation(bundle, getTitle((Enum<?>) objValue));
-    }
-    return objValue == null ? "" : objValue.toString();
+      if (objValue instanceof Map) {
+        return formatValue(((Map<String, Object>) objValue).get(nameField), formatter, bundle);
+      }
+
+      return formatValue(objValue, formatter, bundle);
+    }
+
+    private String formatValue(Object objValue, L10n formatter, ResourceBundle bundle) {
+      if (selection != null) {
+        objValue =
+            Arrays.stream(String.valueOf(objValue).split("\\s*,\\s*"))
+                .map(
+                    part -> {
+                      Object val = selection.get(part);
+                      return ObjectUtils.isEmpty(val) ? part : val;
+                    })
+                .filter(java.util.Objects::nonNull)
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+      }
+
+      if (objValue instanceof String) {
+        if (translatable) {
+          objValue = getValueTranslation(bundle, (String) objValue);
+        }
+      } else if (objValue instanceof Number) {
+        objValue = formatter.format((Number) objValue, false);
+      } else if (objValue instanceof LocalDate) {
+        objValue = formatter.format((LocalDate) objValue);
+      } else if (objValue instanceof LocalTime) {
+        objValue = formatter.format((LocalTime) objValue);
+      } else if (objValue instanceof LocalDateTime) {
+        objValue = formatter.format((LocalDateTime) objValue);
+      } else if (objValue instanceof ZonedDateTime) {
+        objValue = formatter.format((ZonedDateTime) objValue);
+      } else if (objValue instanceof Enum) {
+        if (enumTitles == null) {
+          enumTitles = new HashMap<>();
+        }
+        objValue =
+            enumTitles.computeIfAbsent(
+                (Enum<?>) objValue, value -> getTranslation(bundle, getTitle(value)));
+      }
+      return objValue == null ? "" : objValue.toString();
+    }
   }
 
   private Mapper getMapper(Mapper mapper, String field) {
@@ -994,7 +1165,7 @@ public class Resource<T extends Model> {
 
   private String escapeCsv(String value) {
     if (value == null) return "";
-    if (value.indexOf('"') > -1) value = value.replaceAll("\"", "\"\"");
+    if (value.indexOf('"') > -1) value = value.replace("\"", "\"\"");
     return '"' + value + '"';
   }
 
@@ -1322,11 +1493,6 @@ public class Resource<T extends Model> {
             // check permission rules again
             security.get().check(accessType, model, bean.getId());
 
-            // if it's a translation object, invalidate cache
-            if (bean instanceof MetaTranslation) {
-              I18nBundle.invalidate();
-            }
-
             data.add(repository.populate(toMap(bean, request), request.getContext()));
           }
         });
@@ -1747,75 +1913,72 @@ public class Resource<T extends Model> {
     bean = EntityHelper.getEntity(bean);
 
     if (fields == null) {
-      fields = Maps.newHashMap();
+      fields = Collections.emptyMap();
     }
 
-    Map<String, Object> result = new HashMap<String, Object>();
-    Mapper mapper = Mapper.of(bean.getClass());
+    final SerializationPlan plan = SerializationPlan.of(bean.getClass());
+    final Mapper mapper = plan.mapper;
 
     boolean isSaved = ((Model) bean).getId() != null;
     boolean isCompact = compact || fields.containsKey("$version");
 
-    final Set<Property> translatables = new HashSet<>();
-
     if ((isCompact && isSaved) || (isSaved && level >= 1) || (level > 1)) {
 
-      Property pn = mapper.getNameField();
-      Property pc = mapper.getProperty("code");
+      final SerializationPlan.Item pn = plan.nameField;
+      final SerializationPlan.Item pc = plan.codeField;
+      final Map<String, Object> result = new HashMap<>(fields.size() * 2 + 8);
 
-      result.put("id", mapper.get(bean, "id"));
-      result.put("$version", mapper.get(bean, "version"));
+      result.put("id", mapper.get(bean, plan.idIndex));
+      result.put("$version", mapper.get(bean, plan.versionIndex));
 
       if (pn != null) {
-        result.put(pn.getName(), mapper.get(bean, pn.getName()));
+        result.put(pn.name, mapper.get(bean, pn.index));
       }
       if (pc != null) {
-        result.put(pc.getName(), mapper.get(bean, pc.getName()));
+        result.put(pc.name, mapper.get(bean, pc.index));
       }
 
-      if (pn != null && pn.isTranslatable()) {
-        Translator.translate(result, pn);
+      if (pn != null && pn.translatable) {
+        Translator.translate(result, pn.property);
       }
-      if (pc != null && pc.isTranslatable()) {
-        Translator.translate(result, pc);
+      if (pc != null && pc.translatable) {
+        Translator.translate(result, pc.property);
       }
 
       for (String name : fields.keySet()) {
-        Object child = mapper.get(bean, name);
+        final int index = mapper.getIndex(name);
+        Object child = index < 0 ? null : mapper.get(bean, index);
         if (child instanceof Model) {
           child = _toMap(child, (Map) fields.get(name), true, level + 1);
         }
         result.put(name, child);
-        Optional.ofNullable(mapper.getProperty(name))
-            .filter(Property::isTranslatable)
-            .ifPresent(property -> Translator.translate(result, property));
+        if (index > -1) {
+          Optional.ofNullable(mapper.getProperty(name))
+              .filter(Property::isTranslatable)
+              .ifPresent(property -> Translator.translate(result, property));
+        }
       }
       return result;
     }
 
-    for (final Property prop : mapper.getProperties()) {
+    final Map<String, Object> result = new HashMap<>(plan.items.size() * 2);
+    final boolean filter = isSaved && !fields.isEmpty();
 
-      String name = prop.getName();
-      PropertyType type = prop.getType();
+    for (final SerializationPlan.Item item : plan.items) {
 
-      if (type == PropertyType.BINARY || prop.isPassword()) {
-        continue;
-      }
+      final String name = item.name;
 
-      if (isSaved
-          && !name.matches("id|version|archived")
-          && !fields.isEmpty()
-          && !fields.containsKey(name)) {
+      if (filter && !item.always && !fields.containsKey(name)) {
         continue;
       }
 
-      Object value = mapper.get(bean, name);
+      Object value = mapper.get(bean, item.index);
 
-      if (name.equals("archived") && value == null) {
+      if (item.archived && value == null) {
         continue;
       }
 
-      if (prop.isImage() && byte[].class.isInstance(value)) {
+      if (item.image && byte[].class.isInstance(value)) {
         value = new String((byte[]) value);
       }
 
@@ -1823,28 +1986,29 @@ public class Resource<T extends Model> {
       // json mapper may use wrong scale.
       if (value instanceof BigDecimal) {
         BigDecimal decimal = (BigDecimal) value;
-        int scale = prop.getScale();
+        int scale = item.scale;
         if (decimal.scale() == 0 && scale > 0 && scale != decimal.scale()) {
           value = decimal.setScale(scale, RoundingMode.HALF_UP);
         }
       }
 
       if (value instanceof Model) { // m2o
-        Map<String, Object> _fields = (Map) fields.get(prop.getName());
+        Map<String, Object> _fields = (Map) fields.get(name);
         value = _toMap(value, _fields, true, level + 1);
       }
 
       if (value instanceof Collection) { // o2m | m2m
-        List<Object> items = Lists.newArrayList();
-        for (Model input : (Collection<Model>) value) {
-          Map<String, Object> item;
+        final Collection<Model> inputs = (Collection<Model>) value;
+        final List<Object> items = new ArrayList<>(inputs.size());
+        for (Model input : inputs) {
+          Map<String, Object> map;
           if (input.getId() != null) {
-            item = _toMap(input, null, true, level + 1);
+            map = _toMap(input, null, true, level + 1);
           } else {
-            item = _toMap(input, null, false, 1);
+            map = _toMap(input, null, false, 1);
           }
-          if (item != null) {
-            items.add(item);
+          if (map != null) {
+            items.add(map);
           }
         }
         value = items;
@@ -1852,12 +2016,12 @@ public class Resource<T extends Model> {
 
       result.put(name, value);
 
-      if (prop.isTranslatable() && value instanceof String) {
-        Translator.translate(result, prop);
+      if (item.translatable && value instanceof String) {
+        Translator.translate(result, item.property);
       }
 
       // include custom enum value
-      if (prop.isEnum() && value instanceof ValueEnum<?>) {
+      if (item.enumType && value instanceof ValueEnum<?>) {
         String enumName = ((Enum<?>) value).name();
         Object enumValue = ((ValueEnum<?>) value).getValue();
         if (!Objects.equal(enumName, enumValue)) {
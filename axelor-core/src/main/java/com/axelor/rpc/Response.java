@@ -80,6 +80,10 @@ public class Response {
 
   private Map<String, String> errors;
 
+  private List<Object> cursor;
+
+  private Boolean estimated;
+
   public int getStatus() {
     return status;
   }
@@ -127,6 +131,33 @@ public class Response {
     this.errors.put(fieldName, errorMessage);
   }
 
+  /**
+   * Get the sort key values of the last returned record, to be used as the cursor of the next
+   * page.
+   *
+   * @return the sort key values or null if there are no more records
+   */
+  public List<Object> getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(List<Object> cursor) {
+    this.cursor = cursor;
+  }
+
+  /**
+   * Whether the {@link #getTotal()} is estimated.
+   *
+   * @return true if total is estimated or capped, null if exact
+   */
+  public Boolean getEstimated() {
+    return estimated;
+  }
+
+  public void setEstimated(Boolean estimated) {
+    this.estimated = estimated;
+  }
+
   public Response fail(String message) {
     final ResponseException error = new ResponseException(message);
     this.setException(error);
@@ -0,0 +1,113 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.rpc;
+
+import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
+import com.axelor.db.mapper.PropertyType;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed information used by {@link Resource} to convert beans of an entity class to maps.
+ *
+ * <p>The plan resolves once per entity class the serialized properties with their index, name and
+ * code fields, translatable, image, decimal and enum flags, so that converting many beans doesn't
+ * repeat these lookups for every bean and every property.
+ */
+final class SerializationPlan {
+
+  private static final LoadingCache<Class<?>, SerializationPlan> PLANS =
+      CacheBuilder.newBuilder()
+          .maximumSize(1000)
+          .weakKeys()
+          .build(CacheLoader.from(SerializationPlan::new));
+
+  /** A serialized property. */
+  static final class Item {
+
+    final Property property;
+    final String name;
+    final int index;
+
+    /** Whether the property is included even if not requested. */
+    final boolean always;
+
+    final boolean archived;
+    final boolean image;
+    final boolean translatable;
+    final boolean enumType;
+    final int scale;
+
+    private Item(Mapper mapper, Property property) {
+      this.property = property;
+      this.name = property.getName();
+      this.index = mapper.getIndex(name);
+      this.archived = "archived".equals(name);
+      this.always = archived || "id".equals(name) || "version".equals(name);
+      this.image = property.isImage();
+      this.translatable = property.isTranslatable();
+      this.enumType = property.isEnum();
+      this.scale = property.getType() == PropertyType.DECIMAL ? property.getScale() : 0;
+    }
+  }
+
+  final Mapper mapper;
+
+  final Item nameField;
+  final Item codeField;
+
+  final int idIndex;
+  final int versionIndex;
+
+  final List<Item> items;
+
+  private SerializationPlan(Class<?> beanClass) {
+    this.mapper = Mapper.of(beanClass);
+    this.idIndex = mapper.getIndex("id");
+    this.versionIndex = mapper.getIndex("version");
+
+    final Property pn = mapper.getNameField();
+    final Property pc = mapper.getProperty("code");
+    this.nameField = pn == null ? null : new Item(mapper, pn);
+    this.codeField = pc == null ? null : new Item(mapper, pc);
+
+    final List<Item> all = new ArrayList<>();
+    for (Property property : mapper.getProperties()) {
+      if (property.getType() == PropertyType.BINARY || property.isPassword()) {
+        continue;
+      }
+      all.add(new Item(mapper, property));
+    }
+    this.items = List.copyOf(all);
+  }
+
+  /**
+   * Get the plan of the given entity class.
+   *
+   * @param beanClass the entity class
+   * @return the serialization plan
+   */
+  static SerializationPlan of(Class<?> beanClass) {
+    return PLANS.getUnchecked(beanClass);
+  }
+}
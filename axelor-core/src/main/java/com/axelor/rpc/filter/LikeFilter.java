@@ -19,6 +19,7 @@
 package com.axelor.rpc.filter;
 
 import com.axelor.db.internal.DBHelper;
+import com.axelor.db.internal.TrigramIndexes;
 
 class LikeFilter extends SimpleFilter {
 
@@ -42,11 +43,20 @@ class LikeFilter extends SimpleFilter {
     return new LikeFilter(Operator.NOT_LIKE, fieldName, format(value));
   }
 
+  static String getQuery(String operand, String operator, String unaccent) {
+    // same expression as the trigram indexes
+    final String expression = TrigramIndexes.getExpression(operand, unaccent);
+    if (unaccent != null) {
+      return String.format("(%s %s %s(?))", expression, operator, unaccent);
+    }
+    return String.format("(%s %s ?)", expression, operator);
+  }
+
   @Override
   public String getQuery() {
-    if (DBHelper.isUnaccentEnabled()) {
-      return String.format("(unaccent(UPPER(%s)) %s unaccent(?))", getOperand(), getOperator());
-    }
-    return String.format("(UPPER(%s) %s ?)", getOperand(), getOperator());
+    return getQuery(
+        getOperand(),
+        getOperator().toString(),
+        DBHelper.isUnaccentEnabled() ? TrigramIndexes.getUnaccentFunction() : null);
   }
 }
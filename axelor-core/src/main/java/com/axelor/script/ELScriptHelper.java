@@ -24,24 +24,52 @@ import com.axelor.db.Model;
 import com.axelor.db.ValueEnum;
 import com.axelor.rpc.Context;
 import com.axelor.rpc.ContextEntity;
+import com.axelor.shading.javax.el.ArrayELResolver;
 import com.axelor.shading.javax.el.BeanELResolver;
+import com.axelor.shading.javax.el.CompositeELResolver;
 import com.axelor.shading.javax.el.ELClass;
 import com.axelor.shading.javax.el.ELContext;
 import com.axelor.shading.javax.el.ELException;
-import com.axelor.shading.javax.el.ELProcessor;
+import com.axelor.shading.javax.el.ELResolver;
+import com.axelor.shading.javax.el.ExpressionFactory;
+import com.axelor.shading.javax.el.FunctionMapper;
 import com.axelor.shading.javax.el.ImportHandler;
+import com.axelor.shading.javax.el.ListELResolver;
 import com.axelor.shading.javax.el.MapELResolver;
 import com.axelor.shading.javax.el.MethodNotFoundException;
+import com.axelor.shading.javax.el.ResourceBundleELResolver;
+import com.axelor.shading.javax.el.StaticFieldELResolver;
+import com.axelor.shading.javax.el.ValueExpression;
+import com.axelor.shading.javax.el.VariableMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.primitives.Ints;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
 import javax.script.Bindings;
 
+/**
+ * The script helper to evaluate EL expressions.
+ *
+ * <p>The expression factory, resolvers, functions and imports are shared by all the helpers and
+ * the parsed expressions are cached, so only a lightweight {@link ELContext} holding the bindings
+ * is created for each evaluation.
+ */
 public class ELScriptHelper extends AbstractScriptHelper {
 
-  private ELProcessor processor;
+  private static final ExpressionFactory FACTORY = ExpressionFactory.newInstance();
+
+  private static final ELResolver RESOLVER = createResolver();
+
+  private static final Functions FUNCTIONS = createFunctions();
+
+  private static final ImportHandler IMPORTS = createImports();
 
-  class ClassResolver extends MapELResolver {
+  private static final Cache<String, ValueExpression> EXPRESSIONS =
+      CacheBuilder.newBuilder().maximumSize(1000).build();
+
+  static class ClassResolver extends MapELResolver {
 
     private static final String FIELD_CLASS = "class";
 
@@ -81,11 +109,11 @@ public class ELScriptHelper extends AbstractScriptHelper {
     public void setValue(ELContext context, Object base, Object property, Object value) {}
   }
 
-  class ContextResolver extends MapELResolver {
+  static class ContextResolver extends MapELResolver {
 
     @Override
     public Object getValue(ELContext context, Object base, Object property) {
-      final Bindings bindings = getBindings();
+      final Bindings bindings = (Bindings) context.getContext(Bindings.class);
       if (bindings == null || base != null) {
         return null;
       }
@@ -106,7 +134,7 @@ public class ELScriptHelper extends AbstractScriptHelper {
     }
   }
 
-  class BeanResolver extends BeanELResolver {
+  static class BeanResolver extends BeanELResolver {
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
@@ -217,27 +245,106 @@ public class ELScriptHelper extends AbstractScriptHelper {
     }
   }
 
-  public ELScriptHelper(Bindings bindings) {
+  private static final class Functions extends FunctionMapper {
+
+    private final Map<String, Method> methods = new HashMap<>();
+
+    void define(String prefix, String function, String name) {
+      for (Method method : Helpers.class.getMethods()) {
+        if (method.getName().equals(name)) {
+          methods.put(prefix + ":" + function, method);
+        }
+      }
+    }
+
+    @Override
+    public Method resolveFunction(String prefix, String localName) {
+      return methods.get(prefix + ":" + localName);
+    }
+  }
+
+  private static final class EvalContext extends ELContext {
+
+    private VariableMapper variables;
+
+    EvalContext(Bindings bindings) {
+      putContext(ExpressionFactory.class, FACTORY);
+      if (bindings != null) {
+        putContext(Bindings.class, bindings);
+      }
+    }
+
+    @Override
+    public ELResolver getELResolver() {
+      return RESOLVER;
+    }
+
+    @Override
+    public FunctionMapper getFunctionMapper() {
+      return FUNCTIONS;
+    }
+
+    @Override
+    public VariableMapper getVariableMapper() {
+      if (variables == null) {
+        variables =
+            new VariableMapper() {
+
+              private final Map<String, ValueExpression> expressions = new HashMap<>();
+
+              @Override
+              public ValueExpression resolveVariable(String variable) {
+                return expressions.get(variable);
+              }
+
+              @Override
+              public ValueExpression setVariable(String variable, ValueExpression expression) {
+                return expression == null
+                    ? expressions.remove(variable)
+                    : expressions.put(variable, expression);
+              }
+            };
+      }
+      return variables;
+    }
 
-    this.processor = new ELProcessor();
-    this.processor.getELManager().addELResolver(new ClassResolver());
-    this.processor.getELManager().addELResolver(new ContextResolver());
-    this.processor.getELManager().addELResolver(new BeanResolver());
-
-    final String className = Helpers.class.getName();
-
-    try {
-      this.processor.defineFunction("", "as", className, "as");
-      this.processor.defineFunction("", "is", className, "is");
-      this.processor.defineFunction("", "int", className, "toInt");
-      this.processor.defineFunction("", "str", className, "text");
-      this.processor.defineFunction("", "imp", className, "importClass");
-      this.processor.defineFunction("", "T", className, "importClass");
-      this.processor.defineFunction("", "__repo__", className, "repo");
-      this.processor.defineFunction("fmt", "text", className, "formatText");
-    } catch (Exception e) {
+    @Override
+    public ImportHandler getImportHandler() {
+      return IMPORTS;
     }
+  }
+
+  private static ELResolver createResolver() {
+    // same resolvers as the StandardELContext, after the custom ones
+    final CompositeELResolver resolver = new CompositeELResolver();
+    resolver.add(new ClassResolver());
+    resolver.add(new ContextResolver());
+    resolver.add(new BeanResolver());
+    resolver.add(FACTORY.getStreamELResolver());
+    resolver.add(new StaticFieldELResolver());
+    resolver.add(new MapELResolver());
+    resolver.add(new ResourceBundleELResolver());
+    resolver.add(new ListELResolver());
+    resolver.add(new ArrayELResolver());
+    resolver.add(new BeanELResolver());
+    return resolver;
+  }
 
+  private static Functions createFunctions() {
+    final Functions functions = new Functions();
+    functions.define("", "as", "as");
+    functions.define("", "is", "is");
+    functions.define("", "int", "toInt");
+    functions.define("", "str", "text");
+    functions.define("", "imp", "importClass");
+    functions.define("", "T", "importClass");
+    functions.define("", "__repo__", "repo");
+    functions.define("fmt", "text", "formatText");
+    return functions;
+  }
+
+  private static ImportHandler createImports() {
+    final ImportHandler handler = new ImportHandler();
     final String[] packages = {
       "java.util",
       "java.time",
@@ -248,15 +355,19 @@ public class ELScriptHelper extends AbstractScriptHelper {
 
     for (String pkg : packages) {
       try {
-        this.processor.getELManager().importPackage(pkg);
+        handler.importPackage(pkg);
       } catch (Exception e) {
       }
     }
 
-    this.processor.getELManager().importClass("com.axelor.db.Model");
-    this.processor.getELManager().importClass("com.axelor.db.Query");
-    this.processor.getELManager().importClass("com.axelor.db.Repository");
+    handler.importClass("com.axelor.db.Model");
+    handler.importClass("com.axelor.db.Query");
+    handler.importClass("com.axelor.db.Repository");
 
+    return handler;
+  }
+
+  public ELScriptHelper(Bindings bindings) {
     this.setBindings(bindings);
   }
 
@@ -266,12 +377,12 @@ public class ELScriptHelper extends AbstractScriptHelper {
 
   @Override
   public Object eval(String expr, Bindings bindings) {
-    final Bindings current = getBindings();
-    try {
-      setBindings(bindings);
-      return processor.eval(expr);
-    } finally {
-      setBindings(current);
+    final ELContext context = new EvalContext(bindings);
+    ValueExpression expression = EXPRESSIONS.getIfPresent(expr);
+    if (expression == null) {
+      expression = FACTORY.createValueExpression(context, "${" + expr + "}", Object.class);
+      EXPRESSIONS.put(expr, expression);
     }
+    return expression.getValue(context);
   }
 }
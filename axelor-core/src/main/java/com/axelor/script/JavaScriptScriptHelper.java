@@ -18,49 +18,196 @@
  */
 package com.axelor.script;
 
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
 import com.axelor.rpc.Context;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import javax.script.Bindings;
 import javax.script.ScriptException;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyObject;
 
+/**
+ * The script helper to evaluate JavaScript expressions with GraalVM.
+ *
+ * <p>All the contexts share a single {@link Engine}, so the parsed and compiled expressions are
+ * reused across evaluations. The idle contexts are kept in a bounded pool and the bindings of an
+ * evaluation are given to the context as <code>__scope</code> when it's acquired.
+ *
+ * <p>Only the contexts which evaluated a single expression are reused, once their globals are
+ * restored. Scripts with statements may leave declarations which can't be removed, so their
+ * contexts are closed. Results are copied to Java values so that they don't depend on the context.
+ */
 public class JavaScriptScriptHelper extends AbstractScriptHelper {
 
-  private org.graalvm.polyglot.Context context;
+  private static final int DEFAULT_POOL_SIZE = 8;
+  private static final int DEFAULT_CACHE_SIZE = 500;
+
+  // maximum nesting of arrays and objects copied from results
+  private static final int MAX_DEPTH = 64;
+
+  private static final String PRELUDE =
+      "(() => {"
+          + "  const { defineProperty, deleteProperty, getOwnPropertyDescriptor } = Reflect;"
+          + "  const ownKeys = Reflect.ownKeys;"
+          + "  const saved = new Map(ownKeys(globalThis)"
+          + "    .map(key => [key, getOwnPropertyDescriptor(globalThis, key)]));"
+          + "  const proto = new Proxy(Object.prototype, {"
+          + "    has(target, key) {"
+          + "      return key in __scope || key in target;"
+          + "    },"
+          + "    get(target, key, receiver) {"
+          + "      return Reflect.get((key in __scope) ? __scope : target, key, receiver);"
+          + "    }"
+          + "  });"
+          + "  Object.setPrototypeOf(globalThis, proto);"
+          + "  return () => {"
+          + "    for (const key of ownKeys(globalThis)) {"
+          + "      if (saved.has(key)) continue;"
+          + "      if (!deleteProperty(globalThis, key)) globalThis[key] = undefined;"
+          + "    }"
+          + "    for (const [key, desc] of saved) {"
+          + "      const current = getOwnPropertyDescriptor(globalThis, key);"
+          + "      if (current && current.value === desc.value"
+          + "          && current.get === desc.get && current.set === desc.set) continue;"
+          + "      if (!defineProperty(globalThis, key, desc)) throw new Error(String(key));"
+          + "    }"
+          + "    Object.setPrototypeOf(globalThis, proto);"
+          + "  };"
+          + "})()";
+
+  // checks whether the script is a single expression, as it can't be used as a default parameter
+  // value otherwise
+  private static final String EXPRESSION_CHECK =
+      "(expr) => {"
+          + "  try {"
+          + "    new Function('__value = (' + expr + '\\n)', '');"
+          + "    return true;"
+          + "  } catch (e) {"
+          + "    return false;"
+          + "  }"
+          + "}";
+
+  private static final Engine ENGINE =
+      Engine.newBuilder()
+          .allowExperimentalOptions(true)
+          .option("engine.WarnInterpreterOnly", "false")
+          .option("js.nashorn-compat", "true")
+          .option("js.ecmascript-version", "latest")
+          .build();
+
+  private static final ProxyObject EMPTY_SCOPE = ProxyObject.fromMap(Collections.emptyMap());
+
+  private static final BlockingQueue<Pooled> POOL;
+
+  private static final Cache<String, Script> SOURCES;
+
+  static {
+    final AppSettings settings = AppSettings.get();
+    final int poolSize =
+        settings.getInt(AvailableAppSettings.APPLICATION_SCRIPT_JS_POOL_SIZE, DEFAULT_POOL_SIZE);
+    final int cacheSize =
+        settings.getInt(AvailableAppSettings.APPLICATION_SCRIPT_JS_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+
+    final CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumSize(Math.max(0, cacheSize));
+    if (settings.getBoolean(AvailableAppSettings.APPLICATION_SCRIPT_JS_CACHE_STATS, false)) {
+      builder.recordStats();
+    }
+
+    POOL = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    SOURCES = builder.build();
+  }
+
+  private static class Script {
+
+    final Source source;
+
+    // whether the context can be reused, checked on first evaluation
+    volatile Boolean expression;
+
+    Script(Source source) {
+      this.source = source;
+    }
+  }
+
+  private static class Pooled {
+
+    final org.graalvm.polyglot.Context context;
+    final Value scope;
+    final Value reset;
+    final Value check;
+
+    Pooled() {
+      context =
+          org.graalvm.polyglot.Context.newBuilder("js")
+              .engine(ENGINE)
+              .allowAllAccess(true)
+              .build();
+      scope = context.getBindings("js");
+      scope.putMember("__scope", EMPTY_SCOPE);
+      check = context.eval("js", EXPRESSION_CHECK);
+      reset = context.eval("js", PRELUDE);
+    }
+
+    boolean isExpression(Script script) {
+      Boolean expression = script.expression;
+      if (expression == null) {
+        expression = script.expression = check.execute(script.source.getCharacters()).asBoolean();
+      }
+      return expression;
+    }
+  }
 
   public JavaScriptScriptHelper(Bindings bindings) {
     this.setBindings(bindings);
-    this.context = createContext(bindings);
   }
 
   public JavaScriptScriptHelper(Context context) {
     this(new ScriptBindings(context));
   }
 
-  private org.graalvm.polyglot.Context createContext(Bindings bindings) {
-    org.graalvm.polyglot.Context ctx =
-        org.graalvm.polyglot.Context.newBuilder()
-            .allowExperimentalOptions(true)
-            .allowAllAccess(true)
-            .option("engine.WarnInterpreterOnly", "false")
-            .option("js.nashorn-compat", "true")
-            .option("js.ecmascript-version", "latest")
-            .build();
-
-    ctx.getBindings("js").putMember("__scope", new JavaScriptScope(bindings));
-    ctx.eval(
-        "js",
-        "Object.setPrototypeOf(globalThis, new Proxy(Object.prototype, {"
-            + "  has(target, key) {"
-            + "    return key in __scope || key in target;"
-            + "  },"
-            + "  get(target, key, receiver) {"
-            + "    return Reflect.get((key in __scope) ? __scope : target, key, receiver);"
-            + "  }"
-            + "}))");
-
-    return ctx;
+  /**
+   * Get the statistics of the compiled source cache.
+   *
+   * <p>The statistics are only recorded if <code>application.script.js.cache-stats</code> is
+   * enabled.
+   *
+   * @return the cache statistics
+   */
+  public static CacheStats getCacheStats() {
+    return SOURCES.stats();
+  }
+
+  /**
+   * Get the number of idle contexts in the pool.
+   *
+   * @return number of idle contexts
+   */
+  public static int getPoolSize() {
+    return POOL.size();
+  }
+
+  private static Script script(String expr) {
+    try {
+      return SOURCES.get(
+          expr,
+          () -> new Script(Source.newBuilder("js", expr, "<eval>").cached(true).buildLiteral()));
+    } catch (ExecutionException e) {
+      throw new IllegalArgumentException(e.getCause());
+    }
   }
 
   @Override
@@ -70,8 +217,51 @@ public class JavaScriptScriptHelper extends AbstractScriptHelper {
           "Evaluating JavaScript with different bindings is not supported.");
     }
 
-    final Value value = context.eval("js", expr);
+    final Script script = script(expr);
+
+    Pooled pooled = POOL.poll();
+    if (pooled == null) {
+      pooled = new Pooled();
+    }
+
+    boolean reusable = false;
+    try {
+      final boolean expression = pooled.isExpression(script);
+      pooled.scope.putMember("__scope", new JavaScriptScope(bindings));
+      final Object result = toJava(pooled.context.eval(script.source), expr, 0);
+      reusable = expression;
+      return result;
+    } finally {
+      if (reusable) {
+        release(pooled);
+      } else {
+        close(pooled);
+      }
+    }
+  }
+
+  private static void release(Pooled pooled) {
+    try {
+      pooled.reset.executeVoid();
+      pooled.scope.putMember("__scope", EMPTY_SCOPE);
+    } catch (Exception e) {
+      close(pooled);
+      return;
+    }
+    if (!POOL.offer(pooled)) {
+      close(pooled);
+    }
+  }
+
+  private static void close(Pooled pooled) {
+    try {
+      pooled.context.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
 
+  private static Object toJava(Value value, String expr, int depth) throws ScriptException {
     if (value.isException()) {
       throw value.throwException();
     }
@@ -94,11 +284,27 @@ public class JavaScriptScriptHelper extends AbstractScriptHelper {
     if (value.isTimeZone()) return value.asTimeZone();
     if (value.isInstant()) return value.asInstant();
 
-    // Convert array like value to List
-    if (value.hasArrayElements()) return value.as(List.class);
+    if (depth >= MAX_DEPTH) {
+      throw new ScriptException("Invalid result from script, too deeply nested: " + expr);
+    }
+
+    // Copy array like value to List
+    if (value.hasArrayElements()) {
+      final List<Object> list = new ArrayList<>((int) value.getArraySize());
+      for (long i = 0; i < value.getArraySize(); i++) {
+        list.add(toJava(value.getArrayElement(i), expr, depth + 1));
+      }
+      return list;
+    }
 
-    // Convert object like value to Map
-    if (value.hasMembers()) return value.as(Map.class);
+    // Copy object like value to Map
+    if (value.hasMembers()) {
+      final Map<String, Object> map = new LinkedHashMap<>();
+      for (String key : value.getMemberKeys()) {
+        map.put(key, toJava(value.getMember(key), expr, depth + 1));
+      }
+      return map;
+    }
 
     throw new ScriptException("Invalid result from script: " + expr);
   }
@@ -26,30 +26,42 @@ import com.axelor.db.mapper.Property;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.MetaStore;
-import com.axelor.meta.db.MetaJsonField;
 import com.axelor.meta.db.MetaJsonRecord;
-import com.axelor.meta.db.repo.MetaJsonFieldRepository;
 import com.axelor.meta.db.repo.MetaJsonRecordRepository;
+import com.axelor.meta.schema.views.Selection.Option;
 import com.axelor.rpc.Context;
 import com.axelor.rpc.JsonContext;
 import com.axelor.script.ScriptBindings;
-import com.google.common.collect.Sets;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.common.xml.XmlEscapers;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import org.stringtemplate.v4.AttributeRenderer;
 import org.stringtemplate.v4.AutoIndentWriter;
 import org.stringtemplate.v4.DateRenderer;
@@ -59,14 +71,51 @@ import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
 import org.stringtemplate.v4.StringRenderer;
 import org.stringtemplate.v4.compiler.Bytecode;
+import org.stringtemplate.v4.compiler.CompiledST;
+import org.stringtemplate.v4.compiler.FormalArgument;
 import org.stringtemplate.v4.misc.MapModelAdaptor;
 import org.stringtemplate.v4.misc.ObjectModelAdaptor;
 import org.stringtemplate.v4.misc.STNoSuchPropertyException;
 
-/** The implementation of {@link Templates} for the StringTemplate (ST4) support. */
+/**
+ * The implementation of {@link Templates} for the StringTemplate (ST4) support.
+ *
+ * <p>The template groups are shared by all the instances using the same delimiters and locale, and
+ * the compiled templates are cached by text, so that rendering the same template many times, from
+ * any number of threads, only creates a lightweight template instance per rendering.
+ */
 public class StringTemplates implements Templates {
 
-  class StrRenderer extends StringRenderer {
+  private static final Cache<List<Object>, STGroup> GROUPS =
+      CacheBuilder.newBuilder().maximumSize(100).build();
+
+  private static final Cache<List<Object>, CompiledTemplate> TEMPLATES =
+      CacheBuilder.newBuilder().maximumSize(1000).build();
+
+  // enum titles by value
+  private static final ClassValue<Map<String, String>> ENUM_TITLES =
+      new ClassValue<>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+          final List<Option> options = MetaStore.getSelectionList(type);
+          if (options == null) {
+            return Collections.emptyMap();
+          }
+          final Map<String, String> titles = new HashMap<>();
+          for (Option option : options) {
+            titles.putIfAbsent(option.getValue(), option.getTitle());
+          }
+          return Collections.unmodifiableMap(titles);
+        }
+      };
+
+  static class StrRenderer extends StringRenderer {
+
+    private final Locale locale;
+
+    StrRenderer(Locale locale) {
+      this.locale = locale;
+    }
 
     @Override
     public String toString(Object o, String formatString, Locale locale) {
@@ -76,14 +125,14 @@ public class StringTemplates implements Templates {
           return XmlEscapers.xmlAttributeEscaper().escape(str);
         }
         if (formatString.startsWith("selection:")) {
-          return getSelectionTitle(formatString.substring(10).trim(), o);
+          return getSelectionTitle(this.locale, formatString.substring(10).trim(), o);
         }
       }
       return super.toString(str, formatString, locale);
     }
   }
 
-  class LocalDateRenderer implements AttributeRenderer<LocalDate> {
+  static class LocalDateRenderer implements AttributeRenderer<LocalDate> {
 
     @Override
     public String toString(LocalDate o, String formatString, Locale locale) {
@@ -93,7 +142,7 @@ public class StringTemplates implements Templates {
     }
   }
 
-  class LocalDateTimeRenderer implements AttributeRenderer<LocalDateTime> {
+  static class LocalDateTimeRenderer implements AttributeRenderer<LocalDateTime> {
 
     @Override
     public String toString(LocalDateTime o, String formatString, Locale locale) {
@@ -103,7 +152,7 @@ public class StringTemplates implements Templates {
     }
   }
 
-  class LocalTimeRenderer implements AttributeRenderer<LocalTime> {
+  static class LocalTimeRenderer implements AttributeRenderer<LocalTime> {
 
     @Override
     public String toString(LocalTime o, String formatString, Locale locale) {
@@ -113,12 +162,29 @@ public class StringTemplates implements Templates {
     }
   }
 
-  class DataAdapter extends ObjectModelAdaptor<Object> {
+  /**
+   * The model adaptor used to access properties of entities, contexts and custom records.
+   *
+   * <p>It's shared by concurrent renderings, so it doesn't lock: members of other objects are
+   * resolved once per class and custom fields and selections are resolved from the {@link
+   * MetaStore} caches.
+   */
+  static class DataAdapter extends ObjectModelAdaptor<Object> {
+
+    private static final ClassValue<Map<String, Optional<Member>>> MEMBERS =
+        new ClassValue<>() {
+          @Override
+          protected Map<String, Optional<Member>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+          }
+        };
 
+    private final Locale locale;
     private final MapModelAdaptor mapModelAdaptor;
     private final MetaJsonRecordRepository jsonRecords;
 
-    public DataAdapter() {
+    public DataAdapter(Locale locale) {
+      this.locale = locale;
       this.mapModelAdaptor = new MapModelAdaptor();
       this.jsonRecords = Beans.get(MetaJsonRecordRepository.class);
     }
@@ -130,45 +196,19 @@ public class StringTemplates implements Templates {
         return getSelection(field.getSelection(), value);
       }
 
-      if (field.isEnum()) {
-        try {
-          return MetaStore.getSelectionList(field.getEnumType()).stream()
-              .filter(x -> x.getValue().equals(value.toString()))
-              .findFirst()
-              .map(x -> translate(x.getTitle()))
-              .orElseGet(() -> (String) value);
-        } catch (NullPointerException e) {
-          return value;
-        }
+      if (field.isEnum() && value != null) {
+        final String title = ENUM_TITLES.get(field.getEnumType()).get(value.toString());
+        return title == null ? value : translate(locale, title);
       }
 
       return value;
     }
 
-    private Object format(MetaJsonField field, Object value) {
-      if (field == null || StringUtils.isBlank(field.getSelection())) {
+    private Object format(String selection, Object value) {
+      if (StringUtils.isBlank(selection)) {
         return value;
       }
-      return getSelection(field.getSelection(), value);
-    }
-
-    private MetaJsonField findCustomField(Class<?> entityClass, String name, String modelField) {
-      return Beans.get(MetaJsonFieldRepository.class)
-          .all()
-          .filter("self.model = :model and self.name = :name and self.modelField = :modelField")
-          .bind("model", entityClass.getName())
-          .bind("name", name)
-          .bind("modelField", modelField)
-          .fetchOne();
-    }
-
-    private MetaJsonField findCustomField(String jsonModel, String name) {
-      return Beans.get(MetaJsonFieldRepository.class)
-          .all()
-          .filter("self.jsonModel.name = :model and self.name = :name")
-          .bind("model", jsonModel)
-          .bind("name", name)
-          .fetchOne();
+      return getSelection(selection, value);
     }
 
     private Object handle(Model entity, String name) {
@@ -178,8 +218,7 @@ public class StringTemplates implements Templates {
 
       // custom field?
       if (field == null) {
-        final MetaJsonField jsonField = findCustomField(klass, name, "attrs");
-        if (jsonField != null) {
+        if (MetaStore.getJsonFieldSelection(klass.getName(), "attrs", name) != null) {
           final Context ctx = new Context(entity.getId(), klass);
           ctx.put("attrs", mapper.get(entity, "attrs"));
           return handle(ctx, name);
@@ -206,15 +245,14 @@ public class StringTemplates implements Templates {
 
       // custom model?
       if (jsonModel instanceof String && MetaJsonRecord.class.isAssignableFrom(klass)) {
-        final MetaJsonField field = findCustomField((String) jsonModel, key);
-        return format(field, value);
+        return format(MetaStore.getJsonFieldSelection((String) jsonModel, key), value);
       }
 
       final Property field = Mapper.of(klass).getProperty(key);
 
       // custom field?
       if (field == null) {
-        return format(findCustomField(klass, key, "attrs"), value);
+        return format(MetaStore.getJsonFieldSelection(klass.getName(), "attrs", key), value);
       }
 
       if (field.isJson()) {
@@ -231,13 +269,38 @@ public class StringTemplates implements Templates {
     }
 
     private Object handle(JsonContext jsonContext, String name) {
-      MetaJsonField customField =
-          findCustomField(jsonContext.getContextClass(), name, jsonContext.getJsonField());
-      return format(customField, jsonContext.get(name));
+      final String selection =
+          MetaStore.getJsonFieldSelection(
+              jsonContext.getContextClass().getName(), jsonContext.getJsonField(), name);
+      return format(selection, jsonContext.get(name));
+    }
+
+    // same as ObjectModelAdaptor#getProperty without locking
+    private Object handle(Object o, Object property, String propertyName) {
+      final Class<?> c = o.getClass();
+      if (property == null) {
+        throw new STNoSuchPropertyException(null, null, c.getName() + "." + propertyName);
+      }
+      final Member member =
+          MEMBERS
+              .get(c)
+              .computeIfAbsent(propertyName, n -> Optional.ofNullable(findMember(c, n)))
+              .orElse(null);
+      try {
+        if (member instanceof Method) {
+          return ((Method) member).invoke(o);
+        }
+        if (member instanceof Field) {
+          return ((Field) member).get(o);
+        }
+      } catch (Exception e) {
+        throw new STNoSuchPropertyException(e, null, c.getName() + "." + propertyName);
+      }
+      throw new STNoSuchPropertyException(null, null, c.getName() + "." + propertyName);
     }
 
     @Override
-    public synchronized Object getProperty(
+    public Object getProperty(
         Interpreter interp, ST self, Object o, Object property, String propertyName)
         throws STNoSuchPropertyException {
       if (o instanceof Context) return handle((Context) o, propertyName);
@@ -247,15 +310,15 @@ public class StringTemplates implements Templates {
       if (o instanceof Map) {
         return mapModelAdaptor.getProperty(interp, self, (Map<?, ?>) o, property, propertyName);
       }
-      return super.getProperty(interp, self, o, property, propertyName);
+      return handle(o, property, propertyName);
     }
 
     private Object getSelection(String selection, Object value) {
-      final String title = getSelectionTitle(selection, value);
+      final String title = getSelectionTitle(locale, selection, value);
       return new Selection(value, title);
     }
 
-    private class Selection {
+    private static class Selection {
       private final Object value;
       private final String title;
 
@@ -283,36 +346,59 @@ public class StringTemplates implements Templates {
     }
   }
 
-  class StringTemplate implements Template {
+  /** A compiled template shared by all the renderings of the same text. */
+  static final class CompiledTemplate {
 
-    private ST template;
-    private Set<String> names;
-    private Locale locale;
+    private final STGroup group;
+    private final CompiledST impl;
+    private final Set<String> names;
 
-    private StringTemplate(ST template, Locale locale) {
-      this.template = template;
-      this.names = findAttributes();
-      this.locale = locale == null ? Locale.getDefault() : locale;
+    private CompiledTemplate(STGroup group, String text) {
+      this.group = group;
+      this.impl = new ST(group, text).impl;
+      this.names = findAttributes(impl);
+
+      // define the attributes now, adding undefined ones would change the shared template
+      for (String name : names) {
+        if (impl.formalArguments == null || !impl.formalArguments.containsKey(name)) {
+          impl.addArg(new FormalArgument(name));
+        }
+      }
     }
 
-    private Set<String> findAttributes() {
-      Set<String> names = Sets.newHashSet();
+    private static Set<String> findAttributes(CompiledST impl) {
+      Set<String> names = new HashSet<>();
       int ip = 0;
-      while (ip < template.impl.codeSize) {
-        int opcode = template.impl.instrs[ip];
+      while (ip < impl.codeSize) {
+        int opcode = impl.instrs[ip];
         Bytecode.Instruction I = Bytecode.instructions[opcode];
         ip++;
         for (int opnd = 0; opnd < I.nopnds; opnd++) {
           if (opcode == Bytecode.INSTR_LOAD_ATTR) {
-            int nameIndex = Interpreter.getShort(template.impl.instrs, ip);
-            if (nameIndex < template.impl.strings.length) {
-              names.add(template.impl.strings[nameIndex]);
+            int nameIndex = Interpreter.getShort(impl.instrs, ip);
+            if (nameIndex < impl.strings.length) {
+              names.add(impl.strings[nameIndex]);
             }
           }
           ip += Bytecode.OPND_SIZE_IN_BYTES;
         }
       }
-      return names;
+      return Collections.unmodifiableSet(names);
+    }
+
+    ST newInstance() {
+      return group.createStringTemplate(impl);
+    }
+  }
+
+  class StringTemplate implements Template {
+
+    private CompiledTemplate compiled;
+    private Locale locale;
+
+    private StringTemplate(CompiledTemplate compiled, Locale locale) {
+      this.compiled = compiled;
+      this.locale = locale == null ? Locale.getDefault() : locale;
     }
 
     @Override
@@ -320,8 +406,9 @@ public class StringTemplates implements Templates {
       return new Renderer() {
         @Override
         public void render(Writer out) throws IOException {
+          final ST template = compiled.newInstance();
           final ScriptBindings vars = new ScriptBindings(context);
-          for (String name : names) {
+          for (String name : compiled.names) {
             try {
               Object value = vars.get(name);
               if (context instanceof Context) {
@@ -368,7 +455,8 @@ public class StringTemplates implements Templates {
   private static final char DEFAULT_START_DELIMITER = '<';
   private static final char DEFAULT_STOP_DELIMITER = '>';
 
-  private final STGroup group;
+  private final char delimiterStartChar;
+  private final char delimiterStopChar;
 
   private Locale locale;
 
@@ -377,7 +465,13 @@ public class StringTemplates implements Templates {
   }
 
   public StringTemplates(char delimiterStartChar, char delimiterStopChar) {
-    this.group =
+    this.delimiterStartChar = delimiterStartChar;
+    this.delimiterStopChar = delimiterStopChar;
+  }
+
+  private static STGroup createGroup(
+      char delimiterStartChar, char delimiterStopChar, Locale locale) {
+    final STGroup group =
         new STGroup(delimiterStartChar, delimiterStopChar) {
           {
             adaptors.remove(Map.class);
@@ -385,15 +479,17 @@ public class StringTemplates implements Templates {
         };
 
     // Custom renderers
-    this.group.registerRenderer(String.class, new StrRenderer());
-    this.group.registerRenderer(LocalDate.class, new LocalDateRenderer());
-    this.group.registerRenderer(LocalDateTime.class, new LocalDateTimeRenderer());
-    this.group.registerRenderer(LocalTime.class, new LocalTimeRenderer());
-    this.group.registerModelAdaptor(Object.class, new DataAdapter());
+    group.registerRenderer(String.class, new StrRenderer(locale));
+    group.registerRenderer(LocalDate.class, new LocalDateRenderer());
+    group.registerRenderer(LocalDateTime.class, new LocalDateTimeRenderer());
+    group.registerRenderer(LocalTime.class, new LocalTimeRenderer());
+    group.registerModelAdaptor(Object.class, new DataAdapter(locale));
 
     // Other renderers provide by ST
-    this.group.registerRenderer(Number.class, new NumberRenderer());
-    this.group.registerRenderer(Date.class, new DateRenderer());
+    group.registerRenderer(Number.class, new NumberRenderer());
+    group.registerRenderer(Date.class, new DateRenderer());
+
+    return group;
   }
 
   public StringTemplates withLocale(Locale locale) {
@@ -403,8 +499,25 @@ public class StringTemplates implements Templates {
 
   @Override
   public Template fromText(String text) {
-    ST template = new ST(group, text);
-    return new StringTemplate(template, locale);
+    final Locale locale = this.locale;
+    final List<Object> groupKey = Arrays.asList(delimiterStartChar, delimiterStopChar, locale);
+    final List<Object> key = Arrays.asList(delimiterStartChar, delimiterStopChar, locale, text);
+    try {
+      final CompiledTemplate compiled =
+          TEMPLATES.get(
+              key,
+              () -> {
+                final STGroup group =
+                    GROUPS.get(
+                        groupKey,
+                        () -> createGroup(delimiterStartChar, delimiterStopChar, locale));
+                return new CompiledTemplate(group, text);
+              });
+      return new StringTemplate(compiled, locale);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
   @Override
@@ -417,23 +530,23 @@ public class StringTemplates implements Templates {
     return fromText(CharStreams.toString(reader));
   }
 
-  private String translate(String value) {
+  private static String translate(Locale locale, String value) {
     if (locale == null || StringUtils.isBlank(value)) {
       return value;
     }
     return I18n.getBundle(locale).getString(value);
   }
 
-  private String valueOf(Object value) {
+  private static String valueOf(Object value) {
     if (value == null) return "";
     return String.valueOf(value);
   }
 
-  private String getSelectionTitle(String selection, Object value) {
+  private static String getSelectionTitle(Locale locale, String selection, Object value) {
     final String val = valueOf(value);
     if (StringUtils.isBlank(val)) return val;
     try {
-      return translate(MetaStore.getSelectionItem(selection, val).getTitle());
+      return translate(locale, MetaStore.getSelectionItem(selection, val).getTitle());
     } catch (Exception e) {
       return val;
     }
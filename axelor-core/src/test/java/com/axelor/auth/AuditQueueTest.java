@@ -0,0 +1,123 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.JpaTest;
+import com.axelor.auth.db.AuditLog;
+import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
+import com.axelor.mail.db.MailMessage;
+import com.axelor.team.db.TeamTask;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class AuditQueueTest extends JpaTest {
+
+  @Test
+  public void testDrain() {
+    final AuditQueue queue = new AuditQueue();
+    final AuditTracker tracker = new AuditTracker();
+    final Long[] ids = new Long[3];
+
+    JPA.runInTransaction(
+        () -> {
+          final User user = new User("audit-user", "Audit User");
+          user.setPassword("audit");
+          JPA.em().persist(user);
+
+          final TeamTask task = new TeamTask();
+          task.setName("Audit task");
+          task.setStatus("closed");
+          task.setAssignedTo(user);
+          JPA.em().persist(task);
+
+          final TeamTask deleted = new TeamTask();
+          deleted.setName("Deleted task");
+          JPA.em().persist(deleted);
+          JPA.em().flush();
+
+          ids[0] = user.getId();
+          ids[1] = task.getId();
+          ids[2] = deleted.getId();
+
+          // changes made by the user, evaluated with the current state
+          final Map<String, Object> values = new HashMap<>();
+          values.put("name", "Audit task");
+          values.put("status", "closed");
+          values.put("assignedTo", user);
+          final Map<String, Object> oldValues = new HashMap<>();
+          oldValues.put("name", "Audit task");
+          oldValues.put("status", "open");
+          oldValues.put("assignedTo", null);
+          queue.enqueue(task, tracker.prepare(task, values, oldValues), user);
+
+          final Map<String, Object> created = Collections.singletonMap("name", "Deleted task");
+          queue.enqueue(deleted, tracker.prepare(deleted, created, Collections.emptyMap()), user);
+        });
+
+    // state changed and record deleted before the queue is processed
+    JPA.runInTransaction(
+        () -> {
+          final TeamTask task = JPA.em().find(TeamTask.class, ids[1]);
+          task.setName("Renamed task");
+          task.setStatus("open");
+          JPA.em().remove(JPA.em().find(TeamTask.class, ids[2]));
+        });
+
+    final long taskMessages = count(ids[1]);
+    final long deletedMessages = count(ids[2]);
+
+    assertEquals(2, queue.drain());
+    assertEquals(0, JPA.all(AuditLog.class).count());
+
+    assertEquals(taskMessages + 1, count(ids[1]));
+    final MailMessage updated = last(ids[1]);
+    assertEquals("Record updated", updated.getSubject());
+    assertEquals("Audit task", updated.getRelatedName());
+    assertEquals(ids[0], updated.getAuthor().getId());
+    assertTrue(updated.getBody().contains("Task closed"));
+    assertTrue(updated.getBody().contains("Audit User"));
+
+    assertEquals(deletedMessages + 1, count(ids[2]));
+    final MailMessage created = last(ids[2]);
+    assertNotNull(created);
+    assertEquals("Task created", created.getSubject());
+    assertEquals("Deleted task", created.getRelatedName());
+    assertEquals(TeamTask.class.getName(), created.getRelatedModel());
+  }
+
+  private long count(Long relatedId) {
+    return JPA.all(MailMessage.class)
+        .filter("self.relatedModel = ? AND self.relatedId = ?", TeamTask.class.getName(), relatedId)
+        .count();
+  }
+
+  private MailMessage last(Long relatedId) {
+    return JPA.all(MailMessage.class)
+        .filter("self.relatedModel = ? AND self.relatedId = ?", TeamTask.class.getName(), relatedId)
+        .order("-id")
+        .fetchOne();
+  }
+}
@@ -19,6 +19,7 @@
 package com.axelor.auth;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,7 +30,9 @@ import com.axelor.auth.db.Permission;
 import com.axelor.auth.db.Role;
 import com.axelor.auth.db.User;
 import com.axelor.auth.db.repo.UserRepository;
+import com.axelor.db.JPA;
 import com.axelor.db.JpaSecurity.AccessType;
+import com.axelor.db.Model;
 import com.google.inject.persist.Transactional;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -222,6 +225,73 @@ public class AuthTest extends JpaTest {
         authSecurity.isPermitted(AccessType.WRITE, User.class, users.findByCode("demo").getId()));
   }
 
+  @Test
+  public void testPermissionChanges() {
+    login("guest", "guest");
+
+    final String name = "grant.read.group";
+
+    assertFalse(isPermitted(AccessType.READ, Group.class));
+
+    // compiled permissions are invalidated once changes are committed
+    JPA.runInTransaction(
+        () -> {
+          Permission permission = new Permission(name);
+          permission.setObject(Group.class.getName());
+          permission.setCanRead(true);
+          JPA.all(Role.class)
+              .filter("self.name = ?", "guest.user")
+              .fetchOne()
+              .addPermission(permission);
+        });
+
+    try {
+      assertTrue(isPermitted(AccessType.READ, Group.class));
+      assertFalse(isPermitted(AccessType.WRITE, Group.class));
+    } finally {
+      JPA.runInTransaction(
+          () -> {
+            Permission permission =
+                JPA.all(Permission.class).filter("self.name = ?", name).fetchOne();
+            JPA.all(Role.class)
+                .filter("self.name = ?", "guest.user")
+                .fetchOne()
+                .removePermission(permission);
+            JPA.remove(permission);
+          });
+    }
+
+    assertFalse(isPermitted(AccessType.READ, Group.class));
+  }
+
+  @Test
+  public void testTimeDependentParams() throws InterruptedException {
+    final Permission permission = new Permission("perm.user.time");
+    permission.setObject(User.class.getName());
+    permission.setCanRead(true);
+    permission.setCondition("self.createdOn < ?");
+    permission.setConditionParams("__time__");
+
+    final User user = new User("time", "Time");
+    user.addPermission(permission);
+
+    final AuthPermissionIndex.CompiledPermission compiled =
+        AuthPermissionIndex.of(user).resolve(User.class.getName(), AccessType.READ).get(0);
+
+    final Object first = compiled.getFilter(user).getParams().get(0);
+    Thread.sleep(10);
+    final Object second = compiled.getFilter(user).getParams().get(0);
+
+    // time dependent params are not frozen in the compiled permission
+    assertNotEquals(first, second);
+  }
+
+  private boolean isPermitted(AccessType type, Class<? extends Model> model) {
+    final boolean[] permitted = {false};
+    JPA.runInTransaction(() -> permitted[0] = authSecurity.isPermitted(type, model));
+    return permitted[0];
+  }
+
   @Test
   public void testEncrypt() {
     login("demo", "demo");
@@ -0,0 +1,142 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.axelor.JpaTest;
+import com.axelor.auth.db.Group;
+import com.axelor.db.JPA;
+import com.google.inject.persist.Transactional;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class ImportCacheTest extends JpaTest {
+
+  private static final String FILTER = "self.code = :code";
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Group find(ImportCache cache, String code) {
+    final Map<String, Object> params = Collections.singletonMap("code", code);
+    final Supplier<Group> loader =
+        () -> {
+          loads.incrementAndGet();
+          return JPA.all(Group.class).filter(FILTER).bind(params).autoFlush(false).fetchOne();
+        };
+    return cache.find(Group.class, FILTER, params, loader);
+  }
+
+  private Group create(String code) {
+    final Group group = new Group(code, code);
+    JPA.em().persist(group);
+    JPA.em().flush();
+    return group;
+  }
+
+  @Test
+  @Transactional
+  public void testHit() {
+    final ImportCache cache = new ImportCache(100);
+    final Group group = create("cache-hit");
+
+    assertSame(group, find(cache, "cache-hit"));
+    assertSame(group, find(cache, "cache-hit"));
+
+    // committed results are kept as ids
+    cache.commit();
+    JPA.em().clear();
+    assertEquals(group.getId(), find(cache, "cache-hit").getId());
+
+    assertEquals(1, loads.get());
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  @Transactional
+  public void testMiss() {
+    final ImportCache cache = new ImportCache(100);
+
+    // missing records are not cached
+    assertNull(find(cache, "cache-miss"));
+    assertNull(find(cache, "cache-miss"));
+    assertEquals(2, loads.get());
+
+    final Group group = create("cache-miss");
+    assertSame(group, find(cache, "cache-miss"));
+
+    // rolled back results are discarded
+    cache.rollback();
+    assertSame(group, find(cache, "cache-miss"));
+
+    assertEquals(4, loads.get());
+    assertEquals(0, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  @Transactional
+  public void testStaleAfterUpdate() {
+    final ImportCache cache = new ImportCache(100);
+    final Group group = create("cache-old");
+
+    assertSame(group, find(cache, "cache-old"));
+    cache.commit();
+
+    group.setCode("cache-new");
+    JPA.em().flush();
+
+    // the cached record doesn't match the searched code anymore
+    assertNull(find(cache, "cache-old"));
+    assertSame(group, find(cache, "cache-new"));
+
+    assertEquals(3, loads.get());
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  @Transactional
+  public void testPut() {
+    final ImportCache cache = new ImportCache(100);
+    final Map<String, Object> params = Collections.singletonMap("code", "cache-put");
+
+    // new records are cached only once saved
+    final Group skipped = new Group("cache-put", "cache-put");
+    cache.put(Group.class, FILTER, params, skipped);
+    cache.persisted();
+    assertNull(find(cache, "cache-put"));
+
+    final Group group = new Group("cache-put", "cache-put");
+    cache.put(Group.class, FILTER, params, group);
+    assertNull(find(cache, "cache-put"));
+
+    JPA.em().persist(group);
+    cache.persisted();
+    assertSame(group, find(cache, "cache-put"));
+
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.getHits());
+  }
+}
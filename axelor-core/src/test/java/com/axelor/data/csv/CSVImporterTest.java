@@ -0,0 +1,177 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.data.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.JpaTest;
+import com.axelor.auth.db.Group;
+import com.axelor.auth.db.User;
+import com.axelor.data.Listener;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CSVImporterTest extends JpaTest {
+
+  // more than two chunks of the default jdbc batch size
+  private static final int USERS = 45;
+
+  private static final String CONFIG =
+      "<?xml version=\"1.0\"?>\n"
+          + "<csv-inputs xmlns=\"http://axelor.com/xml/ns/data-import\">\n"
+          + "  <input file=\"%1$s-groups.csv\" type=\"com.axelor.auth.db.Group\"/>\n"
+          + "  <input file=\"%1$s-users.csv\" type=\"com.axelor.auth.db.User\"%2$s>\n"
+          + "    <bind column=\"code\" to=\"code\"/>\n"
+          + "    <bind column=\"name\" to=\"name\"/>\n"
+          + "    <bind column=\"password\" to=\"password\"/>\n"
+          + "    <bind column=\"groupCode\" to=\"group\" search=\"self.code = :groupCode\"/>\n"
+          + "  </input>\n"
+          + "</csv-inputs>\n";
+
+  @TempDir Path dataDir;
+
+  private static class TestListener implements Listener {
+
+    private final List<String> imported = Collections.synchronizedList(new ArrayList<>());
+    private final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> totals = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void imported(Model bean) {
+      imported.add(bean.getClass().getSimpleName());
+    }
+
+    @Override
+    public void imported(Integer total, Integer success) {
+      totals.add(total + "/" + success);
+    }
+
+    @Override
+    public void handle(Model bean, Exception e) {
+      errors.add(e);
+    }
+  }
+
+  @Test
+  public void testParallelOptIn() {
+    assertFalse(new CSVInput().isParallel());
+
+    final CSVInput input = new CSVInput();
+    input.setParallel(true);
+    assertTrue(input.isParallel());
+  }
+
+  @Test
+  public void testParallel() throws IOException {
+    final TestListener listener = run("csv-par", " parallel=\"true\"", -1);
+
+    // groups input completed before the users input
+    assertEquals(List.of("1/1", USERS + "/" + USERS), listener.totals);
+    assertTrue(listener.errors.isEmpty());
+    assertEquals(USERS + 1, listener.imported.size());
+    assertEquals("Group", listener.imported.get(0));
+
+    // all chunks resolved the record imported by the previous input
+    final Group group = findGroup("csv-par");
+    assertNotNull(group);
+    assertEquals(1, JPA.all(Group.class).filter("self.code = ?", "csv-par").count());
+    assertEquals(
+        USERS,
+        JPA.all(User.class)
+            .filter("self.code LIKE ? AND self.group = ?", "csv-par-%", group)
+            .count());
+  }
+
+  @Test
+  public void testParallelErrors() throws IOException {
+    // the duplicate row fails the unique constraint, the other rows of its chunk are kept
+    final TestListener listener = run("csv-err", " parallel=\"true\"", 25);
+
+    assertEquals(List.of("1/1", (USERS + 1) + "/" + USERS), listener.totals);
+    assertEquals(1, listener.errors.size());
+    assertEquals(USERS + 1, listener.imported.size());
+
+    final List<String> codes =
+        JPA.all(User.class)
+            .filter("self.code LIKE ?", "csv-err-%")
+            .fetch()
+            .stream()
+            .map(User::getCode)
+            .collect(Collectors.toList());
+    assertEquals(USERS, codes.size());
+    assertEquals(USERS, codes.stream().distinct().count());
+  }
+
+  @Test
+  public void testSequential() throws IOException {
+    // without parallel="true", the users are imported row by row
+    final TestListener listener = run("csv-seq", "", -1);
+
+    assertEquals(List.of("1/1", USERS + "/" + USERS), listener.totals);
+    assertTrue(listener.errors.isEmpty());
+    assertEquals(
+        USERS, JPA.all(User.class).filter("self.group = ?", findGroup("csv-seq")).count());
+  }
+
+  private Group findGroup(String code) {
+    return JPA.all(Group.class).filter("self.code = ?", code).fetchOne();
+  }
+
+  private TestListener run(String prefix, String attrs, int duplicate) throws IOException {
+    final List<String> users = new ArrayList<>();
+    users.add("code,name,password,groupCode");
+    for (int i = 0; i < USERS; i++) {
+      users.add(String.format("%s-%02d,User %d,secret,%s", prefix, i, i, prefix));
+      if (i == duplicate) {
+        users.add(String.format("%s-%02d,Duplicate %d,secret,%s", prefix, i, i, prefix));
+      }
+    }
+
+    write(prefix + "-groups.csv", List.of("code,name", prefix + "," + prefix));
+    write(prefix + "-users.csv", users);
+    write(prefix + ".xml", List.of(String.format(CONFIG, prefix, attrs)));
+
+    final TestListener listener = new TestListener();
+    final CSVImporter importer =
+        new CSVImporter(dataDir.resolve(prefix + ".xml").toString(), dataDir.toString());
+    importer.addListener(listener);
+    importer.setMaxWorkers(4);
+    importer.run();
+
+    getEntityManager().clear();
+    return listener;
+  }
+
+  private void write(String name, List<String> lines) throws IOException {
+    Files.write(dataDir.resolve(name), lines, StandardCharsets.UTF_8);
+  }
+}
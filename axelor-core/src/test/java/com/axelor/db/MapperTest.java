@@ -71,6 +71,25 @@ public class MapperTest extends JpaTest {
     assertEquals("Name", mapper.get(contact, "lastName"));
   }
 
+  @Test
+  @Order(2)
+  public void testIndex() {
+
+    Contact contact = all(Contact.class).fetchOne();
+
+    int firstName = mapper.getIndex("firstName");
+    int lastName = mapper.getIndex("lastName");
+
+    assertTrue(firstName > -1);
+    assertEquals(-1, mapper.getIndex("unknownField"));
+    assertEquals(contact.getFirstName(), mapper.get(contact, firstName));
+    assertEquals(contact.getLastName(), mapper.get(contact, lastName));
+
+    assertEquals(contact.getFirstName(), mapper.set(contact, firstName, "Other"));
+    assertEquals("Other", contact.getFirstName());
+    assertEquals("Other", mapper.get(contact, "firstName"));
+  }
+
   @Test
   @Order(3)
   public void testBean() {
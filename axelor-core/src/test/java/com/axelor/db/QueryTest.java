@@ -35,12 +35,15 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 
 public class QueryTest extends JpaTest {
@@ -129,6 +132,132 @@ public class QueryTest extends JpaTest {
         "Selecting fields should be consistent with number of results.");
   }
 
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void testSelectDistinct() {
+    final Query<Contact>.Selector selector =
+        all(Contact.class).order("firstName").select("fullName").distinct();
+
+    // ordering fields must be selected with DISTINCT, or the database rejects the query
+    assertTrue(selector.toString().startsWith("SELECT DISTINCT new List("), selector.toString());
+    assertTrue(selector.toString().contains(", self.firstName) FROM"), selector.toString());
+
+    final List<Map> distinctResults = selector.fetch(0, 0);
+    assertEquals(
+        all(Contact.class).count(),
+        distinctResults.size(),
+        "Selecting distinct rows should keep every record.");
+
+    // rows joining a collection are already distinct
+    final Query<Contact>.Selector joined =
+        all(Contact.class).order("firstName").select("fullName", "addresses.city").distinct();
+    assertTrue(joined.toString().startsWith("SELECT DISTINCT new List("), joined.toString());
+    assertFalse(joined.toString().contains("DISTINCT DISTINCT"), joined.toString());
+    assertEquals(
+        all(Contact.class)
+            .order("firstName")
+            .select("fullName", "addresses.city")
+            .fetch(0, 0)
+            .size(),
+        joined.fetch(0, 0).size());
+  }
+
+  @Test
+  @Transactional
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testSelectCollections() {
+    final String[] names = {"fullName", "addresses", "circles"};
+    final List<Map> expected = all(Contact.class).order("id").select(names).fetch(0, 0);
+    final List<Map> batched =
+        all(Contact.class).order("id").select(names).batchCollections().fetch(0, 0);
+
+    assertFalse(expected.isEmpty());
+    assertEquals(expected.size(), batched.size());
+
+    for (int i = 0; i < expected.size(); i++) {
+      final Map first = expected.get(i);
+      final Map second = batched.get(i);
+      assertEquals(first.get("id"), second.get("id"));
+      for (String name : Arrays.asList("addresses", "circles")) {
+        assertEquals(
+            new HashSet<>((List) first.get(name)), new HashSet<>((List) second.get(name)));
+      }
+    }
+  }
+
+  @Test
+  @Transactional
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testSelectJoinedCollections() {
+    // the joined addresses repeat the rows of the contacts with several addresses
+    final String[] names = {"fullName", "addresses.city", "circles"};
+    final List<Map> expected = all(Contact.class).order("id").select(names).fetch(0, 0);
+    final List<Map> batched =
+        all(Contact.class).order("id").select(names).batchCollections().fetch(0, 0);
+
+    assertEquals(expected.size(), batched.size());
+    assertTrue(expected.stream().map(row -> row.get("id")).distinct().count() < expected.size());
+
+    for (int i = 0; i < expected.size(); i++) {
+      final Map first = expected.get(i);
+      final Map second = batched.get(i);
+      assertEquals(first.get("id"), second.get("id"));
+      assertEquals(first.get("addresses.city"), second.get("addresses.city"));
+      assertEquals(
+          new HashSet<>((List) first.get("circles")), new HashSet<>((List) second.get("circles")));
+    }
+  }
+
+  @Test
+  @Transactional
+  @SuppressWarnings("rawtypes")
+  public void testStreamCollections() {
+    final String[] names = {"fullName", "addresses", "circles"};
+    final List<Map> expected = all(Contact.class).order("id").select(names).fetch(0, 0);
+
+    getEntityManager().clear();
+
+    final List<Map> streamed;
+    try (Stream<Map> stream =
+        all(Contact.class).order("id").select(names).fetchSize(2).fetchStream(0, 0)) {
+      streamed = stream.collect(Collectors.toList());
+    }
+
+    assertEquals(expected.size(), streamed.size());
+    // loaded entities are not kept in the session
+    assertEquals(0, getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+  }
+
+  @Test
+  @Transactional
+  public void testKeyset() {
+    final List<Contact> all = all(Contact.class).order("firstName").order("-id").fetch();
+    final List<Contact> paged = new ArrayList<>();
+
+    List<Contact> page = all(Contact.class).order("firstName").order("-id").fetch(2);
+    while (!page.isEmpty()) {
+      paged.addAll(page);
+      final Contact last = page.get(page.size() - 1);
+      page =
+          all(Contact.class)
+              .order("firstName")
+              .order("-id")
+              .after(last.getFirstName(), last.getId())
+              .fetch(2);
+    }
+
+    assertEquals(all, paged);
+  }
+
+  @Test
+  public void testCappedCount() {
+    final long total = all(Contact.class).count();
+    assertTrue(total > 1);
+    assertEquals(total, all(Contact.class).count((int) total));
+    assertEquals(2, all(Contact.class).count(1));
+    assertEquals(total, all(Contact.class).estimateCount((int) total));
+  }
+
   @Test
   @Transactional
   public void testStream() {
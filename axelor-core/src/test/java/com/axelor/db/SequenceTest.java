@@ -21,8 +21,13 @@ package com.axelor.db;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.axelor.JpaTest;
+import com.axelor.db.tenants.TenantAware;
 import com.axelor.meta.db.MetaSequence;
 import com.google.inject.persist.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -38,6 +43,8 @@ public class SequenceTest extends JpaTest {
   @Test
   @Transactional
   public void test() {
+    JpaSequence.nextValue("seq.emp.id", 1);
+
     assertEquals("EMP_00001_ID", JpaSequence.nextValue("seq.emp.id"));
     assertEquals("EMP_00002_ID", JpaSequence.nextValue("seq.emp.id"));
     assertEquals("EMP_00003_ID", JpaSequence.nextValue("seq.emp.id"));
@@ -46,4 +53,75 @@ public class SequenceTest extends JpaTest {
 
     assertEquals("EMP_00100_ID", JpaSequence.nextValue("seq.emp.id"));
   }
+
+  @Test
+  public void testCached() {
+    final String name = "seq.cached.id";
+
+    // start from a known state, whatever the tests run before
+    JPA.runInTransaction(() -> JpaSequence.nextValue(name, 1));
+
+    JPA.runInTransaction(
+        () -> {
+          assertEquals("C001", JpaSequence.nextValue(name));
+          assertEquals("C002", JpaSequence.nextValue(name));
+          assertEquals("C003", JpaSequence.nextValue(name));
+
+          // a block of 10 values is reserved
+          assertEquals(
+              11L,
+              JPA.em()
+                  .createQuery(
+                      "SELECT self.next FROM MetaSequence self WHERE self.name = :name",
+                      Long.class)
+                  .setParameter("name", name)
+                  .getSingleResult());
+        });
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    final int threads = 4;
+    final int count = 100;
+    final Set<String> values = ConcurrentHashMap.newKeySet();
+    final List<Thread> workers = new ArrayList<>();
+
+    for (int i = 0; i < threads; i++) {
+      workers.add(
+          new TenantAware(
+              () -> {
+                for (int j = 0; j < count; j++) {
+                  values.add(JpaSequence.nextValue("seq.concurrent.id"));
+                }
+              }));
+    }
+
+    for (Thread worker : workers) {
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(threads * count, values.size());
+  }
+
+  @Test
+  public void testCachedUpdate() {
+    final String name = "seq.update.id";
+
+    JPA.runInTransaction(() -> JpaSequence.nextValue(name, 1));
+    assertEquals("U001", JPA.withTransaction(() -> JpaSequence.nextValue(name)));
+
+    JPA.runInTransaction(
+        () -> {
+          final MetaSequence sequence =
+              Query.of(MetaSequence.class).filter("self.name = ?", name).fetchOne();
+          sequence.setPrefix("V");
+          sequence.setPadding(4);
+        });
+
+    // the reserved values are discarded once changes are committed
+    assertEquals("V0011", JPA.withTransaction(() -> JpaSequence.nextValue(name)));
+  }
 }
@@ -21,10 +21,15 @@ package com.axelor.i18n;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.axelor.JpaTest;
+import com.axelor.db.JPA;
+import com.axelor.events.internal.BeforeTransactionComplete;
+import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaTranslation;
 import com.axelor.meta.db.repo.MetaTranslationRepository;
 import com.google.inject.persist.Transactional;
+import java.util.Collections;
 import javax.inject.Inject;
+import javax.persistence.EntityTransaction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -73,4 +78,50 @@ public class I18nTest extends JpaTest {
     assertEquals(
         "5 records selected.", I18n.get("{0} record selected.", "{0} records selected.", 5));
   }
+
+  @Test
+  public void testUpdate() {
+
+    assertEquals("Good morning", I18n.get("Good morning"));
+
+    JPA.runInTransaction(
+        () -> {
+          MetaTranslation obj = new MetaTranslation();
+          obj.setKey("Good morning");
+          obj.setMessage("Bonjour");
+          obj.setLanguage("en");
+          translations.save(obj);
+        });
+
+    assertEquals("Bonjour", I18n.get("Good morning"));
+
+    JPA.runInTransaction(() -> translations.remove(translations.findByKey("Good morning", "en")));
+
+    assertEquals("Good morning", I18n.get("Good morning"));
+  }
+
+  @Test
+  public void testRollback() {
+
+    assertEquals("Good evening", I18n.get("Good evening"));
+
+    final EntityTransaction txn = JPA.em().getTransaction();
+    txn.begin();
+    try {
+      MetaTranslation obj = new MetaTranslation();
+      obj.setKey("Good evening");
+      obj.setMessage("Bonsoir");
+      obj.setLanguage("en");
+      translations.save(obj);
+
+      // as if the commit failed once the changes are notified
+      Beans.get(I18nObserver.class)
+          .onBeforeTransactionComplete(
+              new BeforeTransactionComplete(Collections.singleton(obj), Collections.emptySet()));
+    } finally {
+      txn.rollback();
+    }
+
+    assertEquals("Good evening", I18n.get("Good evening"));
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.mail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.JpaTest;
+import com.axelor.JpaTestModule;
+import com.axelor.TestingHelpers;
+import com.axelor.auth.AuthUtils;
+import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.mail.db.MailMessage;
+import com.axelor.mail.service.MailOutboxQueue;
+import com.axelor.mail.service.MailService;
+import com.axelor.mail.service.MailServiceImpl;
+import com.axelor.test.GuiceModules;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.inject.Inject;
+import javax.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+@GuiceModules(MailOutboxTest.OutboxTestModule.class)
+public class MailOutboxTest extends JpaTest {
+
+  private static final SmtpAccount SMTP_ACCOUNT =
+      new SmtpAccount(
+          ServerSetup.getLocalHostAddress(),
+          String.valueOf(ServerSetupTest.SMTP.getPort()),
+          "test",
+          "test");
+
+  @RegisterExtension
+  GreenMailExtension greenMail =
+      new GreenMailExtension(ServerSetupTest.SMTP)
+          .withConfiguration(GreenMailConfiguration.aConfig().withUser("test", "test"));
+
+  @Inject private MailOutboxQueue queue;
+
+  public static class OutboxTestModule extends JpaTestModule {
+
+    @Override
+    protected void configure() {
+      super.configure();
+      bind(MailService.class).to(TestMailService.class);
+    }
+  }
+
+  public static class TestMailService extends MailServiceImpl {
+
+    private static final List<String> USERS = new CopyOnWriteArrayList<>();
+
+    private final MailSender sender = new MailSender(SMTP_ACCOUNT);
+
+    @Override
+    protected MailSender getMailSender(MailMessage message, Model entity) {
+      final User user = AuthUtils.getUser();
+      USERS.add(user == null ? "" : user.getCode());
+      return sender;
+    }
+  }
+
+  private void enqueue(String messageId) {
+    MailMessage message = new MailMessage();
+    message.setSubject("Hello " + messageId);
+    message.setMessageId(messageId);
+    JPA.em().persist(message);
+
+    try {
+      MimeMessage email =
+          new MailSender(SMTP_ACCOUNT)
+              .compose()
+              .to("me@localhost")
+              .subject(message.getSubject())
+              .text("Hello...")
+              .build(messageId);
+      queue.enqueue(messageId, email);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testQueue() throws Exception {
+
+    JPA.runInTransaction(
+        () -> {
+          enqueue("<outbox-1@localhost>");
+          enqueue("<outbox-2@localhost>");
+          enqueue("<outbox-3@localhost>");
+        });
+
+    assertTrue(greenMail.waitForIncomingEmail(10000, 3));
+
+    MimeMessage[] received = greenMail.getReceivedMessages();
+    assertEquals(3, received.length);
+    assertTrue(received[0].getMessageID().startsWith("<outbox-"));
+
+    // queued emails are removed once sent
+    queue.drain();
+    assertEquals(0, queue.getQueueSize());
+  }
+
+  @Test
+  public void testSenderUser() throws Exception {
+    JPA.runInTransaction(() -> ensureAuth("outbox", "outbox"));
+    try {
+      JPA.runInTransaction(() -> enqueue("<outbox-user@localhost>"));
+      assertTrue(greenMail.waitForIncomingEmail(10000, 1));
+    } finally {
+      TestingHelpers.logout();
+    }
+
+    // sender is resolved by the workers with the user which queued the email
+    assertTrue(TestMailService.USERS.contains("outbox"));
+  }
+}
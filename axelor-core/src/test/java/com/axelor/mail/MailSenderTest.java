@@ -28,8 +28,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
@@ -155,4 +157,23 @@ public class MailSenderTest extends AbstractMailTest {
     assertEquals("text.txt", part2.getFileName());
     assertEquals("Hello...", part2.getContent());
   }
+
+  @Test
+  public void testBatch() throws Exception {
+
+    final MailSender sender = new MailSender(SMTP_ACCOUNT);
+    final List<MimeMessage> messages = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      messages.add(sender.compose().to(MY_EMAIL).subject("Batch " + i).text(TEXT).build());
+    }
+
+    try {
+      assertTrue(sender.send(messages).isEmpty());
+    } finally {
+      sender.close();
+    }
+
+    assertEquals(3, greenMail.getReceivedMessages().length);
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.auth.db.Role;
+import com.axelor.auth.db.User;
+import com.axelor.meta.db.MetaPermission;
+import com.axelor.meta.db.MetaPermissionRule;
+import com.axelor.test.db.Contact;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+public class TestMetaPermissions extends MetaTest {
+
+  private static final String MODEL = Contact.class.getName();
+
+  @Inject private MetaPermissions perms;
+
+  private MetaPermission permission(String name, boolean active, MetaPermissionRule... rules) {
+    final MetaPermission permission = new MetaPermission();
+    permission.setName(name);
+    permission.setObject(MODEL);
+    permission.setActive(active);
+    permission.setRules(List.of(rules));
+    return permission;
+  }
+
+  private MetaPermissionRule rule(String field, boolean canRead, boolean canWrite) {
+    final MetaPermissionRule rule = new MetaPermissionRule();
+    rule.setField(field);
+    rule.setCanRead(canRead);
+    rule.setCanWrite(canWrite);
+    return rule;
+  }
+
+  @Test
+  public void testFindRule() {
+    final MetaPermissionRule email = rule("email", false, false);
+    final MetaPermission own = permission("perm.own", true, email);
+    final MetaPermission inactive = permission("perm.inactive", false, rule("phone", false, false));
+    final MetaPermission shared =
+        permission("perm.shared", true, rule("email", true, true), rule("phone", true, false));
+
+    final Role role = new Role("test.role");
+    role.setMetaPermissions(new HashSet<>(Set.of(shared)));
+
+    final User user = new User("test", "Test");
+    user.setMetaPermissions(new HashSet<>(Set.of(own, inactive)));
+    user.setRoles(new HashSet<>(Set.of(role)));
+
+    // user permissions have priority over role permissions
+    final MetaPermissionRule found = perms.findRule(user, MODEL, "email");
+    assertNotNull(found);
+    assertFalse(found.getCanRead());
+    assertNotSame(email, found);
+
+    // inactive permissions are ignored
+    final MetaPermissionRule phone = perms.findRule(user, MODEL, "phone");
+    assertNotNull(phone);
+    assertTrue(phone.getCanRead());
+    assertFalse(phone.getCanWrite());
+
+    assertNull(perms.findRule(user, MODEL, "fullName"));
+    assertNull(perms.findRule(null, MODEL, "email"));
+    assertEquals(false, perms.canRead(user, MODEL, "email"));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import com.axelor.db.JPA;
+import com.axelor.meta.db.MetaSelect;
+import com.axelor.meta.db.MetaSelectItem;
+import com.axelor.meta.schema.views.Selection;
+import com.axelor.test.db.Contact;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TestMetaStore extends MetaTest {
+
+  private static final String SELECTION = "test.meta.store.selection";
+
+  private void createSelection() {
+    if (all(MetaSelect.class).filter("self.name = ?", SELECTION).count() > 0) {
+      return;
+    }
+
+    final MetaSelect select = new MetaSelect();
+    select.setName(SELECTION);
+    select.setPriority(20);
+    JPA.save(select);
+
+    for (int i = 1; i <= 3; i++) {
+      final MetaSelectItem item = new MetaSelectItem();
+      item.setSelect(select);
+      item.setValue("value" + i);
+      item.setTitle("Title " + i);
+      item.setOrder(i);
+      item.setHidden(false);
+      JPA.save(item);
+    }
+  }
+
+  @Test
+  public void testSelectionCache() {
+    JPA.runInTransaction(this::createSelection);
+
+    final List<Selection.Option> first = MetaStore.getSelectionList(SELECTION);
+    final List<Selection.Option> second = MetaStore.getSelectionList(SELECTION);
+
+    assertNotNull(first);
+    assertEquals(3, first.size());
+    assertNotSame(first.get(0), second.get(0));
+
+    // callers can't change the cached options
+    first.get(0).setTitle("Changed");
+    assertEquals("Title 1", MetaStore.getSelectionItem(SELECTION, "value1").getTitle());
+
+    // cache is invalidated on changes
+    JPA.runInTransaction(
+        () ->
+            all(MetaSelectItem.class)
+                .filter("self.select.name = ? AND self.value = ?", SELECTION, "value1")
+                .fetchOne()
+                .setTitle("Updated"));
+
+    assertEquals("Updated", MetaStore.getSelectionItem(SELECTION, "value1").getTitle());
+  }
+
+  @Test
+  public void testJsonFieldsCache() {
+    final Map<String, Object> first = MetaStore.findJsonFields(Contact.class.getName(), "attrs");
+    final Map<String, Object> second = MetaStore.findJsonFields(Contact.class.getName(), "attrs");
+
+    assertNotNull(first);
+    assertEquals(first.keySet(), second.keySet());
+    assertNotSame(first.values().iterator().next(), second.values().iterator().next());
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.db.JPA;
+import com.axelor.inject.Beans;
+import com.axelor.meta.service.tags.TagsCache;
+import com.axelor.test.db.Contact;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TestTagsCache extends MetaTest {
+
+  private static final String MODEL = "com.axelor.test.db.Contact";
+
+  @Test
+  public void testInvalidate() {
+    final TagsCache cache = new TagsCache();
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<Integer> loader = loads::incrementAndGet;
+    final List<Object> key = List.of("count");
+    final List<Set<String>> changes = new ArrayList<>();
+
+    cache.addListener((tenant, models) -> changes.add(models));
+
+    final Set<String> models =
+        cache.record(
+            () -> {
+              assertEquals(1, cache.get(key, Set.of(MODEL), loader));
+              assertEquals(1, cache.get(key, Set.of(MODEL), loader));
+            });
+
+    assertEquals(Set.of(MODEL), models);
+    assertEquals(1, loads.get());
+
+    // unrelated changes keep the value
+    cache.invalidate(null, Set.of("com.axelor.test.db.Title"));
+    assertEquals(1, cache.get(key, Set.of(MODEL), loader));
+    assertTrue(changes.isEmpty());
+
+    cache.invalidate(null, Set.of(MODEL));
+    assertEquals(List.of(Set.of(MODEL)), changes);
+    assertEquals(2, cache.get(key, Set.of(MODEL), loader));
+  }
+
+  @Test
+  public void testInvalidateKeys() {
+    final TagsCache cache = new TagsCache();
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<Integer> loader = loads::incrementAndGet;
+
+    assertEquals(1, cache.get(List.of("a"), Set.of(MODEL), loader));
+    assertEquals(2, cache.get(List.of("b"), Set.of(MODEL, "user:1"), loader));
+    assertEquals(3, cache.get(List.of("c"), Set.of("user:2"), loader));
+
+    // only the values depending on the changed names are removed
+    cache.invalidate(null, Set.of("user:1"));
+    assertEquals(1, cache.get(List.of("a"), Set.of(MODEL), loader));
+    assertEquals(4, cache.get(List.of("b"), Set.of(MODEL, "user:1"), loader));
+    assertEquals(3, cache.get(List.of("c"), Set.of("user:2"), loader));
+
+    // other tenants keep their values
+    cache.invalidate("other", Set.of(MODEL));
+    assertEquals(1, cache.get(List.of("a"), Set.of(MODEL), loader));
+
+    cache.invalidate(null, Set.of(MODEL));
+    assertEquals(5, cache.get(List.of("a"), Set.of(MODEL), loader));
+    assertEquals(6, cache.get(List.of("b"), Set.of(MODEL, "user:1"), loader));
+    assertEquals(3, cache.get(List.of("c"), Set.of("user:2"), loader));
+  }
+
+  @Test
+  public void testResolver() {
+    final TagsCache cache = Beans.get(TagsCache.class);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<Integer> loader = loads::incrementAndGet;
+
+    cache.addResolver(
+        Contact.class,
+        contacts ->
+            contacts.stream()
+                .map(contact -> "contact:" + ((Contact) contact).getLastName())
+                .collect(Collectors.toSet()));
+
+    assertEquals(1, cache.get(List.of("resolved"), Set.of("contact:Resolved"), loader));
+    assertEquals(2, cache.get(List.of("other"), Set.of("contact:Other"), loader));
+
+    JPA.runInTransaction(
+        () -> {
+          final Contact contact = new Contact();
+          contact.setFirstName("Tags");
+          contact.setLastName("Resolved");
+          JPA.save(contact);
+        });
+
+    // the values depending on the resolved name of the changed record are invalidated
+    assertEquals(3, cache.get(List.of("resolved"), Set.of("contact:Resolved"), loader));
+    assertEquals(2, cache.get(List.of("other"), Set.of("contact:Other"), loader));
+  }
+}
@@ -21,6 +21,7 @@ package com.axelor.meta.loader;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.axelor.auth.db.Group;
 import com.axelor.auth.db.Role;
@@ -32,6 +33,8 @@ import com.axelor.meta.MetaTest;
 import com.axelor.meta.db.MetaMenu;
 import com.axelor.meta.db.repo.MetaMenuRepository;
 import com.axelor.meta.schema.views.MenuItem;
+import com.axelor.meta.service.menu.MenuCache;
+import com.axelor.meta.service.menu.MenuEntry;
 import com.axelor.meta.service.menu.MenuService;
 import com.axelor.meta.service.tags.TagItem;
 import com.axelor.meta.service.tags.TagsService;
@@ -39,6 +42,7 @@ import com.google.inject.persist.Transactional;
 import java.io.IOException;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.xml.bind.JAXBException;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,6 +57,7 @@ public class TestMenu extends MetaTest {
   @Inject private MetaMenuRepository metaMenuRepository;
   @Inject private MenuService menuService;
   @Inject private TagsService tagsService;
+  @Inject private MenuCache menuCache;
 
   @BeforeEach
   @Transactional
@@ -129,6 +134,34 @@ public class TestMenu extends MetaTest {
     assertFalse(guestTags.stream().anyMatch(it -> it.getName().equals("menu-root-3-3")));
   }
 
+  @Test
+  @Transactional
+  public void testMenuCache() {
+    final User demo = users.findByCode("demo");
+    final User guest = users.findByCode("guest");
+
+    final Map<String, MenuEntry> demoMenus = menuCache.get(demo);
+    assertEquals(menuService.getMenus(demo).size(), demoMenus.size());
+    assertEquals(demoMenus.keySet(), menuCache.get(demo).keySet());
+    assertTrue(demoMenus.containsKey("menu-root-1-2"));
+
+    // user menus are only shown to their owner
+    final MetaMenu menu = metaMenuRepository.findByName("menu-root-1-2");
+    menu.setUser(guest);
+    menuCache.invalidateAll();
+    try {
+      assertFalse(menuCache.get(demo).containsKey("menu-root-1-2"));
+      assertTrue(menuCache.get(guest).containsKey("menu-root-1-2"));
+      assertFalse(
+          menuCache
+              .get(demo, List.of("menu-root-1-1", "menu-root-1-2"))
+              .containsKey("menu-root-1-2"));
+    } finally {
+      menu.setUser(null);
+      menuCache.invalidateAll();
+    }
+  }
+
   private void createDemoData() {
 
     User admin = new User("admin", "Administrator");
@@ -19,12 +19,19 @@
 package com.axelor.meta.loader;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.axelor.TestingHelpers;
 import com.axelor.common.ResourceUtils;
+import com.axelor.db.JPA;
 import com.axelor.db.Query.Selector;
 import com.axelor.meta.MetaTest;
+import com.axelor.meta.db.MetaJsonField;
+import com.axelor.meta.db.MetaView;
 import com.axelor.meta.schema.ObjectViews;
 import com.axelor.meta.schema.views.AbstractView;
 import com.axelor.meta.schema.views.ChartView;
@@ -33,6 +40,7 @@ import com.axelor.meta.schema.views.PanelInclude;
 import com.axelor.meta.schema.views.Search;
 import com.axelor.script.ScriptHelper;
 import com.axelor.test.db.Title;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.google.common.collect.Maps;
 import com.google.inject.persist.Transactional;
 import java.io.StringWriter;
@@ -130,6 +138,120 @@ public class TestViews extends MetaTest {
     assertEquals(form1.getName(), included.getName());
   }
 
+  @Test
+  @Transactional
+  public void testViewCache() throws Exception {
+
+    final URL url = ResourceUtils.getResource("com/axelor/meta/Include.xml");
+    loader.process(url, new Module("test"), false);
+
+    final FormView first = (FormView) XMLViews.findView("contact-form1", null, null, "test");
+    final FormView second = (FormView) XMLViews.findView("contact-form1", null, null, "test");
+
+    assertNotNull(first);
+    assertNotNull(second);
+    assertNotSame(first, second);
+    assertNotSame(first.getItems(), second.getItems());
+    assertEquals(first.getViewId(), second.getViewId());
+    assertEquals(first.getItems().size(), second.getItems().size());
+
+    // cached views should not be affected by changes made by callers
+    first.getItems().clear();
+    first.setTitle("Changed");
+
+    final FormView third = (FormView) XMLViews.findView("contact-form1", null, null, "test");
+    assertEquals(second.getItems().size(), third.getItems().size());
+    assertEquals(second.getTitle(), third.getTitle());
+  }
+
+  @Test
+  public void testViewCacheInvalidation() throws Exception {
+    final String name = "contact-cache-grid";
+    final String xml =
+        "<object-views xmlns=\"http://axelor.com/xml/ns/object-views\">"
+            + "<grid name=\""
+            + name
+            + "\" title=\"Cached\" model=\"com.axelor.test.db.Contact\">"
+            + "<field name=\"fullName\"/>"
+            + "</grid></object-views>";
+
+    // the missing view is cached
+    assertNull(XMLViews.findView(name, null, null, "test"));
+
+    final MetaView view = new MetaView();
+    view.setName(name);
+    view.setType("grid");
+    view.setModel("com.axelor.test.db.Contact");
+    view.setModule("test");
+    view.setXml(XMLViews.toXml(XMLViews.unmarshal(xml).getViews().get(0), true));
+
+    // resolved views are invalidated once the change is committed
+    JPA.runInTransaction(() -> JPA.save(view));
+    final AbstractView found = XMLViews.findView(name, null, null, "test");
+    assertNotNull(found);
+    assertEquals("Cached", found.getTitle());
+
+    JPA.runInTransaction(() -> JPA.remove(JPA.find(MetaView.class, view.getId())));
+    assertNull(XMLViews.findView(name, null, null, "test"));
+  }
+
+  @Test
+  public void testViewJsonCacheIncludeIf() throws Exception {
+    final String name = "contact-include-if-form";
+    final String xml =
+        "<object-views xmlns=\"http://axelor.com/xml/ns/object-views\">"
+            + "<form name=\""
+            + name
+            + "\" title=\"Contact\" model=\"com.axelor.test.db.Contact\">"
+            + "<field name=\"attrs\"/>"
+            + "</form></object-views>";
+
+    final MetaView view = new MetaView();
+    view.setName(name);
+    view.setType("form");
+    view.setModel("com.axelor.test.db.Contact");
+    view.setModule("test");
+    view.setXml(XMLViews.toXml(XMLViews.unmarshal(xml).getViews().get(0), true));
+
+    // users without group, roles or permissions share the same permission set
+    final MetaJsonField field = new MetaJsonField();
+    field.setName("ownerNote");
+    field.setType("string");
+    field.setModel("com.axelor.test.db.Contact");
+    field.setModelField("attrs");
+    field.setIncludeIf("__user__.code == 'include-if-1'");
+
+    JPA.runInTransaction(
+        () -> {
+          JPA.save(view);
+          JPA.save(field);
+        });
+
+    try {
+      JPA.runInTransaction(() -> ensureAuth("include-if-1", "include-if"));
+      final String first = serialize(name);
+      JPA.runInTransaction(() -> ensureAuth("include-if-2", "include-if"));
+      final String second = serialize(name);
+
+      assertFalse(first.contains("forceHidden"));
+      assertTrue(second.contains("forceHidden"));
+    } finally {
+      TestingHelpers.logout();
+      JPA.runInTransaction(
+          () -> {
+            JPA.remove(JPA.find(MetaJsonField.class, field.getId()));
+            JPA.remove(JPA.find(MetaView.class, view.getId()));
+          });
+    }
+  }
+
+  private String serialize(String name) {
+    final AbstractView view = XMLViews.findView(name, null, null, "test");
+    final Object json = ViewJsonCache.toJson(view, getObjectMapper());
+    assertTrue(json instanceof RawValue);
+    return ((RawValue) json).rawValue().toString();
+  }
+
   @Test
   public void testChart() throws Exception {
     ObjectViews views = this.unmarshal("com/axelor/meta/Charts.xml", ObjectViews.class);
@@ -0,0 +1,132 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.meta.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.axelor.JpaTest;
+import com.axelor.db.Query.Selector;
+import com.axelor.test.db.Contact;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class TestSearchExecutor extends JpaTest {
+
+  @SuppressWarnings("rawtypes")
+  private static List<Object> ids(List<Map> rows) {
+    return rows.stream().map(row -> row.get("id")).collect(Collectors.toList());
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void testFetch() {
+    final SearchExecutor executor = new SearchExecutor(2, 10, TimeUnit.SECONDS);
+    final List<Selector> selectors =
+        List.of(
+            all(Contact.class).order("id").select("fullName"),
+            all(Contact.class).filter("self.addresses IS NOT EMPTY").order("-id").select("email"),
+            all(Contact.class).order("fullName").select("fullName"));
+    try {
+      final List<List<Map>> result = executor.fetch(selectors, List.of(2, 10, 10), 0);
+
+      // same rows as fetched sequentially, in the order of the selects
+      assertEquals(selectors.size(), result.size());
+      for (int i = 0; i < selectors.size(); i++) {
+        final int limit = i == 0 ? 2 : 10;
+        assertEquals(ids(selectors.get(i).fetch(limit, 0)), ids(result.get(i)));
+      }
+      assertEquals(2, result.get(0).size());
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void testTimeout() {
+    final SearchExecutor executor = new SearchExecutor(2, 500, TimeUnit.MILLISECONDS);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    // the slow select reads two rows, then waits for the database
+    final Stream<Map> slow =
+        Stream.iterate(1L, i -> i + 1)
+            .map(
+                i -> {
+                  if (i > 2) {
+                    await(release);
+                  }
+                  return Map.of("id", i);
+                })
+            .limit(5);
+
+    final long start = System.nanoTime();
+    try {
+      final List<List<Map>> result =
+          executor.fetch(
+              List.of(
+                  new SearchExecutor.Task("fast", () -> Stream.of(Map.of("id", 0L))),
+                  new SearchExecutor.Task("slow", () -> slow)));
+
+      // the selects not completed at the deadline return the rows read so far
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      assertEquals(List.of(0L), ids(result.get(0)));
+      assertEquals(List.of(1L, 2L), ids(result.get(1)));
+    } finally {
+      release.countDown();
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testError() {
+    final SearchExecutor executor = new SearchExecutor(2, 10, TimeUnit.SECONDS);
+    try {
+      final IllegalStateException error =
+          assertThrows(
+              IllegalStateException.class,
+              () ->
+                  executor.fetch(
+                      List.of(
+                          new SearchExecutor.Task("empty", Stream::empty),
+                          new SearchExecutor.Task(
+                              "failed",
+                              () -> {
+                                throw new IllegalStateException("failed");
+                              }))));
+      assertEquals("failed", error.getMessage());
+    } finally {
+      executor.stop();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
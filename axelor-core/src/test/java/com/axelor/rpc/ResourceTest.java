@@ -19,6 +19,7 @@
 package com.axelor.rpc;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -33,10 +34,15 @@ import com.axelor.test.db.Contact;
 import com.axelor.test.db.Title;
 import com.axelor.test.db.repo.ContactRepository;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.persist.Transactional;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import javax.inject.Inject;
 import org.junit.jupiter.api.AfterAll;
@@ -81,6 +87,107 @@ public class ResourceTest extends RpcTest {
     assertTrue(res.getData() instanceof List);
   }
 
+  @Test
+  @Transactional
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void testKeysetNullSortKeys() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      Contact contact = new Contact();
+      contact.setFirstName("Keyset" + i);
+      contact.setLastName("Null");
+      contact.setEmail(i % 2 == 0 ? null : "keyset" + i + "@example.com");
+      contacts.save(contact);
+    }
+
+    Request req = new Request();
+    req.setModel(Contact.class.getName());
+    req.setFields(Lists.newArrayList("fullName", "email"));
+    req.setSortBy(Lists.newArrayList("email"));
+
+    List<Object> expected = new ArrayList<>();
+    ((List<Map>) resource.search(req).getData()).forEach(item -> expected.add(item.get("id")));
+    assertTrue(expected.size() > 6);
+
+    // null sort values span the page boundaries
+    List<Object> paged = new ArrayList<>();
+    List<Object> cursor = new ArrayList<>();
+    int offset = 0;
+    req.setLimit(3);
+    while (true) {
+      req.setCursor(cursor);
+      req.setOffset(offset);
+      Response res = resource.search(req);
+      List<Map> data = (List<Map>) res.getData();
+      data.forEach(item -> paged.add(item.get("id")));
+      if (data.size() < 3) {
+        break;
+      }
+      // nullable sort keys fall back to offset pagination
+      assertNull(res.getCursor());
+      offset += data.size();
+    }
+
+    assertEquals(expected, paged);
+
+    // required sort keys still use keyset pagination
+    req.setSortBy(Lists.newArrayList("firstName"));
+    req.setCursor(new ArrayList<>());
+    req.setOffset(0);
+    assertNotNull(resource.search(req).getCursor());
+  }
+
+  @Test
+  @Transactional
+  public void testExportStream() throws Exception {
+
+    Request req = new Request();
+    req.setModel(Contact.class.getName());
+    req.setFields(Lists.newArrayList("fullName", "email", "title"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Response res = resource.exportStream(req, out, StandardCharsets.UTF_8, Locale.ENGLISH, ';');
+
+    assertNotNull(res);
+    assertEquals(contacts.all().count(), res.getTotal());
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(res.getTotal() + 1, lines.length);
+    assertEquals(3, lines[0].split(";").length);
+  }
+
+  @Test
+  @SuppressWarnings("all")
+  @Transactional
+  public void testToMap() throws Exception {
+
+    Contact c = contacts.all().filter("firstName = ?", "James").fetchOne();
+    Map<String, Object> map = Resource.toMap(c, "fullName", "title.code");
+
+    assertEquals(c.getId(), map.get("id"));
+    assertEquals(c.getVersion(), map.get("version"));
+    assertEquals(c.getFullName(), map.get("fullName"));
+    assertTrue(map.containsKey("title"));
+    assertFalse(map.containsKey("email"));
+    assertFalse(map.containsKey("addresses"));
+
+    Map<String, Object> compact = Resource.toMapCompact(c);
+
+    assertEquals(c.getId(), compact.get("id"));
+    assertEquals(c.getVersion(), compact.get("$version"));
+    assertEquals(c.getFullName(), compact.get("fullName"));
+    assertFalse(compact.containsKey("email"));
+
+    Title t = new Title();
+    t.setCode("mr");
+    t.setName("Mr.");
+
+    Map<String, Object> full = Resource.toMap(t);
+
+    assertEquals("mr", full.get("code"));
+    assertEquals("Mr.", full.get("name"));
+    assertTrue(full.containsKey("id"));
+  }
+
   @Test
   @SuppressWarnings("all")
   @Transactional
@@ -0,0 +1,47 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.rpc.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.axelor.db.internal.TrigramIndexes;
+import org.junit.jupiter.api.Test;
+
+public class LikeFilterTest {
+
+  @Test
+  public void testQuery() {
+    // with trigram indexes disabled, the queries are unchanged
+    assertFalse(TrigramIndexes.isEnabled());
+    assertEquals("unaccent", TrigramIndexes.getUnaccentFunction());
+
+    assertEquals(
+        "(unaccent(UPPER(self.name)) LIKE unaccent(?))",
+        LikeFilter.getQuery("self.name", "LIKE", TrigramIndexes.getUnaccentFunction()));
+    assertEquals(
+        "(unaccent(UPPER(self.name)) NOT LIKE unaccent(?))",
+        LikeFilter.getQuery("self.name", "NOT LIKE", TrigramIndexes.getUnaccentFunction()));
+    assertEquals("(UPPER(self.name) LIKE ?)", LikeFilter.getQuery("self.name", "LIKE", null));
+
+    // unaccent is not supported by the test database
+    assertEquals("(UPPER(self.name) LIKE ?)", LikeFilter.like("name", "text").getQuery());
+    assertEquals("(UPPER(self.name) NOT LIKE ?)", LikeFilter.notLike("name", "text").getQuery());
+  }
+}
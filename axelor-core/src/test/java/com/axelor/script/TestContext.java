@@ -23,15 +23,21 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.axelor.db.JPA;
 import com.axelor.inject.Beans;
 import com.axelor.rpc.Context;
 import com.axelor.rpc.ContextEntity;
+import com.axelor.rpc.ContextHandler;
+import com.axelor.test.db.Address;
 import com.axelor.test.db.Contact;
 import com.axelor.test.db.TypeCheck;
 import com.axelor.test.db.repo.ContactRepository;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -94,6 +100,35 @@ public class TestContext extends ScriptTest {
     assertNotNull(((ContextEntity) proxy).getContextMap());
   }
 
+  @Test
+  public void testCollectionItems() {
+    final List<Long> ids =
+        JPA.all(Address.class).order("-id").fetch().stream()
+            .map(Address::getId)
+            .collect(Collectors.toList());
+
+    final List<Map<String, Object>> items = new ArrayList<>();
+    for (Long id : ids) {
+      final Map<String, Object> item = new HashMap<>();
+      item.put("id", id);
+      items.add(item);
+    }
+
+    items.get(0).put("selected", true);
+
+    final Map<String, Object> values = new HashMap<>();
+    values.put("addresses", items);
+
+    final long loaded = ContextHandler.getLoadedCount();
+    final Contact proxy = new Context(values, Contact.class).asType(Contact.class);
+    final List<Address> addresses = proxy.getAddresses();
+
+    assertEquals(ids, addresses.stream().map(Address::getId).collect(Collectors.toList()));
+    assertEquals(ids.size(), ContextHandler.getLoadedCount() - loaded);
+    assertFalse(addresses.get(0) instanceof ContextEntity);
+    assertTrue(addresses.get(0).isSelected());
+  }
+
   @Test
   public void testBooleanAndIntegerFields() {
     Map<String, Object> data = new HashMap<>();
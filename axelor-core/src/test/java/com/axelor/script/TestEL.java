@@ -27,14 +27,34 @@ import com.axelor.test.db.Currency;
 import com.axelor.test.db.repo.ContactRepository;
 import com.axelor.test.db.repo.CurrencyRepository;
 import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.script.Bindings;
+import javax.script.SimpleBindings;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @TestMethodOrder(MethodOrderer.MethodName.class)
 public class TestEL extends ScriptTest {
 
+  private static final Logger log = LoggerFactory.getLogger(TestEL.class);
+
+  private static final int COUNT = 1000;
+
+  // typical expressions of attrs and record actions
+  private static final String[] EXPR_ACTIONS = {
+    "fullName != null && title.code == 'mrs'",
+    "__ref__.fullName",
+    "$attrs.nickName",
+    "orderAmount > 1000",
+    "int(numerology) + 1",
+    "contactStatus == EnumStatusNumber.ONE",
+  };
+
   private static final String EXPR_INTERPOLATION =
       "fmt:text('(%s) = %s %s (%s) = (%s)', title.name, firstName, lastName, fullName, __user__)";
 
@@ -126,6 +146,69 @@ public class TestEL extends ScriptTest {
     assertTrue((Boolean) result);
   }
 
+  @Test
+  public void testCachedExpressions() {
+    ScriptHelper helper = new ELScriptHelper(context());
+
+    assertEquals(true, helper.eval(EXPR_ACTIONS[0]));
+    assertEquals("Mr. John Smith", helper.eval(EXPR_ACTIONS[1]));
+    assertEquals(true, helper.eval(EXPR_ACTIONS[5]));
+
+    // cached expressions give the same results as the first evaluation
+    Object[] expected = new Object[EXPR_ACTIONS.length];
+    for (int i = 0; i < EXPR_ACTIONS.length; i++) {
+      expected[i] = new ELScriptHelper(context()).eval(EXPR_ACTIONS[i]);
+    }
+    for (int i = 0; i < COUNT; i++) {
+      for (int j = 0; j < EXPR_ACTIONS.length; j++) {
+        assertEquals(expected[j], helper.eval(EXPR_ACTIONS[j]));
+      }
+    }
+  }
+
+  // benchmark of the expression cache, run manually
+  @Test
+  @Disabled
+  public void testSpeed() {
+    final Context context = context();
+
+    // warm up the expression cache and the jit
+    time(() -> new ELScriptHelper(context), COUNT);
+    time(() -> new ELScriptHelper(context), COUNT);
+
+    final ScriptHelper helper = new ELScriptHelper(context);
+    final long fresh = time(() -> new ELScriptHelper(context), COUNT);
+    final long reused = time(() -> helper, COUNT);
+
+    log.info(
+        "Evaluated {} x {} expressions: fresh helpers {} ms, reused helper {} ms",
+        COUNT,
+        EXPR_ACTIONS.length,
+        TimeUnit.NANOSECONDS.toMillis(fresh),
+        TimeUnit.NANOSECONDS.toMillis(reused));
+  }
+
+  private long time(Supplier<ScriptHelper> helpers, int count) {
+    final long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      for (String expr : EXPR_ACTIONS) {
+        helpers.get().eval(expr);
+      }
+    }
+    return System.nanoTime() - start;
+  }
+
+  @Test
+  public void testBindings() throws Exception {
+    ScriptHelper helper = new ELScriptHelper(context());
+    Bindings bindings = new SimpleBindings();
+    bindings.put("fullName", "Some Name");
+
+    assertEquals("Mrs. John NAME", helper.eval("fullName"));
+    assertEquals("Some Name", helper.eval("fullName", bindings));
+    assertEquals("Some Name", new ELScriptHelper(bindings).eval("fullName"));
+  }
+
   @Test
   public void testEnum() {
     ScriptHelper helper = new ELScriptHelper(context());
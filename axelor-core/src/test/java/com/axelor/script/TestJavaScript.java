@@ -118,6 +118,31 @@ public class TestJavaScript extends ScriptTest {
     assertTrue(bean instanceof Contact);
   }
 
+  @Test
+  public void doReuseTest() {
+    final ScriptHelper helper = new JavaScriptScriptHelper(context());
+
+    assertEquals("Some Name", helper.eval("var tmp = nickName; tmp"));
+    assertEquals("undefined", helper.eval("typeof tmp"));
+
+    assertEquals(3, helper.eval("let x = 1; x + 2"));
+    assertEquals(4, helper.eval("let x = 2; x + 2"));
+
+    // globals changed by expressions are restored
+    assertEquals(1, helper.eval("(Math = 1)"));
+    assertEquals("function", helper.eval("typeof Math.max"));
+    assertEquals(2, helper.eval("(globalThis.nickName = 2)"));
+    assertEquals("Some Name", helper.eval("nickName"));
+
+    // results don't depend on the context
+    final Object list = helper.eval("[1, [2, 3], {a: 4}]");
+    assertEquals(List.of(1, List.of(2, 3), Map.of("a", 4)), list);
+
+    final ScriptHelper other = new JavaScriptScriptHelper(context());
+    assertEquals(helper.eval("__ref__.fullName"), other.eval("__ref__.fullName"));
+    assertTrue(JavaScriptScriptHelper.getPoolSize() > 0);
+  }
+
   @Test
   public void test01_casts() {
     doCastTest(0);
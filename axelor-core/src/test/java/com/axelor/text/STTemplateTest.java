@@ -48,6 +48,18 @@ public class STTemplateTest extends TemplateScriptTest {
     assertEquals(OUTPUT_SIMPLE, text);
   }
 
+  @Test
+  public void testStringTemplateReuse() {
+    Template template = new StringTemplates().fromText(TEMPLATE_SIMPLE);
+
+    assertEquals(OUTPUT_SIMPLE, template.make(vars).render());
+    assertEquals(OUTPUT_SIMPLE, template.make(vars).render());
+
+    // compiled template is shared
+    Template other = new StringTemplates().fromText(TEMPLATE_SIMPLE);
+    assertEquals(OUTPUT_SIMPLE, other.make(vars).render());
+  }
+
   private static final String TEMPLATE_COMPLEX =
       ""
           + "<html>\n"
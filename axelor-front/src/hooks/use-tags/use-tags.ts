@@ -1,11 +1,11 @@
 import { useCallback, useEffect, useMemo } from "react";
-import { useAtomValue, useSetAtom } from "jotai";
+import { atom, useAtomValue, useSetAtom } from "jotai";
 import { atomWithImmer } from "jotai-immer";
 import { selectAtom } from "jotai/utils";
 import isEqual from "lodash/isEqual";
 
 import { Tag } from "@/services/client/meta.types";
-import { SocketChannel } from "@/services/client/socket";
+import { SocketChannel, socket } from "@/services/client/socket";
 
 const tagsAtom = atomWithImmer<{
   tasks: {
@@ -29,6 +29,9 @@ const tagsAtom = atomWithImmer<{
   tags: [],
 });
 
+// whether the tags socket is connected, values are then pushed on changes
+const connectedAtom = atom(false);
+
 export function useTagsState() {
   return useAtomValue(tagsAtom);
 }
@@ -51,20 +54,35 @@ export function useTagsTasks() {
   );
 }
 
+export function useTagsConnected() {
+  return useAtomValue(connectedAtom);
+}
+
+export function getTagNames() {
+  return Array.from(document.querySelectorAll("[data-tag-name]"))
+    .map((el) => (el as HTMLElement).dataset.tagName)
+    .filter((tag) => tag) as string[];
+}
+
 const tagsChannel = new SocketChannel("tags");
 
 export function useTags() {
   const setTags = useSetAtom(tagsAtom);
+  const setConnected = useSetAtom(connectedAtom);
 
   const fetchTags = useCallback(async function refresh() {
-    const names = Array.from(document.querySelectorAll("[data-tag-name]"))
-      .map((el) => (el as HTMLElement).dataset.tagName)
-      .filter((tag) => tag);
-
-    return tagsChannel.send(names);
+    return tagsChannel.send(getTagNames());
   }, []);
 
   useEffect(() => {
+    socket.init().then(() => setConnected(socket.connected));
+  }, [setConnected]);
+
+  useEffect(() => {
+    const callbacks = {
+      onopen: () => setConnected(true),
+      onclose: () => setConnected(false),
+    };
     return tagsChannel.subscribe((message: any) => {
       const { mail, tasks, tags } = message?.values || {};
       setTags((draft) => {
@@ -76,12 +94,13 @@ export function useTags() {
           draft.mail.total = mail.total ?? 0;
           draft.mail.unread = mail.unread ?? 0;
         }
-        if (!isEqual(tags, draft.tags)) {
+        // pushed messages only contain the changed values
+        if (tags && !isEqual(tags, draft.tags)) {
           draft.tags = tags;
         }
       });
-    });
-  }, [setTags]);
+    }, callbacks);
+  }, [setTags, setConnected]);
 
   return { fetchTags };
 }
@@ -1,17 +1,60 @@
 import { useEffect } from "react";
-import { useTags } from "@/hooks/use-tags";
+import { getTagNames, useTags, useTagsConnected } from "@/hooks/use-tags";
 import { getPollingInterval } from "@/utils/app-settings.ts";
 
+const ACTIVITY_EVENTS = [
+  "mousemove",
+  "mousedown",
+  "keypress",
+  "DOMMouseScroll",
+  "mousewheel",
+  "touchmove",
+  "MSPointerMove",
+];
+
+function onActivity(listener: () => void) {
+  ACTIVITY_EVENTS.forEach((event) =>
+    window.addEventListener(event, listener, false)
+  );
+  return () => {
+    ACTIVITY_EVENTS.forEach((event) =>
+      window.removeEventListener(event, listener, false)
+    );
+  };
+}
+
 export function NavTags() {
   const { fetchTags } = useTags();
+  const connected = useTagsConnected();
   const pollingInterval = getPollingInterval();
 
   useEffect(() => {
-    
     if (pollingInterval < 1000) {
       return;
     }
-    
+
+    // changed values are pushed while connected, only send the tags shown when they change
+    if (connected) {
+      let names: string | null = null;
+      let checked = 0;
+
+      const refreshTags = () => {
+        const now = Date.now();
+        if (now - checked < pollingInterval) {
+          return;
+        }
+        checked = now;
+        const current = getTagNames().join(",");
+        if (current !== names) {
+          names = current;
+          fetchTags();
+        }
+      };
+
+      refreshTags();
+      return onActivity(refreshTags);
+    }
+
     let pollPromise: NodeJS.Timeout | null = null;
     let pollIdle: NodeJS.Timeout | null = null;
 
@@ -33,7 +76,11 @@ export function NavTags() {
     }
 
     let pending = false;
+    let stopped = false;
     const pendingReset = () => {
+      if (stopped) {
+        return;
+      }
       pollPromise = setTimeout(findTags, pollingInterval);
       if (pollIdle === null) {
         pollIdle = setTimeout(cancelPolling, pollingInterval * 2);
@@ -55,24 +102,14 @@ export function NavTags() {
     // start polling
     startPolling();
 
-    window.addEventListener("mousemove", startPolling, false);
-    window.addEventListener("mousedown", startPolling, false);
-    window.addEventListener("keypress", startPolling, false);
-    window.addEventListener("DOMMouseScroll", startPolling, false);
-    window.addEventListener("mousewheel", startPolling, false);
-    window.addEventListener("touchmove", startPolling, false);
-    window.addEventListener("MSPointerMove", startPolling, false);
+    const removeListeners = onActivity(startPolling);
 
     return () => {
-      window.removeEventListener("mousemove", startPolling, false);
-      window.removeEventListener("mousedown", startPolling, false);
-      window.removeEventListener("keypress", startPolling, false);
-      window.removeEventListener("DOMMouseScroll", startPolling, false);
-      window.removeEventListener("mousewheel", startPolling, false);
-      window.removeEventListener("touchmove", startPolling, false);
-      window.removeEventListener("MSPointerMove", startPolling, false);
+      stopped = true;
+      removeListeners();
+      cancelPolling();
     };
-  }, [fetchTags, pollingInterval]);
+  }, [connected, fetchTags, pollingInterval]);
 
   return null;
 }
@@ -5,10 +5,10 @@ let bundle: Record<string, string> = {};
 
 // eslint-disable-next-line @typescript-eslint/no-namespace
 export namespace i18n {
-  export async function load() {
-    // load the translation catalog
+  export async function load(hash?: string) {
+    // load the translation catalog, versioned by hash so that it can be cached
     bundle = await request({
-      url: "js/messages.js",
+      url: hash ? `js/messages.js?v=${hash}` : "js/messages.js",
     }).then((res) => res.json());
 
     bundle = Object.fromEntries(
@@ -30,6 +30,7 @@ export interface SessionInfo {
     logo?: string;
     icon?: string;
     lang?: string;
+    i18nHash?: string;
     version?: string;
     home?: string;
     help?: string;
@@ -137,7 +138,7 @@ async function init() {
 
   const data = await resp.json();
 
-  await i18n.load();
+  await i18n.load(data.application?.i18nHash);
 
   return data as SessionInfo;
 }
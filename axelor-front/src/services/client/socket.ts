@@ -23,6 +23,10 @@ export class Socket {
   #listeners: Record<string, Set<SocketListener>> = {};
   #callbacks: { [K in EventName]?: Callback[] } = {};
 
+  get connected() {
+    return this.#ws?.readyState === WebSocket.OPEN;
+  }
+
   async init() {
     if (!this.#ws) {
       this.#ws = new WebSocket(url);
@@ -126,7 +130,13 @@ export class SocketChannel {
     socket.send("MSG", this.#channel, data);
   }
 
-  subscribe(listener: SocketListener) {
-    return socket.subscribe(this.#channel, listener, this.#callbacks);
+  subscribe(
+    listener: SocketListener,
+    callbacks?: { [K in EventName]?: Callback }
+  ) {
+    return socket.subscribe(this.#channel, listener, {
+      ...this.#callbacks,
+      ...callbacks,
+    });
   }
 }
@@ -41,6 +41,7 @@ import com.axelor.meta.db.MetaFile;
 import com.axelor.script.CompositeScriptHelper;
 import com.axelor.script.ScriptBindings;
 import com.axelor.script.ScriptHelper;
+import com.axelor.web.servlet.I18nServlet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -97,6 +98,7 @@ public class InfoService extends AbstractService {
     map.put("logo", getLogo());
     map.put("icon", getIcon());
     map.put("lang", AppFilter.getLocale().toLanguageTag());
+    map.put("i18nHash", I18nServlet.getHash(AppFilter.getLocale()));
 
     final Map<String, Object> signIn = signInInfo();
 
@@ -84,12 +84,14 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -97,6 +99,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
@@ -120,6 +123,8 @@ public class RestService extends ResourceService {
   private static final Locale CSV_LOCALE;
   private static final Character CSV_SEPARATOR;
 
+  private static final String GZIP_ENCODING = "gzip";
+
   static final AppSettings settings = AppSettings.get();
 
   static {
@@ -817,6 +822,52 @@ public class RestService extends ResourceService {
     return getResource().export(request, CSV_CHARSET, locale, CSV_SEPARATOR);
   }
 
+  @POST
+  @Path("export/stream")
+  @Produces("text/csv")
+  @Hidden
+  public javax.ws.rs.core.Response exportStream(
+      Request request, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+    if (request == null || request.getFields() == null) {
+      return javax.ws.rs.core.Response.status(Status.BAD_REQUEST).build();
+    }
+
+    request.setModel(getModel());
+    updateContext(request);
+
+    // check permissions before the response is committed
+    final Class<? extends Model> entityClass = entityClass();
+    final JpaSecurity security = Beans.get(JpaSecurity.class);
+    security.check(JpaSecurity.CAN_READ, entityClass);
+    security.check(JpaSecurity.CAN_EXPORT, entityClass);
+
+    final Locale locale = CSV_LOCALE != null ? CSV_LOCALE : AppFilter.getLocale();
+    final boolean gzip =
+        acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP_ENCODING);
+    final String fileName = entityClass.getSimpleName() + ".csv";
+
+    final StreamingOutput output =
+        out -> {
+          if (gzip) {
+            final GZIPOutputStream gz = new GZIPOutputStream(out);
+            getResource().exportStream(request, gz, CSV_CHARSET, locale, CSV_SEPARATOR);
+            gz.finish();
+          } else {
+            getResource().exportStream(request, out, CSV_CHARSET, locale, CSV_SEPARATOR);
+          }
+        };
+
+    final javax.ws.rs.core.Response.ResponseBuilder builder =
+        javax.ws.rs.core.Response.ok(output)
+            .header(
+                "Content-Disposition",
+                ContentDisposition.attachment().filename(fileName).build().toString());
+    if (gzip) {
+      builder.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+    }
+    return builder.build();
+  }
+
   @GET
   @Path("{id}/followers")
   @Hidden
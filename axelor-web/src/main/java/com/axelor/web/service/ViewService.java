@@ -280,7 +280,7 @@ public class ViewService extends AbstractService {
     final AbstractView view = (AbstractView) response.getData();
 
     final Map<String, Object> data = Maps.newHashMap();
-    data.put("view", view);
+    data.put("view", service.toJson(view));
 
     if (view instanceof Search && ((Search) view).getSearchForm() != null) {
       String searchForm = ((Search) view).getSearchForm();
@@ -19,17 +19,27 @@
 package com.axelor.web.servlet;
 
 import com.axelor.app.internal.AppFilter;
+import com.axelor.db.tenants.TenantResolver;
 import com.axelor.i18n.I18n;
+import com.axelor.i18n.I18nBundle;
 import com.axelor.inject.Beans;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import java.util.zip.GZIPOutputStream;
 import javax.inject.Singleton;
 import javax.servlet.ServletException;
@@ -37,6 +47,15 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Serves the translations of the current locale as a json object.
+ *
+ * <p>The json and gzip encoded responses are computed once per locale and reused until the
+ * translations are changed (see {@link I18nBundle#getVersion()}). The responses have a strong
+ * <code>ETag</code> so that clients can revalidate them with <code>If-None-Match</code>, and when
+ * requested with the hash returned by {@link #getHash(Locale)} as <code>v</code> parameter, they
+ * are cached as immutable.
+ */
 @Singleton
 public class I18nServlet extends HttpServlet {
 
@@ -47,6 +66,112 @@ public class I18nServlet extends HttpServlet {
   private static final String GZIP_ENCODING = "gzip";
   private static final String CONTENT_TYPE = "application/json; charset=utf8";
 
+  private static final String VERSION_PARAM = "v";
+
+  private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+  private static final String CACHE_REVALIDATE = "no-cache";
+
+  private static final Cache<List<Object>, Messages> CACHE =
+      CacheBuilder.newBuilder().maximumSize(100).build();
+
+  /** Precomputed response of a locale. */
+  private static final class Messages {
+
+    final long version;
+    final String hash;
+    final byte[] json;
+    final byte[] gzip;
+
+    Messages(long version, byte[] json) throws IOException {
+      this.version = version;
+      this.hash = json == null ? null : hash(json);
+      this.json = json;
+      this.gzip = compress(json);
+    }
+  }
+
+  /**
+   * Get the hash of the translations of the given locale.
+   *
+   * <p>The hash can be passed to the servlet as <code>v</code> parameter to get a response cached
+   * as immutable by the clients.
+   *
+   * @param locale the locale
+   * @return the hash or null if no translations found
+   */
+  public static String getHash(Locale locale) {
+    final Messages messages = messages(locale);
+    return messages == null ? null : messages.hash;
+  }
+
+  private static Messages messages(Locale locale) {
+    final List<Object> key =
+        Arrays.asList(TenantResolver.currentTenantIdentifier(), locale.toLanguageTag());
+    try {
+      Messages messages = CACHE.get(key, () -> load(locale));
+      if (messages.version != I18nBundle.getVersion()) {
+        CACHE.asMap().remove(key, messages);
+        messages = CACHE.get(key, () -> load(locale));
+      }
+      return messages.json == null ? null : messages;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static Messages load(Locale locale) throws IOException {
+    // read the version first, so that concurrent changes make the result outdated
+    final long version = I18nBundle.getVersion();
+    final ResourceBundle bundle = I18n.getBundle(locale);
+    if (bundle == null) {
+      return new Messages(version, null);
+    }
+
+    // sorted so that the same translations always give the same hash
+    final Map<String, String> messages = new TreeMap<>();
+    final Enumeration<String> keys = bundle.getKeys();
+
+    while (keys.hasMoreElements()) {
+      String key = keys.nextElement();
+      messages.put(key, bundle.getString(key));
+    }
+
+    final ObjectMapper mapper = Beans.get(ObjectMapper.class);
+    final String json = mapper.writeValueAsString(messages);
+    return new Messages(version, json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String hash(byte[] bytes) {
+    return Hashing.sha256().hashBytes(bytes).toString().substring(0, 32);
+  }
+
+  private static byte[] compress(byte[] bytes) throws IOException {
+    if (bytes == null) {
+      return null;
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.toByteArray();
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException {
@@ -56,37 +181,47 @@ public class I18nServlet extends HttpServlet {
       locale = req.getLocale();
     }
 
-    final ResourceBundle bundle = I18n.getBundle(locale);
-    if (bundle == null) {
+    final Messages messages;
+    try {
+      messages = messages(locale);
+    } catch (Exception e) {
+      resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      return;
+    }
+
+    if (messages == null) {
       resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
       return;
     }
 
-    resp.setContentType(CONTENT_TYPE);
+    final String acceptEncoding = req.getHeader(ACCEPT_ENCODING);
+    final boolean gzip =
+        acceptEncoding != null && acceptEncoding.toLowerCase().indexOf(GZIP_ENCODING) > -1;
 
-    OutputStream out = resp.getOutputStream();
-    if (req.getHeader(ACCEPT_ENCODING) != null
-        && req.getHeader(ACCEPT_ENCODING).toLowerCase().indexOf(GZIP_ENCODING) > -1) {
-      resp.setHeader(CONTENT_ENCODING, GZIP_ENCODING);
-      out = new GZIPOutputStream(out);
+    // each encoding is a different representation, so it needs its own strong etag
+    final String etag = "\"" + messages.hash + (gzip ? "-" + GZIP_ENCODING : "") + "\"";
+    final boolean immutable = messages.hash.equals(req.getParameter(VERSION_PARAM));
+
+    resp.setHeader("ETag", etag);
+    resp.setHeader("Vary", ACCEPT_ENCODING);
+    resp.setHeader("Cache-Control", immutable ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+
+    if (matches(req.getHeader("If-None-Match"), etag)) {
+      resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
     }
 
-    Enumeration<String> keys = bundle.getKeys();
-    Map<String, String> messages = new HashMap<>();
+    final byte[] body = gzip ? messages.gzip : messages.json;
 
-    while (keys.hasMoreElements()) {
-      String key = keys.nextElement();
-      messages.put(key, bundle.getString(key));
+    resp.setContentType(CONTENT_TYPE);
+    resp.setContentLength(body.length);
+
+    if (gzip) {
+      resp.setHeader(CONTENT_ENCODING, GZIP_ENCODING);
     }
 
-    try {
-      final ObjectMapper mapper = Beans.get(ObjectMapper.class);
-      final String json = mapper.writeValueAsString(messages);
-      out.write(json.getBytes(Charset.forName("UTF-8")));
-    } catch (Exception e) {
-      resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-    } finally {
-      out.close();
+    try (OutputStream out = resp.getOutputStream()) {
+      out.write(body);
     }
   }
 }
@@ -18,27 +18,73 @@
  */
 package com.axelor.web.socket.channels;
 
+import com.axelor.app.AppSettings;
+import com.axelor.app.AvailableAppSettings;
+import com.axelor.auth.AuthUtils;
+import com.axelor.auth.db.User;
+import com.axelor.db.JPA;
+import com.axelor.db.Model;
+import com.axelor.db.tenants.TenantResolver;
+import com.axelor.mail.db.MailFlags;
+import com.axelor.mail.db.MailFollower;
+import com.axelor.mail.db.MailMessage;
 import com.axelor.mail.web.MailController;
+import com.axelor.meta.service.tags.TagsCache;
 import com.axelor.meta.service.tags.TagsService;
+import com.axelor.rpc.ActionRequest;
 import com.axelor.rpc.ActionResponse;
-import com.axelor.rpc.Response;
+import com.axelor.team.db.TeamTask;
 import com.axelor.team.web.TaskController;
 import com.axelor.web.socket.Channel;
 import com.axelor.web.socket.Message;
+import com.axelor.web.socket.inject.WebSocketSecurityInterceptor;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.persistence.FlushModeType;
 import javax.transaction.Transactional;
 import javax.websocket.EncodeException;
 import javax.websocket.Session;
+import org.apache.shiro.session.InvalidSessionException;
 import org.slf4j.Logger;
 
+/**
+ * Channel sending the menu tags, mail and task counts.
+ *
+ * <p>The values are computed when the client asks for them and are then pushed to the subscribed
+ * sessions when records they depend on are changed. Only the changed values are pushed, at most
+ * once per polling interval.
+ */
 @Singleton
 public class TagsChannel extends Channel {
 
   private static final String NAME = "tags";
 
+  private static final String MAIL_PREFIX = "mail:";
+
+  private static final String FOLLOWERS_QUERY =
+      "SELECT DISTINCT f.user.id FROM MailFollower f "
+          + "WHERE f.relatedModel = :model AND f.relatedId = :id";
+
+  private static final Set<String> TASK_MODELS = Set.of(TeamTask.class.getName());
+
   @Inject private Logger log;
 
   @Inject private TagsService tagsService;
@@ -47,29 +93,223 @@ public class TagsChannel extends Channel {
 
   @Inject private MailController mailController;
 
+  private final TagsCache tagsCache;
+
+  private final Map<Session, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+  // changed models by tenant, waiting to be pushed
+  private final Map<String, Set<String>> changes = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  private final ScheduledExecutorService pusher =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("tags-push").setDaemon(true).build());
+
+  private final int delay =
+      Math.max(1, AppSettings.get().getInt(AvailableAppSettings.APPLICATION_POLLING_INTERVAL, 10));
+
+  /** The state of a subscribed session. */
+  private static class Subscriber {
+
+    private String tenant;
+    private List<String> names;
+    private Set<String> models = Collections.emptySet();
+    private Map<String, Object> values = Collections.emptyMap();
+  }
+
+  @Inject
+  public TagsChannel(TagsCache tagsCache) {
+    this.tagsCache = tagsCache;
+    this.tagsCache.addListener(this::onChange);
+    // the mail counts only depend on the messages of the records followed by the user
+    this.tagsCache.addResolver(MailMessage.class, TagsChannel::messageUsers);
+    this.tagsCache.addResolver(
+        MailFlags.class, flags -> users(flags, item -> ((MailFlags) item).getUser()));
+    this.tagsCache.addResolver(
+        MailFollower.class, followers -> users(followers, item -> ((MailFollower) item).getUser()));
+  }
+
+  private static String mailName(Object userId) {
+    return MAIL_PREFIX + userId;
+  }
+
+  private static Set<String> users(Collection<Model> records, Function<Model, User> user) {
+    final Set<String> names = new HashSet<>();
+    for (Model record : records) {
+      final User value = user.apply(record);
+      if (value != null) {
+        names.add(mailName(value.getId()));
+      }
+    }
+    return names;
+  }
+
+  // the followers of the records of the changed messages
+  private static Set<String> messageUsers(Collection<Model> messages) {
+    final Set<List<Object>> related = new HashSet<>();
+    for (Model item : messages) {
+      final MailMessage message = (MailMessage) item;
+      if (message.getRelatedModel() != null && message.getRelatedId() != null) {
+        related.add(Arrays.asList(message.getRelatedModel(), message.getRelatedId()));
+      }
+    }
+    final Set<String> names = new HashSet<>();
+    for (List<Object> record : related) {
+      JPA.em()
+          .createQuery(FOLLOWERS_QUERY, Long.class)
+          .setParameter("model", record.get(0))
+          .setParameter("id", record.get(1))
+          .setFlushMode(FlushModeType.COMMIT)
+          .getResultList()
+          .forEach(id -> names.add(mailName(id)));
+    }
+    return names;
+  }
+
   @Override
   public String getName() {
     return NAME;
   }
 
+  @Override
+  public void onSubscribe(Session session) {
+    subscribers.put(session, new Subscriber());
+  }
+
+  @Override
+  public void onUnsubscribe(Session session) {
+    subscribers.remove(session);
+  }
+
   @Override
   @Transactional
   public void onMessage(Session session, Message message) {
-    final ActionResponse response = new ActionResponse();
-    final List<String> names = getNames(message);
+    final Subscriber subscriber = subscribers.computeIfAbsent(session, s -> new Subscriber());
+    synchronized (subscriber) {
+      subscriber.tenant = Objects.toString(TenantResolver.currentTenantIdentifier(), "");
+      subscriber.names = getNames(message);
+      sendValues(session, compute(subscriber));
+    }
+  }
 
-    response.setValue("tags", tagsService.get(names));
-    response.setStatus(Response.STATUS_SUCCESS);
-    mailController.countMail(null, response);
-    teamController.countTasks(null, response);
+  private Map<String, Object> compute(Subscriber subscriber) {
+    final User user = AuthUtils.getUser();
+    final Long userId = user == null ? null : user.getId();
+    final Map<String, Object> values = new HashMap<>();
+
+    subscriber.models =
+        tagsCache.record(
+            () -> {
+              values.put("tags", tagsService.get(subscriber.names));
+              values.put(
+                  "mail",
+                  tagsCache.get(
+                      Arrays.asList("mail", userId),
+                      Set.of(mailName(userId)),
+                      () -> count(mailController::countMail, "mail")));
+              values.put(
+                  "tasks",
+                  tagsCache.get(
+                      Arrays.asList("tasks", userId),
+                      TASK_MODELS,
+                      () -> count(teamController::countTasks, "tasks")));
+            });
+
+    subscriber.values = values;
+    return values;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object count(BiConsumer<ActionRequest, ActionResponse> counter, String name) {
+    final ActionResponse response = new ActionResponse();
+    counter.accept(null, response);
+    final Map<String, Object> data = (Map<String, Object>) response.getItem(0);
+    return ((Map<String, Object>) data.get("values")).get(name);
+  }
 
+  private void sendValues(Session session, Map<String, Object> values) {
     try {
-      this.send(session, response.getItem(0));
+      this.send(session, Collections.singletonMap("values", values));
     } catch (IOException | EncodeException e) {
       log.error(e.getMessage(), e);
     }
   }
 
+  private void onChange(String tenant, Set<String> models) {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    changes
+        .computeIfAbsent(Objects.toString(tenant, ""), k -> ConcurrentHashMap.newKeySet())
+        .addAll(models);
+    if (scheduled.compareAndSet(false, true)) {
+      pusher.schedule(this::push, delay, TimeUnit.SECONDS);
+    }
+  }
+
+  private void push() {
+    scheduled.set(false);
+
+    final Map<String, Set<String>> changed = new HashMap<>();
+    for (String tenant : changes.keySet()) {
+      final Set<String> models = changes.remove(tenant);
+      if (models != null) {
+        changed.put(tenant, models);
+      }
+    }
+
+    subscribers.forEach(
+        (session, subscriber) -> {
+          final Set<String> models = changed.get(subscriber.tenant);
+          if (models == null
+              || subscriber.names == null
+              || Collections.disjoint(models, subscriber.models)) {
+            return;
+          }
+          if (!session.isOpen()) {
+            subscribers.remove(session);
+            return;
+          }
+          try {
+            WebSocketSecurityInterceptor.withAuth(
+                session,
+                subject -> {
+                  if (subject.isAuthenticated()) {
+                    push(session, subscriber);
+                  } else {
+                    subscribers.remove(session);
+                  }
+                  return null;
+                });
+          } catch (InvalidSessionException e) {
+            subscribers.remove(session);
+          } catch (Exception e) {
+            log.error("Unable to push tags: {}", e.getMessage());
+            log.trace("Error", e);
+          } finally {
+            TenantResolver.setCurrentTenant(null, null);
+          }
+        });
+  }
+
+  private void push(Session session, Subscriber subscriber) {
+    synchronized (subscriber) {
+      final Map<String, Object> last = subscriber.values;
+      final Map<String, Object> delta = new HashMap<>();
+      compute(subscriber)
+          .forEach(
+              (name, value) -> {
+                if (!Objects.equals(value, last.get(name))) {
+                  delta.put(name, value);
+                }
+              });
+      if (!delta.isEmpty()) {
+        sendValues(session, delta);
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private List<String> getNames(Message message) {
     Object data = message.getData();
@@ -46,7 +46,15 @@ public class WebSocketSecurityInterceptor implements MethodInterceptor {
   private static final Logger logger =
       LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private <T> T withAuth(Session session, Function<Subject, T> task) {
+  /**
+   * Run the given task with the tenant, unit of work and security subject of the given session.
+   *
+   * @param <T> the type of the result
+   * @param session the websocket session
+   * @param task the task to run
+   * @return the result of the task
+   */
+  public static <T> T withAuth(Session session, Function<Subject, T> task) {
     final Map<String, Object> properties = session.getUserProperties();
     final Object manager = properties.get(SecurityManager.class.getName());
     final Object subject = properties.get(Subject.class.getName());
@@ -20,6 +20,7 @@ package com.axelor.web;
 
 import com.axelor.test.WebServer;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -43,6 +44,10 @@ public abstract class AbstractTest {
     }
   }
 
+  protected WebTarget target(String path) {
+    return server.target().path(path);
+  }
+
   protected Invocation.Builder jsonPath(String path) {
     return server
         .target()
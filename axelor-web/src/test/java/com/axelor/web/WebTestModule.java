@@ -21,6 +21,7 @@ package com.axelor.web;
 import com.axelor.web.db.Repository;
 import com.axelor.web.service.RestService;
 import com.axelor.web.service.ViewService;
+import com.axelor.web.servlet.I18nServlet;
 import com.google.inject.persist.PersistFilter;
 import com.google.inject.servlet.ServletModule;
 import javax.inject.Inject;
@@ -55,5 +56,6 @@ public class WebTestModule extends ServletModule {
     bind(ObjectMapperResolver.class).asEagerSingleton();
 
     serve("_init").with(DataLoaderServlet.class);
+    serve("/js/messages.js").with(I18nServlet.class);
   }
 }
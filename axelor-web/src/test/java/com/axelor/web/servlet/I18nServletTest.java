@@ -0,0 +1,127 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.web.servlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.axelor.web.AbstractTest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+public class I18nServletTest extends AbstractTest {
+
+  private Invocation.Builder messages(String version, String encoding) {
+    WebTarget target = target("/js/messages.js");
+    if (version != null) {
+      target = target.queryParam("v", version);
+    }
+    return target
+        .request()
+        .header(HttpHeaders.ACCEPT_ENCODING, encoding == null ? "identity" : encoding);
+  }
+
+  private byte[] read(Response response) {
+    try (InputStream in = response.readEntity(InputStream.class)) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private byte[] decompress(byte[] bytes) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readAllBytes();
+    }
+  }
+
+  @Test
+  public void testNotModified() {
+    final Response first = messages(null, null).get();
+    assertEquals(200, first.getStatus());
+    assertEquals("no-cache", first.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, first.getHeaderString(HttpHeaders.VARY));
+
+    final String etag = first.getHeaderString(HttpHeaders.ETAG);
+    assertNotNull(etag);
+    assertEquals(first.getLength(), read(first).length);
+
+    // revalidation with the current etag gives an empty response
+    final Response second =
+        messages(null, null).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag).get();
+    assertEquals(304, second.getStatus());
+    assertEquals(etag, second.getHeaderString(HttpHeaders.ETAG));
+    second.close();
+
+    final Response other = messages(null, null).header(HttpHeaders.IF_NONE_MATCH, "\"x\"").get();
+    assertEquals(200, other.getStatus());
+    other.close();
+  }
+
+  @Test
+  public void testEncoding() throws IOException {
+    final Response identity = messages(null, null).get();
+    final String etag = identity.getHeaderString(HttpHeaders.ETAG);
+    final byte[] json = read(identity);
+    assertNull(identity.getHeaderString("Content-Encoding"));
+
+    final Response gzip = messages(null, "gzip, deflate").get();
+    assertEquals(200, gzip.getStatus());
+    assertEquals("gzip", gzip.getHeaderString("Content-Encoding"));
+
+    // each representation has its own strong etag
+    final String gzipEtag = gzip.getHeaderString(HttpHeaders.ETAG);
+    assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzipEtag);
+    assertArrayEquals(json, decompress(read(gzip)));
+
+    // the identity etag doesn't validate the gzip representation
+    final Response stale = messages(null, "gzip").header(HttpHeaders.IF_NONE_MATCH, etag).get();
+    assertEquals(200, stale.getStatus());
+    stale.close();
+  }
+
+  @Test
+  public void testImmutable() {
+    final Response response = messages(null, null).get();
+    final String etag = response.getHeaderString(HttpHeaders.ETAG);
+    final String hash = etag.substring(1, etag.length() - 1);
+    response.close();
+
+    final Response immutable = messages(hash, null).get();
+    assertEquals(200, immutable.getStatus());
+    assertEquals(
+        "public, max-age=31536000, immutable",
+        immutable.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    immutable.close();
+
+    // an outdated hash must be revalidated
+    final Response outdated = messages("outdated", null).get();
+    assertEquals("no-cache", outdated.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    outdated.close();
+  }
+}